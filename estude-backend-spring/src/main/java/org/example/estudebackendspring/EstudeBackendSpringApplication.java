@@ -2,9 +2,11 @@ package org.example.estudebackendspring;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 
 @SpringBootApplication
+@EnableScheduling
 public class EstudeBackendSpringApplication {
 
 	public static void main(String[] args) {
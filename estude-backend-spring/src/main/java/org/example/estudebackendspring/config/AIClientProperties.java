@@ -0,0 +1,38 @@
+package org.example.estudebackendspring.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cấu hình HTTP client dùng chung cho Python AI service (prefix ai.client).
+ * Timeout riêng theo endpoint: ai.client.endpoint-read-timeouts.[/predict]=30s
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "ai.client")
+public class AIClientProperties {
+
+    // Connection pool
+    private int maxConnections = 50;
+    private Duration connectTimeout = Duration.ofSeconds(5);
+    private Duration keepAlive = Duration.ofSeconds(30);
+
+    // Read timeout mặc định và theo từng endpoint (key = path, vd "/predict")
+    private Duration readTimeout = Duration.ofSeconds(60);
+    private Map<String, Duration> endpointReadTimeouts = new HashMap<>();
+
+    // Bulkhead: số lời gọi AI đồng thời tối đa, thời gian chờ slot
+    private int maxConcurrentCalls = 20;
+    private Duration bulkheadWait = Duration.ofMillis(500);
+
+    // Circuit breaker: số lỗi liên tiếp để mở mạch, thời gian mở trước khi thử lại
+    private int failureThreshold = 5;
+    private Duration openDuration = Duration.ofSeconds(30);
+}
@@ -0,0 +1,88 @@
+package org.example.estudebackendspring.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Executor cho các tác vụ nền.
+ * - aiJobExecutor: worker gọi Python AI service (pool + hàng đợi có giới hạn,
+ *   hàng đợi đầy thì từ chối để không dồn request vô hạn)
+ * - stompInboundExecutor / stompOutboundExecutor: xử lý frame STOMP từ client / gửi xuống client
+ *   (websocket.inbound.*, websocket.outbound.*); hàng đợi outbound được NotificationPushService
+ *   đọc làm tín hiệu backpressure
+ * - passwordHashExecutor: băm mật khẩu BCrypt song song khi tạo tài khoản hàng loạt; hàng đợi đầy thì
+ *   thread gọi tự băm (CallerRunsPolicy) để tự điều tiết thay vì từ chối
+ * - mailSenderExecutor: gửi email từ outbox qua SMTP; EmailOutboxService chỉ nhận từ DB số email
+ *   vừa chỗ trống của hàng đợi, phần còn lại nằm chờ trong outbox
+ */
+@Configuration
+public class AsyncConfig {
+
+    @Bean(name = "aiJobExecutor", destroyMethod = "shutdown")
+    public ThreadPoolTaskExecutor aiJobExecutor(
+            @Value("${ai.jobs.pool-size:4}") int poolSize,
+            @Value("${ai.jobs.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("ai-job-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "mailSenderExecutor", destroyMethod = "shutdown")
+    public ThreadPoolTaskExecutor mailSenderExecutor(
+            @Value("${mail.outbox.pool-size:2}") int poolSize,
+            @Value("${mail.outbox.queue-capacity:50}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("mail-sender-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "stompInboundExecutor", destroyMethod = "shutdown")
+    public ThreadPoolTaskExecutor stompInboundExecutor(WebSocketProperties webSocketProperties) {
+        return stompExecutor(webSocketProperties.getInbound(), "stomp-in-");
+    }
+
+    @Bean(name = "stompOutboundExecutor", destroyMethod = "shutdown")
+    public ThreadPoolTaskExecutor stompOutboundExecutor(WebSocketProperties webSocketProperties) {
+        return stompExecutor(webSocketProperties.getOutbound(), "stomp-out-");
+    }
+
+    @Bean(name = "passwordHashExecutor", destroyMethod = "shutdown")
+    public ThreadPoolTaskExecutor passwordHashExecutor(
+            @Value("${provisioning.hash-pool-size:4}") int poolSize,
+            @Value("${provisioning.hash-queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("password-hash-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    private static ThreadPoolTaskExecutor stompExecutor(WebSocketProperties.Pool pool, String threadNamePrefix) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(pool.getCorePoolSize());
+        executor.setMaxPoolSize(pool.getMaxPoolSize());
+        executor.setQueueCapacity(pool.getQueueCapacity());
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -1,65 +1,80 @@
 package org.example.estudebackendspring.config;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCache;
-import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.util.Arrays;
+import java.util.List;
 
 /**
  * Spring Cache Configuration
- * Sử dụng in-memory caching để tối ưu performance
- * 
- * Có thể nâng cấp lên Redis hoặc Caffeine trong tương lai
+ * Sử dụng in-memory caching (Caffeine) để tối ưu performance
+ *
+ * - Mỗi cache có giới hạn số phần tử + TTL riêng (app.cache.specs[...] trong application.properties)
+ * - Bật recordStats: hit/miss/eviction có ở /actuator/metrics/cache.gets?tag=cache:questionDetail
+ *
+ * Có thể nâng cấp lên Redis trong tương lai
  */
 @Configuration
 @EnableCaching
 public class CacheConfig {
-    
+
+    private static final List<String> CACHE_NAMES = List.of(
+        // Cache cho question bank summary (TTL ngắn vì hay thay đổi)
+        "questionBankSummary",
+
+        // Cache cho question bank full details
+        "questionBankFull",
+
+        // Cache cho question by topic
+        "questionBankByTopic",
+
+        // Cache cho question by subject
+        "questionBankBySubject",
+
+        // Cache cho question by subject and grade
+        "questionBankBySubjectGrade",
+
+        // Cache cho question by grade
+        "questionBankByGrade",
+
+        // Cache cho single question detail (TTL dài hơn)
+        "questionDetail",
+
+        // ===== Analytics Caches =====
+
+        // Cache cho question bank statistics overview
+        "questionBankStats",
+
+        // Cache cho question usage ranking
+        "questionUsageRanking",
+
+        // Cache cho questions needing improvement
+        "questionsNeedingImprovement",
+
+        // ===== Homeroom Teacher Analytics Caches =====
+
+        // Cache cho homeroom class overview
+        "homeroomClassOverview",
+
+        // ===== Teacher Analytics Caches =====
+
+        // Cache cho mốc so sánh toàn trường (theo schoolId)
+        "schoolPerformanceBaseline"
+    );
+
     @Bean
-    public CacheManager cacheManager() {
-        SimpleCacheManager cacheManager = new SimpleCacheManager();
-        cacheManager.setCaches(Arrays.asList(
-            // Cache cho question bank summary (TTL ngắn vì hay thay đổi)
-            new ConcurrentMapCache("questionBankSummary"),
-            
-            // Cache cho question bank full details
-            new ConcurrentMapCache("questionBankFull"),
-            
-            // Cache cho question by topic
-            new ConcurrentMapCache("questionBankByTopic"),
-            
-            // Cache cho question by subject
-            new ConcurrentMapCache("questionBankBySubject"),
-            
-            // Cache cho question by subject and grade
-            new ConcurrentMapCache("questionBankBySubjectGrade"),
-            
-            // Cache cho question by grade
-            new ConcurrentMapCache("questionBankByGrade"),
-            
-            // Cache cho single question detail (TTL dài hơn)
-            new ConcurrentMapCache("questionDetail"),
-            
-            // ===== Analytics Caches =====
-            
-            // Cache cho question bank statistics overview
-            new ConcurrentMapCache("questionBankStats"),
-            
-            // Cache cho question usage ranking
-            new ConcurrentMapCache("questionUsageRanking"),
-            
-            // Cache cho questions needing improvement
-            new ConcurrentMapCache("questionsNeedingImprovement"),
-            
-            // ===== Homeroom Teacher Analytics Caches =====
-            
-            // Cache cho homeroom class overview
-            new ConcurrentMapCache("homeroomClassOverview")
-        ));
+    public CacheManager cacheManager(CacheSpecProperties properties) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        // Cache phát sinh ngoài danh sách vẫn bị giới hạn theo default spec
+        cacheManager.setCaffeine(Caffeine.from(properties.getDefaultSpec()).recordStats());
+        for (String name : CACHE_NAMES) {
+            String spec = properties.getSpecs().getOrDefault(name, properties.getDefaultSpec());
+            cacheManager.registerCustomCache(name, Caffeine.from(spec).recordStats().build());
+        }
         return cacheManager;
     }
 }
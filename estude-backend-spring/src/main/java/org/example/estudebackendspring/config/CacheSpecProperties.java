@@ -0,0 +1,26 @@
+package org.example.estudebackendspring.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cấu hình Spring cache (prefix app.cache), mỗi cache là 1 Caffeine spec:
+ * app.cache.specs[questionDetail]=maximumSize=5000,expireAfterAccess=1h
+ * Cache không khai báo riêng dùng app.cache.default-spec.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "app.cache")
+public class CacheSpecProperties {
+
+    private String defaultSpec = "maximumSize=500,expireAfterWrite=10m";
+
+    // key = tên cache, value = Caffeine spec (maximumSize, expireAfterWrite, expireAfterAccess, ...)
+    private Map<String, String> specs = new HashMap<>();
+}
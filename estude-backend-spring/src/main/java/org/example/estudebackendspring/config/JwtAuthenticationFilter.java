@@ -1,11 +1,12 @@
 package org.example.estudebackendspring.config;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.example.estudebackendspring.entity.User;
-import org.example.estudebackendspring.repository.UserRepository;
+import org.example.estudebackendspring.service.JwtBlacklistService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -21,7 +22,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private JwtTokenUtil jwtTokenUtil;
     @Autowired
-    private UserRepository userRepository;
+    private UserPrincipalCache userPrincipalCache;
+    @Autowired
+    private JwtBlacklistService jwtBlacklistService;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
@@ -32,9 +35,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         String header = request.getHeader("Authorization");
         if (header != null && header.startsWith("Bearer ")) {
             String token = header.substring(7);
-            if (jwtTokenUtil.validateToken(token)) {
-                Long userId = jwtTokenUtil.getUserIdFromToken(token);
-                User user = userRepository.findById(userId).orElse(null);
+            // Parse token 1 lần, principal lấy từ cache (miss mới query DB)
+            // Token đã logout bị chặn qua revocation index trong bộ nhớ
+            Claims claims = jwtTokenUtil.getValidClaims(token);
+            if (claims != null && !jwtBlacklistService.isBlacklisted(token)) {
+                Long userId = claims.get("userId", Long.class);
+                User user = userPrincipalCache.get(userId);
                 if (user != null) {
                     UsernamePasswordAuthenticationToken auth =
                             new UsernamePasswordAuthenticationToken(user, null, List.of());
@@ -79,6 +79,15 @@ public class JwtTokenUtil {
         }
     }
 
+    // Parse + validate trong 1 lần, trả về null nếu token không hợp lệ
+    public Claims getValidClaims(String token) {
+        try {
+            return getAllClaimsFromToken(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     // NEW: validate reset token specifically (type claim + expiry)
     public boolean validateResetToken(String token) {
         try {
@@ -0,0 +1,115 @@
+package org.example.estudebackendspring.config;
+
+import io.jsonwebtoken.Claims;
+import lombok.extern.slf4j.Slf4j;
+import org.example.estudebackendspring.entity.User;
+import org.example.estudebackendspring.repository.AIAnalysisRequestRepository;
+import org.example.estudebackendspring.service.JwtBlacklistService;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Xác thực và phân quyền frame STOMP từ client (kênh inbound):
+ * - CONNECT có header "Authorization: Bearer <jwt>": gắn User làm principal của phiên (giống JwtAuthenticationFilter);
+ *   không có header thì phiên ẩn danh (vẫn nghe được topic chung của lớp)
+ * - SUBSCRIBE topic riêng của 1 người (/topic/user/{userId}/**, /topic/student/{userId}/**,
+ *   /topic/ai-jobs/{jobId}) chỉ được khi principal là chính người đó
+ * - Client không được SEND thẳng vào các topic riêng đó (giả mạo thông báo của người khác)
+ */
+@Slf4j
+@Component
+public class StompAuthChannelInterceptor implements ChannelInterceptor {
+
+    private static final Pattern USER_TOPIC = Pattern.compile("^/topic/(?:user|student)/(\\d+)(?:/.*)?$");
+    private static final Pattern AI_JOB_TOPIC = Pattern.compile("^/topic/ai-jobs/(\\d+)$");
+
+    private final JwtTokenUtil jwtTokenUtil;
+    private final JwtBlacklistService jwtBlacklistService;
+    private final UserPrincipalCache userPrincipalCache;
+    private final AIAnalysisRequestRepository aiAnalysisRequestRepository;
+
+    public StompAuthChannelInterceptor(JwtTokenUtil jwtTokenUtil,
+                                       JwtBlacklistService jwtBlacklistService,
+                                       UserPrincipalCache userPrincipalCache,
+                                       AIAnalysisRequestRepository aiAnalysisRequestRepository) {
+        this.jwtTokenUtil = jwtTokenUtil;
+        this.jwtBlacklistService = jwtBlacklistService;
+        this.userPrincipalCache = userPrincipalCache;
+        this.aiAnalysisRequestRepository = aiAnalysisRequestRepository;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null) return message;
+
+        switch (accessor.getCommand()) {
+            case CONNECT -> authenticate(accessor);
+            case SUBSCRIBE -> authorizeSubscribe(accessor);
+            case SEND -> {
+                String destination = accessor.getDestination();
+                if (destination != null && (USER_TOPIC.matcher(destination).matches()
+                        || AI_JOB_TOPIC.matcher(destination).matches())) {
+                    throw new AccessDeniedException("Không được gửi tới " + destination);
+                }
+            }
+            default -> { }
+        }
+        return message;
+    }
+
+    private void authenticate(StompHeaderAccessor accessor) {
+        String header = accessor.getFirstNativeHeader("Authorization");
+        if (header == null || !header.startsWith("Bearer ")) return;
+
+        String token = header.substring(7);
+        Claims claims = jwtTokenUtil.getValidClaims(token);
+        if (claims == null || jwtBlacklistService.isBlacklisted(token)) {
+            throw new AccessDeniedException("Token không hợp lệ");
+        }
+        User user = userPrincipalCache.get(claims.get("userId", Long.class));
+        if (user == null) {
+            throw new AccessDeniedException("Token không hợp lệ");
+        }
+        accessor.setUser(new UsernamePasswordAuthenticationToken(user, null, List.of()));
+    }
+
+    private void authorizeSubscribe(StompHeaderAccessor accessor) {
+        String destination = accessor.getDestination();
+        if (destination == null) return;
+
+        Matcher userTopic = USER_TOPIC.matcher(destination);
+        if (userTopic.matches()) {
+            requireUser(accessor.getUser(), Long.valueOf(userTopic.group(1)), destination);
+            return;
+        }
+        Matcher aiJobTopic = AI_JOB_TOPIC.matcher(destination);
+        if (aiJobTopic.matches()) {
+            Long ownerId = aiAnalysisRequestRepository.findById(Long.valueOf(aiJobTopic.group(1)))
+                    .map(r -> r.getStudent() != null ? r.getStudent().getUserId() : null)
+                    .orElse(null);
+            requireUser(accessor.getUser(), ownerId, destination);
+        }
+    }
+
+    // ownerId null: chỉ cần đã đăng nhập
+    private static void requireUser(Principal principal, Long ownerId, String destination) {
+        User user = principal instanceof UsernamePasswordAuthenticationToken auth
+                && auth.getPrincipal() instanceof User u ? u : null;
+        if (user == null || (ownerId != null && !ownerId.equals(user.getUserId()))) {
+            log.debug("Rejected STOMP subscription to {} by {}", destination, user != null ? user.getUserId() : "anonymous");
+            throw new AccessDeniedException("Không có quyền nghe " + destination);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.example.estudebackendspring.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.example.estudebackendspring.entity.User;
+import org.example.estudebackendspring.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+/**
+ * Cache principal (User) theo userId cho JwtAuthenticationFilter.
+ * - Giới hạn số phần tử + TTL (expire-after-write) để dữ liệu không bị cũ quá lâu
+ * - Miss -> 1 lần userRepository.findById, hit -> không chạm DB
+ * - Hit/miss được ghi nhận qua Micrometer: /actuator/metrics/cache.gets?tag=cache:userPrincipal
+ *
+ * Các service thay đổi thông tin user (avatar, mật khẩu, ...) phải gọi {@link #evict(Long)}.
+ */
+@Component
+public class UserPrincipalCache {
+
+    public static final String CACHE_NAME = "userPrincipal";
+
+    private final UserRepository userRepository;
+    private final Cache<Long, User> cache;
+
+    public UserPrincipalCache(UserRepository userRepository,
+                              MeterRegistry meterRegistry,
+                              @Value("${security.principal-cache.max-size:10000}") long maxSize,
+                              @Value("${security.principal-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.userRepository = userRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Lấy principal theo userId (claim trong JWT). Trả về null nếu user không tồn tại
+     * (không cache kết quả null để user mới tạo có thể đăng nhập ngay).
+     */
+    public User get(Long userId) {
+        if (userId == null) return null;
+        return cache.get(userId, id -> userRepository.findById(id).orElse(null));
+    }
+
+    /**
+     * Xoá principal khỏi cache. Nếu đang trong transaction thì xoá thêm một lần sau commit,
+     * tránh trường hợp request song song nạp lại dữ liệu cũ trước khi commit.
+     */
+    public void evict(Long userId) {
+        if (userId == null) return;
+        cache.invalidate(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidate(userId);
+                }
+            });
+        }
+    }
+
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+}
@@ -1,15 +1,49 @@
 package org.example.estudebackendspring.config;
 
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.config.StompBrokerRelayRegistration;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
+/**
+ * STOMP over WebSocket. Broker theo websocket.broker.mode:
+ * - SIMPLE: broker trong process, chỉ các socket nối vào cùng instance nhận được message
+ * - RELAY: chuyển tiếp /topic tới STOMP broker ngoài (RabbitMQ stomp plugin, ActiveMQ), dùng khi chạy nhiều instance
+ * Topic riêng của 1 người được bảo vệ bởi {@link StompAuthChannelInterceptor}.
+ */
+@Slf4j
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final WebSocketProperties properties;
+    private final ThreadPoolTaskExecutor stompInboundExecutor;
+    private final ThreadPoolTaskExecutor stompOutboundExecutor;
+    private final TaskScheduler messageBrokerTaskScheduler;
+    private final StompAuthChannelInterceptor stompAuthChannelInterceptor;
+
+    public WebSocketConfig(WebSocketProperties properties,
+                           StompAuthChannelInterceptor stompAuthChannelInterceptor,
+                           @Qualifier("stompInboundExecutor") ThreadPoolTaskExecutor stompInboundExecutor,
+                           @Qualifier("stompOutboundExecutor") ThreadPoolTaskExecutor stompOutboundExecutor,
+                           // Scheduler do @EnableWebSocketMessageBroker tạo, @Lazy để tránh vòng phụ thuộc
+                           @Lazy @Qualifier("messageBrokerTaskScheduler") TaskScheduler messageBrokerTaskScheduler) {
+        this.properties = properties;
+        this.stompAuthChannelInterceptor = stompAuthChannelInterceptor;
+        this.stompInboundExecutor = stompInboundExecutor;
+        this.stompOutboundExecutor = stompOutboundExecutor;
+        this.messageBrokerTaskScheduler = messageBrokerTaskScheduler;
+    }
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         // endpoint cho client kết nối
@@ -20,10 +54,53 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
-        // prefix cho client subscribe
-        registry.enableSimpleBroker("/topic");
+        WebSocketProperties.Broker broker = properties.getBroker();
+        long heartbeatSend = properties.getHeartbeat().getSend().toMillis();
+        long heartbeatReceive = properties.getHeartbeat().getReceive().toMillis();
+
+        if (broker.getMode() == WebSocketProperties.BrokerMode.RELAY) {
+            // prefix cho client subscribe, chuyển tiếp sang broker ngoài
+            StompBrokerRelayRegistration relay = registry.enableStompBrokerRelay("/topic")
+                    .setRelayHost(broker.getRelayHost())
+                    .setRelayPort(broker.getRelayPort())
+                    .setClientLogin(broker.getClientLogin())
+                    .setClientPasscode(broker.getClientPasscode())
+                    .setSystemLogin(broker.getSystemLogin())
+                    .setSystemPasscode(broker.getSystemPasscode())
+                    .setSystemHeartbeatSendInterval(heartbeatSend)
+                    .setSystemHeartbeatReceiveInterval(heartbeatReceive);
+            if (broker.getVirtualHost() != null && !broker.getVirtualHost().isBlank()) {
+                relay.setVirtualHost(broker.getVirtualHost());
+            }
+            log.info("STOMP broker relay enabled: {}:{}", broker.getRelayHost(), broker.getRelayPort());
+        } else {
+            // prefix cho client subscribe
+            registry.enableSimpleBroker("/topic")
+                    .setHeartbeatValue(new long[]{heartbeatSend, heartbeatReceive})
+                    .setTaskScheduler(messageBrokerTaskScheduler);
+        }
         // prefix cho client gửi message
         registry.setApplicationDestinationPrefixes("/app");
     }
-}
 
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor(stompInboundExecutor);
+        // JWT trong frame CONNECT, chặn SUBSCRIBE topic riêng của người khác
+        registration.interceptors(stompAuthChannelInterceptor);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        // Executor riêng để đo được hàng đợi gửi xuống client (backpressure cho push thông báo)
+        registration.taskExecutor(stompOutboundExecutor);
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        WebSocketProperties.Transport transport = properties.getTransport();
+        registration.setSendBufferSizeLimit((int) transport.getSendBufferSizeLimit().toBytes())
+                .setSendTimeLimit((int) transport.getSendTimeLimit().toMillis())
+                .setMessageSizeLimit((int) transport.getMessageSizeLimit().toBytes());
+    }
+}
@@ -0,0 +1,79 @@
+package org.example.estudebackendspring.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Cấu hình STOMP / WebSocket (prefix websocket).
+ * - broker.mode=simple: broker trong process (1 instance)
+ * - broker.mode=relay: chuyển tiếp tới STOMP broker ngoài (RabbitMQ / ActiveMQ) để các instance
+ *   thấy message của nhau
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "websocket")
+public class WebSocketProperties {
+
+    public enum BrokerMode { SIMPLE, RELAY }
+
+    private Broker broker = new Broker();
+    private Heartbeat heartbeat = new Heartbeat();
+    private Pool inbound = new Pool(4, 16, 1000);
+    private Pool outbound = new Pool(8, 8, Integer.MAX_VALUE);
+    private Transport transport = new Transport();
+
+    @Getter
+    @Setter
+    public static class Broker {
+        private BrokerMode mode = BrokerMode.SIMPLE;
+
+        // Chỉ dùng khi mode=relay
+        private String relayHost = "localhost";
+        private int relayPort = 61613;
+        private String clientLogin = "guest";
+        private String clientPasscode = "guest";
+        private String systemLogin = "guest";
+        private String systemPasscode = "guest";
+        private String virtualHost;
+    }
+
+    @Getter
+    @Setter
+    public static class Heartbeat {
+        // Server gửi heartbeat mỗi send, chờ client tối đa receive (0 = tắt)
+        private Duration send = Duration.ofSeconds(10);
+        private Duration receive = Duration.ofSeconds(10);
+    }
+
+    @Getter
+    @Setter
+    public static class Pool {
+        private int corePoolSize;
+        private int maxPoolSize;
+        private int queueCapacity;
+
+        public Pool() {
+        }
+
+        public Pool(int corePoolSize, int maxPoolSize, int queueCapacity) {
+            this.corePoolSize = corePoolSize;
+            this.maxPoolSize = maxPoolSize;
+            this.queueCapacity = queueCapacity;
+        }
+    }
+
+    @Getter
+    @Setter
+    public static class Transport {
+        // Giới hạn mỗi session: vượt buffer hoặc 1 lần gửi quá lâu thì đóng session (client chậm)
+        private DataSize sendBufferSizeLimit = DataSize.ofKilobytes(512);
+        private Duration sendTimeLimit = Duration.ofSeconds(15);
+        private DataSize messageSizeLimit = DataSize.ofKilobytes(64);
+    }
+}
@@ -31,6 +31,7 @@ public class AIAnalysisController {
     private final SubmissionReportService submissionReportService;
     private final TestAnalysisService testAnalysisService;
     private final LearningLoopService learningLoopService;
+    private final AIJobService aiJobService;
     private final AIAnalysisResultRepository resultRepository;
 
 
@@ -342,6 +343,58 @@ public class AIAnalysisController {
         }
     }
 
+    // ========== ASYNC AI JOBS ==========
+    // Các layer ở trên chạy đồng bộ (request thread chờ AI). Bản async lưu request và trả jobId ngay (202),
+    // kết quả lấy qua GET /api/ai/jobs/{jobId} hoặc STOMP /topic/ai-jobs/{jobId}.
+
+    @Operation(summary = "Layer 1 (async): Learning Feedback", description = "Trả về jobId ngay, kết quả đẩy qua /topic/ai-jobs/{jobId}")
+    @PostMapping("/learning-feedback/async")
+    public ResponseEntity<AIJobResponse> submitLearningFeedback(@RequestBody FeedbackRequest request) {
+        return ResponseEntity.accepted().body(learningLoopService.submitLearningFeedback(request));
+    }
+
+    @Operation(summary = "Layer 2 (async): Learning Recommendation", description = "Trả về jobId ngay, kết quả đẩy qua /topic/ai-jobs/{jobId}")
+    @PostMapping("/learning-recommendation/async")
+    public ResponseEntity<AIJobResponse> submitLearningRecommendation(@RequestBody RecommendationRequest request) {
+        return ResponseEntity.accepted().body(learningLoopService.submitLearningRecommendation(request));
+    }
+
+    @Operation(summary = "Layer 3 (async): Practice Quiz Generation", description = "Trả về jobId ngay, kết quả đẩy qua /topic/ai-jobs/{jobId}")
+    @PostMapping("/generate-practice-quiz/async")
+    public ResponseEntity<AIJobResponse> submitPracticeQuiz(@RequestBody PracticeQuizRequest request) {
+        return ResponseEntity.accepted().body(learningLoopService.submitPracticeQuiz(request));
+    }
+
+    @Operation(summary = "Layer 3.5 (async): Review Practice Results", description = "Trả về jobId ngay, kết quả đẩy qua /topic/ai-jobs/{jobId}")
+    @PostMapping("/review-practice-results/async")
+    public ResponseEntity<AIJobResponse> submitPracticeReview(@RequestBody ReviewPracticeRequest request) {
+        return ResponseEntity.accepted().body(learningLoopService.submitPracticeReview(request));
+    }
+
+    @Operation(summary = "Layer 4 (async): Improvement Evaluation", description = "Trả về jobId ngay, kết quả đẩy qua /topic/ai-jobs/{jobId}")
+    @PostMapping("/improvement-evaluation/async")
+    public ResponseEntity<AIJobResponse> submitImprovementEvaluation(@RequestBody ImprovementRequest request) {
+        return ResponseEntity.accepted().body(learningLoopService.submitImprovementEvaluation(request));
+    }
+
+    @Operation(summary = "Layer 5 (async): Learning Roadmap Generation", description = "Trả về jobId ngay, kết quả đẩy qua /topic/ai-jobs/{jobId}")
+    @PostMapping("/generate-learning-roadmap/async")
+    public ResponseEntity<AIJobResponse> submitLearningRoadmap(@RequestBody RoadmapRequest request) {
+        return ResponseEntity.accepted().body(learningLoopService.submitLearningRoadmap(request));
+    }
+
+    @Operation(summary = "Full Learning Loop (async)", description = "Trả về jobId ngay, kết quả đẩy qua /topic/ai-jobs/{jobId}")
+    @PostMapping("/full-learning-loop/async")
+    public ResponseEntity<AIJobResponse> submitFullLearningLoop(@RequestBody FeedbackRequest request) {
+        return ResponseEntity.accepted().body(learningLoopService.submitFullLearningLoop(request));
+    }
+
+    @Operation(summary = "Polling trạng thái job AI", description = "PENDING / RUNNING / COMPLETED (kèm data, resultId) / FAILED")
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<AIJobResponse> getJob(@PathVariable Long jobId) {
+        return ResponseEntity.ok(aiJobService.getJob(jobId));
+    }
+
     // ========= Student self-serve GET endpoints =========
     private Long currentUserId() {
         var auth = SecurityContextHolder.getContext().getAuthentication();
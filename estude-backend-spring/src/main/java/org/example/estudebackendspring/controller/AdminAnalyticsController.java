@@ -4,13 +4,22 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.example.estudebackendspring.dto.analytics.QuestionBankStatisticsDTO;
 import org.example.estudebackendspring.dto.analytics.QuestionUsageStatsDTO;
+import org.example.estudebackendspring.entity.User;
+import org.example.estudebackendspring.enums.UserRole;
+import org.example.estudebackendspring.service.GradeRollupService;
 import org.example.estudebackendspring.service.LogEntryService;
 import org.example.estudebackendspring.service.QuestionAnalyticsService;
+import org.example.estudebackendspring.service.QuestionUsageService;
+import org.example.estudebackendspring.service.TopicMasteryService;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * REST API for Admin Analytics Dashboard
@@ -25,6 +34,9 @@ public class AdminAnalyticsController {
     
     private final QuestionAnalyticsService questionAnalyticsService;
     private final LogEntryService logEntryService;
+    private final GradeRollupService gradeRollupService;
+    private final QuestionUsageService questionUsageService;
+    private final TopicMasteryService topicMasteryService;
     
     /**
      * GET /api/admin/analytics/questions/overview
@@ -223,4 +235,103 @@ public class AdminAnalyticsController {
             return ResponseEntity.internalServerError().build();
         }
     }
+    
+    /**
+     * POST /api/admin/analytics/grade-rollups/rebuild
+     * Rebuild all grade rollups (class-subject / class / school) from subject_grades.
+     * Only needed after subject_grades was changed outside SubjectGradeService (imports, manual SQL);
+     * grade edits wait on the rollup table lock until the rebuild commits.
+     * Admin only: 401 without a signed-in user, 403 for other roles.
+     * 
+     * Response:
+     * {
+     *   "rows": 1520
+     * }
+     */
+    @PostMapping("/grade-rollups/rebuild")
+    public ResponseEntity<Map<String, Long>> rebuildGradeRollups() {
+        HttpStatus rejected = rejectUnlessAdmin();
+        if (rejected != null) {
+            return ResponseEntity.status(rejected).build();
+        }
+        try {
+            log.info("Admin requested full grade rollup rebuild");
+            long rows = gradeRollupService.rebuildAll();
+            return ResponseEntity.ok(Map.of("rows", rows));
+        } catch (Exception e) {
+            log.error("Error rebuilding grade rollups: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
+    /**
+     * POST /api/admin/analytics/questions/usage/rebuild
+     * Rebuild all question usage counters from assessment_answers and answers.
+     * Only needed after answers were imported or deleted directly in the database;
+     * submissions wait on the usage table locks until the rebuild commits.
+     * Admin only: 401 without a signed-in user, 403 for other roles.
+     * 
+     * Response:
+     * {
+     *   "questions": 840
+     * }
+     */
+    @PostMapping("/questions/usage/rebuild")
+    public ResponseEntity<Map<String, Long>> rebuildQuestionUsage() {
+        HttpStatus rejected = rejectUnlessAdmin();
+        if (rejected != null) {
+            return ResponseEntity.status(rejected).build();
+        }
+        try {
+            log.info("Admin requested full question usage rebuild");
+            long questions = questionUsageService.rebuildAll();
+            return ResponseEntity.ok(Map.of("questions", questions));
+        } catch (Exception e) {
+            log.error("Error rebuilding question usage counters: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
+    /**
+     * POST /api/admin/analytics/topics/mastery/rebuild
+     * Rebuild per-student topic mastery from the topic_progress history.
+     * Only needed after topic_progress rows were imported or edited directly;
+     * practice-test submissions wait on the topic_mastery lock until the rebuild commits.
+     * Admin only: 401 without a signed-in user, 403 for other roles.
+     * 
+     * Response:
+     * {
+     *   "rows": 5120
+     * }
+     */
+    @PostMapping("/topics/mastery/rebuild")
+    public ResponseEntity<Map<String, Long>> rebuildTopicMastery() {
+        HttpStatus rejected = rejectUnlessAdmin();
+        if (rejected != null) {
+            return ResponseEntity.status(rejected).build();
+        }
+        try {
+            log.info("Admin requested full topic mastery rebuild");
+            long rows = topicMasteryService.rebuildAll();
+            return ResponseEntity.ok(Map.of("rows", rows));
+        } catch (Exception e) {
+            log.error("Error rebuilding topic mastery: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
+    /**
+     * Rebuilds lock whole tables. /api/admin/** is permitAll and method security is not enabled,
+     * so the caller's role is checked here.
+     *
+     * @return null for an admin, otherwise the status to reject the request with
+     */
+    private static HttpStatus rejectUnlessAdmin() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        Object principal = authentication != null ? authentication.getPrincipal() : null;
+        if (!(principal instanceof User user)) {
+            return HttpStatus.UNAUTHORIZED;
+        }
+        return user.getRole() == UserRole.ADMIN ? null : HttpStatus.FORBIDDEN;
+    }
 }
@@ -4,17 +4,24 @@ import org.example.estudebackendspring.entity.Student;
 import org.example.estudebackendspring.entity.Teacher;
 import org.example.estudebackendspring.entity.User;
 import org.example.estudebackendspring.enums.ActionType;
+import org.example.estudebackendspring.exception.BadRequestException;
+import org.example.estudebackendspring.dto.ProvisionAccountRow;
 import org.example.estudebackendspring.repository.UserRepository;
+import org.example.estudebackendspring.service.AccountProvisioningService;
 import org.example.estudebackendspring.service.AdminService;
 import org.example.estudebackendspring.service.LogEntryService;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RequestParam;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Date;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/admin")
@@ -22,11 +29,14 @@ public class AdminController {
     private final AdminService adminService;
     private final LogEntryService logEntryService;
     private final UserRepository userRepository;
+    private final AccountProvisioningService accountProvisioningService;
 
-    public AdminController(AdminService adminService, LogEntryService logEntryService, UserRepository userRepository) {
+    public AdminController(AdminService adminService, LogEntryService logEntryService, UserRepository userRepository,
+                           AccountProvisioningService accountProvisioningService) {
         this.adminService = adminService;
         this.logEntryService = logEntryService;
         this.userRepository = userRepository;
+        this.accountProvisioningService = accountProvisioningService;
     }
 
     @PostMapping("/create-student")
@@ -91,4 +101,53 @@ public class AdminController {
         
         return teacher;
     }
+
+    /**
+     * Bulk-create student or teacher accounts from an uploaded file (raw request body).
+     * Content-Type text/csv (header row: code, fullName, email, phone, password, dob, isAdmin, isHomeroomTeacher)
+     * or application/json (array of rows). The file is validated before the response starts (400 on bad format);
+     * the result of every row is then streamed back as NDJSON, one ProvisionResultDTO per line.
+     *
+     * @param type students | teachers
+     */
+    @PostMapping(value = "/provision/{type}", consumes = {"text/csv", MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<StreamingResponseBody> provisionAccounts(@PathVariable String type,
+                                                                   @RequestParam Long schoolId,
+                                                                   @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                                   InputStream body) throws IOException {
+        AccountProvisioningService.AccountType accountType = switch (type) {
+            case "students" -> AccountProvisioningService.AccountType.STUDENT;
+            case "teachers" -> AccountProvisioningService.AccountType.TEACHER;
+            default -> throw new BadRequestException("Loại tài khoản không hợp lệ: " + type);
+        };
+        accountProvisioningService.requireSchool(schoolId);
+        boolean json = MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(contentType));
+        List<ProvisionAccountRow> rows = accountProvisioningService.parse(body, json);
+
+        // Lấy người thao tác trước khi stream (stream chạy trên thread khác); gọi ẩn danh thì không ghi log
+        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        User currentUser = principal instanceof User u ? u : null;
+
+        StreamingResponseBody stream = out -> {
+            long created = accountProvisioningService.provision(accountType, schoolId, rows, out);
+            if (currentUser == null) return;
+            try {
+                logEntryService.createLog(
+                    "School",
+                    schoolId,
+                    "Admin tạo hàng loạt " + created + "/" + rows.size()
+                            + (accountType == AccountProvisioningService.AccountType.STUDENT ? " học sinh" : " giáo viên"),
+                    ActionType.CREATE,
+                    schoolId,
+                    "School",
+                    currentUser
+                );
+            } catch (Exception e) {
+                System.err.println("Failed to log account provisioning: " + e.getMessage());
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(stream);
+    }
 }
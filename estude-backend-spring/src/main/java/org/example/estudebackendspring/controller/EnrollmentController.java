@@ -2,6 +2,7 @@ package org.example.estudebackendspring.controller;
 
 
 import jakarta.validation.Valid;
+import org.example.estudebackendspring.dto.BulkEnrollmentReportDTO;
 import org.example.estudebackendspring.dto.CreateEnrollmentRequest;
 import org.example.estudebackendspring.dto.EnrollmentDTO;
 import org.example.estudebackendspring.entity.Enrollment;
@@ -114,6 +115,39 @@ public class  EnrollmentController {
         return ResponseEntity.status(HttpStatus.CREATED).body(dtos);
     }
 
+    /**
+     * POST /api/enrollments/bulk?classId=
+     * Bulk enrollment (e.g. a whole grade level at term start). Valid students are enrolled, invalid ones
+     * are skipped; the response reports ACCEPTED / ALREADY_ENROLLED / REJECTED (with reason) per student.
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<BulkEnrollmentReportDTO> enrollStudentsBulk(
+            @RequestParam Long classId,
+            @RequestBody List<Long> studentIds) {
+
+        BulkEnrollmentReportDTO report = service.enrollStudentsBulk(classId, studentIds);
+
+        // 1 log cho cả lô
+        try {
+            Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+            if (principal instanceof User currentUser && report.getAccepted() > 0) {
+                logEntryService.createLog(
+                    "Enrollment",
+                    null,
+                    "Ghi danh hàng loạt " + report.getAccepted() + " học sinh vào lớp",
+                    ActionType.CREATE,
+                    classId,
+                    "Clazz",
+                    currentUser
+                );
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to log bulk enrollment: " + e.getMessage());
+        }
+
+        return ResponseEntity.ok(report);
+    }
+
     @DeleteMapping("/{enrollmentId}")
     public ResponseEntity<Void> removeEnrollment(@PathVariable Long enrollmentId) {
         // Get enrollment info before deletion for logging
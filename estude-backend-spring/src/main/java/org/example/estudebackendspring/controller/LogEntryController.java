@@ -1,15 +1,20 @@
 package org.example.estudebackendspring.controller;
 
+import org.example.estudebackendspring.dto.CursorPageResponse;
 import org.example.estudebackendspring.dto.LogEntryDTO;
-import org.example.estudebackendspring.entity.LogEntry;
 import org.example.estudebackendspring.service.LogEntryService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Controller;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.time.LocalDateTime;
 
 @RestController
 @RequestMapping("/api/logentries")
@@ -17,9 +22,37 @@ public class LogEntryController {
     @Autowired
     private LogEntryService logEntryService;
 
+    /**
+     * GET /api/logentries?entity=&userId=&from=&to=&cursor=&size=
+     * Keyset-paginated, newest first. Pass nextCursor of the previous page as cursor.
+     * from / to are ISO date-times (from inclusive, to exclusive).
+     */
     @GetMapping
     @org.springframework.transaction.annotation.Transactional(readOnly = true)
-    public List<LogEntryDTO> getLogEntries() {
-            return logEntryService.getAllLogs();
+    public CursorPageResponse<LogEntryDTO> getLogEntries(
+            @RequestParam(required = false) String entity,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Long cursor,
+            @RequestParam(defaultValue = "50") int size) {
+            return logEntryService.getLogs(entity, userId, from, to, cursor, size);
+    }
+
+    /**
+     * GET /api/logentries/export?entity=&userId=&from=&to=
+     * Streams every matching entry as NDJSON (one JSON object per line), newest first.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportLogEntries(
+            @RequestParam(required = false) String entity,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        StreamingResponseBody body = out -> logEntryService.exportLogs(entity, userId, from, to, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"logentries.ndjson\"")
+                .body(body);
     }
 }
@@ -2,6 +2,7 @@ package org.example.estudebackendspring.controller;
 
 import jakarta.validation.Valid;
 import org.example.estudebackendspring.dto.CreateNotificationRequest;
+import org.example.estudebackendspring.dto.CursorPageResponse;
 import org.example.estudebackendspring.dto.NotificationRecipientDto;
 import org.example.estudebackendspring.dto.NotificationResponse;
 import org.example.estudebackendspring.dto.UpdateNotificationRequest;
@@ -74,12 +75,53 @@ public class NotificationController {
 //        Page<NotificationRecipientDto> pageDto = notificationService.getNotificationsForUser(currentUser.getUserId(), pageable);
 //        return ResponseEntity.ok(pageDto);
 //    }
+    // Inbox phân trang keyset: gửi lại nextCursor của trang trước để lấy trang sau
     @GetMapping("/me")
-    public ResponseEntity<?> getMyNotifications() {
+    public ResponseEntity<?> getMyNotifications(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size
+    ) {
         User currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
         if (currentUser == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-        List<NotificationRecipientDto> listDto = notificationService.getNotificationsForUser(currentUser.getUserId());
-        return ResponseEntity.ok(listDto);
+        try {
+            CursorPageResponse<NotificationRecipientDto> pageDto =
+                    notificationService.getNotificationsForUser(currentUser.getUserId(), cursor, size);
+            return ResponseEntity.ok(pageDto);
+        } catch (IllegalArgumentException iae) {
+            return ResponseEntity.badRequest().body(iae.getMessage());
+        }
+    }
+
+    // Số thông báo chưa đọc (biểu tượng chuông)
+    @GetMapping("/me/unread-count")
+    public ResponseEntity<?> getMyUnreadCount() {
+        User currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        if (currentUser == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        return ResponseEntity.ok(Map.of("unreadCount", notificationService.getUnreadCount(currentUser.getUserId())));
+    }
+
+    @PatchMapping("/me/{recipientId}/read")
+    public ResponseEntity<?> markAsRead(@PathVariable Long recipientId) {
+        User currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        if (currentUser == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        notificationService.markAsRead(recipientId, currentUser.getUserId());
+        return ResponseEntity.noContent().build();
+    }
+
+    @PatchMapping("/me/{recipientId}/unread")
+    public ResponseEntity<?> markAsUnread(@PathVariable Long recipientId) {
+        User currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        if (currentUser == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        notificationService.markAsUnread(recipientId, currentUser.getUserId());
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/me/read-all")
+    public ResponseEntity<?> markAllAsRead() {
+        User currentUser = (User) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        if (currentUser == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        int updated = notificationService.markAllAsRead(currentUser.getUserId());
+        return ResponseEntity.ok(Map.of("updated", updated));
     }
 
     // Get notifications sent by current user
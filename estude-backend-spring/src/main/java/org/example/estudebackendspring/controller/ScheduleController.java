@@ -1,6 +1,7 @@
 package org.example.estudebackendspring.controller;
 
 import org.example.estudebackendspring.dto.CreateNotificationRequest;
+import org.example.estudebackendspring.dto.ScheduleBatchResultDTO;
 import org.example.estudebackendspring.dto.ScheduleDTO;
 import org.example.estudebackendspring.entity.ClassSubject;
 import org.example.estudebackendspring.entity.Schedule;
@@ -88,6 +89,40 @@ public class ScheduleController {
         return new ResponseEntity<>(createdSchedule, HttpStatus.CREATED);
     }
 
+    /**
+     * POST /api/schedules/batch
+     * Creates a whole timetable (e.g. a term) in one transaction. Every entry is checked for period
+     * overlaps against the class's saved schedules and against the other entries of the request;
+     * on any overlap nothing is saved and 409 lists all conflicts.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<ScheduleBatchResultDTO> createSchedules(@RequestBody List<Schedule> schedules) {
+        ScheduleBatchResultDTO result = scheduleService.createSchedules(schedules);
+
+        try {
+            logEntryService.createLog(
+                "Schedule",
+                null,
+                "Tạo thời khóa biểu hàng loạt: " + result.getInserted() + " lịch học",
+                ActionType.CREATE,
+                null,
+                "",
+                null
+            );
+        } catch (Exception e) {
+            System.err.println("Failed to log schedule batch creation: " + e.getMessage());
+        }
+
+        // 1 message / lớp môn học, client tải lại thời khóa biểu
+        for (Long classSubjectId : result.getClassSubjectIds()) {
+            messagingTemplate.convertAndSend(
+                    "/topic/class/" + classSubjectId + "/schedules",
+                    Map.of("action", "BATCH_CREATE")
+            );
+        }
+        return new ResponseEntity<>(result, HttpStatus.CREATED);
+    }
+
     @PutMapping("/{scheduleId}")
     public ResponseEntity<ScheduleDTO> updateSchedule(@PathVariable Long scheduleId, @RequestBody Schedule schedule) {
         try {
@@ -0,0 +1,35 @@
+package org.example.estudebackendspring.dto;
+
+import lombok.*;
+import org.example.estudebackendspring.enums.AttendanceStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Frame STOMP gửi tới /topic/class/{classSubjectId}/sessions khi trạng thái điểm danh của buổi thay đổi.
+ * Chỉ chứa các học sinh vừa đổi trạng thái (không gửi lại cả danh sách);
+ * type = ROSTER_DELTA để client phân biệt với AttendanceSessionDTO trên cùng topic.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AttendanceRosterDeltaDTO {
+    public static final String TYPE = "ROSTER_DELTA";
+
+    @Builder.Default
+    private String type = TYPE;
+    private Long sessionId;
+    private Long classSubjectId;
+    private List<Change> changes;
+    private LocalDateTime timestamp;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Change {
+        private Long studentId;
+        private AttendanceStatus status;
+    }
+}
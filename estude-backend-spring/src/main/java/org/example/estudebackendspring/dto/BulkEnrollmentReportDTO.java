@@ -0,0 +1,36 @@
+package org.example.estudebackendspring.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Kết quả ghi danh hàng loạt: 1 dòng / học sinh (theo thứ tự trong request, bỏ id lặp)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkEnrollmentReportDTO {
+    private Long classId;
+    private int accepted;
+    private int alreadyEnrolled;
+    private int rejected;
+    private int classSize;
+    private List<StudentResult> results;
+
+    public enum Status {
+        ACCEPTED,         // đã ghi danh
+        ALREADY_ENROLLED, // đã ở trong lớp, bỏ qua
+        REJECTED          // không ghi danh được, xem reason
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class StudentResult {
+        private Long studentId;
+        private Status status;
+        private String reason;
+    }
+}
@@ -0,0 +1,21 @@
+package org.example.estudebackendspring.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Generic DTO cho keyset (cursor) pagination: không đếm tổng số dòng,
+ * trang sau lấy bằng cách gửi lại nextCursor (null = hết dữ liệu).
+ * nextCursor là chuỗi opaque: client chỉ gửi lại, không tự tạo
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CursorPageResponse<T> {
+    private List<T> content;
+    private int pageSize;
+    private String nextCursor;
+    private boolean last;
+}
@@ -0,0 +1,20 @@
+package org.example.estudebackendspring.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Frame STOMP gửi tới /topic/user/{userId}/notifications.
+ * Gộp mọi thông báo mới của user kể từ lần gửi trước (mới nhất trước) cùng số chưa đọc hiện tại;
+ * truncated = true nghĩa là có thông báo bị bỏ khỏi frame, client nên tải lại inbox.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NotificationPushMessage {
+    private long unreadCount;
+    private List<NotificationRecipientDto> notifications;
+    private boolean truncated;
+}
@@ -0,0 +1,23 @@
+package org.example.estudebackendspring.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 1 dòng của file tạo tài khoản hàng loạt (CSV có header cùng tên cột, hoặc mảng JSON).
+ * code là mã học sinh / mã giáo viên; dob dạng yyyy-MM-dd; isAdmin, isHomeroomTeacher chỉ dùng cho giáo viên.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProvisionAccountRow {
+    private String code;
+    private String fullName;
+    private String email;
+    private String phone;
+    private String password;
+    private String dob;
+    private Boolean isAdmin;
+    private Boolean isHomeroomTeacher;
+}
@@ -0,0 +1,26 @@
+package org.example.estudebackendspring.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Kết quả 1 dòng khi tạo tài khoản hàng loạt (1 dòng NDJSON trong response)
+ *
+ * row: số thứ tự dòng dữ liệu trong file (bắt đầu từ 1, không tính header)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProvisionResultDTO {
+    public enum Status {
+        CREATED,
+        REJECTED
+    }
+
+    private int row;
+    private String code;
+    private Status status;
+    private Long userId;
+    private String reason;
+}
@@ -0,0 +1,18 @@
+package org.example.estudebackendspring.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Kết quả POST /api/schedules/batch
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ScheduleBatchResultDTO {
+    private int inserted;
+    private List<Long> classIds;
+    private List<Long> classSubjectIds;
+}
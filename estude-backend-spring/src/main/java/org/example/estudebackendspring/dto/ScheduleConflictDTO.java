@@ -0,0 +1,26 @@
+package org.example.estudebackendspring.dto;
+
+import lombok.*;
+
+import java.time.LocalDate;
+
+/**
+ * 1 cặp lịch trùng tiết trong cùng lớp, cùng ngày.
+ * index là vị trí của lịch đề xuất trong request; bên bị trùng là lịch đã lưu (scheduleId)
+ * hoặc 1 lịch khác trong cùng request (conflictingIndex).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ScheduleConflictDTO {
+    private Integer index;
+    private Long scheduleId;
+    private Integer conflictingIndex;
+    private Long classId;
+    private LocalDate date;
+    private Integer startPeriod;
+    private Integer endPeriod;
+    private Integer conflictingStartPeriod;
+    private Integer conflictingEndPeriod;
+}
@@ -0,0 +1,29 @@
+package org.example.estudebackendspring.dto.learning;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.estudebackendspring.enums.AIJobStatus;
+import org.example.estudebackendspring.enums.AnalysisType;
+
+import java.time.LocalDateTime;
+
+/**
+ * Trạng thái job AI bất đồng bộ (trả về khi submit, khi polling và qua STOMP /topic/ai-jobs/{jobId})
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AIJobResponse {
+    private Long jobId;              // = AIAnalysisRequest.requestId
+    private AnalysisType analysisType;
+    private AIJobStatus status;
+    private LocalDateTime submittedAt;
+    private LocalDateTime completedAt;
+    private Long resultId;           // AIAnalysisResult.resultId khi COMPLETED
+    private JsonNode data;           // AIAnalysisResult.detailedAnalysis khi COMPLETED
+    private String message;
+}
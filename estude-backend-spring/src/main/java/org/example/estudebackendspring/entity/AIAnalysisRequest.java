@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import jakarta.persistence.*;
 import lombok.*;
 import org.example.estudebackendspring.Converter.JsonNodeConverter;
+import org.example.estudebackendspring.enums.AIJobStatus;
 import org.example.estudebackendspring.enums.AnalysisType;
 
 import java.time.LocalDateTime;
@@ -22,6 +23,10 @@ public class AIAnalysisRequest {
     private LocalDateTime requestDate;
     @Enumerated(EnumType.STRING)
     private AnalysisType analysisType;
+    // Trạng thái job khi request được xử lý bất đồng bộ (null với request đồng bộ)
+    @Enumerated(EnumType.STRING)
+    private AIJobStatus jobStatus;
+    private LocalDateTime completedAt;
     @Column(columnDefinition = "TEXT")
     @Convert(converter = JsonNodeConverter.class)
     private JsonNode dataPayload; // JSON string
@@ -0,0 +1,46 @@
+package org.example.estudebackendspring.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.example.estudebackendspring.enums.RollupScope;
+
+import java.time.LocalDateTime;
+
+/**
+ * Số liệu điểm tổng hợp sẵn (chỉ tính actualAverage > 0) cho 1 class-subject, 1 lớp hoặc 1 trường.
+ * - CLASS_SUBJECT: scopeId = classSubjectId, termId = kỳ của class-subject
+ * - CLASS:         scopeId = classId, termId = kỳ
+ * - SCHOOL:        scopeId = schoolId, termId = 0 (kỳ thuộc từng lớp nên trường tổng hợp mọi kỳ)
+ *
+ * Được GradeRollupService cập nhật trong cùng transaction khi SubjectGrade thay đổi.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "grade_rollups",
+        uniqueConstraints = @UniqueConstraint(name = "uk_grade_rollups_scope",
+                columnNames = {"scope", "scope_id", "term_id"}))
+public class GradeRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long rollupId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private RollupScope scope;
+
+    @Column(nullable = false)
+    private Long scopeId;
+
+    @Column(nullable = false)
+    private Long termId;
+
+    private long gradedCount;      // số điểm > 0
+    private double scoreSum;       // tổng actualAverage
+    private long passCount;        // số điểm >= 5.0
+    private long excellentCount;   // số điểm >= 9.0
+
+    private LocalDateTime updatedAt;
+}
@@ -11,7 +11,11 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "log_entries")
+@Table(name = "log_entries", indexes = {
+        @Index(name = "idx_log_entries_entity_log", columnList = "entity,log_id"),
+        @Index(name = "idx_log_entries_user_log", columnList = "user_id,log_id"),
+        @Index(name = "idx_log_entries_timestamp", columnList = "timestamp")
+})
 public class LogEntry {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -41,4 +41,7 @@ public class Notification {
     private Long targetId;
 
     private Long schoolId;
+
+    // Số người nhận, ghi lúc fan-out (null = bản ghi cũ chưa backfill)
+    private Long recipientCount;
 }
@@ -14,7 +14,8 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @Entity
 @Table(name = "notification_recipients",
-        indexes = {@Index(name="idx_notification_user", columnList = "notification_id,user_id")})
+        indexes = {@Index(name="idx_notification_user", columnList = "notification_id,user_id"),
+                @Index(name="idx_notification_recipient_inbox", columnList = "user_id,sent_at,notification_recipient_id")})
 public class NotificationRecipient {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -32,5 +33,8 @@ public class NotificationRecipient {
     private Boolean read = false;
 
     private LocalDateTime readAt;
+
+    // Bản sao notification.sentAt để phân trang inbox theo (user_id, sent_at, id) trên 1 index
+    private LocalDateTime sentAt;
 }
 
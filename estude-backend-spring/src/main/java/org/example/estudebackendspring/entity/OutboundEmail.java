@@ -0,0 +1,67 @@
+package org.example.estudebackendspring.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.example.estudebackendspring.enums.OutboundEmailStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Email chờ gửi (outbox): được lưu cùng transaction với nghiệp vụ tạo ra nó (vd. OTP),
+ * EmailOutboxService gửi nền sau khi commit, thử lại với backoff khi SMTP lỗi.
+ * Nội dung (body) bị xoá khi đã gửi vì có thể chứa OTP.
+ */
+@Entity
+@Table(name = "outbound_emails",
+        indexes = {
+                @Index(name = "idx_outbound_email_due", columnList = "status, next_attempt_at"),
+                @Index(name = "idx_outbound_email_recipient_sent", columnList = "recipient, sent_at")
+        })
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboundEmail {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long emailId;
+
+    @Column(nullable = false)
+    private String recipient;
+
+    @Column(nullable = false)
+    private String subject;
+
+    @Column(columnDefinition = "TEXT")
+    private String body;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private OutboundEmailStatus status;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) createdAt = LocalDateTime.now();
+        if (nextAttemptAt == null) nextAttemptAt = createdAt;
+        if (status == null) status = OutboundEmailStatus.PENDING;
+    }
+}
@@ -0,0 +1,29 @@
+package org.example.estudebackendspring.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Số lần 1 option được chọn cho 1 câu hỏi (phân bố đáp án, tìm lỗi sai phổ biến)
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "question_option_picks",
+        uniqueConstraints = @UniqueConstraint(name = "uk_question_option_picks",
+                columnNames = {"question_id", "option_id"}))
+public class QuestionOptionPick {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long pickId;
+
+    @Column(name = "question_id", nullable = false)
+    private Long questionId;
+
+    @Column(name = "option_id", nullable = false)
+    private Long optionId;
+
+    private long pickCount;
+}
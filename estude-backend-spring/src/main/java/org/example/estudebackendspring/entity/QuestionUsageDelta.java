@@ -0,0 +1,30 @@
+package org.example.estudebackendspring.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * 1 câu trả lời đã chấm chưa được cộng vào question_usage_stats / question_option_picks.
+ * Chỉ INSERT trong transaction chấm bài (không khoá dòng thống kê của câu hỏi "nóng");
+ * QuestionUsageService.flush() gom và xoá định kỳ.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "question_usage_deltas")
+public class QuestionUsageDelta {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long deltaId;
+
+    @Column(nullable = false)
+    private Long questionId;
+
+    private Long optionId;       // option đã chọn, null nếu tự luận / không chọn
+
+    private boolean correct;
+
+    private Double seconds;      // thời gian ước lượng cho câu hỏi, null nếu không biết
+}
@@ -0,0 +1,29 @@
+package org.example.estudebackendspring.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Bộ đếm sử dụng của 1 câu hỏi, cộng dồn từ các lần chấm bài (QuestionUsageService).
+ * Không lưu từng câu trả lời: trang admin đọc thẳng các bộ đếm này thay vì GROUP BY toàn bộ answers.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "question_usage_stats",
+        indexes = @Index(name = "idx_question_usage_stats_attempts", columnList = "attempts"))
+public class QuestionUsageStat {
+    @Id
+    private Long questionId;
+
+    private long attempts;           // số lần được trả lời
+    private long correctCount;       // số lần trả lời đúng
+    private long timedAttempts;      // số lần trả lời có thời gian (bài nộp có timeTaken)
+    private double totalTimeSeconds; // tổng thời gian ước lượng cho câu hỏi (timeTaken / số câu)
+
+    private LocalDateTime updatedAt;
+}
@@ -12,7 +12,8 @@ import java.util.Date;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "schedules")
+@Table(name = "schedules",
+        indexes = @Index(name = "idx_schedules_class_subject_date", columnList = "class_subject_id,date"))
 public class Schedule {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,48 @@
+package org.example.estudebackendspring.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Mức độ nắm vững 1 chủ đề của 1 học sinh, cập nhật mỗi lần nộp practice test (TopicMasteryService).
+ * Gộp toàn bộ lịch sử topic_progress thành 1 dòng: trang tổng quan / chủ đề yếu chỉ đọc dòng này.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "topic_mastery",
+        uniqueConstraints = @UniqueConstraint(name = "uk_topic_mastery_student_topic",
+                columnNames = {"student_id", "topic_id"}),
+        indexes = @Index(name = "idx_topic_mastery_student_subject", columnList = "student_id,subject_id"))
+public class TopicMastery {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long masteryId;
+
+    @Column(name = "student_id", nullable = false)
+    private Long studentId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "topic_id", nullable = false)
+    @JsonIgnore
+    private Topic topic;
+
+    // Môn của chủ đề (lọc theo môn không cần join topics)
+    @Column(name = "subject_id")
+    private Long subjectId;
+
+    private int attemptCount;      // số lần làm bài có chủ đề này
+    private double accuracySum;    // tổng accuracyRate các lần, TB = accuracySum / attemptCount
+    private Float latestAccuracy;  // % đúng lần gần nhất
+    private Float previousAccuracy; // % đúng lần trước đó, null nếu mới làm 1 lần
+
+    @Column(length = 20)
+    private String status;         // WEAK, NEED_IMPROVEMENT, IMPROVING, GOOD, EXCELLENT
+
+    private LocalDateTime lastAttemptAt;
+}
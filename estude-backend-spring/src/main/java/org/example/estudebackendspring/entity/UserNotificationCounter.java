@@ -0,0 +1,25 @@
+package org.example.estudebackendspring.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Số thông báo chưa đọc của 1 user, cập nhật lúc fan-out / đánh dấu đã đọc / xoá thông báo.
+ * Biểu tượng chuông chỉ cần đọc 1 dòng theo khoá chính thay vì COUNT trên notification_recipients.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "user_notification_counters")
+public class UserNotificationCounter {
+    @Id
+    private Long userId;
+
+    @Column(nullable = false)
+    private long unreadCount;
+}
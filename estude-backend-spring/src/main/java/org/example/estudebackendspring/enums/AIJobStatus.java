@@ -0,0 +1,12 @@
+package org.example.estudebackendspring.enums;
+
+/**
+ * Trạng thái xử lý bất đồng bộ của một AIAnalysisRequest (job AI).
+ * Request tạo qua các API đồng bộ cũ có jobStatus = null.
+ */
+public enum AIJobStatus {
+    PENDING,    // đã lưu request, đang chờ worker
+    RUNNING,    // worker đang gọi AI service
+    COMPLETED,  // đã lưu AIAnalysisResult
+    FAILED      // AI lỗi / hàng đợi đầy
+}
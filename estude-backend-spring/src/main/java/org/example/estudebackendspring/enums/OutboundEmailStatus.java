@@ -0,0 +1,11 @@
+package org.example.estudebackendspring.enums;
+
+/**
+ * Trạng thái của 1 email trong outbox (outbound_emails)
+ */
+public enum OutboundEmailStatus {
+    PENDING,    // chờ gửi (lần đầu hoặc chờ tới nextAttemptAt để thử lại)
+    SENDING,    // worker đã nhận, đang gửi (quá lockedUntil thì được nhận lại)
+    SENT,       // SMTP server đã nhận thư
+    FAILED      // hết số lần thử
+}
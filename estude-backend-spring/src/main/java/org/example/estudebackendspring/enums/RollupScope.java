@@ -0,0 +1,7 @@
+package org.example.estudebackendspring.enums;
+
+public enum RollupScope {
+    CLASS_SUBJECT,
+    CLASS,
+    SCHOOL
+}
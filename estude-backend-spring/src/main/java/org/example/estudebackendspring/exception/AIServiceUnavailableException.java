@@ -0,0 +1,10 @@
+package org.example.estudebackendspring.exception;
+
+/**
+ * AI service tạm thời không gọi được: circuit breaker đang mở hoặc bulkhead đã đầy.
+ */
+public class AIServiceUnavailableException extends RuntimeException {
+    public AIServiceUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -22,6 +22,16 @@ public class GlobalExceptionHandler {
     return new ResponseEntity<>(body, HttpStatus.NOT_FOUND);
   }
 
+  @ExceptionHandler(AIServiceUnavailableException.class)
+  public ResponseEntity<Map<String, Object>> handleAIServiceUnavailable(AIServiceUnavailableException ex) {
+    Map<String, Object> body = new HashMap<>();
+    body.put("timestamp", LocalDateTime.now());
+    body.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
+    body.put("error", "Service Unavailable");
+    body.put("message", ex.getMessage());
+    return new ResponseEntity<>(body, HttpStatus.SERVICE_UNAVAILABLE);
+  }
+
   @ExceptionHandler(DuplicateResourceException.class)
   public ResponseEntity<Map<String, Object>> handleDuplicateResource(DuplicateResourceException ex) {
     Map<String, Object> body = new HashMap<>();
@@ -32,6 +42,17 @@ public class GlobalExceptionHandler {
     return new ResponseEntity<>(body, HttpStatus.CONFLICT);
   }
 
+  @ExceptionHandler(ScheduleConflictException.class)
+  public ResponseEntity<Map<String, Object>> handleScheduleConflict(ScheduleConflictException ex) {
+    Map<String, Object> body = new HashMap<>();
+    body.put("timestamp", LocalDateTime.now());
+    body.put("status", HttpStatus.CONFLICT.value());
+    body.put("error", "Conflict");
+    body.put("message", ex.getMessage());
+    body.put("conflicts", ex.getConflicts());
+    return new ResponseEntity<>(body, HttpStatus.CONFLICT);
+  }
+
   @ExceptionHandler(InvalidQuestionCountException.class)
   public ResponseEntity<Map<String, Object>> handleInvalidQuestionCount(InvalidQuestionCountException ex) {
     Map<String, Object> body = new HashMap<>();
@@ -0,0 +1,19 @@
+package org.example.estudebackendspring.exception;
+
+import lombok.Getter;
+import org.example.estudebackendspring.dto.ScheduleConflictDTO;
+
+import java.util.List;
+
+/**
+ * Thời khoá biểu đề xuất trùng tiết (409), kèm toàn bộ các cặp lịch bị trùng
+ */
+@Getter
+public class ScheduleConflictException extends RuntimeException {
+    private final List<ScheduleConflictDTO> conflicts;
+
+    public ScheduleConflictException(List<ScheduleConflictDTO> conflicts) {
+        super("Thời khoá biểu bị trùng tiết: " + conflicts.size() + " xung đột");
+        this.conflicts = conflicts;
+    }
+}
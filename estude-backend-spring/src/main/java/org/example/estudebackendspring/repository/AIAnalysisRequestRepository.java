@@ -1,7 +1,38 @@
 package org.example.estudebackendspring.repository;
 
 import org.example.estudebackendspring.entity.AIAnalysisRequest;
+import org.example.estudebackendspring.enums.AIJobStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
 
 public interface AIAnalysisRequestRepository extends JpaRepository<AIAnalysisRequest, Long> {
+
+    /**
+     * Cập nhật trạng thái job AI trong 1 transaction ngắn (worker không giữ connection khi gọi AI)
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE AIAnalysisRequest r SET r.jobStatus = :status, r.completedAt = :completedAt WHERE r.requestId = :requestId")
+    int updateJobStatus(@Param("requestId") Long requestId,
+                        @Param("status") AIJobStatus status,
+                        @Param("completedAt") LocalDateTime completedAt);
+
+    /**
+     * Job đang chờ / đang chạy tạo trước thời điểm before: hàng đợi chỉ nằm trong bộ nhớ nên sau khi
+     * instance khởi động lại các job này không còn worker nào xử lý
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE AIAnalysisRequest r SET r.jobStatus = :failed, r.completedAt = :now " +
+            "WHERE r.jobStatus IN :statuses AND r.requestDate < :before")
+    int failStaleJobs(@Param("statuses") Collection<AIJobStatus> statuses,
+                      @Param("failed") AIJobStatus failed,
+                      @Param("before") LocalDateTime before,
+                      @Param("now") LocalDateTime now);
 }
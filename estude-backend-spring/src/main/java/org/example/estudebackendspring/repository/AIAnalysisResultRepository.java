@@ -114,4 +114,9 @@ public interface AIAnalysisResultRepository extends JpaRepository<AIAnalysisResu
 
 
 
+
+    /**
+     * Kết quả mới nhất của 1 request (dùng cho polling job AI)
+     */
+    Optional<AIAnalysisResult> findFirstByRequestIdOrderByGeneratedAtDesc(Long requestId);
 }
@@ -70,5 +70,11 @@ public interface AssignmentRepository extends JpaRepository<Assignment, Long> {
         "AND (a.isPublished = true OR a.isPublished IS NULL)")
 long countByStudentAndTerm(@Param("studentId") Long studentId, @Param("termId") Long termId);
 
+        // Số assignment đã publish của kỳ (bằng countByStudentAndTerm với mọi học sinh của lớp)
+        @Query("SELECT COUNT(a) FROM Assignment a " +
+               "WHERE a.classSubject.term.termId = :termId " +
+               "AND (a.isPublished = true OR a.isPublished IS NULL)")
+        long countPublishedByTerm(@Param("termId") Long termId);
+
 
 }
\ No newline at end of file
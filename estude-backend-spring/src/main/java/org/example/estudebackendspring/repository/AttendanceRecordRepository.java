@@ -26,5 +26,26 @@ public interface AttendanceRecordRepository extends JpaRepository<AttendanceReco
     @Query("SELECT COUNT(ar) FROM AttendanceRecord ar WHERE ar.student.userId = :studentId AND ar.status = 'ABSENT' AND ar.session.classSubject.term.termId = :termId")
     long countAbsentByStudentAndTerm(@Param("studentId") Long studentId, @Param("termId") Long termId);
 
+    /**
+     * Thống kê điểm danh của cả kỳ, 1 dòng / học sinh: [student_id, tổng số buổi, số buổi vắng]
+     */
+    @Query(value = """
+        SELECT ar.student_id,
+               COUNT(*),
+               SUM(CASE WHEN ar.status = 'ABSENT' THEN 1 ELSE 0 END)
+        FROM attendance_records ar
+        JOIN attendance_sessions s ON s.session_id = ar.session_id
+        JOIN class_subjects cs ON cs.class_subject_id = s.class_subject_id
+        WHERE cs.term_id = :termId
+        GROUP BY ar.student_id
+        """, nativeQuery = true)
+    List<Object[]> countByTermGroupByStudent(@Param("termId") Long termId);
+
+    /**
+     * Trạng thái điểm danh trong 1 buổi, 1 dòng / học sinh: [student_id, status]
+     */
+    @Query("SELECT ar.student.userId, ar.status FROM AttendanceRecord ar WHERE ar.session.sessionId = :sessionId")
+    List<Object[]> findStatusesBySessionId(@Param("sessionId") Long sessionId);
+
 }
 
@@ -37,6 +37,8 @@ public interface ClassSubjectRepository extends JpaRepository<ClassSubject, Long
     boolean existsByTerm_ClazzAndSubject(Clazz clazz, Subject subject);
     // Lấy classSubject theo classId
     List<ClassSubject> findByTerm_Clazz_ClassId(Long classId);
+
+    long countByTerm_TermId(Long termId);
     
     /**
      * Lấy ClassSubject theo classId với EAGER FETCH để tránh lazy loading
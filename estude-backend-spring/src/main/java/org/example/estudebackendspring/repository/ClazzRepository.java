@@ -1,8 +1,10 @@
 package org.example.estudebackendspring.repository;
 
+import jakarta.persistence.LockModeType;
 import org.example.estudebackendspring.entity.Clazz;
 import org.example.estudebackendspring.entity.School;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -34,4 +36,12 @@ public interface ClazzRepository extends JpaRepository<Clazz, Long> {
            "LEFT JOIN FETCH c.school")
     List<Clazz> findAllWithRelationships();
 
+    /**
+     * Nạp lớp và khoá dòng lớp tới hết transaction (SELECT ... FOR UPDATE): các lần ghi danh / xếp lịch
+     * song song cho cùng lớp chạy lần lượt
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Clazz c WHERE c.classId = :classId")
+    Optional<Clazz> findByIdForUpdate(@Param("classId") Long classId);
+
 }
\ No newline at end of file
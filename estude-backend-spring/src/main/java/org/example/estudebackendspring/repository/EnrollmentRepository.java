@@ -9,6 +9,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
@@ -20,6 +21,15 @@ public interface EnrollmentRepository extends JpaRepository<Enrollment, Long> {
     List<Enrollment> findByStudent_UserId(Long studentUserId);
     @Query("SELECT e.clazz.classId FROM Enrollment e WHERE e.student.userId = :studentId")
     List<Long> findClassIdsByStudentId(@Param("studentId") Long studentId);
+    @Query("SELECT e.student.userId FROM Enrollment e WHERE e.clazz.classId = :classId")
+    List<Long> findStudentIdsByClassId(@Param("classId") Long classId);
+
+    // Sĩ số theo lớp: [classId, số enrollment]
+    @Query("SELECT e.clazz.classId, COUNT(e) FROM Enrollment e WHERE e.clazz.classId IN :classIds GROUP BY e.clazz.classId")
+    List<Object[]> countByClassIds(@Param("classIds") Collection<Long> classIds);
+
+    @Query("SELECT COUNT(DISTINCT e.student.userId) FROM Enrollment e WHERE e.clazz.classId IN :classIds")
+    long countDistinctStudentsByClassIds(@Param("classIds") Collection<Long> classIds);
 
     @Query("SELECT CASE WHEN COUNT(e) > 0 THEN true ELSE false END FROM Enrollment e WHERE e.student.userId = :studentId AND e.clazz.classId = :classId")
     boolean existsByStudentIdAndClassId(@Param("studentId") Long studentId, @Param("classId") Long classId);
@@ -39,6 +49,28 @@ public interface EnrollmentRepository extends JpaRepository<Enrollment, Long> {
                                      @Param("beginDate") Date beginDate,
                                      @Param("endDate") Date endDate);
 
+    /**
+     * Các học sinh trong danh sách đã ghi danh vào lớp
+     */
+    @Query("SELECT e.student.userId FROM Enrollment e WHERE e.clazz.classId = :classId AND e.student.userId IN :studentIds")
+    List<Long> findEnrolledStudentIds(@Param("classId") Long classId, @Param("studentIds") Collection<Long> studentIds);
+
+    /**
+     * Học sinh trong danh sách đang học lớp khác có kỳ trùng thời gian với 1 kỳ của lớp:
+     * [student_id, tên kỳ của lớp bị trùng]
+     */
+    @Query(value = """
+        SELECT DISTINCT e.student_id, target.name
+        FROM enrollments e
+        JOIN terms t ON t.class_id = e.class_id
+        JOIN terms target ON target.class_id = :classId
+        WHERE e.student_id IN (:studentIds)
+          AND e.class_id <> :classId
+          AND t.begin_date <= target.end_date
+          AND t.end_date >= target.begin_date
+        """, nativeQuery = true)
+    List<Object[]> findTermConflicts(@Param("classId") Long classId, @Param("studentIds") Collection<Long> studentIds);
+
 //    Optional<Enrollment> findByStudent(Student student);
         List<Enrollment> findByStudent(Student student);
     List<Enrollment> findByClazz(Clazz clazz);
@@ -0,0 +1,36 @@
+package org.example.estudebackendspring.repository;
+
+import org.example.estudebackendspring.entity.GradeRollup;
+import org.example.estudebackendspring.enums.RollupScope;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface GradeRollupRepository extends JpaRepository<GradeRollup, Long> {
+
+    List<GradeRollup> findByScopeAndScopeId(RollupScope scope, Long scopeId);
+
+    List<GradeRollup> findByScopeAndScopeIdIn(RollupScope scope, Collection<Long> scopeIds);
+
+    /**
+     * Cộng rollup các class-subject giáo viên dạy theo lớp:
+     * [class_id, số điểm, tổng điểm, số điểm >= 5.0, số điểm >= 9.0]
+     */
+    @Query(value = """
+        SELECT t.class_id,
+               SUM(r.graded_count),
+               SUM(r.score_sum),
+               SUM(r.pass_count),
+               SUM(r.excellent_count)
+        FROM grade_rollups r
+        JOIN class_subjects cs ON cs.class_subject_id = r.scope_id
+        JOIN terms t ON t.term_id = cs.term_id
+        WHERE r.scope = 'CLASS_SUBJECT'
+          AND cs.teacher_id = :teacherId
+        GROUP BY t.class_id
+        """, nativeQuery = true)
+    List<Object[]> sumByClassForTeacher(@Param("teacherId") Long teacherId);
+}
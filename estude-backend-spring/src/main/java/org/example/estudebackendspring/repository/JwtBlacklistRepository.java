@@ -2,12 +2,30 @@ package org.example.estudebackendspring.repository;
 
 import org.example.estudebackendspring.entity.JwtBlacklist;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 public interface JwtBlacklistRepository extends JpaRepository<JwtBlacklist, Long> {
     Optional<JwtBlacklist> findByToken(String token);
 
+    boolean existsByToken(String token);
+
     // Optionally delete expired entries (can be called by scheduled job)
     void deleteByExpiresAtBefore(java.time.LocalDateTime time);
+
+    // Bulk delete (1 câu DELETE thay vì load entity rồi xoá từng dòng)
+    @Modifying
+    @Query("DELETE FROM JwtBlacklist j WHERE j.expiresAt < :time")
+    int deleteExpiredBefore(@Param("time") LocalDateTime time);
+
+    // Nạp các token còn hiệu lực vào revocation index khi khởi động
+    List<JwtBlacklist> findByExpiresAtAfter(LocalDateTime time);
+
+    // Đồng bộ các token bị thu hồi bởi instance khác kể từ lần sweep trước
+    List<JwtBlacklist> findByBlacklistedAtAfterAndExpiresAtAfter(LocalDateTime blacklistedAfter, LocalDateTime expiresAfter);
 }
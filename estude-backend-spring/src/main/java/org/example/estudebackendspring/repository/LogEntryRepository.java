@@ -1,16 +1,34 @@
 package org.example.estudebackendspring.repository;
 
 import org.example.estudebackendspring.entity.LogEntry;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface LogEntryRepository extends JpaRepository<LogEntry, Long> {
     
     /**
-     * Fetch all log entries with user eagerly to avoid lazy loading issues
+     * Keyset page of log entries, newest first (log_id DESC), with user and school fetched.
+     * Every filter is optional (null = no filter); beforeId is the cursor of the previous page.
+     * Page size comes from the Pageable, its page number must stay 0.
      */
-    @Query("SELECT l FROM LogEntry l LEFT JOIN FETCH l.user ORDER BY l.timestamp DESC")
-    List<LogEntry> findAllWithUser();
+    @Query("SELECT l FROM LogEntry l " +
+           "LEFT JOIN FETCH l.user u " +
+           "LEFT JOIN FETCH u.school " +
+           "WHERE (:beforeId IS NULL OR l.logId < :beforeId) " +
+           "AND (:entity IS NULL OR l.entity = :entity) " +
+           "AND (:userId IS NULL OR l.user.userId = :userId) " +
+           "AND (:from IS NULL OR l.timestamp >= :from) " +
+           "AND (:to IS NULL OR l.timestamp < :to) " +
+           "ORDER BY l.logId DESC")
+    List<LogEntry> findPage(@Param("beforeId") Long beforeId,
+                            @Param("entity") String entity,
+                            @Param("userId") Long userId,
+                            @Param("from") LocalDateTime from,
+                            @Param("to") LocalDateTime to,
+                            Pageable pageable);
 }
@@ -4,9 +4,11 @@ import org.example.estudebackendspring.entity.NotificationRecipient;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface NotificationRecipientRepository extends JpaRepository<NotificationRecipient, Long> {
@@ -21,9 +23,136 @@ public interface NotificationRecipientRepository extends JpaRepository<Notificat
             "ORDER BY n.sentAt DESC")
     List<NotificationRecipient> findByUserIdWithNotification(@Param("userId") Long userId);
 
+    // ========== INBOX (keyset theo (sent_at, id) giảm dần, index idx_notification_recipient_inbox) ==========
+
+    @Query("SELECT nr FROM NotificationRecipient nr " +
+            "JOIN FETCH nr.notification n " +
+            "JOIN FETCH n.sender s " +
+            "LEFT JOIN FETCH s.school " +
+            "WHERE nr.user.userId = :userId " +
+            "ORDER BY nr.sentAt DESC, nr.notificationRecipientId DESC")
+    List<NotificationRecipient> findInboxFirstPage(@Param("userId") Long userId, Pageable pageable);
+
+    @Query("SELECT nr FROM NotificationRecipient nr " +
+            "JOIN FETCH nr.notification n " +
+            "JOIN FETCH n.sender s " +
+            "LEFT JOIN FETCH s.school " +
+            "WHERE nr.user.userId = :userId " +
+            "AND (nr.sentAt < :sentAt OR (nr.sentAt = :sentAt AND nr.notificationRecipientId < :recipientId)) " +
+            "ORDER BY nr.sentAt DESC, nr.notificationRecipientId DESC")
+    List<NotificationRecipient> findInboxAfter(@Param("userId") Long userId,
+                                               @Param("sentAt") LocalDateTime sentAt,
+                                               @Param("recipientId") Long recipientId,
+                                               Pageable pageable);
+
+    // Người nhận của 1 notification cho push STOMP: [user_id, notification_recipient_id]
+    @Query(value = """
+        SELECT nr.user_id, nr.notification_recipient_id
+        FROM notification_recipients nr
+        WHERE nr.notification_id = :notificationId
+        """, nativeQuery = true)
+    List<Object[]> findPushTargets(@Param("notificationId") Long notificationId);
+
+    // Đánh dấu đã đọc / chưa đọc: chỉ đổi khi trạng thái khác, trả về số dòng đổi để cập nhật bộ đếm
+    @Modifying
+    @Query(value = """
+        UPDATE notification_recipients
+        SET read = true, read_at = now()
+        WHERE notification_recipient_id = :recipientId
+          AND user_id = :userId
+          AND read = false
+        """, nativeQuery = true)
+    int markRead(@Param("recipientId") Long recipientId, @Param("userId") Long userId);
+
+    @Modifying
+    @Query(value = """
+        UPDATE notification_recipients
+        SET read = false, read_at = NULL
+        WHERE notification_recipient_id = :recipientId
+          AND user_id = :userId
+          AND read = true
+        """, nativeQuery = true)
+    int markUnread(@Param("recipientId") Long recipientId, @Param("userId") Long userId);
+
+    @Modifying
+    @Query(value = """
+        UPDATE notification_recipients
+        SET read = true, read_at = now()
+        WHERE user_id = :userId
+          AND read = false
+        """, nativeQuery = true)
+    int markAllRead(@Param("userId") Long userId);
+
+    // Bản ghi cũ (trước khi có cột sent_at)
+    @Modifying
+    @Query(value = """
+        UPDATE notification_recipients nr
+        SET sent_at = n.sent_at
+        FROM notifications n
+        WHERE n.notification_id = nr.notification_id
+          AND nr.sent_at IS NULL
+        """, nativeQuery = true)
+    int backfillSentAt();
+
     List<NotificationRecipient> findByNotification_NotificationId(Long notificationId);
     void deleteByNotification_NotificationId(Long notificationId);
 
 
     long countByNotification_NotificationId(Long notificationNotificationId);
+
+    // ========== FAN-OUT (set-based INSERT ... SELECT) ==========
+    // Ghi recipient trực tiếp từ bảng nguồn, không load User entity và không bị IDENTITY chặn batch.
+    // Người gửi được loại khỏi danh sách nhận; sent_at sao từ notification; trả về số dòng đã ghi.
+
+    @Modifying
+    @Query(value = """
+        INSERT INTO notification_recipients (notification_id, user_id, read, sent_at)
+        SELECT CAST(:notificationId AS BIGINT), u.user_id, false, CAST(:sentAt AS TIMESTAMP)
+        FROM users u
+        WHERE u.user_id <> :senderId
+        """, nativeQuery = true)
+    int insertRecipientsForAllUsers(@Param("notificationId") Long notificationId,
+                                    @Param("sentAt") LocalDateTime sentAt,
+                                    @Param("senderId") Long senderId);
+
+    @Modifying
+    @Query(value = """
+        INSERT INTO notification_recipients (notification_id, user_id, read, sent_at)
+        SELECT CAST(:notificationId AS BIGINT), u.user_id, false, CAST(:sentAt AS TIMESTAMP)
+        FROM users u
+        WHERE u.school_id = :schoolId
+          AND u.user_id <> :senderId
+        """, nativeQuery = true)
+    int insertRecipientsForSchool(@Param("notificationId") Long notificationId,
+                                  @Param("sentAt") LocalDateTime sentAt,
+                                  @Param("schoolId") Long schoolId,
+                                  @Param("senderId") Long senderId);
+
+    @Modifying
+    @Query(value = """
+        INSERT INTO notification_recipients (notification_id, user_id, read, sent_at)
+        SELECT DISTINCT CAST(:notificationId AS BIGINT), e.student_id, false, CAST(:sentAt AS TIMESTAMP)
+        FROM enrollments e
+        WHERE e.class_id = :classId
+          AND e.student_id <> :senderId
+        """, nativeQuery = true)
+    int insertRecipientsForClass(@Param("notificationId") Long notificationId,
+                                 @Param("sentAt") LocalDateTime sentAt,
+                                 @Param("classId") Long classId,
+                                 @Param("senderId") Long senderId);
+
+    @Modifying
+    @Query(value = """
+        INSERT INTO notification_recipients (notification_id, user_id, read, sent_at)
+        SELECT DISTINCT CAST(:notificationId AS BIGINT), e.student_id, false, CAST(:sentAt AS TIMESTAMP)
+        FROM class_subjects cs
+        JOIN terms t ON t.term_id = cs.term_id
+        JOIN enrollments e ON e.class_id = t.class_id
+        WHERE cs.class_subject_id = :classSubjectId
+          AND e.student_id <> :senderId
+        """, nativeQuery = true)
+    int insertRecipientsForClassSubject(@Param("notificationId") Long notificationId,
+                                        @Param("sentAt") LocalDateTime sentAt,
+                                        @Param("classSubjectId") Long classSubjectId,
+                                        @Param("senderId") Long senderId);
 }
@@ -5,6 +5,7 @@ import org.example.estudebackendspring.enums.NotificationTargetType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
@@ -22,6 +23,17 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
             "ORDER BY n.sentAt DESC")
     List<Notification> findBySender_UserIdOrderBySentAtDesc(@Param("senderId") Long senderId);
 
+    // Bản ghi cũ (trước khi có cột recipient_count)
+    @Modifying
+    @Query(value = """
+        UPDATE notifications n
+        SET recipient_count = (
+            SELECT COUNT(*) FROM notification_recipients nr WHERE nr.notification_id = n.notification_id
+        )
+        WHERE n.recipient_count IS NULL
+        """, nativeQuery = true)
+    int backfillRecipientCounts();
+
     @Query("SELECT COUNT(n) FROM Notification n WHERE n.targetType = :targetType AND n.targetId = :targetId")
     long countByTarget(@Param("targetType") NotificationTargetType targetType, @Param("targetId") Long targetId);
 }
@@ -0,0 +1,75 @@
+package org.example.estudebackendspring.repository;
+
+import org.example.estudebackendspring.entity.OutboundEmail;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+public interface OutboundEmailRepository extends JpaRepository<OutboundEmail, Long> {
+
+    /**
+     * Số email đã gửi tới 1 người nhận từ thời điểm since (giới hạn gửi theo người nhận)
+     */
+    @Query(value = """
+        SELECT COUNT(*) FROM outbound_emails
+        WHERE recipient = :recipient AND status = 'SENT' AND sent_at >= :since
+        """, nativeQuery = true)
+    long countSentSince(@Param("recipient") String recipient, @Param("since") LocalDateTime since);
+
+    /**
+     * Thời điểm gửi sớm nhất tới người nhận trong cửa sổ (để tính lúc được gửi tiếp)
+     */
+    @Query(value = """
+        SELECT MIN(sent_at) FROM outbound_emails
+        WHERE recipient = :recipient AND status = 'SENT' AND sent_at >= :since
+        """, nativeQuery = true)
+    LocalDateTime findOldestSentSince(@Param("recipient") String recipient, @Param("since") LocalDateTime since);
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+        UPDATE outbound_emails
+        SET status = 'SENT', sent_at = :sentAt, attempts = attempts + 1, body = NULL,
+            locked_until = NULL, last_error = NULL
+        WHERE email_id = :emailId
+        """, nativeQuery = true)
+    int markSent(@Param("emailId") Long emailId, @Param("sentAt") LocalDateTime sentAt);
+
+    /**
+     * Đưa email về PENDING tới nextAttemptAt; countAttempt = false khi chỉ hoãn do giới hạn người nhận
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+        UPDATE outbound_emails
+        SET status = 'PENDING', next_attempt_at = :nextAttemptAt, locked_until = NULL,
+            attempts = attempts + CASE WHEN :countAttempt THEN 1 ELSE 0 END,
+            last_error = COALESCE(CAST(:lastError AS VARCHAR), last_error)
+        WHERE email_id = :emailId
+        """, nativeQuery = true)
+    int reschedule(@Param("emailId") Long emailId,
+                   @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                   @Param("countAttempt") boolean countAttempt,
+                   @Param("lastError") String lastError);
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+        UPDATE outbound_emails
+        SET status = 'FAILED', attempts = attempts + 1, locked_until = NULL, last_error = :lastError
+        WHERE email_id = :emailId
+        """, nativeQuery = true)
+    int markFailed(@Param("emailId") Long emailId, @Param("lastError") String lastError);
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+        DELETE FROM outbound_emails
+        WHERE status IN ('SENT', 'FAILED') AND created_at < :before
+        """, nativeQuery = true)
+    int deleteFinishedBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,26 @@
+package org.example.estudebackendspring.repository;
+
+import org.example.estudebackendspring.entity.QuestionOptionPick;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface QuestionOptionPickRepository extends JpaRepository<QuestionOptionPick, Long> {
+
+    /**
+     * Các option sai được chọn của 1 câu hỏi, nhiều nhất trước: [option_text, pick_count]
+     */
+    @Query(value = """
+        SELECT o.option_text, p.pick_count
+        FROM question_option_picks p
+        JOIN question_options o ON o.option_id = p.option_id
+        WHERE p.question_id = :questionId
+          AND (o.is_correct IS NULL OR o.is_correct = false)
+          AND p.pick_count > 0
+        ORDER BY p.pick_count DESC
+        LIMIT :limit
+        """, nativeQuery = true)
+    List<Object[]> findTopIncorrectPicks(@Param("questionId") Long questionId, @Param("limit") int limit);
+}
@@ -5,6 +5,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface QuestionOptionRepository extends JpaRepository<QuestionOption, Long> {
@@ -14,4 +15,30 @@ public interface QuestionOptionRepository extends JpaRepository<QuestionOption,
      */
     @Query("SELECT o FROM QuestionOption o WHERE o.question.questionId IN :questionIds ORDER BY o.optionOrder")
     List<QuestionOption> findByQuestionIdIn(@Param("questionIds") List<Long> questionIds);
+    
+    /**
+     * Dữ liệu answer key (AnswerKeyCache) của các question theo id
+     * Returns: [question_id, topic_id, difficulty_level, question_type, points, option_id, is_correct]
+     */
+    @Query(value = """
+        SELECT q.question_id, q.topic_id, q.difficulty_level, q.question_type, q.points,
+               o.option_id, o.is_correct
+        FROM questions q
+        LEFT JOIN question_options o ON o.question_id = q.question_id
+        WHERE q.question_id IN (:questionIds)
+        """, nativeQuery = true)
+    List<Object[]> findAnswerKeyRowsByQuestionIds(@Param("questionIds") Collection<Long> questionIds);
+    
+    /**
+     * Dữ liệu answer key của các question sở hữu các option cho trước
+     * (option được chọn không thuộc question nào đã nạp)
+     */
+    @Query(value = """
+        SELECT q.question_id, q.topic_id, q.difficulty_level, q.question_type, q.points,
+               o.option_id, o.is_correct
+        FROM questions q
+        LEFT JOIN question_options o ON o.question_id = q.question_id
+        WHERE q.question_id IN (SELECT question_id FROM question_options WHERE option_id IN (:optionIds))
+        """, nativeQuery = true)
+    List<Object[]> findAnswerKeyRowsByOptionIds(@Param("optionIds") Collection<Long> optionIds);
 }
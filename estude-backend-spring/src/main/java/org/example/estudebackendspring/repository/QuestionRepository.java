@@ -11,6 +11,7 @@ import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import jakarta.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -100,6 +101,28 @@ public interface QuestionRepository extends JpaRepository<Question, Long> {
            "WHERE q.questionId = :questionId")
     Optional<Question> findByIdWithDetails(@Param("questionId") Long questionId);
     
+    /**
+     * Lấy nhiều question cùng topic và options trong 1 query (answer key cho chấm bài)
+     */
+    @Query("SELECT DISTINCT q FROM Question q " +
+           "LEFT JOIN FETCH q.topic " +
+           "LEFT JOIN FETCH q.options " +
+           "WHERE q.questionId IN :questionIds")
+    List<Question> findAllWithOptionsByIdIn(@Param("questionIds") Collection<Long> questionIds);
+    
+    /**
+     * Dữ liệu cho QuestionBankIndex: chỉ id, topic và độ khó của câu hỏi question bank
+     * Returns: [question_id, topic_id, difficulty_level]
+     */
+    @Query(value = """
+        SELECT q.question_id, q.topic_id, q.difficulty_level
+        FROM questions q
+        WHERE q.is_question_bank = true
+          AND q.topic_id IS NOT NULL
+          AND q.difficulty_level IS NOT NULL
+        """, nativeQuery = true)
+    List<Object[]> findQuestionBankIndexRows();
+    
     // ========== LEGACY METHODS (backward compatibility) ==========
     
     /**
@@ -0,0 +1,40 @@
+package org.example.estudebackendspring.repository;
+
+import org.example.estudebackendspring.entity.QuestionUsageStat;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface QuestionUsageStatRepository extends JpaRepository<QuestionUsageStat, Long> {
+
+    /**
+     * Top-K câu hỏi được dùng nhiều nhất (bỏ qua câu hỏi đã bị xoá)
+     */
+    @Query(value = """
+        SELECT s.*
+        FROM question_usage_stats s
+        JOIN questions q ON q.question_id = s.question_id
+        WHERE s.attempts > 0
+        ORDER BY s.attempts DESC
+        LIMIT :limit
+        """, nativeQuery = true)
+    List<QuestionUsageStat> findTopByAttempts(@Param("limit") int limit);
+
+    /**
+     * Câu hỏi có tỉ lệ đúng < maxAccuracy (tính trên ít nhất minAttempts lần trả lời), tỉ lệ thấp nhất trước
+     */
+    @Query(value = """
+        SELECT s.*
+        FROM question_usage_stats s
+        JOIN questions q ON q.question_id = s.question_id
+        WHERE s.attempts >= :minAttempts
+          AND s.correct_count < :maxAccuracy * s.attempts
+        ORDER BY CAST(s.correct_count AS double precision) / s.attempts ASC, s.attempts DESC
+        LIMIT :limit
+        """, nativeQuery = true)
+    List<QuestionUsageStat> findBelowAccuracy(@Param("maxAccuracy") double maxAccuracy,
+                                              @Param("minAttempts") long minAttempts,
+                                              @Param("limit") int limit);
+}
@@ -5,6 +5,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDate;
 import java.util.Date;
 import java.util.List;
 
@@ -79,6 +80,23 @@ public interface ScheduleRepository extends JpaRepository<Schedule, Long> {
                                                     @Param("startPeriod") Integer startPeriod,
                                                     @Param("endPeriod") Integer endPeriod);
 
+    /**
+     * Các tiết đã xếp của lớp trong khoảng ngày: [schedule_id, date, start_period, end_period]
+     */
+    @Query(value = """
+        SELECT s.schedule_id, s.date, s.start_period, s.end_period
+        FROM schedules s
+        JOIN class_subjects cs ON cs.class_subject_id = s.class_subject_id
+        JOIN terms t ON t.term_id = cs.term_id
+        WHERE t.class_id = :classId
+          AND s.date BETWEEN :fromDate AND :toDate
+          AND s.start_period IS NOT NULL
+          AND s.end_period IS NOT NULL
+        """, nativeQuery = true)
+    List<Object[]> findClassPeriods(@Param("classId") Long classId,
+                                    @Param("fromDate") LocalDate fromDate,
+                                    @Param("toDate") LocalDate toDate);
+
     Schedule findScheduleByScheduleId(@Param("id") Long id);
 
 }
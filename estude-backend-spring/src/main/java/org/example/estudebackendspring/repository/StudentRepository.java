@@ -5,6 +5,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -53,6 +54,12 @@ public interface StudentRepository extends JpaRepository<Student, Long> {
     boolean existsByEmail(String email);
     boolean existsByNumberPhone(String numberPhone);
     // Lấy danh sách sinh viên theo classId (dựa vào bảng Enrollment)
+    @Query("SELECT s.studentCode FROM Student s WHERE s.studentCode IN :codes")
+    List<String> findExistingStudentCodes(@Param("codes") Collection<String> codes);
+
+    @Query("SELECT s.userId FROM Student s WHERE s.userId IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
     @Query("SELECT e.student FROM Enrollment e WHERE e.clazz.classId = :classId")
     List<Student> findStudentsByClassId(@Param("classId") Long classId);
 
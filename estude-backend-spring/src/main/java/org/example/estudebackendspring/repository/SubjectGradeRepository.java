@@ -67,4 +67,48 @@ List<SubjectGrade> findByClassSubjectIdWithStudent(@Param("classSubjectId") Long
     @Query("SELECT sg FROM SubjectGrade sg WHERE sg.student = :student AND sg.classSubject = :classSubject")
     SubjectGrade findByStudentAndClassSubject(@Param("student") Student student, @Param("classSubject") ClassSubject classSubject);
 
+    /**
+     * Tổng hợp điểm của cả kỳ, 1 dòng / học sinh:
+     * [student_id, số môn đã có actualAverage, trung bình actualAverage, số môn actualAverage >= 3.5]
+     */
+    @Query(value = """
+        SELECT sg.student_id,
+               COUNT(sg.actual_average),
+               AVG(sg.actual_average),
+               SUM(CASE WHEN sg.actual_average >= 3.5 THEN 1 ELSE 0 END)
+        FROM subject_grades sg
+        JOIN class_subjects cs ON cs.class_subject_id = sg.class_subject_id
+        WHERE cs.term_id = :termId
+        GROUP BY sg.student_id
+        """, nativeQuery = true)
+    List<Object[]> summarizeByTermGroupByStudent(@Param("termId") Long termId);
+
+    /**
+     * Điểm actualAverage của các học sinh đang ghi danh trong lớp, cho 1 kỳ:
+     * [student_id, class_subject_id, actual_average] - dùng để dựng ClassRankingIndex
+     */
+    @Query(value = """
+        SELECT sg.student_id, sg.class_subject_id, sg.actual_average
+        FROM subject_grades sg
+        JOIN class_subjects cs ON cs.class_subject_id = sg.class_subject_id
+        JOIN enrollments e ON e.student_id = sg.student_id AND e.class_id = :classId
+        WHERE cs.term_id = :termId
+          AND sg.actual_average IS NOT NULL
+        """, nativeQuery = true)
+    List<Object[]> findRankingRowsByClassAndTerm(@Param("classId") Long classId, @Param("termId") Long termId);
+
+    /**
+     * Như findRankingRowsByClassAndTerm nhưng cho mọi kỳ của lớp
+     */
+    @Query(value = """
+        SELECT sg.student_id, sg.class_subject_id, sg.actual_average
+        FROM subject_grades sg
+        JOIN class_subjects cs ON cs.class_subject_id = sg.class_subject_id
+        JOIN terms t ON t.term_id = cs.term_id
+        JOIN enrollments e ON e.student_id = sg.student_id AND e.class_id = :classId
+        WHERE t.class_id = :classId
+          AND sg.actual_average IS NOT NULL
+        """, nativeQuery = true)
+    List<Object[]> findRankingRowsByClass(@Param("classId") Long classId);
+
 }
\ No newline at end of file
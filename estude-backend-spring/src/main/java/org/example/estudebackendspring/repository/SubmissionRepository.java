@@ -44,4 +44,20 @@ public interface SubmissionRepository extends JpaRepository<Submission, Long> {
             "    AND s.isLate = true")
     long countLateByStudentAndTerm(@Param("studentId") Long studentId, @Param("termId") Long termId);
 
+    /**
+     * Thống kê nộp bài của cả kỳ, 1 dòng / học sinh:
+     * [student_id, số assignment đã nộp, số assignment nộp trễ]
+     */
+    @Query(value = """
+        SELECT s.student_id,
+               COUNT(DISTINCT s.assignment_id),
+               COUNT(DISTINCT CASE WHEN s.is_late = true THEN s.assignment_id END)
+        FROM submissions s
+        JOIN assignments a ON a.assignment_id = s.assignment_id
+        JOIN class_subjects cs ON cs.class_subject_id = a.class_subject_id
+        WHERE cs.term_id = :termId
+        GROUP BY s.student_id
+        """, nativeQuery = true)
+    List<Object[]> countSubmissionsByTermGroupByStudent(@Param("termId") Long termId);
+
 }
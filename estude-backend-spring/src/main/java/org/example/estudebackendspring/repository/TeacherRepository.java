@@ -4,7 +4,9 @@ import org.example.estudebackendspring.entity.Student;
 import org.example.estudebackendspring.entity.Teacher;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,4 +21,7 @@ public interface TeacherRepository extends JpaRepository<Teacher, Long> {
     @Query("SELECT t FROM Teacher t LEFT JOIN FETCH t.school ORDER BY t.fullName")
     List<Teacher> findAllWithSchool();
 
+    @Query("SELECT t.teacherCode FROM Teacher t WHERE t.teacherCode IN :codes")
+    List<String> findExistingTeacherCodes(@Param("codes") Collection<String> codes);
+
 }
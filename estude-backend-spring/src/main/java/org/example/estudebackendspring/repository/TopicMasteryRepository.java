@@ -0,0 +1,55 @@
+package org.example.estudebackendspring.repository;
+
+import jakarta.persistence.LockModeType;
+import org.example.estudebackendspring.entity.TopicMastery;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface TopicMasteryRepository extends JpaRepository<TopicMastery, Long> {
+
+    /**
+     * Tạo dòng rỗng (attempt_count = 0) nếu chưa có, để sau đó khoá và cập nhật
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO topic_mastery (student_id, topic_id, subject_id, attempt_count, accuracy_sum)
+        VALUES (:studentId, :topicId, :subjectId, 0, 0)
+        ON CONFLICT (student_id, topic_id) DO NOTHING
+        """, nativeQuery = true)
+    void insertIfAbsent(@Param("studentId") Long studentId,
+                        @Param("topicId") Long topicId,
+                        @Param("subjectId") Long subjectId);
+
+    /**
+     * Các dòng của học sinh cho các chủ đề, khoá ghi tới hết transaction (2 bài nộp song song không ghi đè nhau)
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT m FROM TopicMastery m WHERE m.studentId = :studentId AND m.topic.topicId IN :topicIds")
+    List<TopicMastery> findForUpdate(@Param("studentId") Long studentId,
+                                     @Param("topicIds") Collection<Long> topicIds);
+
+    /**
+     * Các chủ đề đã làm của học sinh trong 1 môn, kèm Topic
+     */
+    @Query("SELECT m FROM TopicMastery m JOIN FETCH m.topic t " +
+           "WHERE m.studentId = :studentId AND m.subjectId = :subjectId AND m.attemptCount > 0")
+    List<TopicMastery> findByStudentAndSubject(@Param("studentId") Long studentId,
+                                               @Param("subjectId") Long subjectId);
+
+    /**
+     * Chủ đề có % đúng lần gần nhất < threshold, yếu nhất trước
+     */
+    @Query("SELECT m FROM TopicMastery m JOIN FETCH m.topic t LEFT JOIN FETCH t.subject " +
+           "WHERE m.studentId = :studentId AND m.subjectId = :subjectId " +
+           "AND m.attemptCount > 0 AND m.latestAccuracy < :threshold " +
+           "ORDER BY m.latestAccuracy ASC")
+    List<TopicMastery> findWeak(@Param("studentId") Long studentId,
+                                @Param("subjectId") Long subjectId,
+                                @Param("threshold") Float threshold);
+}
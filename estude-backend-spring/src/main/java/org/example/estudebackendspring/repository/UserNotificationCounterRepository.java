@@ -0,0 +1,76 @@
+package org.example.estudebackendspring.repository;
+
+import org.example.estudebackendspring.entity.UserNotificationCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface UserNotificationCounterRepository extends JpaRepository<UserNotificationCounter, Long> {
+
+    /**
+     * +1 chưa đọc cho mọi người nhận của notification vừa fan-out.
+     * Khoá các dòng theo thứ tự user_id để 2 lần fan-out song song không deadlock.
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO user_notification_counters (user_id, unread_count)
+        SELECT nr.user_id, COUNT(*)
+        FROM notification_recipients nr
+        WHERE nr.notification_id = :notificationId
+          AND nr.read = false
+        GROUP BY nr.user_id
+        ORDER BY nr.user_id
+        ON CONFLICT (user_id) DO UPDATE SET
+            unread_count = user_notification_counters.unread_count + EXCLUDED.unread_count
+        """, nativeQuery = true)
+    int incrementForNotification(@Param("notificationId") Long notificationId);
+
+    /**
+     * Trừ các recipient chưa đọc của 1 notification (gọi trước khi xoá recipient)
+     */
+    @Modifying
+    @Query(value = """
+        UPDATE user_notification_counters c
+        SET unread_count = GREATEST(c.unread_count - x.cnt, 0)
+        FROM (
+            SELECT nr.user_id, COUNT(*) AS cnt
+            FROM notification_recipients nr
+            WHERE nr.notification_id = :notificationId
+              AND nr.read = false
+            GROUP BY nr.user_id
+        ) x
+        WHERE c.user_id = x.user_id
+        """, nativeQuery = true)
+    int decrementForNotification(@Param("notificationId") Long notificationId);
+
+    /**
+     * Cộng delta (có thể âm) vào số chưa đọc của 1 user, không xuống dưới 0
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO user_notification_counters (user_id, unread_count)
+        VALUES (:userId, GREATEST(:delta, 0))
+        ON CONFLICT (user_id) DO UPDATE SET
+            unread_count = GREATEST(user_notification_counters.unread_count + :delta, 0)
+        """, nativeQuery = true)
+    int adjust(@Param("userId") Long userId, @Param("delta") long delta);
+
+    /**
+     * Bảng đã có bộ đếm nào chưa (rỗng = chưa backfill)
+     */
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM user_notification_counters)", nativeQuery = true)
+    boolean existsAny();
+
+    /**
+     * Dựng lại toàn bộ bộ đếm từ notification_recipients (backfill)
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO user_notification_counters (user_id, unread_count)
+        SELECT nr.user_id, SUM(CASE WHEN nr.read = false THEN 1 ELSE 0 END)
+        FROM notification_recipients nr
+        GROUP BY nr.user_id
+        """, nativeQuery = true)
+    int rebuildFromRecipients();
+}
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -24,6 +25,13 @@ public interface UserRepository extends JpaRepository<User, Long> {
     // Users in a school
     @Query("SELECT u.userId FROM User u WHERE u.school.schoolId = :schoolId")
     List<Long> findUserIdsBySchoolId(@Param("schoolId") Long schoolId);
+
+    // Email / số điện thoại đã dùng trong danh sách (kiểm tra trùng khi tạo tài khoản hàng loạt)
+    @Query("SELECT u.email FROM User u WHERE u.email IN :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    @Query("SELECT u.numberPhone FROM User u WHERE u.numberPhone IN :phones")
+    List<String> findExistingPhones(@Param("phones") Collection<String> phones);
 }
 
 
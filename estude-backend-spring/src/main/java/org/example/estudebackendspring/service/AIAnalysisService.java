@@ -16,11 +16,9 @@ import org.example.estudebackendspring.enums.AnalysisType;
 import org.example.estudebackendspring.repository.AIAnalysisRequestRepository;
 import org.example.estudebackendspring.repository.AIAnalysisResultRepository;
 import org.example.estudebackendspring.repository.StudentRepository;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.client.RestTemplate;
 
 import java.time.LocalDateTime;
 import java.util.*;
@@ -30,20 +28,17 @@ public class AIAnalysisService  {
     private final StudentRepository studentRepository;
     private final AIAnalysisRequestRepository requestRepository;
     private final AIAnalysisResultRepository resultRepository;
-    private final RestTemplate restTemplate;
+    private final AIServiceClient aiServiceClient;
     private final ObjectMapper objectMapper;
 
-//    @Value("${ai.service.url:http://127.0.0.1:8000/predict}")
-    @Value("${ai.service.url}")
-    private String aiServiceUrl;
-
     public AIAnalysisService(StudentRepository studentRepository,
                              AIAnalysisRequestRepository requestRepository,
-                             AIAnalysisResultRepository resultRepository) {
+                             AIAnalysisResultRepository resultRepository,
+                             AIServiceClient aiServiceClient) {
         this.studentRepository = studentRepository;
         this.requestRepository = requestRepository;
         this.resultRepository = resultRepository;
-        this.restTemplate = new RestTemplate();
+        this.aiServiceClient = aiServiceClient;
         this.objectMapper = new ObjectMapper();
     }
 
@@ -156,8 +151,7 @@ public class AIAnalysisService  {
         ResponseEntity<String> resp;
         String rawBody;
         try {
-            String url = aiServiceUrl + "/predict";
-            resp = restTemplate.postForEntity(url, entity, String.class);
+            resp = aiServiceClient.postForEntity("/predict", entity, String.class);
             rawBody = resp.getBody();
             System.out.println("RAW AI response: " + rawBody);
         } catch (Exception ex) {
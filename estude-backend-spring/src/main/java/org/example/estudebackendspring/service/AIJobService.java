@@ -0,0 +1,167 @@
+package org.example.estudebackendspring.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.estudebackendspring.dto.learning.AIJobResponse;
+import org.example.estudebackendspring.entity.AIAnalysisRequest;
+import org.example.estudebackendspring.entity.AIAnalysisResult;
+import org.example.estudebackendspring.enums.AIJobStatus;
+import org.example.estudebackendspring.exception.ResourceNotFoundException;
+import org.example.estudebackendspring.repository.AIAnalysisRequestRepository;
+import org.example.estudebackendspring.repository.AIAnalysisResultRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Pipeline job AI bất đồng bộ.
+ * - Request đã được lưu (AIAnalysisRequest) trước khi submit, requestId chính là jobId
+ * - Worker (aiJobExecutor, pool có giới hạn) gọi AI ngoài mọi transaction,
+ *   kết quả được ghi bằng transaction ngắn
+ * - Client polling GET /api/ai/jobs/{jobId} hoặc subscribe STOMP:
+ *   /topic/ai-jobs/{jobId} và /topic/student/{studentId}/ai-jobs
+ * - Hàng đợi chỉ nằm trong bộ nhớ: job PENDING/RUNNING quá ai.jobs.stale-after (vd. bị bỏ dở khi
+ *   khởi động lại / redeploy) được đánh dấu FAILED lúc khởi động và định kỳ, client gửi lại nếu cần
+ */
+@Slf4j
+@Service
+public class AIJobService {
+
+    private final AIAnalysisRequestRepository requestRepository;
+    private final AIAnalysisResultRepository resultRepository;
+    private final ThreadPoolTaskExecutor aiJobExecutor;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final Duration staleAfter;
+
+    public AIJobService(AIAnalysisRequestRepository requestRepository,
+                        AIAnalysisResultRepository resultRepository,
+                        @Qualifier("aiJobExecutor") ThreadPoolTaskExecutor aiJobExecutor,
+                        SimpMessagingTemplate messagingTemplate,
+                        @Value("${ai.jobs.stale-after:PT1H}") Duration staleAfter) {
+        this.requestRepository = requestRepository;
+        this.resultRepository = resultRepository;
+        this.aiJobExecutor = aiJobExecutor;
+        this.messagingTemplate = messagingTemplate;
+        this.staleAfter = staleAfter;
+    }
+
+    /**
+     * Đưa job vào hàng đợi và trả về ngay trạng thái PENDING.
+     *
+     * @param request AIAnalysisRequest đã lưu
+     * @param work    phần gọi AI + lưu result (chạy trên worker thread)
+     */
+    public AIJobResponse submit(AIAnalysisRequest request, Runnable work) {
+        Long jobId = request.getRequestId();
+        Long studentId = request.getStudent() != null ? request.getStudent().getUserId() : null;
+        requestRepository.updateJobStatus(jobId, AIJobStatus.PENDING, null);
+
+        try {
+            aiJobExecutor.execute(() -> runJob(jobId, studentId, work));
+        } catch (TaskRejectedException ex) {
+            log.warn("AI job queue is full, rejecting job {}", jobId);
+            requestRepository.updateJobStatus(jobId, AIJobStatus.FAILED, LocalDateTime.now());
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Hệ thống AI đang quá tải, vui lòng thử lại sau");
+        }
+
+        log.info("📥 AI job {} ({}) queued, active={}, queued={}", jobId, request.getAnalysisType(),
+                aiJobExecutor.getActiveCount(), aiJobExecutor.getThreadPoolExecutor().getQueue().size());
+
+        return AIJobResponse.builder()
+                .jobId(jobId)
+                .analysisType(request.getAnalysisType())
+                .status(AIJobStatus.PENDING)
+                .submittedAt(request.getRequestDate())
+                .build();
+    }
+
+    /**
+     * Trạng thái job (kèm kết quả nếu đã xong)
+     */
+    public AIJobResponse getJob(Long jobId) {
+        AIAnalysisRequest request = requestRepository.findById(jobId)
+                .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy job AI với ID: " + jobId));
+        Optional<AIAnalysisResult> result = resultRepository.findFirstByRequestIdOrderByGeneratedAtDesc(jobId);
+
+        AIJobStatus status = request.getJobStatus();
+        if (status == null) {
+            // Request tạo qua API đồng bộ
+            status = result.isPresent() ? AIJobStatus.COMPLETED : AIJobStatus.PENDING;
+        }
+
+        AIJobResponse.AIJobResponseBuilder builder = AIJobResponse.builder()
+                .jobId(jobId)
+                .analysisType(request.getAnalysisType())
+                .status(status)
+                .submittedAt(request.getRequestDate())
+                .completedAt(request.getCompletedAt());
+        result.ifPresent(r -> builder
+                .resultId(r.getResultId())
+                .data(r.getDetailedAnalysis())
+                .message(r.getComment()));
+        return builder.build();
+    }
+
+    /**
+     * Đánh dấu FAILED các job không còn worker xử lý (lúc khởi động và định kỳ).
+     * Chỉ xét job cũ hơn stale-after để không đụng job đang chạy ở instance khác.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${ai.jobs.stale-check-interval-ms:600000}",
+            initialDelayString = "${ai.jobs.stale-check-interval-ms:600000}")
+    public void failStaleJobs() {
+        LocalDateTime now = LocalDateTime.now();
+        int failed = requestRepository.failStaleJobs(List.of(AIJobStatus.PENDING, AIJobStatus.RUNNING),
+                AIJobStatus.FAILED, now.minus(staleAfter), now);
+        if (failed > 0) {
+            log.warn("Marked {} abandoned AI job(s) as FAILED", failed);
+        }
+    }
+
+    private void runJob(Long jobId, Long studentId, Runnable work) {
+        long start = System.currentTimeMillis();
+        requestRepository.updateJobStatus(jobId, AIJobStatus.RUNNING, null);
+
+        try {
+            work.run();
+        } catch (Exception ex) {
+            // Lỗi đã được ghi vào AIAnalysisResult.comment bởi LearningLoopService
+            log.warn("AI job {} failed: {}", jobId, ex.getMessage());
+        }
+
+        // COMPLETED chỉ khi AI trả về dữ liệu và đã được lưu
+        boolean hasData = resultRepository.findFirstByRequestIdOrderByGeneratedAtDesc(jobId)
+                .map(r -> r.getDetailedAnalysis() != null)
+                .orElse(false);
+        AIJobStatus status = hasData ? AIJobStatus.COMPLETED : AIJobStatus.FAILED;
+        requestRepository.updateJobStatus(jobId, status, LocalDateTime.now());
+        log.info("✅ AI job {} finished with status {} in {} ms", jobId, status, System.currentTimeMillis() - start);
+
+        publish(jobId, studentId);
+    }
+
+    private void publish(Long jobId, Long studentId) {
+        try {
+            AIJobResponse payload = getJob(jobId);
+            messagingTemplate.convertAndSend("/topic/ai-jobs/" + jobId, payload);
+            if (studentId != null) {
+                messagingTemplate.convertAndSend("/topic/student/" + studentId + "/ai-jobs", payload);
+            }
+        } catch (Exception ex) {
+            log.warn("Failed to publish AI job {} status", jobId, ex);
+        }
+    }
+}
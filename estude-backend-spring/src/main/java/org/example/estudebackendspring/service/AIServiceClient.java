@@ -0,0 +1,217 @@
+package org.example.estudebackendspring.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.example.estudebackendspring.config.AIClientProperties;
+import org.example.estudebackendspring.exception.AIServiceUnavailableException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * HTTP client dùng chung cho mọi lời gọi tới Python AI service
+ * (AIAnalysisService, LearningLoopService, SubjectAnalysisService, TestAnalysisService).
+ * - Connection pool + keep-alive (Apache HttpClient 5), connect timeout và read timeout theo endpoint
+ * - Bulkhead: giới hạn số lời gọi đồng thời, hết slot thì từ chối nhanh
+ * - Circuit breaker: lỗi liên tiếp vượt ngưỡng thì mở mạch, các lời gọi sau thất bại ngay
+ *   (caller đi vào nhánh lỗi sẵn có, vd "Gọi Service AI không thành công")
+ * - Latency histogram theo endpoint: /actuator/metrics/ai.client.requests?tag=endpoint:/predict
+ */
+@Slf4j
+@Component
+public class AIServiceClient {
+
+    private static final String METRIC_NAME = "ai.client.requests";
+
+    private final String baseUrl;
+    private final AIClientProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final CloseableHttpClient httpClient;
+    private final Map<Duration, RestTemplate> restTemplates = new ConcurrentHashMap<>();
+    private final Semaphore bulkhead;
+    private final CircuitBreaker circuitBreaker;
+
+    public AIServiceClient(@Value("${ai.service.url}") String baseUrl,
+                           AIClientProperties properties,
+                           MeterRegistry meterRegistry) {
+        this.baseUrl = baseUrl;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.bulkhead = new Semaphore(properties.getMaxConcurrentCalls());
+        this.circuitBreaker = new CircuitBreaker(properties.getFailureThreshold(), properties.getOpenDuration());
+
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(properties.getMaxConnections())
+                .setMaxConnPerRoute(properties.getMaxConnections())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(properties.getConnectTimeout().toMillis()))
+                        .build())
+                .build();
+        TimeValue keepAlive = TimeValue.ofMilliseconds(properties.getKeepAlive().toMillis());
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy((response, context) -> keepAlive)
+                .evictIdleConnections(keepAlive)
+                .evictExpiredConnections()
+                .build();
+
+        Gauge.builder("ai.client.bulkhead.available", bulkhead, Semaphore::availablePermits)
+                .description("Số slot gọi AI còn trống")
+                .register(meterRegistry);
+        Gauge.builder("ai.client.circuit.open", circuitBreaker, cb -> cb.isOpen() ? 1 : 0)
+                .description("1 nếu circuit breaker đang mở")
+                .register(meterRegistry);
+    }
+
+    public <T> ResponseEntity<T> postForEntity(String path, Object request, Class<T> responseType) {
+        return execute(path, () -> restTemplateFor(path).postForEntity(baseUrl + path, request, responseType));
+    }
+
+    public <T> T postForObject(String path, Object request, Class<T> responseType) {
+        return postForEntity(path, request, responseType).getBody();
+    }
+
+    private <T> T execute(String path, Supplier<T> call) {
+        if (!circuitBreaker.tryAcquire()) {
+            record(path, "short_circuited", 0);
+            throw new AIServiceUnavailableException("AI service tạm thời không khả dụng (circuit breaker đang mở)");
+        }
+        if (!acquireBulkhead()) {
+            circuitBreaker.release();
+            record(path, "rejected", 0);
+            throw new AIServiceUnavailableException("AI service đang quá tải, vui lòng thử lại sau");
+        }
+
+        long start = System.nanoTime();
+        try {
+            T result = call.get();
+            circuitBreaker.onSuccess();
+            record(path, "success", System.nanoTime() - start);
+            return result;
+        } catch (HttpClientErrorException ex) {
+            // 4xx: AI service vẫn sống, lỗi do payload -> không tính vào circuit breaker
+            circuitBreaker.onSuccess();
+            record(path, "client_error", System.nanoTime() - start);
+            throw ex;
+        } catch (RuntimeException ex) {
+            if (circuitBreaker.onFailure()) {
+                log.warn("AI circuit breaker opened for {} after repeated failures (last: {})",
+                        properties.getOpenDuration(), ex.getMessage());
+            }
+            record(path, "error", System.nanoTime() - start);
+            throw ex;
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    private boolean acquireBulkhead() {
+        try {
+            return bulkhead.tryAcquire(properties.getBulkheadWait().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private RestTemplate restTemplateFor(String path) {
+        Duration readTimeout = properties.getEndpointReadTimeouts().getOrDefault(path, properties.getReadTimeout());
+        return restTemplates.computeIfAbsent(readTimeout, timeout -> {
+            // Các RestTemplate dùng chung 1 HttpClient (1 connection pool), chỉ khác read timeout
+            HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory(httpClient);
+            factory.setConnectionRequestTimeout(properties.getConnectTimeout());
+            factory.setReadTimeout(timeout);
+            return new RestTemplate(factory);
+        });
+    }
+
+    private void record(String path, String outcome, long nanos) {
+        Timer.builder(METRIC_NAME)
+                .description("Latency các lời gọi tới AI service")
+                .tag("endpoint", path)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        httpClient.close();
+    }
+
+    /**
+     * Circuit breaker tối giản: CLOSED -> OPEN sau N lỗi liên tiếp -> HALF_OPEN (1 lời gọi thử) sau openDuration.
+     */
+    static final class CircuitBreaker {
+        private final int failureThreshold;
+        private final long openMillis;
+
+        private int consecutiveFailures;
+        private long openUntil;
+        private boolean open;
+        private boolean trialInFlight;
+
+        CircuitBreaker(int failureThreshold, Duration openDuration) {
+            this.failureThreshold = Math.max(1, failureThreshold);
+            this.openMillis = openDuration.toMillis();
+        }
+
+        synchronized boolean tryAcquire() {
+            if (!open) return true;
+            if (System.currentTimeMillis() < openUntil || trialInFlight) return false;
+            trialInFlight = true; // half-open: cho 1 lời gọi thử
+            return true;
+        }
+
+        // Trả lại quyền thử khi lời gọi không thực sự được gửi đi (bulkhead từ chối)
+        synchronized void release() {
+            trialInFlight = false;
+        }
+
+        synchronized void onSuccess() {
+            consecutiveFailures = 0;
+            open = false;
+            trialInFlight = false;
+        }
+
+        /**
+         * @return true nếu lần lỗi này làm mạch chuyển sang OPEN
+         */
+        synchronized boolean onFailure() {
+            consecutiveFailures++;
+            boolean wasOpen = open;
+            if (trialInFlight || consecutiveFailures >= failureThreshold) {
+                open = true;
+                openUntil = System.currentTimeMillis() + openMillis;
+            }
+            trialInFlight = false;
+            return open && !wasOpen;
+        }
+
+        synchronized boolean isOpen() {
+            return open;
+        }
+    }
+}
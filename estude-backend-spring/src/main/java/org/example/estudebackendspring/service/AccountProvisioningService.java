@@ -0,0 +1,410 @@
+package org.example.estudebackendspring.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.example.estudebackendspring.dto.ProvisionAccountRow;
+import org.example.estudebackendspring.dto.ProvisionResultDTO;
+import org.example.estudebackendspring.enums.UserRole;
+import org.example.estudebackendspring.exception.BadRequestException;
+import org.example.estudebackendspring.exception.ResourceNotFoundException;
+import org.example.estudebackendspring.repository.SchoolRepository;
+import org.example.estudebackendspring.repository.StudentRepository;
+import org.example.estudebackendspring.repository.TeacherRepository;
+import org.example.estudebackendspring.repository.UserRepository;
+import org.example.estudebackendspring.until.QueryUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Tạo tài khoản học sinh / giáo viên hàng loạt từ file CSV hoặc JSON (onboarding trường mới).
+ * - Kiểm tra trùng mã / email / số điện thoại trong file và với DB bằng vài query IN trên cả file
+ * - Băm mật khẩu BCrypt song song trên passwordHashExecutor (pool có giới hạn)
+ * - Ghi theo khối provisioning.chunk-size dòng, mỗi khối 1 transaction với JDBC batch (users + students/teachers);
+ *   khối lỗi (vd. trùng do request song song) được ghi lại từng dòng
+ * - Kết quả từng dòng được ghi ra ngay sau mỗi khối dạng NDJSON
+ */
+@Slf4j
+@Service
+public class AccountProvisioningService {
+
+    public enum AccountType {
+        STUDENT, TEACHER
+    }
+
+    private static final byte[] NEWLINE = {'\n'};
+
+    private static final String INSERT_USER = """
+        INSERT INTO users (number_phone, password, email, full_name, dob, school_id, role)
+        VALUES (?, ?, ?, ?, ?, ?, ?)
+        """;
+    private static final String INSERT_STUDENT = """
+        INSERT INTO students (user_id, student_code, enrollment_date) VALUES (?, ?, ?)
+        """;
+    private static final String INSERT_TEACHER = """
+        INSERT INTO teachers (user_id, teacher_code, hire_date, is_admin, is_homeroom_teacher) VALUES (?, ?, ?, ?, ?)
+        """;
+
+    private final SchoolRepository schoolRepository;
+    private final StudentRepository studentRepository;
+    private final TeacherRepository teacherRepository;
+    private final UserRepository userRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolTaskExecutor passwordHashExecutor;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int maxRows;
+    private final int chunkSize;
+
+    public AccountProvisioningService(SchoolRepository schoolRepository,
+                                      StudentRepository studentRepository,
+                                      TeacherRepository teacherRepository,
+                                      UserRepository userRepository,
+                                      PasswordEncoder passwordEncoder,
+                                      @Qualifier("passwordHashExecutor") ThreadPoolTaskExecutor passwordHashExecutor,
+                                      JdbcTemplate jdbcTemplate,
+                                      PlatformTransactionManager transactionManager,
+                                      ObjectMapper objectMapper,
+                                      @Value("${provisioning.max-rows:10000}") int maxRows,
+                                      @Value("${provisioning.chunk-size:500}") int chunkSize) {
+        this.schoolRepository = schoolRepository;
+        this.studentRepository = studentRepository;
+        this.teacherRepository = teacherRepository;
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.passwordHashExecutor = passwordHashExecutor;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.maxRows = maxRows;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    public void requireSchool(Long schoolId) {
+        if (!schoolRepository.existsById(schoolId)) {
+            throw new ResourceNotFoundException("Không tìm thấy trường học: " + schoolId);
+        }
+    }
+
+    /**
+     * Đọc file: JSON (mảng ProvisionAccountRow) nếu json = true, ngược lại CSV có dòng header
+     */
+    public List<ProvisionAccountRow> parse(InputStream in, boolean json) throws IOException {
+        List<ProvisionAccountRow> rows;
+        try {
+            rows = json
+                    ? objectMapper.readValue(in, new TypeReference<List<ProvisionAccountRow>>() {})
+                    : parseCsv(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+        } catch (JsonProcessingException e) {
+            throw new BadRequestException("File JSON không hợp lệ: " + e.getOriginalMessage());
+        }
+        if (rows == null || rows.isEmpty()) {
+            throw new BadRequestException("File không có dòng dữ liệu nào");
+        }
+        if (rows.size() > maxRows) {
+            throw new BadRequestException("Tối đa " + maxRows + " tài khoản trong 1 lần tạo");
+        }
+        return rows;
+    }
+
+    /**
+     * Tạo tài khoản cho các dòng hợp lệ, ghi kết quả từng dòng (NDJSON) ra out sau mỗi khối
+     *
+     * @return số tài khoản đã tạo
+     */
+    public long provision(AccountType type, Long schoolId, List<ProvisionAccountRow> rows, OutputStream out) throws IOException {
+        long start = System.currentTimeMillis();
+        String[] rejections = validate(type, rows);
+
+        long created = 0;
+        for (int from = 0; from < rows.size(); from += chunkSize) {
+            int to = Math.min(from + chunkSize, rows.size());
+            List<Integer> accepted = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                if (rejections[i] == null) accepted.add(i);
+            }
+
+            Map<Integer, Long> userIds = insert(type, schoolId, rows, accepted, hashPasswords(rows, accepted), rejections);
+            created += userIds.size();
+
+            for (int i = from; i < to; i++) {
+                ProvisionAccountRow row = rows.get(i);
+                ProvisionResultDTO result = userIds.containsKey(i)
+                        ? new ProvisionResultDTO(i + 1, row.getCode(), ProvisionResultDTO.Status.CREATED, userIds.get(i), null)
+                        : new ProvisionResultDTO(i + 1, row.getCode(), ProvisionResultDTO.Status.REJECTED, null, rejections[i]);
+                out.write(objectMapper.writeValueAsBytes(result));
+                out.write(NEWLINE);
+            }
+            out.flush();
+        }
+        log.info("Provisioned {} of {} {} accounts for school {} ({} ms)",
+                created, rows.size(), type, schoolId, System.currentTimeMillis() - start);
+        return created;
+    }
+
+    // Lý do từ chối của từng dòng (null = hợp lệ): thiếu dữ liệu, trùng trong file, đã có trong DB
+    String[] validate(AccountType type, List<ProvisionAccountRow> rows) {
+        String[] rejections = new String[rows.size()];
+        Set<String> codes = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        Set<String> phones = new HashSet<>();
+
+        for (int i = 0; i < rows.size(); i++) {
+            ProvisionAccountRow row = normalize(rows.get(i));
+            if (isBlank(row.getCode()) || isBlank(row.getFullName()) || isBlank(row.getPassword())) {
+                rejections[i] = "Thiếu mã, họ tên hoặc mật khẩu";
+            } else if (row.getDob() != null && parseDate(row.getDob()) == null) {
+                rejections[i] = "Ngày sinh không hợp lệ (yyyy-MM-dd): " + row.getDob();
+            } else if (!codes.add(row.getCode())) {
+                rejections[i] = "Mã bị lặp trong file: " + row.getCode();
+            } else if (row.getEmail() != null && !emails.add(row.getEmail())) {
+                rejections[i] = "Email bị lặp trong file: " + row.getEmail();
+            } else if (row.getPhone() != null && !phones.add(row.getPhone())) {
+                rejections[i] = "Số điện thoại bị lặp trong file: " + row.getPhone();
+            }
+        }
+
+        Set<String> existingCodes = type == AccountType.STUDENT
+                ? findExisting(codes, studentRepository::findExistingStudentCodes)
+                : findExisting(codes, teacherRepository::findExistingTeacherCodes);
+        Set<String> existingEmails = findExisting(emails, userRepository::findExistingEmails);
+        Set<String> existingPhones = findExisting(phones, userRepository::findExistingPhones);
+
+        for (int i = 0; i < rows.size(); i++) {
+            if (rejections[i] != null) continue;
+            ProvisionAccountRow row = rows.get(i);
+            if (existingCodes.contains(row.getCode())) {
+                rejections[i] = (type == AccountType.STUDENT ? "Mã sinh viên" : "Mã giáo viên") + " đã tồn tại: " + row.getCode();
+            } else if (row.getEmail() != null && existingEmails.contains(row.getEmail())) {
+                rejections[i] = "Email đã tồn tại: " + row.getEmail();
+            } else if (row.getPhone() != null && existingPhones.contains(row.getPhone())) {
+                rejections[i] = "Số điện thoại đã tồn tại: " + row.getPhone();
+            }
+        }
+        return rejections;
+    }
+
+    private static Set<String> findExisting(Set<String> values, Function<Collection<String>, List<String>> query) {
+        Set<String> existing = new HashSet<>();
+        for (List<String> chunk : QueryUtils.inChunks(values)) {
+            existing.addAll(query.apply(chunk));
+        }
+        return existing;
+    }
+
+    // BCrypt cố ý chậm: băm song song các dòng của khối trên pool riêng
+    private Map<Integer, String> hashPasswords(List<ProvisionAccountRow> rows, List<Integer> indexes) {
+        Map<Integer, CompletableFuture<String>> futures = new LinkedHashMap<>();
+        for (Integer i : indexes) {
+            String password = rows.get(i).getPassword();
+            futures.put(i, CompletableFuture.supplyAsync(() -> passwordEncoder.encode(password), passwordHashExecutor));
+        }
+        Map<Integer, String> hashes = new HashMap<>();
+        futures.forEach((i, f) -> hashes.put(i, f.join()));
+        return hashes;
+    }
+
+    /**
+     * Ghi 1 khối trong 1 transaction; lỗi thì ghi lại từng dòng để chỉ loại dòng hỏng
+     *
+     * @return chỉ số dòng -> userId đã tạo
+     */
+    private Map<Integer, Long> insert(AccountType type, Long schoolId, List<ProvisionAccountRow> rows,
+                                      List<Integer> indexes, Map<Integer, String> hashes, String[] rejections) {
+        if (indexes.isEmpty()) return Map.of();
+        try {
+            return transactionTemplate.execute(status -> insertBatch(type, schoolId, rows, indexes, hashes));
+        } catch (RuntimeException e) {
+            log.warn("Batch insert of {} accounts failed, retrying row by row: {}", indexes.size(), e.getMessage());
+        }
+
+        Map<Integer, Long> userIds = new HashMap<>();
+        for (Integer i : indexes) {
+            try {
+                userIds.putAll(transactionTemplate.execute(status -> insertBatch(type, schoolId, rows, List.of(i), hashes)));
+            } catch (DataIntegrityViolationException e) {
+                rejections[i] = "Mã, email hoặc số điện thoại đã tồn tại";
+            } catch (RuntimeException e) {
+                rejections[i] = "Không tạo được tài khoản: " + e.getMessage();
+            }
+        }
+        return userIds;
+    }
+
+    private Map<Integer, Long> insertBatch(AccountType type, Long schoolId, List<ProvisionAccountRow> rows,
+                                           List<Integer> indexes, Map<Integer, String> hashes) {
+        UserRole role = type == AccountType.STUDENT ? UserRole.STUDENT : UserRole.TEACHER;
+        Date today = Date.valueOf(LocalDate.now());
+
+        // users: khoá user_id sinh ra theo đúng thứ tự batch
+        List<Long> ids = jdbcTemplate.execute((ConnectionCallback<List<Long>>) con -> {
+            try (PreparedStatement ps = con.prepareStatement(INSERT_USER, new String[]{"user_id"})) {
+                for (Integer i : indexes) {
+                    ProvisionAccountRow row = rows.get(i);
+                    ps.setString(1, row.getPhone());
+                    ps.setString(2, hashes.get(i));
+                    ps.setString(3, row.getEmail());
+                    ps.setString(4, row.getFullName());
+                    LocalDate dob = row.getDob() != null ? parseDate(row.getDob()) : null;
+                    ps.setDate(5, dob != null ? Date.valueOf(dob) : null);
+                    ps.setLong(6, schoolId);
+                    ps.setString(7, role.name());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                List<Long> keys = new ArrayList<>(indexes.size());
+                try (ResultSet rs = ps.getGeneratedKeys()) {
+                    while (rs.next()) keys.add(rs.getLong(1));
+                }
+                return keys;
+            }
+        });
+        if (ids == null || ids.size() != indexes.size()) {
+            throw new IllegalStateException("Generated user ids do not match inserted rows");
+        }
+
+        List<Object[]> childRows = new ArrayList<>(indexes.size());
+        Map<Integer, Long> userIds = new HashMap<>();
+        for (int k = 0; k < indexes.size(); k++) {
+            ProvisionAccountRow row = rows.get(indexes.get(k));
+            Long userId = ids.get(k);
+            userIds.put(indexes.get(k), userId);
+            childRows.add(type == AccountType.STUDENT
+                    ? new Object[]{userId, row.getCode(), today}
+                    : new Object[]{userId, row.getCode(), today,
+                            Boolean.TRUE.equals(row.getIsAdmin()), Boolean.TRUE.equals(row.getIsHomeroomTeacher())});
+        }
+        jdbcTemplate.batchUpdate(type == AccountType.STUDENT ? INSERT_STUDENT : INSERT_TEACHER, childRows);
+        return userIds;
+    }
+
+    // Bỏ khoảng trắng thừa, chuỗi rỗng -> null
+    private static ProvisionAccountRow normalize(ProvisionAccountRow row) {
+        row.setCode(trimToNull(row.getCode()));
+        row.setFullName(trimToNull(row.getFullName()));
+        row.setEmail(trimToNull(row.getEmail()));
+        row.setPhone(trimToNull(row.getPhone()));
+        row.setDob(trimToNull(row.getDob()));
+        return row;
+    }
+
+    private static String trimToNull(String value) {
+        if (value == null) return null;
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static LocalDate parseDate(String value) {
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * CSV (RFC 4180): dòng đầu là header (code, fullName, email, phone, password, dob, isAdmin,
+     * isHomeroomTeacher; không phân biệt hoa thường, chấp nhận studentCode / teacherCode cho code)
+     */
+    private static List<ProvisionAccountRow> parseCsv(Reader reader) throws IOException {
+        List<List<String>> records = readCsvRecords(reader);
+        if (records.isEmpty()) return List.of();
+
+        List<String> header = records.get(0).stream()
+                .map(h -> h.replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT))
+                .toList();
+        List<ProvisionAccountRow> rows = new ArrayList<>(records.size() - 1);
+        for (List<String> record : records.subList(1, records.size())) {
+            if (record.size() == 1 && record.get(0).isBlank()) continue; // dòng trống
+            ProvisionAccountRow row = new ProvisionAccountRow();
+            for (int c = 0; c < header.size() && c < record.size(); c++) {
+                String value = record.get(c);
+                switch (header.get(c)) {
+                    case "code", "studentcode", "teachercode" -> row.setCode(value);
+                    case "fullname" -> row.setFullName(value);
+                    case "email" -> row.setEmail(value);
+                    case "phone", "numberphone" -> row.setPhone(value);
+                    case "password" -> row.setPassword(value);
+                    case "dob" -> row.setDob(value);
+                    case "isadmin" -> row.setIsAdmin(parseFlag(value));
+                    case "ishomeroomteacher" -> row.setIsHomeroomTeacher(parseFlag(value));
+                    default -> { }
+                }
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static Boolean parseFlag(String value) {
+        String v = value.trim();
+        return v.equalsIgnoreCase("true") || v.equals("1") || v.equalsIgnoreCase("x");
+    }
+
+    static List<List<String>> readCsvRecords(Reader reader) throws IOException {
+        List<List<String>> records = new ArrayList<>();
+        List<String> record = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int ch;
+        while ((ch = reader.read()) != -1) {
+            char c = (char) ch;
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    int next = reader.read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        if (next != -1) reader.reset();
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                record.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                record.add(field.toString());
+                field.setLength(0);
+                records.add(record);
+                record = new ArrayList<>();
+            } else if (c != '\r') {
+                field.append(c);
+            }
+        }
+        if (field.length() > 0 || !record.isEmpty()) {
+            record.add(field.toString());
+            records.add(record);
+        }
+        return records;
+    }
+}
@@ -0,0 +1,286 @@
+package org.example.estudebackendspring.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.example.estudebackendspring.enums.DifficultyLevel;
+import org.example.estudebackendspring.enums.QuestionType;
+import org.example.estudebackendspring.repository.QuestionOptionRepository;
+import org.example.estudebackendspring.until.LongLongHashMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Answer key đã "biên dịch" sẵn cho việc chấm bài, đọc nhiều - ghi ít.
+ * Chỉ giữ đúng những gì GradingEngine cần, trong các map long -> long (không boxing):
+ * - option:   optionId   -> (questionId << 1) | isCorrect
+ * - meta:     questionId -> (topicId << 16) | (questionType + 1) << 8 | (difficulty + 1)
+ * - points:   questionId -> bit của Float.floatToIntBits(points) (NO_POINTS nếu null)
+ *
+ * Miss được nạp set-based từ question_options/questions (1 query cho cả bài nộp),
+ * nên khi cache đã ấm, đợt nộp bài lúc thi không chạm vào bảng question.
+ * QuestionService gọi {@link #evict(Long)} / {@link #evictAll()} khi câu hỏi thay đổi.
+ */
+@Slf4j
+@Component
+public class AnswerKeyCache {
+
+    static final long ABSENT = -1L;
+    private static final long NO_POINTS = -2L;
+
+    private final QuestionOptionRepository questionOptionRepository;
+    private final int maxQuestions;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongLongHashMap optionKey = new LongLongHashMap(4096);
+    private final LongLongHashMap questionMeta = new LongLongHashMap(1024);
+    private final LongLongHashMap questionPoints = new LongLongHashMap(1024);
+    // Tăng mỗi lần evict: lần nạp đã bắt đầu trước đó không được ghi dữ liệu cũ vào cache
+    private long generation;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public AnswerKeyCache(QuestionOptionRepository questionOptionRepository,
+                          MeterRegistry meterRegistry,
+                          @Value("${grading.answer-key-cache.max-questions:200000}") int maxQuestions) {
+        this.questionOptionRepository = questionOptionRepository;
+        this.maxQuestions = maxQuestions;
+        this.hits = Counter.builder("grading.answer_key.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("grading.answer_key.requests").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("grading.answer_key.questions", this, AnswerKeyCache::size)
+                .description("Số question đang có trong answer-key cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Lấy answer key cho các question/option của 1 bài nộp, nạp phần còn thiếu từ DB.
+     */
+    public Lookup lookup(Collection<Long> questionIds, Collection<Long> optionIds) {
+        Set<Long> qIds = nonNull(questionIds);
+        Set<Long> oIds = nonNull(optionIds);
+
+        List<Long> missingQuestions = new ArrayList<>();
+        List<Long> missingOptions = new ArrayList<>();
+        long gen;
+        lock.readLock().lock();
+        try {
+            gen = generation;
+            for (Long id : qIds) if (!questionMeta.containsKey(id)) missingQuestions.add(id);
+            for (Long id : oIds) if (!optionKey.containsKey(id)) missingOptions.add(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (missingQuestions.isEmpty() && missingOptions.isEmpty()) {
+            hits.increment();
+        } else {
+            misses.increment();
+            List<Object[]> rows = new ArrayList<>();
+            if (!missingQuestions.isEmpty()) {
+                rows.addAll(questionOptionRepository.findAnswerKeyRowsByQuestionIds(missingQuestions));
+            }
+            // Option lạ (không thuộc question đã biết): nạp question sở hữu nó
+            missingOptions.removeIf(id -> rows.stream().anyMatch(r -> r[5] != null && ((Number) r[5]).longValue() == id));
+            if (!missingOptions.isEmpty()) {
+                rows.addAll(questionOptionRepository.findAnswerKeyRowsByOptionIds(missingOptions));
+            }
+            store(rows, gen);
+            return buildLookup(qIds, oIds, rows);
+        }
+        return buildLookup(qIds, oIds, Collections.emptyList());
+    }
+
+    /**
+     * Xoá answer key của 1 question (và sau commit nếu đang trong transaction)
+     */
+    public void evict(Long questionId) {
+        if (questionId == null) return;
+        runNowAndAfterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                generation++;
+                questionMeta.remove(questionId);
+                questionPoints.remove(questionId);
+                optionKey.removeIfValue(v -> (v >>> 1) == questionId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public void evictAll() {
+        runNowAndAfterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                generation++;
+                clearLocked();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return questionMeta.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void store(List<Object[]> rows, long gen) {
+        if (rows.isEmpty()) return;
+        lock.writeLock().lock();
+        try {
+            if (gen != generation) return; // đã bị evict trong lúc nạp -> bỏ, lần sau nạp lại
+            if (questionMeta.size() + rows.size() > maxQuestions) {
+                log.info("Answer-key cache reached {} questions, clearing", questionMeta.size());
+                clearLocked();
+            }
+            for (Object[] r : rows) {
+                long questionId = ((Number) r[0]).longValue();
+                questionMeta.put(questionId, packMeta(r));
+                questionPoints.put(questionId, r[4] != null
+                        ? Float.floatToIntBits(((Number) r[4]).floatValue()) & 0xFFFFFFFFL : NO_POINTS);
+                if (r[5] != null) {
+                    optionKey.put(((Number) r[5]).longValue(), packOption(questionId, r[6]));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Lookup buildLookup(Set<Long> qIds, Set<Long> oIds, List<Object[]> loadedRows) {
+        LongLongHashMap meta = new LongLongHashMap(qIds.size());
+        LongLongHashMap points = new LongLongHashMap(qIds.size());
+        LongLongHashMap options = new LongLongHashMap(oIds.size());
+        lock.readLock().lock();
+        try {
+            for (Long id : qIds) {
+                long m = questionMeta.get(id, ABSENT);
+                if (m != ABSENT) {
+                    meta.put(id, m);
+                    points.put(id, questionPoints.get(id, NO_POINTS));
+                }
+            }
+            for (Long id : oIds) {
+                long o = optionKey.get(id, ABSENT);
+                if (o != ABSENT) options.put(id, o);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        // Dữ liệu vừa nạp nhưng không vào được cache (bị evict song song) vẫn dùng cho bài nộp này
+        for (Object[] r : loadedRows) {
+            long questionId = ((Number) r[0]).longValue();
+            if (qIds.contains(questionId) && !meta.containsKey(questionId)) {
+                meta.put(questionId, packMeta(r));
+                points.put(questionId, r[4] != null
+                        ? Float.floatToIntBits(((Number) r[4]).floatValue()) & 0xFFFFFFFFL : NO_POINTS);
+            }
+            if (r[5] != null) {
+                long optionId = ((Number) r[5]).longValue();
+                if (oIds.contains(optionId) && !options.containsKey(optionId)) {
+                    options.put(optionId, packOption(questionId, r[6]));
+                }
+            }
+        }
+        return new Lookup(meta, points, options);
+    }
+
+    private void clearLocked() {
+        optionKey.clear();
+        questionMeta.clear();
+        questionPoints.clear();
+    }
+
+    private static long packMeta(Object[] r) {
+        long topicId = r[1] != null ? ((Number) r[1]).longValue() : 0L;
+        long type = r[3] != null ? QuestionType.valueOf((String) r[3]).ordinal() + 1 : 0;
+        long difficulty = r[2] != null ? DifficultyLevel.valueOf((String) r[2]).ordinal() + 1 : 0;
+        return (topicId << 16) | (type << 8) | difficulty;
+    }
+
+    private static long packOption(long questionId, Object isCorrect) {
+        return (questionId << 1) | (Boolean.TRUE.equals(isCorrect) ? 1L : 0L);
+    }
+
+    private static void runNowAndAfterCommit(Runnable action) {
+        action.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+    }
+
+    private static Set<Long> nonNull(Collection<Long> ids) {
+        Set<Long> result = new HashSet<>();
+        if (ids != null) for (Long id : ids) if (id != null && id > 0) result.add(id);
+        return result;
+    }
+
+    /**
+     * Answer key của 1 bài nộp (bản sao nhỏ, chỉ dùng trong 1 thread)
+     */
+    public static final class Lookup {
+        private final LongLongHashMap meta;
+        private final LongLongHashMap points;
+        private final LongLongHashMap options;
+
+        private Lookup(LongLongHashMap meta, LongLongHashMap points, LongLongHashMap options) {
+            this.meta = meta;
+            this.points = points;
+            this.options = options;
+        }
+
+        public boolean hasQuestion(Long questionId) {
+            return questionId != null && questionId > 0 && meta.containsKey(questionId);
+        }
+
+        public boolean hasOption(Long optionId) {
+            return optionId != null && optionId > 0 && options.containsKey(optionId);
+        }
+
+        public Long topicId(Long questionId) {
+            long topicId = meta.get(questionId, 0L) >>> 16;
+            return topicId != 0 ? topicId : null;
+        }
+
+        public DifficultyLevel difficulty(Long questionId) {
+            int ordinal = (int) (meta.get(questionId, 0L) & 0xFF);
+            return ordinal != 0 ? DifficultyLevel.values()[ordinal - 1] : null;
+        }
+
+        public QuestionType questionType(Long questionId) {
+            int ordinal = (int) ((meta.get(questionId, 0L) >>> 8) & 0xFF);
+            return ordinal != 0 ? QuestionType.values()[ordinal - 1] : null;
+        }
+
+        public Float points(Long questionId) {
+            long bits = points.get(questionId, NO_POINTS);
+            return bits != NO_POINTS ? Float.intBitsToFloat((int) bits) : null;
+        }
+
+        public boolean belongsTo(Long optionId, Long questionId) {
+            if (!hasOption(optionId) || questionId == null) return false;
+            return (options.get(optionId, ABSENT) >>> 1) == questionId;
+        }
+
+        public boolean isCorrect(Long questionId, Long optionId) {
+            return belongsTo(optionId, questionId) && (options.get(optionId, ABSENT) & 1L) == 1L;
+        }
+    }
+}
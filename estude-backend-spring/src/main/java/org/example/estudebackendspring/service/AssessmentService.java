@@ -31,13 +31,16 @@ public class AssessmentService {
     private final QuestionRepository questionRepository;
     private final TopicRepository topicRepository;
     private final SubjectRepository subjectRepository;
+    private final QuestionBankIndex questionBankIndex;
     
     public AssessmentService(QuestionRepository questionRepository,
                            TopicRepository topicRepository,
-                           SubjectRepository subjectRepository) {
+                           SubjectRepository subjectRepository,
+                           QuestionBankIndex questionBankIndex) {
         this.questionRepository = questionRepository;
         this.topicRepository = topicRepository;
         this.subjectRepository = subjectRepository;
+        this.questionBankIndex = questionBankIndex;
     }
     
     /**
@@ -46,7 +49,7 @@ public class AssessmentService {
      * 1. Validate: numQuestions >= topicIds.length
      * 2. Distribute questions evenly across topics
      * 3. For each topic, select questions by difficulty (40-40-20 for mixed)
-     * 4. Shuffle all questions
+     * 4. Fetch selected questions (with options) in one query and shuffle
      * 5. Return response with distribution stats
      */
     @Transactional(readOnly = true)
@@ -70,31 +73,33 @@ public class AssessmentService {
         Map<Long, Integer> topicQuestionCounts = distributeQuestionsAcrossTopics(
             request.getTopicIds(), request.getNumQuestions());
         
-        // Step 4: Select questions for each topic
-        List<Question> allQuestions = new ArrayList<>();
+        // Step 4: Select question ids for each topic (trong bộ nhớ, QuestionBankIndex)
+        List<Long> selectedIds = new ArrayList<>();
         Map<String, Integer> topicDistribution = new HashMap<>();
-        Map<String, Integer> difficultyDistribution = new HashMap<>();
-        difficultyDistribution.put("EASY", 0);
-        difficultyDistribution.put("MEDIUM", 0);
-        difficultyDistribution.put("HARD", 0);
         
         for (Topic topic : topics) {
             int questionCount = topicQuestionCounts.get(topic.getTopicId());
             
-            List<Question> topicQuestions = selectQuestionsForTopic(
+            List<Long> topicQuestionIds = selectQuestionsForTopic(
                 topic, questionCount, request.getDifficulty());
             
-            allQuestions.addAll(topicQuestions);
-            topicDistribution.put(topic.getTopicId().toString(), topicQuestions.size());
-            
-            // Update difficulty distribution
-            for (Question q : topicQuestions) {
-                String difficulty = q.getDifficultyLevel().name();
-                difficultyDistribution.put(difficulty, difficultyDistribution.get(difficulty) + 1);
-            }
+            selectedIds.addAll(topicQuestionIds);
+            topicDistribution.put(topic.getTopicId().toString(), topicQuestionIds.size());
         }
         
-        // Step 5: Shuffle questions for randomness
+        // Step 5: Fetch full entities (kèm topic + options) chỉ cho các id đã chọn - 1 query
+        List<Question> allQuestions = new ArrayList<>(questionRepository.findAllWithOptionsByIdIn(selectedIds));
+        
+        Map<String, Integer> difficultyDistribution = new HashMap<>();
+        difficultyDistribution.put("EASY", 0);
+        difficultyDistribution.put("MEDIUM", 0);
+        difficultyDistribution.put("HARD", 0);
+        for (Question q : allQuestions) {
+            String difficulty = q.getDifficultyLevel().name();
+            difficultyDistribution.put(difficulty, difficultyDistribution.get(difficulty) + 1);
+        }
+        
+        // Shuffle questions for randomness
         Collections.shuffle(allQuestions);
         
         // Step 6: Build response
@@ -167,7 +172,7 @@ public class AssessmentService {
      * For mixed: 40% EASY, 40% MEDIUM, 20% HARD
      * Implements fallback if not enough questions of specific difficulty
      */
-    private List<Question> selectQuestionsForTopic(Topic topic, int count, String difficultyMode) {
+    private List<Long> selectQuestionsForTopic(Topic topic, int count, String difficultyMode) {
         log.info("Selecting {} questions for topic {} ({})", count, topic.getTopicId(), topic.getName());
         
         if (difficultyMode.equals("mixed")) {
@@ -180,7 +185,7 @@ public class AssessmentService {
     /**
      * Select questions with mixed difficulty (40-40-20 ratio)
      */
-    private List<Question> selectMixedDifficultyQuestions(Topic topic, int count) {
+    private List<Long> selectMixedDifficultyQuestions(Topic topic, int count) {
         // FIX: Đảm bảo không có giá trị âm
         // Sử dụng Math.round() thay vì Math.ceil() để tránh tổng vượt quá count
         int easyCount = Math.round(count * 0.4f);      // 40%
@@ -196,14 +201,15 @@ public class AssessmentService {
         log.info("Mixed distribution for topic {} (ID={}): EASY={}, MEDIUM={}, HARD={} (Total={})", 
             topic.getName(), topic.getTopicId(), easyCount, mediumCount, hardCount, count);
         
-        List<Question> questions = new ArrayList<>();
+        List<Long> questions = new ArrayList<>();
+        Set<Long> selected = new HashSet<>(); // tránh trùng câu giữa các lần fallback trong cùng topic
         
         try {
             // Fetch EASY questions
             if (easyCount > 0) {
                 log.debug("Fetching {} EASY questions for topic {}", easyCount, topic.getName());
-                List<Question> easyQuestions = getRandomQuestionsWithFallback(
-                    topic, DifficultyLevel.EASY, easyCount);
+                List<Long> easyQuestions = getRandomQuestionsWithFallback(
+                    topic, DifficultyLevel.EASY, easyCount, selected);
                 questions.addAll(easyQuestions);
                 log.debug("Successfully fetched {} EASY questions", easyQuestions.size());
             }
@@ -211,8 +217,8 @@ public class AssessmentService {
             // Fetch MEDIUM questions
             if (mediumCount > 0) {
                 log.debug("Fetching {} MEDIUM questions for topic {}", mediumCount, topic.getName());
-                List<Question> mediumQuestions = getRandomQuestionsWithFallback(
-                    topic, DifficultyLevel.MEDIUM, mediumCount);
+                List<Long> mediumQuestions = getRandomQuestionsWithFallback(
+                    topic, DifficultyLevel.MEDIUM, mediumCount, selected);
                 questions.addAll(mediumQuestions);
                 log.debug("Successfully fetched {} MEDIUM questions", mediumQuestions.size());
             }
@@ -220,8 +226,8 @@ public class AssessmentService {
             // Fetch HARD questions
             if (hardCount > 0) {
                 log.debug("Fetching {} HARD questions for topic {}", hardCount, topic.getName());
-                List<Question> hardQuestions = getRandomQuestionsWithFallback(
-                    topic, DifficultyLevel.HARD, hardCount);
+                List<Long> hardQuestions = getRandomQuestionsWithFallback(
+                    topic, DifficultyLevel.HARD, hardCount, selected);
                 questions.addAll(hardQuestions);
                 log.debug("Successfully fetched {} HARD questions", hardQuestions.size());
             }
@@ -239,49 +245,39 @@ public class AssessmentService {
     /**
      * Select questions of single difficulty level
      */
-    private List<Question> selectSingleDifficultyQuestions(Topic topic, int count, String difficultyMode) {
+    private List<Long> selectSingleDifficultyQuestions(Topic topic, int count, String difficultyMode) {
         DifficultyLevel level = mapDifficultyLevel(difficultyMode);
-        return getRandomQuestionsWithFallback(topic, level, count);
+        return getRandomQuestionsWithFallback(topic, level, count, new HashSet<>());
     }
     
     /**
-     * Get random questions with fallback to other difficulties if needed
+     * Get random question ids with fallback to other difficulties if needed
      * Implements fallback strategy from docs
+     * Rút id từ QuestionBankIndex (không chạm DB), bỏ qua các id đã chọn cho topic này
      */
-    private List<Question> getRandomQuestionsWithFallback(Topic topic, DifficultyLevel difficulty, int count) {
+    private List<Long> getRandomQuestionsWithFallback(Topic topic, DifficultyLevel difficulty, int count,
+                                                      Set<Long> selected) {
         log.debug("Requesting {} {} questions for topic {} (ID={})", 
             count, difficulty, topic.getName(), topic.getTopicId());
         
         // First, try to get questions of requested difficulty
-        List<Question> questions = questionRepository.findByTopic_TopicIdAndDifficultyLevelAndIsQuestionBankTrue(
-            topic.getTopicId(), difficulty);
+        List<Long> questionIds = questionBankIndex.sample(topic.getTopicId(), difficulty, count, selected);
+        selected.addAll(questionIds);
         
-        log.info("Found {} {} questions for topic {} (ID={}) [requested: {}]", 
-            questions.size(), difficulty, topic.getName(), topic.getTopicId(), count);
-        
-        // Check if list is empty
-        if (questions.isEmpty()) {
-            log.warn("⚠️ NO {} questions found for topic {} (ID={}). Starting fallback...", 
-                difficulty, topic.getName(), topic.getTopicId());
-        }
+        log.info("Sampled {} {} questions for topic {} (ID={}) [requested: {}]", 
+            questionIds.size(), difficulty, topic.getName(), topic.getTopicId(), count);
         
-        if (questions.size() >= count) {
-            // Enough questions, shuffle and return
-            Collections.shuffle(questions);
-            log.debug("✅ Sufficient questions available. Returning {} out of {} available", 
-                count, questions.size());
-            return questions.subList(0, count);
+        if (questionIds.size() >= count) {
+            return questionIds;
         }
         
         // Not enough questions, implement fallback
         log.warn("⚠️ Topic {} has only {} {} questions, but {} requested. Using fallback.", 
-            topic.getName(), questions.size(), difficulty, count);
+            topic.getName(), questionIds.size(), difficulty, count);
         
-        List<Question> result = new ArrayList<>(questions); // Take all available
+        List<Long> result = new ArrayList<>(questionIds); // Take all available
         int remaining = count - result.size();
         
-        log.debug("Starting fallback: have {}, need {} more", result.size(), remaining);
-        
         // Try other difficulty levels
         List<DifficultyLevel> otherLevels = Arrays.stream(DifficultyLevel.values())
             .filter(level -> level != difficulty)
@@ -291,24 +287,15 @@ public class AssessmentService {
         for (DifficultyLevel fallbackLevel : otherLevels) {
             if (remaining <= 0) break;
             
-            log.debug("Trying fallback level: {}", fallbackLevel);
-            
-            List<Question> fallbackQuestions = questionRepository
-                .findByTopic_TopicIdAndDifficultyLevelAndIsQuestionBankTrue(
-                    topic.getTopicId(), fallbackLevel);
-            
-            log.debug("Found {} {} questions for fallback", fallbackQuestions.size(), fallbackLevel);
-            
-            // Remove already selected questions
-            fallbackQuestions.removeIf(q -> result.contains(q));
+            List<Long> fallbackIds = questionBankIndex.sample(
+                topic.getTopicId(), fallbackLevel, remaining, selected);
+            selected.addAll(fallbackIds);
             
-            if (!fallbackQuestions.isEmpty()) {
-                Collections.shuffle(fallbackQuestions);
-                int toTake = Math.min(remaining, fallbackQuestions.size());
-                result.addAll(fallbackQuestions.subList(0, toTake));
-                remaining -= toTake;
+            if (!fallbackIds.isEmpty()) {
+                result.addAll(fallbackIds);
+                remaining -= fallbackIds.size();
                 log.info("✅ Added {} {} questions from fallback for topic {} (remaining: {})", 
-                    toTake, fallbackLevel, topic.getName(), remaining);
+                    fallbackIds.size(), fallbackLevel, topic.getName(), remaining);
             } else {
                 log.debug("No {} questions available for fallback", fallbackLevel);
             }
@@ -25,22 +25,22 @@ public class AssessmentSubmissionService {
     private final AssessmentAnswerRepository answerRepository;
     private final StudentRepository studentRepository;
     private final SubjectRepository subjectRepository;
-    private final QuestionRepository questionRepository;
-    private final QuestionOptionRepository questionOptionRepository;
+    private final GradingEngine gradingEngine;
+    private final QuestionUsageService questionUsageService;
     
     public AssessmentSubmissionService(
             AssessmentSubmissionRepository submissionRepository,
             AssessmentAnswerRepository answerRepository,
             StudentRepository studentRepository,
             SubjectRepository subjectRepository,
-            QuestionRepository questionRepository,
-            QuestionOptionRepository questionOptionRepository) {
+            GradingEngine gradingEngine,
+            QuestionUsageService questionUsageService) {
         this.submissionRepository = submissionRepository;
         this.answerRepository = answerRepository;
         this.studentRepository = studentRepository;
         this.subjectRepository = subjectRepository;
-        this.questionRepository = questionRepository;
-        this.questionOptionRepository = questionOptionRepository;
+        this.gradingEngine = gradingEngine;
+        this.questionUsageService = questionUsageService;
     }
     
     /**
@@ -77,6 +77,11 @@ public class AssessmentSubmissionService {
         submission.setSubmittedAt(LocalDateTime.now());
         submission.setTimeTaken(request.getTimeTaken());
         
+        // Answer key: nạp toàn bộ question + option của bài nộp bằng set-based query
+        GradingEngine.AnswerKey answerKey = gradingEngine.loadAnswerKeyWithEntities(
+            request.getAnswers().stream().map(SubmitAssessmentRequest.AssessmentAnswerRequest::getQuestionId).toList(),
+            request.getAnswers().stream().map(SubmitAssessmentRequest.AssessmentAnswerRequest::getChosenOptionId).toList());
+        
         // Process and grade each answer
         int correctCount = 0;
         List<AssessmentAnswer> answers = new ArrayList<>();
@@ -84,22 +89,24 @@ public class AssessmentSubmissionService {
         Map<String, DifficultyStats> difficultyStatsMap = new HashMap<>();
         
         for (SubmitAssessmentRequest.AssessmentAnswerRequest answerReq : request.getAnswers()) {
-            // Fetch question
-            Question question = questionRepository.findById(answerReq.getQuestionId())
-                .orElseThrow(() -> new ResourceNotFoundException(
-                    "Question not found: " + answerReq.getQuestionId()));
+            Question question = answerKey.question(answerReq.getQuestionId());
+            if (question == null) {
+                throw new ResourceNotFoundException("Question not found: " + answerReq.getQuestionId());
+            }
             
-            // Fetch chosen option
-            QuestionOption chosenOption = questionOptionRepository.findById(answerReq.getChosenOptionId())
-                .orElseThrow(() -> new ResourceNotFoundException(
-                    "Option not found: " + answerReq.getChosenOptionId()));
+            QuestionOption chosenOption = answerKey.option(answerReq.getChosenOptionId());
+            if (chosenOption == null) {
+                throw new ResourceNotFoundException("Option not found: " + answerReq.getChosenOptionId());
+            }
             
-            // Check if answer is correct
-            boolean isCorrect = chosenOption.getIsCorrect();
+            // Check if answer is correct (option phải thuộc đúng question)
+            boolean isCorrect = answerKey.isCorrect(question.getQuestionId(), chosenOption.getOptionId());
             if (isCorrect) {
                 correctCount++;
             }
             
+            String difficulty = question.getDifficultyLevel() != null ? question.getDifficultyLevel().name() : null;
+            
             // Create answer entity
             AssessmentAnswer answer = new AssessmentAnswer();
             answer.setAssessmentSubmission(submission);
@@ -107,7 +114,7 @@ public class AssessmentSubmissionService {
             answer.setTopic(question.getTopic());
             answer.setChosenOption(chosenOption);
             answer.setIsCorrect(isCorrect);
-            answer.setDifficultyLevel(question.getDifficultyLevel().name());
+            answer.setDifficultyLevel(difficulty);
             answers.add(answer);
             
             // Update statistics
@@ -119,7 +126,6 @@ public class AssessmentSubmissionService {
                 if (isCorrect) stats.correctAnswers++;
             }
             
-            String difficulty = question.getDifficultyLevel().name();
             DifficultyStats diffStats = difficultyStatsMap.computeIfAbsent(difficulty, 
                 k -> new DifficultyStats(difficulty));
             diffStats.totalQuestions++;
@@ -130,14 +136,28 @@ public class AssessmentSubmissionService {
         float score = (float) correctCount / request.getAnswers().size() * 100;
         submission.setCorrectAnswers(correctCount);
         submission.setScore(score);
-        submission.setAnswers(answers);
         
-        // Save submission
+        // Save submission, sau đó ghi answers bằng JDBC batch
+        // (không gắn vào submission.answers để cascade không insert lại lần nữa)
         AssessmentSubmission saved = submissionRepository.save(submission);
+        gradingEngine.insertAssessmentAnswers(saved.getSubmissionId(), answers);
+        
+        // Bộ đếm sử dụng câu hỏi; thời gian mỗi câu ước lượng = timeTaken / totalQuestions,
+        // cùng công thức với QuestionUsageService.rebuildAll để dựng lại ra đúng số này
+        Double secondsPerQuestion = saved.getTimeTaken() != null
+                && saved.getTotalQuestions() != null && saved.getTotalQuestions() > 0
+                ? (double) saved.getTimeTaken() / saved.getTotalQuestions() : null;
+        questionUsageService.record(answers.stream()
+                .map(a -> new QuestionUsageService.UsageEvent(
+                        a.getQuestion().getQuestionId(),
+                        a.getChosenOption() != null ? a.getChosenOption().getOptionId() : null,
+                        Boolean.TRUE.equals(a.getIsCorrect()),
+                        secondsPerQuestion))
+                .toList());
         log.info("Assessment submitted: submissionId={}, score={}", saved.getSubmissionId(), score);
         
         // Build response
-        return buildSubmissionResponse(saved, topicStatsMap, difficultyStatsMap);
+        return buildSubmissionResponse(saved, answers, topicStatsMap, difficultyStatsMap);
     }
     
     /**
@@ -201,7 +221,7 @@ public class AssessmentSubmissionService {
             if (answer.getIsCorrect()) diffStats.correctAnswers++;
         }
         
-        return buildSubmissionResponse(submission, topicStatsMap, difficultyStatsMap);
+        return buildSubmissionResponse(submission, submission.getAnswers(), topicStatsMap, difficultyStatsMap);
     }
     
     /**
@@ -267,7 +287,7 @@ public class AssessmentSubmissionService {
             if (answer.getIsCorrect()) diffStats.correctAnswers++;
         }
         
-        return buildSubmissionResponse(submission, topicStatsMap, difficultyStatsMap);
+        return buildSubmissionResponse(submission, submission.getAnswers(), topicStatsMap, difficultyStatsMap);
     }
     
     /**
@@ -275,6 +295,7 @@ public class AssessmentSubmissionService {
      */
     private AssessmentSubmissionResponseDTO buildSubmissionResponse(
             AssessmentSubmission submission,
+            List<AssessmentAnswer> answers,
             Map<String, TopicStats> topicStatsMap,
             Map<String, DifficultyStats> difficultyStatsMap) {
         
@@ -300,7 +321,7 @@ public class AssessmentSubmissionService {
         
         // Detailed answers
         List<AssessmentSubmissionResponseDTO.AssessmentAnswerResultDTO> answerResults = 
-            submission.getAnswers().stream()
+            answers.stream()
                 .map(this::convertToAnswerResultDTO)
                 .collect(Collectors.toList());
         response.setAnswers(answerResults);
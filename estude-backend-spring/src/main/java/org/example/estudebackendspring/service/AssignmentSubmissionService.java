@@ -25,26 +25,26 @@ public class AssignmentSubmissionService {
     private final QuestionRepository questionRepository;
     private final StudentRepository studentRepository;
     private final SubmissionRepository submissionRepository;
-    private final QuestionOptionRepository questionOptionRepository;
-    private final AnswerRepository answerRepository;
+    private final GradingEngine gradingEngine;
     private final GradeRepository gradeRepository;
+    private final QuestionUsageService questionUsageService;
 
     public AssignmentSubmissionService(EnrollmentRepository enrollmentRepository,
                                        AssignmentRepository assignmentRepository,
                                        QuestionRepository questionRepository,
                                        StudentRepository studentRepository,
                                        SubmissionRepository submissionRepository,
-                                       QuestionOptionRepository questionOptionRepository,
-                                       AnswerRepository answerRepository,
-                                       GradeRepository gradeRepository) {
+                                       GradingEngine gradingEngine,
+                                       GradeRepository gradeRepository,
+                                       QuestionUsageService questionUsageService) {
         this.enrollmentRepository = enrollmentRepository;
         this.assignmentRepository = assignmentRepository;
         this.questionRepository = questionRepository;
         this.studentRepository = studentRepository;
         this.submissionRepository = submissionRepository;
-        this.questionOptionRepository = questionOptionRepository;
-        this.answerRepository = answerRepository;
+        this.gradingEngine = gradingEngine;
         this.gradeRepository = gradeRepository;
+        this.questionUsageService = questionUsageService;
     }
 
     /* 1) List assignments for student (classes student enrolled in) */
@@ -235,23 +235,30 @@ public class AssignmentSubmissionService {
 
         List<AnswerRequest> answers = req.getAnswers() == null ? Collections.emptyList() : req.getAnswers();
 
+        // answer key từ AnswerKeyCache (miss được nạp set-based cho cả bài nộp)
+        GradingEngine.AnswerKey answerKey = gradingEngine.loadAnswerKey(
+                answers.stream().map(AnswerRequest::getQuestionId).toList(),
+                answers.stream().map(AnswerRequest::getChosenOptionId).toList());
+        List<Answer> gradedAnswers = new ArrayList<>(answers.size());
+
         // --- inside the submitAssignment loop over answers ---
         for (AnswerRequest ar : answers) {
             totalQ++;
-            Question q = questionRepository.findById(ar.getQuestionId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy câu hỏi: " + ar.getQuestionId()));
+            Long questionId = ar.getQuestionId();
+            if (!answerKey.hasQuestion(questionId)) throw new ResourceNotFoundException("Không tìm thấy câu hỏi: " + questionId);
+            QuestionType qt = answerKey.questionType(questionId);
 
             Answer ans = new Answer();
             ans.setSubmission(sub);
-            ans.setQuestion(q);
+            ans.setQuestion(answerKey.question(questionId));
             ans.setStudentAnswerText(ar.getTextAnswer());
-            ans.setAnswerType(q.getQuestionType() != null ? mapQuestionTypeToAnswerType(q.getQuestionType()) : null);
+            ans.setAnswerType(qt != null ? mapQuestionTypeToAnswerType(qt) : null);
 
-            QuestionOption chosenOpt = null;
+            Long chosenOptId = null;
             if (ar.getChosenOptionId() != null) {
-                chosenOpt = questionOptionRepository.findById(ar.getChosenOptionId()).orElse(null);
-                if (chosenOpt != null) {
-                    ans.setChosenOption(chosenOpt);
+                if (answerKey.hasOption(ar.getChosenOptionId())) {
+                    chosenOptId = ar.getChosenOptionId();
+                    ans.setChosenOption(answerKey.option(chosenOptId));
                 } else {
                     // optional: log or set feedback that chosen option not found
                 }
@@ -261,14 +268,13 @@ public class AssignmentSubmissionService {
             float qScore = 0f;
 
             // Auto-grading for multiple-choice / true-false
-            QuestionType qt = q.getQuestionType();
             if (qt == QuestionType.MULTIPLE_CHOICE || qt == QuestionType.TRUE_FALSE) {
-                if (chosenOpt != null) {
+                if (chosenOptId != null) {
                     // ensure chosen option belongs to the question to avoid mismatched ids
-                    if (chosenOpt.getQuestion() != null && Objects.equals(chosenOpt.getQuestion().getQuestionId(), q.getQuestionId())) {
-                        if (Boolean.TRUE.equals(chosenOpt.getIsCorrect())) {
+                    if (answerKey.belongsTo(chosenOptId, questionId)) {
+                        if (answerKey.isCorrect(questionId, chosenOptId)) {
                             isCorrect = true;
-                            qScore = q.getPoints() != null ? q.getPoints() : 0f;
+                            qScore = answerKey.points(questionId);
                         }
                     } else {
                         // mismatch: chosen option doesn't belong to this question
@@ -296,13 +302,16 @@ public class AssignmentSubmissionService {
                 ans.setFeedback(isCorrect ? "Correct" : "Pending manual review");
             }
 
-            // persist answer
-            ans = answerRepository.save(ans);
+            gradedAnswers.add(ans);
 
             if (isCorrect) correctCount++;
             totalScore += qScore;
         }
 
+        // persist answers (JDBC batch)
+        gradingEngine.insertAnswers(sub.getSubmissionId(), gradedAnswers);
+        questionUsageService.record(QuestionUsageService.toUsageEvents(gradedAnswers));
+
 
 
         // ----- APPLY LATE PENALTY IF NEEDED -----
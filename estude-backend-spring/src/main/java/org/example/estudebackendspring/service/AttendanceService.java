@@ -28,12 +28,15 @@ public class AttendanceService {
     private final AttendanceSessionRepository sessionRepository;
     private final AttendanceRecordRepository attendanceRecordRepository;
     private EnrollmentRepository enrollmentRepository;
+    private final LiveAttendanceRoster liveAttendanceRoster;
 
-    public AttendanceService(ClassSubjectRepository classSubjectRepository, AttendanceSessionRepository sessionRepository, EnrollmentRepository enrollmentRepository, AttendanceRecordRepository attendanceRecordRepository) {
+    public AttendanceService(ClassSubjectRepository classSubjectRepository, AttendanceSessionRepository sessionRepository, EnrollmentRepository enrollmentRepository, AttendanceRecordRepository attendanceRecordRepository,
+                             LiveAttendanceRoster liveAttendanceRoster) {
         this.classSubjectRepository = classSubjectRepository;
         this.sessionRepository = sessionRepository;
         this.enrollmentRepository = enrollmentRepository;
         this.attendanceRecordRepository = attendanceRecordRepository;
+        this.liveAttendanceRoster = liveAttendanceRoster;
     }
     // Hằng số cho khoảng cách GPS tối đa (mét)
     private static final double MAX_ALLOWED_DISTANCE = 50.0;
@@ -75,6 +78,7 @@ public class AttendanceService {
         session.setGpsLongitude(gpsLongitude);
 
         AttendanceSession savedSession = sessionRepository.save(session);
+        liveAttendanceRoster.open(savedSession);
         return toAttendanceSessionDTO(savedSession,null);
     }
 
@@ -105,10 +109,8 @@ public class AttendanceService {
             throw new IllegalArgumentException("Giáo viên không được phép tham gia buổi điểm danh này");
         }
 
-        // Kiểm tra học sinh có trong lớp của ClassSubject
-        boolean isEnrolled = enrollmentRepository.findByClazzClassId(session.getClassSubject().getTerm().getClazz().getClassId())
-                .stream().anyMatch(e -> e.getStudent().getUserId().equals(studentId));
-        if (!isEnrolled) {
+        // Kiểm tra học sinh có trong lớp của ClassSubject (roster trong bộ nhớ, O(1))
+        if (!liveAttendanceRoster.isEnrolled(session, studentId)) {
             throw new IllegalArgumentException("Học sinh không được ghi danh vào Lớp này");
         }
 
@@ -132,6 +134,7 @@ public class AttendanceService {
         }
 
         AttendanceRecord savedRecord = attendanceRecordRepository.save(record);
+        liveAttendanceRoster.onMarked(session, studentId, savedRecord.getStatus());
         return toAttendanceRecordDTO(savedRecord);
     }
 
@@ -143,10 +146,7 @@ public class AttendanceService {
 
         // Kiểm tra học sinh có trong lớp của ClassSubject
         Long classId = classSubject.getTerm().getClazz().getClassId();
-        
-        boolean isEnrolled = enrollmentRepository.findByClazzClassId(classId)
-                .stream().anyMatch(e -> e.getStudent().getUserId().equals(studentId));
-        if (!isEnrolled) {
+        if (!enrollmentRepository.existsByStudentIdAndClassId(studentId, classId)) {
             throw new IllegalArgumentException("Học sinh không nằm trong lớp học này");
         }
 
@@ -169,16 +169,14 @@ public class AttendanceService {
             throw new IllegalArgumentException("Không được phép điểm danh trước thời gian bắt đầu");
         }
 
-        // Kiểm tra học sinh có trong lớp của ClassSubject
-        boolean isEnrolled = enrollmentRepository.findByClazzClassId(session.getClassSubject().getTerm().getClazz().getClassId())
-                .stream().anyMatch(e -> e.getStudent().getUserId().equals(studentId));
-        if (!isEnrolled) {
+        // Kiểm tra học sinh có trong lớp của ClassSubject (roster trong bộ nhớ, O(1))
+        if (!liveAttendanceRoster.isEnrolled(session, studentId)) {
             throw new IllegalArgumentException("Học sinh không nằm trong lớp học này");
         }
 
-        // Kiểm tra xem đã có bản ghi điểm danh chưa
-        Optional<AttendanceRecord> existingRecord = attendanceRecordRepository.findBySessionSessionIdAndStudent_UserId(sessionId, studentId);
-        if (existingRecord.isPresent()) {
+        // Kiểm tra xem đã có bản ghi điểm danh chưa: roster biết thì chặn ngay, không thì hỏi DB
+        if (liveAttendanceRoster.knownStatus(session, studentId) != null
+                || attendanceRecordRepository.findBySessionSessionIdAndStudent_UserId(sessionId, studentId).isPresent()) {
             throw new IllegalArgumentException("Hồ sơ điểm danh đã tồn tại cho học sinh này trong phiên này");
         }
 
@@ -208,6 +206,7 @@ public class AttendanceService {
         record.setMethod(method);
 
         AttendanceRecord savedRecord = attendanceRecordRepository.save(record);
+        liveAttendanceRoster.onMarked(session, studentId, savedRecord.getStatus());
         return toAttendanceRecordDTO(savedRecord);
     }
     // Giáo viên xem danh sách học sinh và trạng thái điểm danh trong một buổi điểm danh
@@ -220,27 +219,23 @@ public class AttendanceService {
             throw new IllegalArgumentException("Giáo viên không được phép tham gia buổi học này");
         }
 
-        // Lấy danh sách học sinh từ Enrollment của Clazz
+        // Lấy danh sách học sinh của Clazz (1 query)
         Long classId = session.getClassSubject().getTerm().getClazz().getClassId();
-        List<Enrollment> enrollments = enrollmentRepository.findByClazzClassId(classId);
+        List<Student> students = enrollmentRepository.findStudentsByClazzId(classId);
 
-        // Lấy danh sách bản ghi điểm danh trong session
-        List<AttendanceRecord> records = attendanceRecordRepository.findBySessionSessionId(sessionId);
+        // Trạng thái điểm danh trong session: studentId -> status
+        Map<Long, AttendanceStatus> statuses = new HashMap<>();
+        for (Object[] row : attendanceRecordRepository.findStatusesBySessionId(sessionId)) {
+            statuses.putIfAbsent((Long) row[0], (AttendanceStatus) row[1]);
+        }
 
         // Chuyển đổi thành StudentAttendanceDTO
-        return enrollments.stream().map(enrollment -> {
-            Student student = enrollment.getStudent();
+        return students.stream().map(student -> {
             StudentAttendanceDTO dto = new StudentAttendanceDTO();
             dto.setStudentId(student.getUserId());
             dto.setStudentCode(student.getStudentCode());
             dto.setStudentName(student.getFullName()); // Giả định Student/User có trường name
-
-            // Kiểm tra trạng thái điểm danh
-            Optional<AttendanceRecord> record = records.stream()
-                    .filter(r -> r.getStudent().getUserId().equals(student.getUserId()))
-                    .findFirst();
-            dto.setStatus(record.map(AttendanceRecord::getStatus).orElse(null));
-
+            dto.setStatus(statuses.get(student.getUserId()));
             return dto;
         }).collect(Collectors.toList());
     }
@@ -292,6 +287,7 @@ public class AttendanceService {
         session.setGpsLongitude(req.getGpsLongitude());
 
         AttendanceSession saved = sessionRepository.save(session);
+        liveAttendanceRoster.evict(sessionId);
         return toAttendanceSessionDTO(saved, null);
     }
 
@@ -307,6 +303,7 @@ public class AttendanceService {
         AttendanceSessionDTO dto = toAttendanceSessionDTO(session, null);
 
         sessionRepository.delete(session);
+        liveAttendanceRoster.evict(sessionId);
         return dto;
     }
 
@@ -1,9 +1,9 @@
 package org.example.estudebackendspring.service;
 
-import jakarta.mail.MessagingException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.example.estudebackendspring.config.JwtTokenUtil;
+import org.example.estudebackendspring.config.UserPrincipalCache;
 import org.example.estudebackendspring.entity.*;
 import org.example.estudebackendspring.exception.InvalidPasswordException;
 import org.example.estudebackendspring.exception.InvalidStudentCodeException;
@@ -29,6 +29,7 @@ public class AuthService {
     private final PasswordEncoder passwordEncoder;
     private final JwtTokenUtil jwtTokenUtil;
     private final EmailUtil emailUtil;
+    private final EmailOutboxService emailOutboxService;
     private final PasswordResetTokenRepository tokenRepository;
     // Thời hạn reset token (phút)
     private final long OTP_EXPIRE_MINUTES = 15L;
@@ -36,6 +37,7 @@ public class AuthService {
     private final OtpUtil otpUtil;
     private final TeacherRepository teacherRepository;
     private  final  AdminRepository adminRepository;
+    private final UserPrincipalCache userPrincipalCache;
 
     //    public Optional<User> loginByEmailOrPhone(String emailOrPhone, String password) {
 //        return userRepository.findByEmail(emailOrPhone)
@@ -114,12 +116,8 @@ public class AuthService {
 
         tokenRepository.save(token);
 
-        try {
-            emailUtil.sendOtpEmail(email, otp);
-        } catch (MessagingException e) {
-            tokenRepository.delete(token); // rollback nhẹ nếu gửi mail fail
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to send OTP email");
-        }
+        // Email vào outbox cùng transaction với token, gửi nền sau khi commit (SMTP chậm/lỗi không chặn request)
+        emailOutboxService.enqueue(email, EmailUtil.OTP_SUBJECT, emailUtil.otpEmailHtml(otp));
     }
 
 
@@ -182,12 +180,15 @@ public class AuthService {
         if (student != null) {
             student.setPassword(passwordEncoder.encode(newPassword));
             studentRepository.save(student);
+            userPrincipalCache.evict(student.getUserId());
         } else if (teacher != null) {
             teacher.setPassword(passwordEncoder.encode(newPassword));
             teacherRepository.save(teacher);
+            userPrincipalCache.evict(teacher.getUserId());
         } else if (admin != null) {
             admin.setPassword(passwordEncoder.encode(newPassword));
             adminRepository.save(admin);
+            userPrincipalCache.evict(admin.getUserId());
         } else {
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "User not found for this email");
         }
@@ -266,6 +267,7 @@ public class AuthService {
         // Encode and save
         String newHashed = passwordEncoder.encode(newPassword);
         saveAction.accept(newHashed);
+        userPrincipalCache.evict(userId);
 
         // Optionally: update a "passwordLastChangedAt" field on user here to invalidate old JWTs (recommended)
         // Trả JWT mới
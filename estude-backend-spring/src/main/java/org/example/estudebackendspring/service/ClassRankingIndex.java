@@ -0,0 +1,287 @@
+package org.example.estudebackendspring.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.estudebackendspring.repository.ClassSubjectRepository;
+import org.example.estudebackendspring.repository.EnrollmentRepository;
+import org.example.estudebackendspring.repository.SubjectGradeRepository;
+import org.example.estudebackendspring.until.TransactionUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bảng xếp hạng lớp trong bộ nhớ: dựng 1 lần cho mỗi (lớp, kỳ) rồi cập nhật tăng dần khi
+ * SubjectGradeService thay đổi actualAverage (sau commit).
+ *
+ * Hai phạm vi:
+ * - Theo kỳ (StatisticsService): điểm = TB mọi actualAverage của kỳ, chỉ xếp hạng học sinh
+ *   đã có điểm đủ tất cả môn của kỳ, điểm bằng nhau cùng hạng
+ * - Cả lớp, mọi kỳ (HomeroomTeacherAnalyticsService): điểm = TB các actualAverage > 0
+ *
+ * Mỗi bảng giữ mảng điểm đã sắp xếp giảm dần: tra hạng O(log n) bằng binary search,
+ * top-N / dưới ngưỡng là đọc 1 đoạn mảng. Bảng cũ hơn class-ranking.max-age-ms được dựng lại
+ * (bắt kịp instance khác, thay đổi môn học của kỳ); ghi danh thay đổi thì xoá bảng của lớp.
+ */
+@Slf4j
+@Component
+public class ClassRankingIndex {
+
+    private static final long ALL_TERMS = 0L;
+
+    private final SubjectGradeRepository subjectGradeRepository;
+    private final ClassSubjectRepository classSubjectRepository;
+    private final EnrollmentRepository enrollmentRepository;
+    private final long maxAgeMs;
+
+    private final ConcurrentHashMap<Key, Board> boards = new ConcurrentHashMap<>();
+    // Tăng mỗi lần có thay đổi: bảng dựng từ dữ liệu đọc trước thay đổi đó không được lưu lại
+    private final AtomicLong version = new AtomicLong();
+
+    public ClassRankingIndex(SubjectGradeRepository subjectGradeRepository,
+                             ClassSubjectRepository classSubjectRepository,
+                             EnrollmentRepository enrollmentRepository,
+                             @Value("${class-ranking.max-age-ms:600000}") long maxAgeMs) {
+        this.subjectGradeRepository = subjectGradeRepository;
+        this.classSubjectRepository = classSubjectRepository;
+        this.enrollmentRepository = enrollmentRepository;
+        this.maxAgeMs = maxAgeMs;
+    }
+
+    /**
+     * Bảng xếp hạng của lớp trong 1 kỳ
+     */
+    public Board termBoard(Long classId, Long termId) {
+        return board(new Key(classId, termId));
+    }
+
+    /**
+     * Bảng xếp hạng của lớp trên mọi kỳ
+     */
+    public Board classBoard(Long classId) {
+        return board(new Key(classId, ALL_TERMS));
+    }
+
+    /**
+     * actualAverage của 1 SubjectGrade thay đổi: cập nhật các bảng đang có sau khi transaction commit
+     */
+    public void onGradeChanged(Long classId, Long termId, Long studentId, Long classSubjectId, Float actualAverage) {
+        if (classId == null || termId == null || studentId == null || classSubjectId == null) return;
+        TransactionUtils.afterCommit(() -> {
+            version.incrementAndGet();
+            Board term = boards.get(new Key(classId, termId));
+            if (term != null) term.update(studentId, classSubjectId, actualAverage);
+            Board all = boards.get(new Key(classId, ALL_TERMS));
+            if (all != null) all.update(studentId, classSubjectId, actualAverage);
+        });
+    }
+
+    /**
+     * Danh sách học sinh của lớp thay đổi: bỏ các bảng của lớp, lần đọc sau dựng lại
+     */
+    public void evictClass(Long classId) {
+        if (classId == null) return;
+        TransactionUtils.afterCommit(() -> {
+            version.incrementAndGet();
+            boards.keySet().removeIf(key -> key.classId().equals(classId));
+        });
+    }
+
+    private Board board(Key key) {
+        Board board = boards.get(key);
+        if (board != null && !board.isExpired(maxAgeMs)) return board;
+
+        long seen = version.get();
+        Board fresh = load(key);
+        if (version.get() == seen) boards.put(key, fresh);
+        return fresh;
+    }
+
+    private Board load(Key key) {
+        long start = System.currentTimeMillis();
+        boolean termScope = key.termId() != ALL_TERMS;
+        List<Object[]> rows = termScope
+                ? subjectGradeRepository.findRankingRowsByClassAndTerm(key.classId(), key.termId())
+                : subjectGradeRepository.findRankingRowsByClass(key.classId());
+        int subjectCount = termScope ? (int) classSubjectRepository.countByTerm_TermId(key.termId()) : 0;
+        Set<Long> members = new HashSet<>(enrollmentRepository.findStudentIdsByClassId(key.classId()));
+
+        Board board = new Board(termScope, subjectCount, members, rows);
+        log.debug("Class ranking built for class {} term {}: {} ranked / {} students ({} ms)",
+                key.classId(), termScope ? key.termId() : "ALL", board.rankedCount(), members.size(),
+                System.currentTimeMillis() - start);
+        return board;
+    }
+
+    private record Key(Long classId, Long termId) {
+    }
+
+    /**
+     * 1 học sinh trong bảng xếp hạng; position là vị trí (1-based) theo thứ tự điểm giảm dần
+     */
+    public record Entry(Long studentId, double score, int position) {
+    }
+
+    /**
+     * Bảng xếp hạng của 1 (lớp, kỳ). Thread-safe (synchronized), cập nhật 1 học sinh là
+     * O(n) arraycopy với n = sĩ số lớp.
+     */
+    public static final class Board {
+        private final boolean termScope;
+        private final int subjectCount;
+        private final Set<Long> members;
+        private final long loadedAt = System.currentTimeMillis();
+
+        // studentId -> (classSubjectId -> actualAverage khác null)
+        private final Map<Long, Map<Long, Float>> grades = new HashMap<>();
+        // Điểm xếp hạng hiện tại của học sinh đang nằm trong mảng
+        private final Map<Long, Double> rankedScores = new HashMap<>();
+        // Sắp xếp theo điểm giảm dần, cùng điểm thì studentId tăng dần
+        private final long[] ids;
+        private final double[] scores;
+        private int size;
+
+        private Board(boolean termScope, int subjectCount, Set<Long> members, List<Object[]> rows) {
+            this.termScope = termScope;
+            this.subjectCount = subjectCount;
+            this.members = members;
+            this.ids = new long[members.size()];
+            this.scores = new double[members.size()];
+
+            for (Object[] row : rows) {
+                Long studentId = ((Number) row[0]).longValue();
+                if (!members.contains(studentId) || row[2] == null) continue;
+                grades.computeIfAbsent(studentId, k -> new HashMap<>())
+                        .put(((Number) row[1]).longValue(), ((Number) row[2]).floatValue());
+            }
+
+            List<Entry> ranked = new ArrayList<>();
+            for (Long studentId : grades.keySet()) {
+                Double score = rankScore(studentId);
+                if (score != null) ranked.add(new Entry(studentId, score, 0));
+            }
+            ranked.sort((a, b) -> compare(a.score(), a.studentId(), b.score(), b.studentId()));
+            for (Entry e : ranked) {
+                ids[size] = e.studentId();
+                scores[size] = e.score();
+                rankedScores.put(e.studentId(), e.score());
+                size++;
+            }
+        }
+
+        public synchronized int memberCount() {
+            return members.size();
+        }
+
+        public synchronized int rankedCount() {
+            return size;
+        }
+
+        /**
+         * Điểm trung bình của học sinh (kể cả khi chưa đủ điều kiện xếp hạng), null nếu chưa có điểm
+         */
+        public synchronized Double average(Long studentId) {
+            Map<Long, Float> values = grades.get(studentId);
+            if (values == null) return null;
+            double sum = 0;
+            int count = 0;
+            for (Float v : values.values()) {
+                if (!termScope && v <= 0) continue;
+                sum += v;
+                count++;
+            }
+            return count > 0 ? sum / count : null;
+        }
+
+        /**
+         * Hạng của học sinh, điểm bằng nhau cùng hạng. Chưa có điểm: null; có điểm nhưng chưa
+         * đủ điều kiện xếp hạng: hạng của học sinh được xếp hạng có cùng điểm, không có thì 0.
+         */
+        public synchronized Integer rank(Long studentId) {
+            Double score = rankedScores.get(studentId);
+            if (score == null) score = average(studentId);
+            if (score == null) return null;
+            int i = lowerBound(score, Long.MIN_VALUE);
+            return i < size && scores[i] == score ? i + 1 : 0;
+        }
+
+        /**
+         * N học sinh điểm cao nhất
+         */
+        public synchronized List<Entry> top(int n) {
+            return range(0, Math.min(n, size));
+        }
+
+        /**
+         * Học sinh có điểm nhỏ hơn threshold, theo thứ tự điểm giảm dần
+         */
+        public synchronized List<Entry> below(double threshold) {
+            return range(lowerBound(Math.nextDown(threshold), Long.MIN_VALUE), size);
+        }
+
+        private synchronized void update(Long studentId, Long classSubjectId, Float actualAverage) {
+            if (!members.contains(studentId)) return;
+            Map<Long, Float> values = grades.computeIfAbsent(studentId, k -> new HashMap<>());
+            if (actualAverage != null) values.put(classSubjectId, actualAverage);
+            else values.remove(classSubjectId);
+
+            Double old = rankedScores.remove(studentId);
+            if (old != null) {
+                int i = lowerBound(old, studentId);
+                System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+                System.arraycopy(scores, i + 1, scores, i, size - i - 1);
+                size--;
+            }
+            Double score = rankScore(studentId);
+            if (score != null) {
+                int i = lowerBound(score, studentId);
+                System.arraycopy(ids, i, ids, i + 1, size - i);
+                System.arraycopy(scores, i, scores, i + 1, size - i);
+                ids[i] = studentId;
+                scores[i] = score;
+                rankedScores.put(studentId, score);
+                size++;
+            }
+        }
+
+        private boolean isExpired(long maxAgeMs) {
+            return System.currentTimeMillis() - loadedAt > maxAgeMs;
+        }
+
+        // Theo kỳ: phải có điểm đủ tất cả môn của kỳ; cả lớp: có ít nhất 1 điểm > 0
+        private Double rankScore(Long studentId) {
+            if (termScope) {
+                Map<Long, Float> values = grades.get(studentId);
+                if (values == null || values.size() != subjectCount) return null;
+            }
+            return average(studentId);
+        }
+
+        private List<Entry> range(int from, int to) {
+            List<Entry> result = new ArrayList<>(Math.max(0, to - from));
+            for (int i = from; i < to; i++) {
+                result.add(new Entry(ids[i], scores[i], i + 1));
+            }
+            return result;
+        }
+
+        // Vị trí đầu tiên không đứng trước (score, studentId) trong thứ tự của mảng
+        private int lowerBound(double score, long studentId) {
+            int lo = 0;
+            int hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (compare(scores[mid], ids[mid], score, studentId) < 0) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        private static int compare(double scoreA, long idA, double scoreB, long idB) {
+            int c = Double.compare(scoreB, scoreA);
+            return c != 0 ? c : Long.compare(idA, idB);
+        }
+    }
+}
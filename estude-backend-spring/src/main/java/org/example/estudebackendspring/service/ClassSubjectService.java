@@ -19,14 +19,17 @@ public class ClassSubjectService {
     private final SubjectRepository subjectRepository;
     private final TeacherRepository teacherRepository;
     private final TermRepository termRepository;
+    private final GradeRollupService gradeRollupService;
 
     public ClassSubjectService(ClassSubjectRepository classSubjectRepository, ClazzRepository clazzRepository,
-                               SubjectRepository subjectRepository, TeacherRepository teacherRepository, TermRepository termRepository) {
+                               SubjectRepository subjectRepository, TeacherRepository teacherRepository, TermRepository termRepository,
+                               GradeRollupService gradeRollupService) {
         this.classSubjectRepository = classSubjectRepository;
         this.clazzRepository = clazzRepository;
         this.subjectRepository = subjectRepository;
         this.teacherRepository = teacherRepository;
         this.termRepository = termRepository;
+        this.gradeRollupService = gradeRollupService;
     }
 
     public List<ClassSubject> getClassSubjectsByTeacher(Long teacherId) {
@@ -218,9 +221,12 @@ public class ClassSubjectService {
     }
 
 
+    @Transactional
     public void removeClassSubject(Long classSubjectId) {
         ClassSubject cs = classSubjectRepository.findById(classSubjectId)
                 .orElseThrow(() -> new ResourceNotFoundException("ClassSubject not found with id: " + classSubjectId));
+        // subject_grades bị xoá theo cascade: trừ khỏi rollup lớp / trường trước
+        gradeRollupService.onClassSubjectsRemoved(List.of(classSubjectId));
         classSubjectRepository.delete(cs);
     }
 
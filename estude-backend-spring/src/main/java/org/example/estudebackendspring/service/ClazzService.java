@@ -26,11 +26,14 @@ public class ClazzService {
     private final ClazzRepository clazzRepository;
     private final SchoolRepository schoolRepository;
     private final TermRepository termRepository;
+    private final GradeRollupService gradeRollupService;
 
-    public ClazzService(ClazzRepository clazzRepository, SchoolRepository schoolRepository, TermRepository termRepository) {
+    public ClazzService(ClazzRepository clazzRepository, SchoolRepository schoolRepository, TermRepository termRepository,
+                        GradeRollupService gradeRollupService) {
         this.clazzRepository = clazzRepository;
         this.schoolRepository = schoolRepository;
         this.termRepository = termRepository;
+        this.gradeRollupService = gradeRollupService;
     }
     public Clazz createClazz(CreateClazzRequest req) {
         // Tìm trường học
@@ -210,10 +213,13 @@ public class ClazzService {
         }
     }
 
+    @Transactional
     public void deleteClazz(Long classId) {
         if (!clazzRepository.existsById(classId)) {
             throw new ResourceNotFoundException("Class not found with id: " + classId);
         }
+        // subject_grades của lớp bị xoá theo cascade: trừ khỏi rollup trường trước
+        gradeRollupService.onClassRemoved(classId);
         clazzRepository.deleteById(classId);
     }
     public List<Clazz> getClassesBySchool(Long schoolId) {
@@ -0,0 +1,216 @@
+package org.example.estudebackendspring.service;
+
+import jakarta.mail.MessagingException;
+import lombok.extern.slf4j.Slf4j;
+import org.example.estudebackendspring.entity.OutboundEmail;
+import org.example.estudebackendspring.enums.OutboundEmailStatus;
+import org.example.estudebackendspring.repository.OutboundEmailRepository;
+import org.example.estudebackendspring.until.EmailUtil;
+import org.example.estudebackendspring.until.TransactionUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Outbox email: nghiệp vụ chỉ lưu email vào outbound_emails (cùng transaction), request trả về ngay.
+ * - Sau commit và định kỳ (mail.outbox.poll-interval-ms), {@link #dispatchDue()} nhận các email đến hạn
+ *   bằng UPDATE ... FOR UPDATE SKIP LOCKED (nhiều instance không gửi trùng) và giao cho mailSenderExecutor
+ * - SMTP lỗi: thử lại sau initial-backoff * 2^(lần thử - 1) (tối đa max-backoff), quá max-attempts thì FAILED
+ * - Mỗi người nhận tối đa per-recipient-limit email / per-recipient-window; vượt thì hoãn, không tính lần thử.
+ *   Mỗi người nhận chỉ có 1 email SENDING tại 1 thời điểm (xem CLAIM_DUE) nên đếm rồi gửi không vượt giới hạn
+ * - Email SENDING quá lock-timeout (instance chết giữa chừng) được nhận lại
+ */
+@Slf4j
+@Service
+public class EmailOutboxService {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    // Khoá advisory giữ tới hết transaction claim: các instance claim lần lượt, mỗi lần thấy SENDING của lần trước
+    private static final long CLAIM_LOCK_KEY = 0x6f7574626f78L;
+
+    // Nhận email đến hạn, tối đa 1 email / người nhận và bỏ qua người nhận đang có email SENDING
+    private static final String CLAIM_DUE = """
+        WITH due AS (
+            SELECT o.email_id, o.recipient, o.next_attempt_at FROM outbound_emails o
+            WHERE ((o.status = 'PENDING' AND o.next_attempt_at <= ?)
+                   OR (o.status = 'SENDING' AND o.locked_until < ?))
+              AND NOT EXISTS (
+                  SELECT 1 FROM outbound_emails s
+                  WHERE s.recipient = o.recipient AND s.status = 'SENDING' AND s.locked_until >= ?
+              )
+            ORDER BY o.next_attempt_at
+            LIMIT ?
+            FOR UPDATE SKIP LOCKED
+        ), picked AS (
+            SELECT DISTINCT ON (recipient) email_id FROM due
+            ORDER BY recipient, next_attempt_at
+        )
+        UPDATE outbound_emails SET status = 'SENDING', locked_until = ?
+        WHERE email_id IN (SELECT email_id FROM picked)
+        RETURNING email_id
+        """;
+
+    private final OutboundEmailRepository outboundEmailRepository;
+    private final EmailUtil emailUtil;
+    private final ThreadPoolTaskExecutor mailSenderExecutor;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate claimTransaction;
+    private final int batchSize;
+    private final Duration lockTimeout;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final int recipientLimit;
+    private final Duration recipientWindow;
+    private final Duration retention;
+
+    public EmailOutboxService(OutboundEmailRepository outboundEmailRepository,
+                              EmailUtil emailUtil,
+                              @Qualifier("mailSenderExecutor") ThreadPoolTaskExecutor mailSenderExecutor,
+                              JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${mail.outbox.batch-size:20}") int batchSize,
+                              @Value("${mail.outbox.lock-timeout:PT2M}") Duration lockTimeout,
+                              @Value("${mail.outbox.max-attempts:6}") int maxAttempts,
+                              @Value("${mail.outbox.initial-backoff:PT30S}") Duration initialBackoff,
+                              @Value("${mail.outbox.max-backoff:PT30M}") Duration maxBackoff,
+                              @Value("${mail.outbox.per-recipient-limit:5}") int recipientLimit,
+                              @Value("${mail.outbox.per-recipient-window:PT10M}") Duration recipientWindow,
+                              @Value("${mail.outbox.retention:P7D}") Duration retention) {
+        this.outboundEmailRepository = outboundEmailRepository;
+        this.emailUtil = emailUtil;
+        this.mailSenderExecutor = mailSenderExecutor;
+        this.jdbcTemplate = jdbcTemplate;
+        // Claim (và trả lại email) luôn commit riêng: gọi từ afterCommit thì transaction của enqueue
+        // đã kết thúc, chạy trên connection đó thì UPDATE không bao giờ được commit
+        this.claimTransaction = new TransactionTemplate(transactionManager);
+        this.claimTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.batchSize = batchSize;
+        this.lockTimeout = lockTimeout;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.recipientLimit = recipientLimit;
+        this.recipientWindow = recipientWindow;
+        this.retention = retention;
+    }
+
+    /**
+     * Lưu email vào outbox trong transaction hiện tại; được gửi ngay sau khi commit
+     */
+    @Transactional
+    public OutboundEmail enqueue(String recipient, String subject, String html) {
+        OutboundEmail email = outboundEmailRepository.save(OutboundEmail.builder()
+                .recipient(recipient)
+                .subject(subject)
+                .body(html)
+                .status(OutboundEmailStatus.PENDING)
+                .attempts(0)
+                .build());
+        TransactionUtils.afterCommit(() -> {
+            try {
+                dispatchDue();
+            } catch (RuntimeException e) {
+                // Lượt quét định kỳ sẽ gửi
+                log.warn("Immediate outbox dispatch failed: {}", e.getMessage());
+            }
+        });
+        return email;
+    }
+
+    /**
+     * Nhận các email đến hạn (không quá chỗ trống của hàng đợi gửi) và giao cho worker
+     */
+    @Scheduled(fixedDelayString = "${mail.outbox.poll-interval-ms:5000}")
+    public void dispatchDue() {
+        int limit = Math.min(batchSize, mailSenderExecutor.getThreadPoolExecutor().getQueue().remainingCapacity());
+        if (limit <= 0) return;
+
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp nowTs = Timestamp.valueOf(now);
+        List<Long> ids = claimTransaction.execute(status -> {
+            jdbcTemplate.execute("SELECT pg_advisory_xact_lock(" + CLAIM_LOCK_KEY + ")");
+            return jdbcTemplate.queryForList(CLAIM_DUE, Long.class,
+                    nowTs, nowTs, nowTs, limit, Timestamp.valueOf(now.plus(lockTimeout)));
+        });
+        if (ids == null) return;
+        for (Long emailId : ids) {
+            try {
+                mailSenderExecutor.execute(() -> send(emailId));
+            } catch (TaskRejectedException e) {
+                claimTransaction.executeWithoutResult(status -> outboundEmailRepository.reschedule(emailId, now, false, null));
+            }
+        }
+    }
+
+    /**
+     * Xoá email đã gửi / đã bỏ cuộc cũ hơn mail.outbox.retention
+     */
+    @Scheduled(cron = "${mail.outbox.cleanup-cron:0 30 3 * * *}")
+    public void purgeFinished() {
+        int deleted = outboundEmailRepository.deleteFinishedBefore(LocalDateTime.now().minus(retention));
+        if (deleted > 0) {
+            log.info("Purged {} finished outbound emails", deleted);
+        }
+    }
+
+    private void send(Long emailId) {
+        OutboundEmail email = outboundEmailRepository.findById(emailId).orElse(null);
+        if (email == null || email.getStatus() != OutboundEmailStatus.SENDING) return;
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime windowStart = now.minus(recipientWindow);
+        if (outboundEmailRepository.countSentSince(email.getRecipient(), windowStart) >= recipientLimit) {
+            LocalDateTime oldest = outboundEmailRepository.findOldestSentSince(email.getRecipient(), windowStart);
+            LocalDateTime next = (oldest != null ? oldest : now).plus(recipientWindow);
+            outboundEmailRepository.reschedule(emailId, next, false, null);
+            log.info("Outbound email {} deferred until {}: recipient limit reached", emailId, next);
+            return;
+        }
+
+        try {
+            emailUtil.send(email.getRecipient(), email.getSubject(), email.getBody());
+        } catch (MessagingException | RuntimeException e) {
+            // Mọi lỗi khi gửi (không chỉ lỗi SMTP) đều thử lại / FAILED, không để email kẹt SENDING tới lock-timeout
+            int attempt = email.getAttempts() + 1;
+            String error = truncate(e.getMessage() != null ? e.getMessage() : e.getClass().getName());
+            if (attempt >= maxAttempts) {
+                outboundEmailRepository.markFailed(emailId, error);
+                log.error("Outbound email {} to {} failed after {} attempts: {}",
+                        emailId, email.getRecipient(), attempt, error);
+            } else {
+                LocalDateTime next = LocalDateTime.now().plus(backoff(attempt));
+                outboundEmailRepository.reschedule(emailId, next, true, error);
+                log.warn("Outbound email {} attempt {} failed, retrying at {}: {}", emailId, attempt, next, error);
+            }
+            return;
+        }
+        outboundEmailRepository.markSent(emailId, LocalDateTime.now());
+        log.info("Sent outbound email {} to {}", emailId, email.getRecipient());
+    }
+
+    // initialBackoff * 2^(attempt - 1), tối đa maxBackoff
+    Duration backoff(int attempt) {
+        Duration delay = initialBackoff.multipliedBy(1L << Math.min(attempt - 1, 20));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    private static String truncate(String message) {
+        if (message == null) return null;
+        return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+}
@@ -1,6 +1,7 @@
 package org.example.estudebackendspring.service;
 
 import jakarta.transaction.Transactional;
+import org.example.estudebackendspring.dto.BulkEnrollmentReportDTO;
 import org.example.estudebackendspring.dto.CreateEnrollmentRequest;
 import org.example.estudebackendspring.entity.Clazz;
 import org.example.estudebackendspring.entity.Enrollment;
@@ -11,69 +12,170 @@ import org.example.estudebackendspring.exception.ResourceNotFoundException;
 import org.example.estudebackendspring.repository.ClazzRepository;
 import org.example.estudebackendspring.repository.EnrollmentRepository;
 import org.example.estudebackendspring.repository.StudentRepository;
+import org.example.estudebackendspring.until.QueryUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.List;
+import java.sql.Timestamp;
+import java.util.*;
 
 @Service
 public class EnrollmentService {
     private final EnrollmentRepository enrollmentRepository;
     private final ClazzRepository clazzRepository;
     private final StudentRepository studentRepository;
+    private final ClassRankingIndex classRankingIndex;
+    private final LiveAttendanceRoster liveAttendanceRoster;
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    private static final String MISSING_STUDENT = "không tìm thấy học sinh";
+    private static final String INSERT_ENROLLMENT = """
+        INSERT INTO enrollments (class_id, student_id, date_joined) VALUES (?, ?, ?)
+        """;
+
     public EnrollmentService(EnrollmentRepository enrollmentRepository, ClazzRepository clazzRepository,
-                             StudentRepository studentRepository) {
+                             StudentRepository studentRepository, ClassRankingIndex classRankingIndex,
+                             LiveAttendanceRoster liveAttendanceRoster, JdbcTemplate jdbcTemplate,
+                             @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:20}") int batchSize) {
         this.enrollmentRepository = enrollmentRepository;
         this.clazzRepository = clazzRepository;
         this.studentRepository = studentRepository;
+        this.classRankingIndex = classRankingIndex;
+        this.liveAttendanceRoster = liveAttendanceRoster;
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = Math.max(1, batchSize);
     }
 
 
+    /**
+     * Ghi danh danh sách học sinh vào lớp, tất cả hoặc không: học sinh không tồn tại / đang học lớp khác
+     * trùng thời gian kỳ thì báo lỗi, học sinh đã ở trong lớp thì bỏ qua
+     */
     @Transactional
     public List<Enrollment> enrollStudents(Long classId, List<Long> studentIds) {
-        Clazz clazz = clazzRepository.findById(classId).orElseThrow();
+        // Khoá dòng lớp: 2 lần ghi danh song song vào cùng lớp không ghi trùng học sinh
+        Clazz clazz = clazzRepository.findByIdForUpdate(classId).orElseThrow();
+        requireTerms(clazz);
+
+        Map<Long, BulkEnrollmentReportDTO.StudentResult> results = checkEnrollments(classId, studentIds);
+        for (BulkEnrollmentReportDTO.StudentResult r : results.values()) {
+            if (r.getStatus() != BulkEnrollmentReportDTO.Status.REJECTED) continue;
+            if (MISSING_STUDENT.equals(r.getReason())) {
+                throw new ResourceNotFoundException("Student not found with id: " + r.getStudentId());
+            }
+            String name = studentRepository.findById(r.getStudentId()).map(Student::getFullName).orElse("#" + r.getStudentId());
+            throw new IllegalArgumentException("Học sinh " + name + " " + r.getReason());
+        }
 
-        // Lấy các term của lớp này
-        List<Term> terms = clazz.getTerms();
-        if (terms == null || terms.isEmpty()) {
-            throw new IllegalArgumentException("Lớp này chưa có kỳ học (Term) nào, không thể ghi danh!");
+        Date now = new Date();
+        List<Enrollment> enrollments = new ArrayList<>();
+        for (Student student : studentRepository.findAllById(acceptedIds(results))) {
+            Enrollment e = new Enrollment();
+            e.setClazz(clazz);
+            e.setStudent(student);
+            e.setDateJoined(now);
+            enrollments.add(e);
         }
+        List<Enrollment> saved = enrollmentRepository.saveAll(enrollments);
 
-        List<Enrollment> saved = new ArrayList<>();
+        updateClassSize(clazz);
+        return saved;
+    }
 
-        for (Long sid : studentIds) {
-            Student student = studentRepository.findById(sid).orElseThrow();
+    /**
+     * Ghi danh hàng loạt (vd. cả khối đầu năm): kiểm tra tồn tại / đã ghi danh / trùng kỳ bằng vài query
+     * trên cả danh sách, ghi các học sinh hợp lệ bằng JDBC batch; học sinh không hợp lệ bị bỏ qua và được
+     * báo lại trong kết quả thay vì làm hỏng cả lô.
+     */
+    @Transactional
+    public BulkEnrollmentReportDTO enrollStudentsBulk(Long classId, List<Long> studentIds) {
+        // Khoá dòng lớp như enrollStudents
+        Clazz clazz = clazzRepository.findByIdForUpdate(classId)
+                .orElseThrow(() -> new ResourceNotFoundException("Class not found with id: " + classId));
+        requireTerms(clazz);
+        if (studentIds == null || studentIds.isEmpty()) {
+            throw new IllegalArgumentException("Danh sách học sinh trống");
+        }
 
-            // Kiểm tra conflict với từng term của lớp
-            for (Term term : terms) {
-                boolean conflict = enrollmentRepository.existsEnrollmentConflict(
-                        student,
-                        term.getBeginDate(),
-                        term.getEndDate()
-                );
+        Map<Long, BulkEnrollmentReportDTO.StudentResult> results = checkEnrollments(classId, studentIds);
+        List<Long> accepted = acceptedIds(results);
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        jdbcTemplate.batchUpdate(INSERT_ENROLLMENT, accepted, batchSize, (ps, studentId) -> {
+            ps.setLong(1, classId);
+            ps.setLong(2, studentId);
+            ps.setTimestamp(3, now);
+        });
+        int classSize = updateClassSize(clazz);
+
+        int alreadyEnrolled = (int) results.values().stream()
+                .filter(r -> r.getStatus() == BulkEnrollmentReportDTO.Status.ALREADY_ENROLLED).count();
+        return BulkEnrollmentReportDTO.builder()
+                .classId(classId)
+                .accepted(accepted.size())
+                .alreadyEnrolled(alreadyEnrolled)
+                .rejected(results.size() - accepted.size() - alreadyEnrolled)
+                .classSize(classSize)
+                .results(new ArrayList<>(results.values()))
+                .build();
+    }
 
-                if (conflict) {
-                    throw new IllegalArgumentException("Học sinh " + student.getFullName()
-                            + " đã tham gia một lớp khác trong khoảng thời gian của kỳ: " + term.getName());
-                }
+    // Kết quả kiểm tra cho từng học sinh (thứ tự theo request, bỏ id lặp); id được truy vấn theo từng khối
+    private Map<Long, BulkEnrollmentReportDTO.StudentResult> checkEnrollments(Long classId, List<Long> studentIds) {
+        List<Long> ids = studentIds.stream().filter(Objects::nonNull).distinct().toList();
+        Set<Long> existing = new HashSet<>();
+        Set<Long> enrolled = new HashSet<>();
+        Map<Long, String> conflicts = new HashMap<>();
+        for (List<Long> chunk : QueryUtils.inChunks(ids)) {
+            existing.addAll(studentRepository.findExistingIds(chunk));
+            enrolled.addAll(enrollmentRepository.findEnrolledStudentIds(classId, chunk));
+            for (Object[] row : enrollmentRepository.findTermConflicts(classId, chunk)) {
+                conflicts.putIfAbsent(((Number) row[0]).longValue(), (String) row[1]);
             }
+        }
 
-            // Kiểm tra trùng chính lớp này
-            if (!enrollmentRepository.existsByClazzAndStudent(clazz, student)) {
-                Enrollment e = new Enrollment();
-                e.setClazz(clazz);
-                e.setStudent(student);
-                e.setDateJoined(new Date());
-                saved.add(enrollmentRepository.save(e));
+        Map<Long, BulkEnrollmentReportDTO.StudentResult> results = new LinkedHashMap<>();
+        for (Long id : ids) {
+            BulkEnrollmentReportDTO.StudentResult r;
+            if (!existing.contains(id)) {
+                r = new BulkEnrollmentReportDTO.StudentResult(id, BulkEnrollmentReportDTO.Status.REJECTED, MISSING_STUDENT);
+            } else if (enrolled.contains(id)) {
+                r = new BulkEnrollmentReportDTO.StudentResult(id, BulkEnrollmentReportDTO.Status.ALREADY_ENROLLED, null);
+            } else if (conflicts.containsKey(id)) {
+                r = new BulkEnrollmentReportDTO.StudentResult(id, BulkEnrollmentReportDTO.Status.REJECTED,
+                        "đã tham gia một lớp khác trong khoảng thời gian của kỳ: " + conflicts.get(id));
+            } else {
+                r = new BulkEnrollmentReportDTO.StudentResult(id, BulkEnrollmentReportDTO.Status.ACCEPTED, null);
             }
+            results.put(id, r);
         }
+        return results;
+    }
 
-        // Cập nhật sĩ số
-        clazz.setClassSize(enrollmentRepository.countByClazz(clazz));
-        clazzRepository.save(clazz);
+    private static List<Long> acceptedIds(Map<Long, BulkEnrollmentReportDTO.StudentResult> results) {
+        return results.values().stream()
+                .filter(r -> r.getStatus() == BulkEnrollmentReportDTO.Status.ACCEPTED)
+                .map(BulkEnrollmentReportDTO.StudentResult::getStudentId)
+                .toList();
+    }
 
-        return saved;
+    private static void requireTerms(Clazz clazz) {
+        // Lấy các term của lớp này
+        List<Term> terms = clazz.getTerms();
+        if (terms == null || terms.isEmpty()) {
+            throw new IllegalArgumentException("Lớp này chưa có kỳ học (Term) nào, không thể ghi danh!");
+        }
+    }
+
+    // Cập nhật sĩ số (1 COUNT) và bỏ các chỉ mục trong bộ nhớ của lớp
+    private int updateClassSize(Clazz clazz) {
+        int size = enrollmentRepository.countByClazz(clazz);
+        clazz.setClassSize(size);
+        clazzRepository.save(clazz);
+        classRankingIndex.evictClass(clazz.getClassId());
+        liveAttendanceRoster.evictClass(clazz.getClassId());
+        return size;
     }
 
 
@@ -90,6 +192,8 @@ public class EnrollmentService {
         int count = enrollmentRepository.countByClazz(clazz);
         clazz.setClassSize(count);
         clazzRepository.save(clazz);
+        classRankingIndex.evictClass(clazz.getClassId());
+        liveAttendanceRoster.evictClass(clazz.getClassId());
     }
 
     public List<Enrollment> getEnrollmentsByStudent(Long studentId) {
@@ -0,0 +1,273 @@
+package org.example.estudebackendspring.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.estudebackendspring.entity.ClassSubject;
+import org.example.estudebackendspring.entity.Clazz;
+import org.example.estudebackendspring.entity.GradeRollup;
+import org.example.estudebackendspring.enums.RollupScope;
+import org.example.estudebackendspring.repository.GradeRollupRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+
+/**
+ * Bảng tổng hợp điểm (grade_rollups) theo class-subject, lớp (theo kỳ) và trường.
+ * - Ghi: SubjectGradeService gọi {@link #onGradeChanged} trong transaction sửa điểm, cộng delta
+ *   (điểm mới - điểm cũ) vào 3 dòng bằng UPSERT cộng dồn, nên các giao dịch song song không ghi đè nhau
+ * - Đọc: TeacherAnalyticsService, HomeroomTeacherAnalyticsService, SchoolPerformanceBaselineService
+ * - Xoá class-subject / lớp (subject_grades bị xoá theo cascade): {@link #onClassSubjectsRemoved} /
+ *   {@link #onClassRemoved} trừ phần điểm đó khỏi rollup lớp và trường, cùng transaction với lệnh xoá
+ * - {@link #rebuildAll()} dựng lại toàn bộ từ subject_grades (backfill / sửa lệch)
+ */
+@Slf4j
+@Service
+public class GradeRollupService {
+
+    private static final long ALL_TERMS = 0L;
+
+    private static final String UPSERT_DELTA = """
+        INSERT INTO grade_rollups
+            (scope, scope_id, term_id, graded_count, score_sum, pass_count, excellent_count, updated_at)
+        VALUES (?, ?, ?, ?, ?, ?, ?, now())
+        ON CONFLICT (scope, scope_id, term_id) DO UPDATE SET
+            graded_count = grade_rollups.graded_count + EXCLUDED.graded_count,
+            score_sum = grade_rollups.score_sum + EXCLUDED.score_sum,
+            pass_count = grade_rollups.pass_count + EXCLUDED.pass_count,
+            excellent_count = grade_rollups.excellent_count + EXCLUDED.excellent_count,
+            updated_at = EXCLUDED.updated_at
+        """;
+
+    private static final String REBUILD_CLASS_SUBJECT = """
+        INSERT INTO grade_rollups
+            (scope, scope_id, term_id, graded_count, score_sum, pass_count, excellent_count, updated_at)
+        SELECT 'CLASS_SUBJECT', cs.class_subject_id, cs.term_id,
+               COUNT(*),
+               SUM(sg.actual_average),
+               SUM(CASE WHEN sg.actual_average >= 5.0 THEN 1 ELSE 0 END),
+               SUM(CASE WHEN sg.actual_average >= 9.0 THEN 1 ELSE 0 END),
+               now()
+        FROM subject_grades sg
+        JOIN class_subjects cs ON cs.class_subject_id = sg.class_subject_id
+        WHERE sg.actual_average > 0
+          AND cs.term_id IS NOT NULL
+        GROUP BY cs.class_subject_id, cs.term_id
+        """;
+
+    private static final String REBUILD_CLASS = """
+        INSERT INTO grade_rollups
+            (scope, scope_id, term_id, graded_count, score_sum, pass_count, excellent_count, updated_at)
+        SELECT 'CLASS', t.class_id, r.term_id,
+               SUM(r.graded_count), SUM(r.score_sum), SUM(r.pass_count), SUM(r.excellent_count), now()
+        FROM grade_rollups r
+        JOIN terms t ON t.term_id = r.term_id
+        WHERE r.scope = 'CLASS_SUBJECT'
+          AND t.class_id IS NOT NULL
+        GROUP BY t.class_id, r.term_id
+        """;
+
+    private static final String REBUILD_SCHOOL = """
+        INSERT INTO grade_rollups
+            (scope, scope_id, term_id, graded_count, score_sum, pass_count, excellent_count, updated_at)
+        SELECT 'SCHOOL', c.school_id, 0,
+               SUM(r.graded_count), SUM(r.score_sum), SUM(r.pass_count), SUM(r.excellent_count), now()
+        FROM grade_rollups r
+        JOIN classes c ON c.class_id = r.scope_id
+        WHERE r.scope = 'CLASS'
+          AND c.school_id IS NOT NULL
+        GROUP BY c.school_id
+        """;
+
+    // Xoá rollup của các class-subject và trả về phần cần trừ khỏi lớp / trường
+    private static final String REMOVE_CLASS_SUBJECTS = """
+        WITH removed AS (
+            DELETE FROM grade_rollups
+            WHERE scope = 'CLASS_SUBJECT' AND scope_id IN (%s)
+            RETURNING term_id, graded_count, score_sum, pass_count, excellent_count
+        )
+        SELECT t.class_id, c.school_id, r.term_id,
+               SUM(r.graded_count), SUM(r.score_sum), SUM(r.pass_count), SUM(r.excellent_count)
+        FROM removed r
+        JOIN terms t ON t.term_id = r.term_id
+        LEFT JOIN classes c ON c.class_id = t.class_id
+        WHERE t.class_id IS NOT NULL
+        GROUP BY t.class_id, c.school_id, r.term_id
+        ORDER BY t.class_id, r.term_id
+        """;
+
+    private final GradeRollupRepository gradeRollupRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public GradeRollupService(GradeRollupRepository gradeRollupRepository,
+                              JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager) {
+        this.gradeRollupRepository = gradeRollupRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Bảng rỗng (lần đầu triển khai) -> backfill từ subject_grades
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (gradeRollupRepository.count() == 0) {
+            rebuildAll();
+        }
+    }
+
+    /**
+     * Khoá dòng subject_grades và trả về actualAverage đã commit, làm điểm cũ để tính delta.
+     * Phải gọi trong transaction sửa điểm, trước khi sửa.
+     */
+    public Float lockCurrentAverage(Long subjectGradeId) {
+        List<Float> rows = jdbcTemplate.query(
+                "SELECT actual_average FROM subject_grades WHERE subject_grade_id = ? FOR UPDATE",
+                (rs, i) -> {
+                    float value = rs.getFloat(1);
+                    return rs.wasNull() ? null : value;
+                },
+                subjectGradeId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /**
+     * actualAverage của 1 SubjectGrade đổi từ previous sang current: cộng delta vào rollup
+     * của class-subject, lớp (theo kỳ) và trường. Chạy trong transaction của người gọi.
+     */
+    public void onGradeChanged(ClassSubject cs, Float previous, Float current) {
+        if (cs == null || cs.getTerm() == null) return;
+        long count = contributes(current) - contributes(previous);
+        double sum = value(current) - value(previous);
+        long pass = atLeast(current, 5.0) - atLeast(previous, 5.0);
+        long excellent = atLeast(current, 9.0) - atLeast(previous, 9.0);
+        if (count == 0 && sum == 0 && pass == 0 && excellent == 0) return;
+
+        Long termId = cs.getTerm().getTermId();
+        Clazz clazz = cs.getTerm().getClazz();
+
+        // Thứ tự cố định CLASS_SUBJECT -> CLASS -> SCHOOL để các transaction khoá dòng cùng thứ tự
+        List<Object[]> rows = new ArrayList<>(3);
+        rows.add(new Object[]{RollupScope.CLASS_SUBJECT.name(), cs.getClassSubjectId(), termId, count, sum, pass, excellent});
+        if (clazz != null) {
+            rows.add(new Object[]{RollupScope.CLASS.name(), clazz.getClassId(), termId, count, sum, pass, excellent});
+            if (clazz.getSchool() != null) {
+                rows.add(new Object[]{RollupScope.SCHOOL.name(), clazz.getSchool().getSchoolId(), ALL_TERMS,
+                        count, sum, pass, excellent});
+            }
+        }
+        jdbcTemplate.batchUpdate(UPSERT_DELTA, rows);
+    }
+
+    /**
+     * Các class-subject sắp bị xoá (kèm subject_grades): bỏ rollup của chúng và trừ phần điểm đó khỏi
+     * rollup lớp và trường. Phải gọi trong transaction xoá, trước khi xoá.
+     */
+    public void onClassSubjectsRemoved(Collection<Long> classSubjectIds) {
+        if (classSubjectIds.isEmpty()) return;
+        String placeholders = String.join(",", Collections.nCopies(classSubjectIds.size(), "?"));
+        List<Object[]> removed = jdbcTemplate.query(REMOVE_CLASS_SUBJECTS.formatted(placeholders),
+                (rs, i) -> new Object[]{
+                        rs.getLong(1), rs.getObject(2) != null ? rs.getLong(2) : null, rs.getLong(3),
+                        rs.getLong(4), rs.getDouble(5), rs.getLong(6), rs.getLong(7)},
+                classSubjectIds.toArray());
+        if (removed.isEmpty()) return;
+
+        // Thứ tự CLASS -> SCHOOL như onGradeChanged
+        List<Object[]> rows = new ArrayList<>();
+        Map<Long, Object[]> schools = new TreeMap<>();
+        for (Object[] r : removed) {
+            long count = (Long) r[3];
+            double sum = (Double) r[4];
+            long pass = (Long) r[5];
+            long excellent = (Long) r[6];
+            rows.add(new Object[]{RollupScope.CLASS.name(), r[0], r[2], -count, -sum, -pass, -excellent});
+            if (r[1] != null) {
+                Object[] school = schools.computeIfAbsent((Long) r[1],
+                        id -> new Object[]{RollupScope.SCHOOL.name(), id, ALL_TERMS, 0L, 0.0, 0L, 0L});
+                school[3] = (Long) school[3] - count;
+                school[4] = (Double) school[4] - sum;
+                school[5] = (Long) school[5] - pass;
+                school[6] = (Long) school[6] - excellent;
+            }
+        }
+        rows.addAll(schools.values());
+        jdbcTemplate.batchUpdate(UPSERT_DELTA, rows);
+    }
+
+    /**
+     * Lớp sắp bị xoá: trừ điểm của mọi class-subject của lớp khỏi rollup trường và bỏ rollup của lớp.
+     * Phải gọi trong transaction xoá, trước khi xoá.
+     */
+    public void onClassRemoved(Long classId) {
+        List<Long> classSubjectIds = jdbcTemplate.queryForList("""
+                SELECT cs.class_subject_id FROM class_subjects cs
+                JOIN terms t ON t.term_id = cs.term_id
+                WHERE t.class_id = ?
+                """, Long.class, classId);
+        onClassSubjectsRemoved(classSubjectIds);
+        jdbcTemplate.update("DELETE FROM grade_rollups WHERE scope = 'CLASS' AND scope_id = ?", classId);
+    }
+
+    /**
+     * Dựng lại toàn bộ grade_rollups từ subject_grades (1 transaction).
+     * Khoá bảng trong lúc dựng: các lần sửa điểm song song chờ rồi cộng delta lên kết quả mới.
+     *
+     * @return số dòng rollup sau khi dựng
+     */
+    public long rebuildAll() {
+        long start = System.currentTimeMillis();
+        Long rows = transactionTemplate.execute(status -> {
+            jdbcTemplate.execute("LOCK TABLE grade_rollups IN EXCLUSIVE MODE");
+            jdbcTemplate.update("DELETE FROM grade_rollups");
+            int classSubjects = jdbcTemplate.update(REBUILD_CLASS_SUBJECT);
+            int classes = jdbcTemplate.update(REBUILD_CLASS);
+            int schools = jdbcTemplate.update(REBUILD_SCHOOL);
+            return (long) classSubjects + classes + schools;
+        });
+        log.info("Grade rollups rebuilt: {} rows ({} ms)", rows, System.currentTimeMillis() - start);
+        return rows != null ? rows : 0L;
+    }
+
+    public List<GradeRollup> findClassSubjectRollups(Collection<Long> classSubjectIds) {
+        if (classSubjectIds.isEmpty()) return List.of();
+        return gradeRollupRepository.findByScopeAndScopeIdIn(RollupScope.CLASS_SUBJECT, classSubjectIds);
+    }
+
+    /**
+     * Rollup của lớp trên mọi kỳ
+     */
+    public List<GradeRollup> findClassRollups(Long classId) {
+        return gradeRollupRepository.findByScopeAndScopeId(RollupScope.CLASS, classId);
+    }
+
+    public GradeRollup findSchoolRollup(Long schoolId) {
+        List<GradeRollup> rows = gradeRollupRepository.findByScopeAndScopeId(RollupScope.SCHOOL, schoolId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /**
+     * Tổng hợp theo lớp của các class-subject giáo viên dạy:
+     * [class_id, số điểm, tổng điểm, số điểm >= 5.0, số điểm >= 9.0]
+     */
+    public List<Object[]> sumByClassForTeacher(Long teacherId) {
+        return gradeRollupRepository.sumByClassForTeacher(teacherId);
+    }
+
+    private static long contributes(Float score) {
+        return score != null && score > 0 ? 1 : 0;
+    }
+
+    private static double value(Float score) {
+        return contributes(score) == 1 ? score : 0.0;
+    }
+
+    private static long atLeast(Float score, double threshold) {
+        return contributes(score) == 1 && score >= threshold ? 1 : 0;
+    }
+}
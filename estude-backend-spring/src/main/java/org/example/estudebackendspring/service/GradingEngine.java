@@ -0,0 +1,230 @@
+package org.example.estudebackendspring.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.estudebackendspring.entity.*;
+import org.example.estudebackendspring.enums.DifficultyLevel;
+import org.example.estudebackendspring.enums.QuestionType;
+import org.example.estudebackendspring.repository.QuestionOptionRepository;
+import org.example.estudebackendspring.repository.QuestionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Engine chấm bài dùng chung cho AssessmentSubmissionService, PracticeTestService
+ * và AssignmentSubmissionService.
+ * - Answer key lấy từ AnswerKeyCache (miss được nạp set-based cho cả bài nộp)
+ * - Chấm bằng answer key, không findById theo từng câu trả lời
+ * - Ghi answer bằng JDBC batch (entity dùng IDENTITY nên Hibernate không batch insert được)
+ *
+ * Phải được gọi trong transaction của service (JdbcTemplate dùng chung connection với JPA).
+ */
+@Slf4j
+@Service
+public class GradingEngine {
+
+    private static final String INSERT_ASSESSMENT_ANSWER = """
+        INSERT INTO assessment_answers
+            (submission_id, question_id, topic_id, chosen_option_id, is_correct, difficulty_level)
+        VALUES (?, ?, ?, ?, ?, ?)
+        """;
+
+    private static final String INSERT_ANSWER = """
+        INSERT INTO answers
+            (submission_id, question_id, option_id, student_answer_text, answer_type, is_correct, score, feedback)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+        """;
+
+    private final QuestionRepository questionRepository;
+    private final QuestionOptionRepository questionOptionRepository;
+    private final AnswerKeyCache answerKeyCache;
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public GradingEngine(QuestionRepository questionRepository,
+                         QuestionOptionRepository questionOptionRepository,
+                         AnswerKeyCache answerKeyCache,
+                         JdbcTemplate jdbcTemplate,
+                         @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:20}") int batchSize) {
+        this.questionRepository = questionRepository;
+        this.questionOptionRepository = questionOptionRepository;
+        this.answerKeyCache = answerKeyCache;
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Answer key cho 1 bài nộp, chỉ dùng dữ liệu chấm bài của AnswerKeyCache.
+     * Question/option trong AnswerKey là reference (không query), đủ để ghi answer.
+     *
+     * @param questionIds     các question được trả lời
+     * @param chosenOptionIds các option học sinh đã chọn (null được bỏ qua)
+     */
+    public AnswerKey loadAnswerKey(Collection<Long> questionIds, Collection<Long> chosenOptionIds) {
+        return new AnswerKey(answerKeyCache.lookup(questionIds, chosenOptionIds),
+                Collections.emptyMap(), Collections.emptyMap());
+    }
+
+    /**
+     * Như {@link #loadAnswerKey} nhưng nạp thêm entity Question (kèm topic + options) trong 1 query,
+     * option lạ (không thuộc các question đó) trong tối đa 1 query nữa - cho nơi cần nội dung câu hỏi
+     * để dựng response.
+     */
+    public AnswerKey loadAnswerKeyWithEntities(Collection<Long> questionIds, Collection<Long> chosenOptionIds) {
+        AnswerKeyCache.Lookup lookup = answerKeyCache.lookup(questionIds, chosenOptionIds);
+        Set<Long> qIds = nonNull(questionIds);
+        Map<Long, Question> questions = new HashMap<>();
+        Map<Long, QuestionOption> options = new HashMap<>();
+
+        if (!qIds.isEmpty()) {
+            for (Question q : questionRepository.findAllWithOptionsByIdIn(qIds)) {
+                questions.put(q.getQuestionId(), q);
+                if (q.getOptions() == null) continue;
+                for (QuestionOption o : q.getOptions()) {
+                    options.put(o.getOptionId(), o);
+                }
+            }
+        }
+
+        // Option được chọn nhưng không thuộc question nào trong bài -> nạp riêng (sai câu hỏi)
+        Set<Long> missingOptionIds = nonNull(chosenOptionIds).stream()
+                .filter(id -> !options.containsKey(id) && lookup.hasOption(id))
+                .collect(Collectors.toSet());
+        if (!missingOptionIds.isEmpty()) {
+            for (QuestionOption o : questionOptionRepository.findAllById(missingOptionIds)) {
+                options.put(o.getOptionId(), o);
+            }
+        }
+
+        return new AnswerKey(lookup, questions, options);
+    }
+
+    /**
+     * Ghi các AssessmentAnswer của 1 submission bằng JDBC batch
+     */
+    public void insertAssessmentAnswers(Long submissionId, List<AssessmentAnswer> answers) {
+        if (answers.isEmpty()) return;
+        long start = System.currentTimeMillis();
+        jdbcTemplate.batchUpdate(INSERT_ASSESSMENT_ANSWER, answers, batchSize, (ps, a) -> {
+            ps.setLong(1, submissionId);
+            ps.setLong(2, a.getQuestion().getQuestionId());
+            setLongOrNull(ps, 3, a.getTopic() != null ? a.getTopic().getTopicId() : null);
+            setLongOrNull(ps, 4, a.getChosenOption() != null ? a.getChosenOption().getOptionId() : null);
+            ps.setBoolean(5, Boolean.TRUE.equals(a.getIsCorrect()));
+            ps.setString(6, a.getDifficultyLevel());
+        });
+        log.debug("Batch inserted {} assessment answers for submission {} in {} ms",
+                answers.size(), submissionId, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Ghi các Answer (practice test / assignment) của 1 submission bằng JDBC batch
+     */
+    public void insertAnswers(Long submissionId, List<Answer> answers) {
+        if (answers.isEmpty()) return;
+        long start = System.currentTimeMillis();
+        jdbcTemplate.batchUpdate(INSERT_ANSWER, answers, batchSize, (ps, a) -> {
+            ps.setLong(1, submissionId);
+            setLongOrNull(ps, 2, a.getQuestion() != null ? a.getQuestion().getQuestionId() : null);
+            setLongOrNull(ps, 3, a.getChosenOption() != null ? a.getChosenOption().getOptionId() : null);
+            ps.setString(4, a.getStudentAnswerText());
+            ps.setString(5, a.getAnswerType() != null ? a.getAnswerType().name() : null);
+            if (a.getIsCorrect() != null) ps.setBoolean(6, a.getIsCorrect()); else ps.setNull(6, Types.BOOLEAN);
+            if (a.getScore() != null) ps.setFloat(7, a.getScore()); else ps.setNull(7, Types.REAL);
+            ps.setString(8, a.getFeedback());
+        });
+        log.debug("Batch inserted {} answers for submission {} in {} ms",
+                answers.size(), submissionId, System.currentTimeMillis() - start);
+    }
+
+    private static void setLongOrNull(PreparedStatement ps, int index, Long value) throws SQLException {
+        if (value != null) ps.setLong(index, value);
+        else ps.setNull(index, Types.BIGINT);
+    }
+
+    private static Set<Long> nonNull(Collection<Long> ids) {
+        if (ids == null) return Collections.emptySet();
+        return ids.stream().filter(Objects::nonNull).collect(Collectors.toSet());
+    }
+
+    /**
+     * Answer key trong bộ nhớ của 1 bài nộp: chấm bằng dữ liệu của AnswerKeyCache,
+     * entity (nếu đã nạp) chỉ dùng để dựng response
+     */
+    public final class AnswerKey {
+        private final AnswerKeyCache.Lookup lookup;
+        private final Map<Long, Question> questions;
+        private final Map<Long, QuestionOption> options;
+
+        private AnswerKey(AnswerKeyCache.Lookup lookup,
+                          Map<Long, Question> questions,
+                          Map<Long, QuestionOption> options) {
+            this.lookup = lookup;
+            this.questions = questions;
+            this.options = options;
+        }
+
+        public boolean hasQuestion(Long questionId) {
+            return lookup.hasQuestion(questionId);
+        }
+
+        public boolean hasOption(Long optionId) {
+            return lookup.hasOption(optionId);
+        }
+
+        /**
+         * Entity Question nếu đã nạp (loadAnswerKeyWithEntities), ngược lại là reference theo id
+         */
+        public Question question(Long questionId) {
+            if (!lookup.hasQuestion(questionId)) return null;
+            Question q = questions.get(questionId);
+            return q != null ? q : questionRepository.getReferenceById(questionId);
+        }
+
+        public QuestionOption option(Long optionId) {
+            if (!lookup.hasOption(optionId)) return null;
+            QuestionOption o = options.get(optionId);
+            return o != null ? o : questionOptionRepository.getReferenceById(optionId);
+        }
+
+        public Long topicId(Long questionId) {
+            return lookup.topicId(questionId);
+        }
+
+        public DifficultyLevel difficulty(Long questionId) {
+            return lookup.difficulty(questionId);
+        }
+
+        public QuestionType questionType(Long questionId) {
+            return lookup.questionType(questionId);
+        }
+
+        /**
+         * Điểm của câu hỏi, 0 nếu chưa đặt
+         */
+        public float points(Long questionId) {
+            Float points = lookup.points(questionId);
+            return points != null ? points : 0f;
+        }
+
+        /**
+         * Option có thuộc question này không (chống gửi optionId của câu khác)
+         */
+        public boolean belongsTo(Long optionId, Long questionId) {
+            return lookup.belongsTo(optionId, questionId);
+        }
+
+        /**
+         * Đúng khi option thuộc question và là đáp án đúng
+         */
+        public boolean isCorrect(Long questionId, Long optionId) {
+            return lookup.isCorrect(questionId, optionId);
+        }
+    }
+}
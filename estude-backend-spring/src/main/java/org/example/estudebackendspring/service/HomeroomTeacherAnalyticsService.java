@@ -25,7 +25,9 @@ public class HomeroomTeacherAnalyticsService {
     private final TeacherRepository teacherRepository;
     private final EnrollmentRepository enrollmentRepository;
     private final ClassSubjectRepository classSubjectRepository;
-    private final SubjectGradeRepository subjectGradeRepository;
+    private final ClassRankingIndex classRankingIndex;
+    private final GradeRollupService gradeRollupService;
+    private final SchoolPerformanceBaselineService schoolBaselineService;
     
     /**
      * Get comprehensive overview of homeroom class
@@ -65,12 +67,13 @@ public class HomeroomTeacherAnalyticsService {
         List<ClassSubject> classSubjects = classSubjectRepository.findByTerm_Clazz_ClassId(classId);
         log.info("Found {} class subjects for class ID: {}", classSubjects.size(), classId);
         
-        // 4. Calculate performance for each subject
+        // 4. Calculate performance for each subject (from the CLASS_SUBJECT grade rollups)
+        Map<Long, GradeRollup> rollupByClassSubject = gradeRollupService.findClassSubjectRollups(
+                        classSubjects.stream().map(ClassSubject::getClassSubjectId).toList())
+                .stream()
+                .collect(Collectors.toMap(GradeRollup::getScopeId, r -> r, (a, b) -> a));
+        
         List<HomeroomClassDTO.SubjectPerformanceDTO> subjectPerformanceList = new ArrayList<>();
-        double totalAvgScore = 0.0;
-        int totalPassCount = 0;
-        int totalExcellentCount = 0;
-        int totalValidGrades = 0;
         
         for (ClassSubject cs : classSubjects) {
             if (cs.getSubject() == null || cs.getTeacher() == null || cs.getTerm() == null) {
@@ -81,56 +84,14 @@ public class HomeroomTeacherAnalyticsService {
             String teacherName = cs.getTeacher().getFullName();
             String termName = cs.getTerm().getName();
             
-            // Get all grades for this subject
-            List<SubjectGrade> grades = subjectGradeRepository.findByClassSubject_ClassSubjectId(cs.getClassSubjectId());
-            
-            if (grades.isEmpty()) {
-                // Subject has no grades yet, still add with 0 values
-                subjectPerformanceList.add(HomeroomClassDTO.SubjectPerformanceDTO.builder()
-                        .subjectName(subjectName)
-                        .termName(termName)
-                        .teacherName(teacherName)
-                        .avgScore(0.0)
-                        .passRate(0.0)
-                        .excellentRate(0.0)
-                        .build());
-                log.info("Subject {} (Term: {}) has no grades yet", subjectName, termName);
-                continue;
-            }
-            
-            // Calculate subject metrics
-            double subjectAvgScore = 0.0;
-            int passCount = 0;
-            int excellentCount = 0;
-            int validGradeCount = 0;
-            
-            for (SubjectGrade grade : grades) {
-                Float avgScore = grade.getActualAverage();
-                if (avgScore != null && avgScore > 0) {
-                    subjectAvgScore += avgScore;
-                    validGradeCount++;
-                    
-                    if (avgScore >= 5.0) {
-                        passCount++;
-                        totalPassCount++;
-                    }
-                    if (avgScore >= 9.0) {
-                        excellentCount++;
-                        totalExcellentCount++;
-                    }
-                }
-            }
-            
-            if (validGradeCount > 0) {
-                subjectAvgScore /= validGradeCount;
-                totalAvgScore += subjectAvgScore * validGradeCount;
-                totalValidGrades += validGradeCount;
-            }
+            GradeRollup rollup = rollupByClassSubject.get(cs.getClassSubjectId());
+            long validGradeCount = rollup != null ? rollup.getGradedCount() : 0L;
             
+            double subjectAvgScore = validGradeCount > 0 ? rollup.getScoreSum() / validGradeCount : 0.0;
             double subjectPassRate = validGradeCount > 0 ? 
-                    Math.round((double) passCount / validGradeCount * 10000.0) / 100.0 : 0.0;
+                    Math.round((double) rollup.getPassCount() / validGradeCount * 10000.0) / 100.0 : 0.0;
             double subjectExcellentRate = validGradeCount > 0 ? 
-                    Math.round((double) excellentCount / validGradeCount * 10000.0) / 100.0 : 0.0;
+                    Math.round((double) rollup.getExcellentCount() / validGradeCount * 10000.0) / 100.0 : 0.0;
             
             subjectPerformanceList.add(HomeroomClassDTO.SubjectPerformanceDTO.builder()
                     .subjectName(subjectName)
@@ -141,87 +102,65 @@ public class HomeroomTeacherAnalyticsService {
                     .excellentRate(subjectExcellentRate)
                     .build());
             
-            log.info("Subject {} (Term: {}): avgScore={}, passRate={}, excellentRate={}", 
+            log.debug("Subject {} (Term: {}): avgScore={}, passRate={}, excellentRate={}", 
                     subjectName, termName, subjectAvgScore, subjectPassRate, subjectExcellentRate);
         }
         
-        // 5. Calculate overall performance
+        // 5. Calculate overall performance (sum of the CLASS grade rollups over all terms)
+        long totalValidGrades = 0;
+        double totalScoreSum = 0.0;
+        long totalPassCount = 0;
+        long totalExcellentCount = 0;
+        for (GradeRollup rollup : gradeRollupService.findClassRollups(classId)) {
+            totalValidGrades += rollup.getGradedCount();
+            totalScoreSum += rollup.getScoreSum();
+            totalPassCount += rollup.getPassCount();
+            totalExcellentCount += rollup.getExcellentCount();
+        }
+        
         double overallAvgScore = totalValidGrades > 0 ? 
-                Math.round((totalAvgScore / totalValidGrades) * 100.0) / 100.0 : 0.0;
+                Math.round((totalScoreSum / totalValidGrades) * 100.0) / 100.0 : 0.0;
         double overallPassRate = totalValidGrades > 0 ? 
                 Math.round((double) totalPassCount / totalValidGrades * 10000.0) / 100.0 : 0.0;
         double overallExcellentRate = totalValidGrades > 0 ? 
                 Math.round((double) totalExcellentCount / totalValidGrades * 10000.0) / 100.0 : 0.0;
         
+        // Compare with school average (cached SCHOOL rollup); no baseline -> diff 0
+        OverallPerformanceDTO schoolBaseline = clazz.getSchool() != null
+                ? schoolBaselineService.getBaseline(clazz.getSchool().getSchoolId())
+                : null;
+        
         OverallPerformanceDTO overallPerformance = OverallPerformanceDTO.builder()
                 .avgScore(overallAvgScore)
                 .passRate(overallPassRate)
                 .excellentRate(overallExcellentRate)
                 .comparisonToSchool(OverallPerformanceDTO.ComparisonDTO.builder()
-                        .avgScoreDiff(0.0)  // TODO: Compare with school average
-                        .passRateDiff(0.0)
-                        .excellentRateDiff(0.0)
+                        .avgScoreDiff(schoolBaseline != null
+                                ? Math.round((overallAvgScore - schoolBaseline.getAvgScore()) * 100.0) / 100.0 : 0.0)
+                        .passRateDiff(schoolBaseline != null
+                                ? Math.round((overallPassRate - schoolBaseline.getPassRate()) * 100.0) / 100.0 : 0.0)
+                        .excellentRateDiff(schoolBaseline != null
+                                ? Math.round((overallExcellentRate - schoolBaseline.getExcellentRate()) * 100.0) / 100.0 : 0.0)
                         .build())
                 .build();
         
-        // 6. Calculate student averages across all subjects to find top/at-risk
-        Map<Long, List<Float>> studentGrades = new HashMap<>();
-        
-        for (ClassSubject cs : classSubjects) {
-            List<SubjectGrade> grades = subjectGradeRepository.findByClassSubject_ClassSubjectId(cs.getClassSubjectId());
-            for (SubjectGrade grade : grades) {
-                if (grade.getStudent() != null && grade.getActualAverage() != null && grade.getActualAverage() > 0) {
-                    Long studentId = grade.getStudent().getUserId();
-                    studentGrades.computeIfAbsent(studentId, k -> new ArrayList<>()).add(grade.getActualAverage());
-                }
-            }
-        }
-        
-        // Calculate each student's overall average
-        List<HomeroomClassDTO.StudentRankDTO> allStudentRanks = new ArrayList<>();
-        
-        for (Map.Entry<Long, List<Float>> entry : studentGrades.entrySet()) {
-            Long studentId = entry.getKey();
-            List<Float> grades = entry.getValue();
-            
-            // Find student info
-            Optional<Enrollment> enrollmentOpt = enrollments.stream()
-                    .filter(e -> e.getStudent() != null && e.getStudent().getUserId().equals(studentId))
-                    .findFirst();
-            
-            if (enrollmentOpt.isEmpty()) continue;
-            
-            Student student = enrollmentOpt.get().getStudent();
-            
-            double studentAvg = grades.stream()
-                    .mapToDouble(Float::doubleValue)
-                    .average()
-                    .orElse(0.0);
-            
-            allStudentRanks.add(HomeroomClassDTO.StudentRankDTO.builder()
-                    .studentId(studentId)
-                    .studentName(student.getFullName())
-                    .studentCode(student.getStudentCode())
-                    .overallScore(Math.round(studentAvg * 100.0) / 100.0)
-                    .build());
-        }
-        
-        // Sort by score descending
-        allStudentRanks.sort((a, b) -> Double.compare(b.getOverallScore(), a.getOverallScore()));
-        
-        // Assign ranks
-        for (int i = 0; i < allStudentRanks.size(); i++) {
-            allStudentRanks.get(i).setRank(i + 1);
-        }
+        // 6. Top/at-risk are range reads on the class ranking (maintained incrementally on grade changes)
+        ClassRankingIndex.Board ranking = classRankingIndex.classBoard(classId);
+        Map<Long, Student> studentsById = enrollments.stream()
+                .map(Enrollment::getStudent)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toMap(Student::getUserId, s -> s, (a, b) -> a));
         
         // 7. Get top 5 performers
-        List<HomeroomClassDTO.StudentRankDTO> topPerformers = allStudentRanks.stream()
-                .limit(5)
+        List<HomeroomClassDTO.StudentRankDTO> topPerformers = ranking.top(5).stream()
+                .map(e -> toStudentRank(e, studentsById.get(e.studentId())))
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
         
         // 8. Get at-risk students (avg < 5.0)
-        List<HomeroomClassDTO.StudentRankDTO> atRiskStudents = allStudentRanks.stream()
-                .filter(s -> s.getOverallScore() < 5.0)
+        List<HomeroomClassDTO.StudentRankDTO> atRiskStudents = ranking.below(5.0).stream()
+                .map(e -> toStudentRank(e, studentsById.get(e.studentId())))
+                .filter(s -> s != null && s.getOverallScore() < 5.0)
                 .collect(Collectors.toList());
         
         log.info("Top performers: {}, At-risk students: {}", topPerformers.size(), atRiskStudents.size());
@@ -239,6 +178,19 @@ public class HomeroomTeacherAnalyticsService {
                 .build();
     }
     
+    private HomeroomClassDTO.StudentRankDTO toStudentRank(ClassRankingIndex.Entry entry, Student student) {
+        if (student == null) {
+            return null;
+        }
+        return HomeroomClassDTO.StudentRankDTO.builder()
+                .studentId(entry.studentId())
+                .studentName(student.getFullName())
+                .studentCode(student.getStudentCode())
+                .overallScore(Math.round(entry.score() * 100.0) / 100.0)
+                .rank(entry.position())
+                .build();
+    }
+    
     /**
      * Get detailed performance of a student across all subjects
      * For homeroom teacher to see complete picture
@@ -2,30 +2,78 @@ package org.example.estudebackendspring.service;
 
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.example.estudebackendspring.config.JwtTokenUtil;
 import org.example.estudebackendspring.entity.JwtBlacklist;
 import org.example.estudebackendspring.repository.JwtBlacklistRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Revocation index cho JWT.
+ * - Bảng jwt_blacklist là nguồn dữ liệu gốc (persist khi logout)
+ * - Trong bộ nhớ giữ map SHA-256(token) -> expiresAt (epoch millis), nạp lúc khởi động
+ * - isBlacklisted() chỉ đọc map, không chạm DB (được gọi trong JwtAuthenticationFilter mỗi request);
+ *   trước khi nạp xong lần đầu thì hỏi thẳng DB
+ * - Đồng bộ ngắn hạn (security.jwt-blacklist.sync-interval-ms, vài giây): nạp token bị thu hồi ở instance khác
+ * - Sweep định kỳ: xoá dòng hết hạn trong DB và compact map
+ */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class JwtBlacklistService {
 
+    // Thời gian chồng lấn khi đồng bộ delta, bù lệch đồng hồ giữa các instance
+    private static final long SYNC_OVERLAP_SECONDS = 60L;
+
     private final JwtBlacklistRepository jwtBlacklistRepository;
     private final JwtTokenUtil jwtTokenUtil;
 
+    private volatile ConcurrentHashMap<String, Long> revoked = new ConcurrentHashMap<>();
+    private volatile LocalDateTime lastSyncAt;
+    private volatile boolean loaded;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadIndex() {
+        LocalDateTime now = LocalDateTime.now();
+        List<JwtBlacklist> active = jwtBlacklistRepository.findByExpiresAtAfter(now);
+        ConcurrentHashMap<String, Long> index = new ConcurrentHashMap<>(Math.max(16, active.size() * 2));
+        for (JwtBlacklist entry : active) {
+            index.put(hash(entry.getToken()), toEpochMillis(entry.getExpiresAt()));
+        }
+        revoked = index;
+        lastSyncAt = now;
+        loaded = true;
+        log.info("Loaded {} revoked JWT(s) into blacklist index", index.size());
+    }
+
     /**
      * Add token to blacklist. expiresAt should be token expiry time to enable cleanup later.
      */
     public void blacklistToken(String token) {
+        String key = hash(token);
         // If token already blacklisted, do nothing
-        if (jwtBlacklistRepository.findByToken(token).isPresent()) return;
+        if (revoked.containsKey(key) || jwtBlacklistRepository.existsByToken(token)) {
+            revoked.putIfAbsent(key, expiryMillis(token));
+            return;
+        }
 
         // Parse expiry from token
         java.util.Date exp = jwtTokenUtil.getAllClaimsFromToken(token).getExpiration();
-        LocalDateTime expiresAt = exp.toInstant().atZone(java.time.ZoneId.systemDefault()).toLocalDateTime();
+        LocalDateTime expiresAt = exp.toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime();
 
         JwtBlacklist entry = JwtBlacklist.builder()
                 .token(token)
@@ -33,17 +81,88 @@ public class JwtBlacklistService {
                 .expiresAt(expiresAt)
                 .build();
 
-        jwtBlacklistRepository.save(entry);
+        try {
+            jwtBlacklistRepository.save(entry);
+        } catch (DataIntegrityViolationException e) {
+            // Logout song song cùng token: dòng đã tồn tại (unique token), chỉ cần cập nhật index
+            log.debug("Token already blacklisted concurrently");
+        }
+        revoked.put(key, exp.getTime());
     }
 
     public boolean isBlacklisted(String token) {
-        return jwtBlacklistRepository.findByToken(token).isPresent();
+        Long expiresAt = revoked.get(hash(token));
+        if (expiresAt != null) {
+            return expiresAt > System.currentTimeMillis();
+        }
+        // Index chưa nạp (đang khởi động): DB là nguồn đúng
+        return !loaded && jwtBlacklistRepository.existsByToken(token);
+    }
+
+    /**
+     * Nạp token bị thu hồi ở instance khác kể từ lần đồng bộ trước (chồng lấn SYNC_OVERLAP_SECONDS)
+     */
+    @Scheduled(fixedDelayString = "${security.jwt-blacklist.sync-interval-ms:5000}",
+            initialDelayString = "${security.jwt-blacklist.sync-interval-ms:5000}")
+    public void syncRecent() {
+        if (!loaded) return;
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime since = lastSyncAt.minusSeconds(SYNC_OVERLAP_SECONDS);
+        List<JwtBlacklist> recent = jwtBlacklistRepository.findByBlacklistedAtAfterAndExpiresAtAfter(since, now);
+        ConcurrentHashMap<String, Long> index = revoked;
+        for (JwtBlacklist entry : recent) {
+            index.putIfAbsent(hash(entry.getToken()), toEpochMillis(entry.getExpiresAt()));
+        }
+        lastSyncAt = now;
     }
 
     /**
      * Optional maintenance: remove expired blacklist entries.
+     * Chạy định kỳ: xoá dòng hết hạn và compact index (đồng bộ giữa các instance do syncRecent()).
      */
+    @Scheduled(fixedDelayString = "${security.jwt-blacklist.sweep-interval-ms:600000}",
+            initialDelayString = "${security.jwt-blacklist.sweep-interval-ms:600000}")
+    @Transactional
     public void removeExpired() {
-        jwtBlacklistRepository.deleteByExpiresAtBefore(LocalDateTime.now());
+        LocalDateTime now = LocalDateTime.now();
+        int deleted = jwtBlacklistRepository.deleteExpiredBefore(now);
+
+        // Compact: dựng lại map chỉ với các entry còn hạn (ConcurrentHashMap không tự thu nhỏ bảng)
+        long nowMillis = System.currentTimeMillis();
+        ConcurrentHashMap<String, Long> current = revoked;
+        ConcurrentHashMap<String, Long> compacted = new ConcurrentHashMap<>(Math.max(16, current.size()));
+        current.forEach((key, exp) -> {
+            if (exp > nowMillis) compacted.put(key, exp);
+        });
+        revoked = compacted;
+        // Token được thêm vào map cũ trong lúc compact vẫn phải được giữ lại
+        // (nếu lọt, lần syncRecent() sau cũng nạp lại từ DB nhờ khoảng chồng lấn)
+        current.forEach((key, exp) -> {
+            if (exp > nowMillis) compacted.putIfAbsent(key, exp);
+        });
+
+        log.info("JWT blacklist sweep: deleted {} expired row(s), index size {} (was {})",
+                deleted, compacted.size(), current.size());
+    }
+
+    public int indexSize() {
+        return revoked.size();
+    }
+
+    private long expiryMillis(String token) {
+        return jwtTokenUtil.getAllClaimsFromToken(token).getExpiration().getTime();
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
-}
\ No newline at end of file
+}
@@ -2,8 +2,6 @@ package org.example.estudebackendspring.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import jakarta.annotation.PostConstruct;
-import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.example.estudebackendspring.dto.learning.*;
@@ -14,14 +12,12 @@ import org.example.estudebackendspring.enums.AnalysisType;
 import org.example.estudebackendspring.repository.AIAnalysisRequestRepository;
 import org.example.estudebackendspring.repository.AIAnalysisResultRepository;
 import org.example.estudebackendspring.repository.StudentRepository;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 import java.time.LocalDateTime;
 
@@ -32,52 +28,38 @@ public class LearningLoopService {
     private final StudentRepository studentRepository;
     private final AIAnalysisRequestRepository requestRepository;
     private final AIAnalysisResultRepository resultRepository;
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final AIJobService aiJobService;
+    private final AIServiceClient aiServiceClient;
     private final ObjectMapper objectMapper;
 
     public LearningLoopService(StudentRepository studentRepository,
                                AIAnalysisRequestRepository requestRepository,
-                               AIAnalysisResultRepository resultRepository) {
+                               AIAnalysisResultRepository resultRepository,
+                               AIJobService aiJobService,
+                               AIServiceClient aiServiceClient) {
         this.studentRepository = studentRepository;
         this.requestRepository = requestRepository;
         this.resultRepository = resultRepository;
+        this.aiJobService = aiJobService;
+        this.aiServiceClient = aiServiceClient;
 
         //Khởi tạo ObjectMapper và đăng ký module xử lý LocalDateTime
         this.objectMapper = new ObjectMapper();
         this.objectMapper.registerModule(new JavaTimeModule());
     }
 
-    @Value("${ai.service.url}")
-    private String aiServiceUrl;
-    
-    private String FEEDBACK_URL;
-    private String RECOMMENDATION_URL;
-    private String PRACTICE_QUIZ_URL;
-    private String PRACTICE_REVIEW_URL;  // Layer 3.5
-    private String IMPROVEMENT_URL;
-    private String FULL_LOOP_URL;
-    private String ROADMAP_URL;  // Layer 5
-    
-    @PostConstruct
-    public void init() {
-        FEEDBACK_URL = aiServiceUrl + "/api/ai/learning-feedback";
-        RECOMMENDATION_URL = aiServiceUrl + "/api/ai/learning-recommendation";
-        PRACTICE_QUIZ_URL = aiServiceUrl + "/api/ai/generate-practice-quiz";
-        PRACTICE_REVIEW_URL = aiServiceUrl + "/api/ai/review-practice-results";  // Layer 3.5
-        IMPROVEMENT_URL = aiServiceUrl + "/api/ai/improvement-evaluation";
-        FULL_LOOP_URL = aiServiceUrl + "/api/ai/full-learning-loop";
-        ROADMAP_URL = aiServiceUrl + "/api/assessment/generate-learning-roadmap";  // Layer 5
-    }
-//        RECOMMENDATION_URL = aiServiceUrl + "/api/ai/learning-recommendation";
-//        PRACTICE_QUIZ_URL = aiServiceUrl + "/api/ai/generate-practice-quiz";
-//        IMPROVEMENT_URL = aiServiceUrl + "/api/ai/improvement-evaluation";
-//        FULL_LOOP_URL = aiServiceUrl + "/api/ai/full-learning-loop";
-//    }
+    // AI endpoints (base URL + pool/timeout/circuit breaker nằm trong AIServiceClient)
+    private static final String FEEDBACK_PATH = "/api/ai/learning-feedback";
+    private static final String RECOMMENDATION_PATH = "/api/ai/learning-recommendation";
+    private static final String PRACTICE_QUIZ_PATH = "/api/ai/generate-practice-quiz";
+    private static final String PRACTICE_REVIEW_PATH = "/api/ai/review-practice-results";  // Layer 3.5
+    private static final String IMPROVEMENT_PATH = "/api/ai/improvement-evaluation";
+    private static final String FULL_LOOP_PATH = "/api/ai/full-learning-loop";
+    private static final String ROADMAP_PATH = "/api/assessment/generate-learning-roadmap";  // Layer 5
     
     /**
      * Layer 1: Learning Feedback - Phân tích chi tiết từng câu hỏi
      */
-    @Transactional
     public FeedbackResponse getLearningFeedback(FeedbackRequest request) {
         log.info("Getting learning feedback for assignment: {}, student: {}", 
                 request.getAssessmentId(), request.getStudentName());
@@ -89,14 +71,30 @@ public class LearningLoopService {
             objectMapper.valueToTree(request)
         );
         
+        return processLearningFeedback(analysisRequest.getRequestId(), request);
+    }
+
+    /**
+     * Layer 1 (async): lưu request rồi trả jobId ngay, worker gọi AI sau
+     */
+    public AIJobResponse submitLearningFeedback(FeedbackRequest request) {
+        AIAnalysisRequest analysisRequest = saveAnalysisRequest(
+            request.getAssessmentId(),
+            AnalysisType.LEARNING_FEEDBACK,
+            objectMapper.valueToTree(request)
+        );
+        return aiJobService.submit(analysisRequest, () -> processLearningFeedback(analysisRequest.getRequestId(), request));
+    }
+
+    private FeedbackResponse processLearningFeedback(Long requestId, FeedbackRequest request) {
         try {
             // Gọi AI service
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_JSON);
             HttpEntity<FeedbackRequest> entity = new HttpEntity<>(request, headers);
             
-            ResponseEntity<FeedbackResponse> response = restTemplate.postForEntity(
-                FEEDBACK_URL, entity, FeedbackResponse.class
+            ResponseEntity<FeedbackResponse> response = aiServiceClient.postForEntity(
+                FEEDBACK_PATH, entity, FeedbackResponse.class
             );
             
             FeedbackResponse feedbackResponse = response.getBody();
@@ -104,7 +102,7 @@ public class LearningLoopService {
             if (feedbackResponse != null && feedbackResponse.getSuccess()) {
                 // Lưu result và lấy result_id
                 AIAnalysisResult savedResult = saveAnalysisResult(
-                    analysisRequest.getRequestId(),
+                    requestId,
                     objectMapper.valueToTree(feedbackResponse.getData()),
                     "Learning feedback completed successfully"
                 );
@@ -121,7 +119,7 @@ public class LearningLoopService {
         } catch (Exception ex) {
             log.error("Error getting learning feedback", ex);
             saveAnalysisResult(
-                analysisRequest.getRequestId(),
+                requestId,
                 null,
                 "Error: " + ex.getMessage()
             );
@@ -132,7 +130,6 @@ public class LearningLoopService {
     /**
      * Layer 2: Learning Recommendation - Đưa ra gợi ý học tập
      */
-    @Transactional
     public RecommendationResponse getLearningRecommendation(RecommendationRequest request) {
         log.info("Getting learning recommendation for student: {}", 
                 request.getFeedbackData().getStudentName());
@@ -144,17 +141,33 @@ public class LearningLoopService {
             objectMapper.valueToTree(request)
         );
         
+        return processLearningRecommendation(analysisRequest.getRequestId(), request);
+    }
+
+    /**
+     * Layer 2 (async): lưu request rồi trả jobId ngay, worker gọi AI sau
+     */
+    public AIJobResponse submitLearningRecommendation(RecommendationRequest request) {
+        AIAnalysisRequest analysisRequest = saveAnalysisRequest(
+            null,
+            AnalysisType.LEARNING_RECOMMENDATION,
+            objectMapper.valueToTree(request)
+        );
+        return aiJobService.submit(analysisRequest, () -> processLearningRecommendation(analysisRequest.getRequestId(), request));
+    }
+
+    private RecommendationResponse processLearningRecommendation(Long requestId, RecommendationRequest request) {
         try {
             // Gọi AI service
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_JSON);
             HttpEntity<RecommendationRequest> entity = new HttpEntity<>(request, headers);
             
-            log.debug("Calling AI recommendation service at: {}", RECOMMENDATION_URL);
+            log.debug("Calling AI recommendation service at: {}", RECOMMENDATION_PATH);
             
             // Get raw response as String first for debugging
-            ResponseEntity<String> rawResponse = restTemplate.postForEntity(
-                RECOMMENDATION_URL, entity, String.class
+            ResponseEntity<String> rawResponse = aiServiceClient.postForEntity(
+                RECOMMENDATION_PATH, entity, String.class
             );
             
             log.debug("Raw AI response: {}", rawResponse.getBody());
@@ -167,7 +180,7 @@ public class LearningLoopService {
             if (recommendationResponse != null && recommendationResponse.getSuccess()) {
                 // Lưu result
                 saveAnalysisResult(
-                    analysisRequest.getRequestId(),
+                    requestId,
                     objectMapper.valueToTree(recommendationResponse.getData()),
                     "Learning recommendation completed successfully"
                 );
@@ -178,7 +191,7 @@ public class LearningLoopService {
         } catch (Exception ex) {
             log.error("Error getting learning recommendation", ex);
             saveAnalysisResult(
-                analysisRequest.getRequestId(),
+                requestId,
                 null,
                 "Error: " + ex.getMessage()
             );
@@ -189,7 +202,6 @@ public class LearningLoopService {
     /**
      * Layer 3: Practice Quiz Generation - Sinh bộ câu hỏi luyện tập
      */
-    @Transactional
     public PracticeQuizResponse generatePracticeQuiz(PracticeQuizRequest request) {
         log.info("Generating practice quiz for subject: {}, topics: {}", 
                 request.getSubject(), request.getTopics());
@@ -201,14 +213,30 @@ public class LearningLoopService {
             objectMapper.valueToTree(request)
         );
         
+        return processPracticeQuiz(analysisRequest.getRequestId(), request);
+    }
+
+    /**
+     * Layer 3 (async): lưu request rồi trả jobId ngay, worker gọi AI sau
+     */
+    public AIJobResponse submitPracticeQuiz(PracticeQuizRequest request) {
+        AIAnalysisRequest analysisRequest = saveAnalysisRequest(
+            null,
+            AnalysisType.PRACTICE_QUIZ,
+            objectMapper.valueToTree(request)
+        );
+        return aiJobService.submit(analysisRequest, () -> processPracticeQuiz(analysisRequest.getRequestId(), request));
+    }
+
+    private PracticeQuizResponse processPracticeQuiz(Long requestId, PracticeQuizRequest request) {
         try {
             // Gọi AI service
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_JSON);
             HttpEntity<PracticeQuizRequest> entity = new HttpEntity<>(request, headers);
             
-            ResponseEntity<PracticeQuizResponse> response = restTemplate.postForEntity(
-                PRACTICE_QUIZ_URL, entity, PracticeQuizResponse.class
+            ResponseEntity<PracticeQuizResponse> response = aiServiceClient.postForEntity(
+                PRACTICE_QUIZ_PATH, entity, PracticeQuizResponse.class
             );
             
             PracticeQuizResponse quizResponse = response.getBody();
@@ -216,7 +244,7 @@ public class LearningLoopService {
             if (quizResponse != null && quizResponse.getSuccess()) {
                 // Lưu result
                 saveAnalysisResult(
-                    analysisRequest.getRequestId(),
+                    requestId,
                     objectMapper.valueToTree(quizResponse.getData()),
                     "Practice quiz generated successfully"
                 );
@@ -227,7 +255,7 @@ public class LearningLoopService {
         } catch (Exception ex) {
             log.error("Error generating practice quiz", ex);
             saveAnalysisResult(
-                analysisRequest.getRequestId(),
+                requestId,
                 null,
                 "Error: " + ex.getMessage()
             );
@@ -238,7 +266,6 @@ public class LearningLoopService {
     /**
      * Layer 3.5: Review Practice Results - Xem lại kết quả bài luyện tập
      */
-    @Transactional
     public ReviewPracticeResponse reviewPracticeResults(ReviewPracticeRequest request) {
         log.info("Reviewing practice results for student: {}, subject: {}", 
                 request.getStudentName(), request.getSubject());
@@ -250,14 +277,30 @@ public class LearningLoopService {
             objectMapper.valueToTree(request)
         );
         
+        return processPracticeReview(analysisRequest.getRequestId(), request);
+    }
+
+    /**
+     * Layer 3.5 (async): lưu request rồi trả jobId ngay, worker gọi AI sau
+     */
+    public AIJobResponse submitPracticeReview(ReviewPracticeRequest request) {
+        AIAnalysisRequest analysisRequest = saveAnalysisRequest(
+            null,
+            AnalysisType.PRACTICE_REVIEW,
+            objectMapper.valueToTree(request)
+        );
+        return aiJobService.submit(analysisRequest, () -> processPracticeReview(analysisRequest.getRequestId(), request));
+    }
+
+    private ReviewPracticeResponse processPracticeReview(Long requestId, ReviewPracticeRequest request) {
         try {
             // Gọi AI service
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_JSON);
             HttpEntity<ReviewPracticeRequest> entity = new HttpEntity<>(request, headers);
             
-            ResponseEntity<ReviewPracticeResponse> response = restTemplate.postForEntity(
-                PRACTICE_REVIEW_URL, entity, ReviewPracticeResponse.class
+            ResponseEntity<ReviewPracticeResponse> response = aiServiceClient.postForEntity(
+                PRACTICE_REVIEW_PATH, entity, ReviewPracticeResponse.class
             );
             
             ReviewPracticeResponse reviewResponse = response.getBody();
@@ -265,7 +308,7 @@ public class LearningLoopService {
             if (reviewResponse != null && reviewResponse.getSuccess()) {
                 // Lưu result và lấy result_id
                 AIAnalysisResult savedResult = saveAnalysisResult(
-                    analysisRequest.getRequestId(),
+                    requestId,
                     objectMapper.valueToTree(reviewResponse.getData()),
                     "Practice review completed successfully"
                 );
@@ -282,7 +325,7 @@ public class LearningLoopService {
         } catch (Exception ex) {
             log.error("Error reviewing practice results", ex);
             saveAnalysisResult(
-                analysisRequest.getRequestId(),
+                requestId,
                 null,
                 "Error: " + ex.getMessage()
             );
@@ -293,7 +336,6 @@ public class LearningLoopService {
     /**
      * Layer 4: Improvement Evaluation - Đánh giá tiến bộ
      */
-    @Transactional
     public ImprovementResponse evaluateImprovement(ImprovementRequest request) {
         log.info("Evaluating improvement for student: {}, subject: {}",
                 request.getStudentId(), request.getSubject());
@@ -305,14 +347,30 @@ public class LearningLoopService {
             objectMapper.valueToTree(request)
         );
         
+        return processImprovementEvaluation(analysisRequest.getRequestId(), request);
+    }
+
+    /**
+     * Layer 4 (async): lưu request rồi trả jobId ngay, worker gọi AI sau
+     */
+    public AIJobResponse submitImprovementEvaluation(ImprovementRequest request) {
+        AIAnalysisRequest analysisRequest = saveAnalysisRequest(
+            request.getStudentId().toString(),
+            AnalysisType.IMPROVEMENT_EVALUATION,
+            objectMapper.valueToTree(request)
+        );
+        return aiJobService.submit(analysisRequest, () -> processImprovementEvaluation(analysisRequest.getRequestId(), request));
+    }
+
+    private ImprovementResponse processImprovementEvaluation(Long requestId, ImprovementRequest request) {
         try {
             // Gọi AI service
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_JSON);
             HttpEntity<ImprovementRequest> entity = new HttpEntity<>(request, headers);
             
-            ResponseEntity<ImprovementResponse> response = restTemplate.postForEntity(
-                IMPROVEMENT_URL, entity, ImprovementResponse.class
+            ResponseEntity<ImprovementResponse> response = aiServiceClient.postForEntity(
+                IMPROVEMENT_PATH, entity, ImprovementResponse.class
             );
             
             ImprovementResponse improvementResponse = response.getBody();
@@ -320,7 +378,7 @@ public class LearningLoopService {
             if (improvementResponse != null && improvementResponse.getSuccess()) {
                 // Lưu result
                 saveAnalysisResult(
-                    analysisRequest.getRequestId(),
+                    requestId,
                     objectMapper.valueToTree(improvementResponse.getData()),
                     "Improvement evaluation completed successfully"
                 );
@@ -331,7 +389,7 @@ public class LearningLoopService {
         } catch (Exception ex) {
             log.error("Error evaluating improvement", ex);
             saveAnalysisResult(
-                analysisRequest.getRequestId(),
+                requestId,
                 null,
                 "Error: " + ex.getMessage()
             );
@@ -342,7 +400,6 @@ public class LearningLoopService {
     /**
      * Full Learning Loop - Chạy toàn bộ Layer 1, 2, 3 cùng lúc
      */
-    @Transactional
     public FullLearningLoopResponse runFullLearningLoop(FeedbackRequest request) {
         log.info("Running full learning loop for assignment: {}, student: {}", 
                 request.getAssessmentId(), request.getStudentName());
@@ -354,14 +411,30 @@ public class LearningLoopService {
             objectMapper.valueToTree(request)
         );
         
+        return processFullLearningLoop(analysisRequest.getRequestId(), request);
+    }
+
+    /**
+     * Full loop (async): lưu request rồi trả jobId ngay, worker gọi AI sau
+     */
+    public AIJobResponse submitFullLearningLoop(FeedbackRequest request) {
+        AIAnalysisRequest analysisRequest = saveAnalysisRequest(
+            request.getAssessmentId(),
+            AnalysisType.FULL_LEARNING_LOOP,
+            objectMapper.valueToTree(request)
+        );
+        return aiJobService.submit(analysisRequest, () -> processFullLearningLoop(analysisRequest.getRequestId(), request));
+    }
+
+    private FullLearningLoopResponse processFullLearningLoop(Long requestId, FeedbackRequest request) {
         try {
             // Gọi AI service
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_JSON);
             HttpEntity<FeedbackRequest> entity = new HttpEntity<>(request, headers);
             
-            ResponseEntity<FullLearningLoopResponse> response = restTemplate.postForEntity(
-                FULL_LOOP_URL, entity, FullLearningLoopResponse.class
+            ResponseEntity<FullLearningLoopResponse> response = aiServiceClient.postForEntity(
+                FULL_LOOP_PATH, entity, FullLearningLoopResponse.class
             );
             
             FullLearningLoopResponse loopResponse = response.getBody();
@@ -369,7 +442,7 @@ public class LearningLoopService {
             if (loopResponse != null && loopResponse.getSuccess()) {
                 // Lưu result
                 saveAnalysisResult(
-                    analysisRequest.getRequestId(),
+                    requestId,
                     objectMapper.valueToTree(loopResponse.getData()),
                     "Full learning loop completed successfully"
                 );
@@ -380,7 +453,7 @@ public class LearningLoopService {
         } catch (Exception ex) {
             log.error("Error running full learning loop", ex);
             saveAnalysisResult(
-                analysisRequest.getRequestId(),
+                requestId,
                 null,
                 "Error: " + ex.getMessage()
             );
@@ -391,7 +464,6 @@ public class LearningLoopService {
     /**
      * Layer 5: Learning Roadmap Generation - Tạo lộ trình học tập cá nhân hóa
      */
-    @Transactional
     public RoadmapResponse generateLearningRoadmap(RoadmapRequest request) {
         log.info("Generating learning roadmap for student: {}, subject: {}", 
                 request.getStudentId(), request.getSubject());
@@ -403,17 +475,33 @@ public class LearningLoopService {
             objectMapper.valueToTree(request)
         );
         
+        return processLearningRoadmap(analysisRequest.getRequestId(), request);
+    }
+
+    /**
+     * Layer 5 (async): lưu request rồi trả jobId ngay, worker gọi AI sau
+     */
+    public AIJobResponse submitLearningRoadmap(RoadmapRequest request) {
+        AIAnalysisRequest analysisRequest = saveAnalysisRequest(
+            request.getStudentId().toString(),
+            AnalysisType.LEARNING_ROADMAP,
+            objectMapper.valueToTree(request)
+        );
+        return aiJobService.submit(analysisRequest, () -> processLearningRoadmap(analysisRequest.getRequestId(), request));
+    }
+
+    private RoadmapResponse processLearningRoadmap(Long requestId, RoadmapRequest request) {
         try {
             // Gọi AI service
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_JSON);
             HttpEntity<RoadmapRequest> entity = new HttpEntity<>(request, headers);
             
-            log.debug("Calling AI roadmap service at: {}", ROADMAP_URL);
+            log.debug("Calling AI roadmap service at: {}", ROADMAP_PATH);
             
             // Get raw response as String first for debugging
-            ResponseEntity<String> rawResponse = restTemplate.postForEntity(
-                ROADMAP_URL, entity, String.class
+            ResponseEntity<String> rawResponse = aiServiceClient.postForEntity(
+                ROADMAP_PATH, entity, String.class
             );
             
             log.debug("Raw AI roadmap response: {}", rawResponse.getBody());
@@ -426,7 +514,7 @@ public class LearningLoopService {
             if (roadmapResponse != null && roadmapResponse.getSuccess()) {
                 // Lưu result và lấy result_id
                 AIAnalysisResult savedResult = saveAnalysisResult(
-                    analysisRequest.getRequestId(),
+                    requestId,
                     objectMapper.valueToTree(roadmapResponse.getData()),
                     "Learning roadmap generated successfully"
                 );
@@ -443,7 +531,7 @@ public class LearningLoopService {
         } catch (Exception ex) {
             log.error("Error generating learning roadmap", ex);
             saveAnalysisResult(
-                analysisRequest.getRequestId(),
+                requestId,
                 null,
                 "Error: " + ex.getMessage()
             );
@@ -511,6 +599,8 @@ public class LearningLoopService {
     
     /**
      * Helper method: Lưu analysis result
+     * Mỗi lần lưu là 1 transaction ngắn của repository: các hàm process* gọi AI ngoài transaction
+     * để không giữ connection khi chờ AI
      */
     private AIAnalysisResult saveAnalysisResult(Long requestId, Object data, String comment) {
         AIAnalysisResult result = new AIAnalysisResult();
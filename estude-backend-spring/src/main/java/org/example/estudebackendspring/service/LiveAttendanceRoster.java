@@ -0,0 +1,174 @@
+package org.example.estudebackendspring.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.estudebackendspring.dto.AttendanceRosterDeltaDTO;
+import org.example.estudebackendspring.entity.AttendanceSession;
+import org.example.estudebackendspring.enums.AttendanceStatus;
+import org.example.estudebackendspring.repository.AttendanceRecordRepository;
+import org.example.estudebackendspring.repository.EnrollmentRepository;
+import org.example.estudebackendspring.until.TransactionUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Danh sách điểm danh "sống" của các buổi đang mở, giữ trong bộ nhớ:
+ * - tập học sinh ghi danh của lớp: kiểm tra ghi danh O(1) thay vì tải cả danh sách Enrollment mỗi lần điểm danh
+ * - trạng thái đã biết của từng học sinh: chặn sớm điểm danh trùng, chỉ broadcast học sinh đổi trạng thái
+ *   ({@link AttendanceRosterDeltaDTO}) tới /topic/class/{classSubjectId}/sessions
+ *
+ * Dựng khi tạo buổi (sau commit) hoặc nạp lại khi cần (khởi động lại, instance khác tạo buổi).
+ * Bản ghi điểm danh vẫn được lưu ngay khi điểm danh; bộ nhớ chỉ là lớp tăng tốc, DB là nguồn đúng.
+ *
+ * Sau endTime + attendance.roster.expire-after roster không còn dùng (điểm danh muộn hỏi thẳng DB),
+ * {@link #evictEndedSessions()} bỏ nó khỏi bộ nhớ. Roster không tự ghi bản ghi điểm danh nào.
+ */
+@Slf4j
+@Component
+public class LiveAttendanceRoster {
+
+    private final AttendanceRecordRepository attendanceRecordRepository;
+    private final EnrollmentRepository enrollmentRepository;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final Duration expireAfter;
+
+    private final ConcurrentHashMap<Long, Roster> rosters = new ConcurrentHashMap<>();
+
+    public LiveAttendanceRoster(AttendanceRecordRepository attendanceRecordRepository,
+                                EnrollmentRepository enrollmentRepository,
+                                SimpMessagingTemplate messagingTemplate,
+                                @Value("${attendance.roster.expire-after:PT2H}") Duration expireAfter) {
+        this.attendanceRecordRepository = attendanceRecordRepository;
+        this.enrollmentRepository = enrollmentRepository;
+        this.messagingTemplate = messagingTemplate;
+        this.expireAfter = expireAfter;
+    }
+
+    /**
+     * Buổi vừa tạo: dựng roster từ danh sách ghi danh của lớp, có hiệu lực sau khi transaction commit
+     */
+    public void open(AttendanceSession session) {
+        Roster roster = new Roster(session.getSessionId(), session.getClassSubject().getClassSubjectId(),
+                classIdOf(session), session.getEndTime(),
+                Set.copyOf(enrollmentRepository.findStudentIdsByClassId(classIdOf(session))));
+        TransactionUtils.afterCommit(() -> rosters.put(roster.sessionId, roster));
+    }
+
+    /**
+     * Học sinh có ghi danh vào lớp của buổi không. Buổi đã quá hạn thì hỏi thẳng DB.
+     */
+    public boolean isEnrolled(AttendanceSession session, Long studentId) {
+        Roster roster = roster(session);
+        if (roster != null) {
+            return roster.enrolled.contains(studentId);
+        }
+        return enrollmentRepository.existsByStudentIdAndClassId(studentId, classIdOf(session));
+    }
+
+    /**
+     * Trạng thái đã biết trong bộ nhớ, null nếu chưa có (hoặc roster không nạp): khi null phải kiểm tra DB
+     */
+    public AttendanceStatus knownStatus(AttendanceSession session, Long studentId) {
+        Roster roster = roster(session);
+        return roster != null ? roster.statuses.get(studentId) : null;
+    }
+
+    /**
+     * Bản ghi điểm danh vừa lưu: cập nhật roster và broadcast delta sau khi transaction commit
+     */
+    public void onMarked(AttendanceSession session, Long studentId, AttendanceStatus status) {
+        Roster roster = roster(session);
+        if (roster == null) return;
+        TransactionUtils.afterCommit(() -> {
+            AttendanceStatus previous = roster.statuses.put(studentId, status);
+            if (previous != status) {
+                broadcast(roster.sessionId, roster.classSubjectId,
+                        List.of(new AttendanceRosterDeltaDTO.Change(studentId, status)));
+            }
+        });
+    }
+
+    /**
+     * Buổi bị sửa (giờ kết thúc) hoặc xoá: bỏ roster, lần sau nạp lại
+     */
+    public void evict(Long sessionId) {
+        TransactionUtils.afterCommit(() -> rosters.remove(sessionId));
+    }
+
+    /**
+     * Ghi danh của lớp thay đổi: bỏ roster các buổi của lớp
+     */
+    public void evictClass(Long classId) {
+        TransactionUtils.afterCommit(() -> rosters.values().removeIf(r -> r.classId.equals(classId)));
+    }
+
+    /**
+     * Bỏ khỏi bộ nhớ roster của các buổi đã quá endTime + expire-after
+     */
+    @Scheduled(fixedDelayString = "${attendance.roster.evict-interval-ms:60000}")
+    public void evictEndedSessions() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(expireAfter);
+        rosters.values().removeIf(r -> r.endTime != null && r.endTime.isBefore(cutoff));
+    }
+
+    // Roster của buổi còn mở, nạp nếu chưa có; null nếu buổi đã quá hạn điểm danh
+    private Roster roster(AttendanceSession session) {
+        if (session.getEndTime() != null && LocalDateTime.now().isAfter(session.getEndTime().plus(expireAfter))) {
+            rosters.remove(session.getSessionId());
+            return null;
+        }
+        Roster roster = rosters.get(session.getSessionId());
+        if (roster != null) return roster;
+
+        Long classId = classIdOf(session);
+        Roster loaded = new Roster(session.getSessionId(), session.getClassSubject().getClassSubjectId(),
+                classId, session.getEndTime(), Set.copyOf(enrollmentRepository.findStudentIdsByClassId(classId)));
+        for (Object[] r : attendanceRecordRepository.findStatusesBySessionId(session.getSessionId())) {
+            if (r[1] != null) loaded.statuses.put(((Number) r[0]).longValue(), (AttendanceStatus) r[1]);
+        }
+        Roster existing = rosters.putIfAbsent(loaded.sessionId, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    private void broadcast(Long sessionId, Long classSubjectId, List<AttendanceRosterDeltaDTO.Change> changes) {
+        AttendanceRosterDeltaDTO delta = AttendanceRosterDeltaDTO.builder()
+                .sessionId(sessionId)
+                .classSubjectId(classSubjectId)
+                .changes(changes)
+                .timestamp(LocalDateTime.now())
+                .build();
+        try {
+            messagingTemplate.convertAndSend("/topic/class/" + classSubjectId + "/sessions", delta);
+        } catch (RuntimeException e) {
+            log.warn("Broadcasting roster delta for session {} failed: {}", sessionId, e.getMessage());
+        }
+    }
+
+    private static Long classIdOf(AttendanceSession session) {
+        return session.getClassSubject().getTerm().getClazz().getClassId();
+    }
+
+    private static final class Roster {
+        final Long sessionId;
+        final Long classSubjectId;
+        final Long classId;
+        final LocalDateTime endTime;
+        final Set<Long> enrolled;
+        // studentId -> trạng thái đã biết
+        final ConcurrentHashMap<Long, AttendanceStatus> statuses = new ConcurrentHashMap<>();
+
+        Roster(Long sessionId, Long classSubjectId, Long classId, LocalDateTime endTime, Set<Long> enrolled) {
+            this.sessionId = sessionId;
+            this.classSubjectId = classSubjectId;
+            this.classId = classId;
+            this.endTime = endTime;
+            this.enrolled = enrolled;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.example.estudebackendspring.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.estudebackendspring.entity.LogEntry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bộ đệm ghi log_entries: {@link #append} chỉ đưa vào hàng đợi (không chặn request),
+ * định kỳ ghi xuống DB bằng JDBC batch.
+ * - Hàng đợi đầy (DB chậm / mất kết nối lâu): bỏ log mới và đếm số log bị bỏ
+ * - Batch lỗi: ghi lại từng dòng, dòng vẫn lỗi thì bỏ (tránh 1 dòng hỏng chặn cả hàng đợi)
+ * - Tắt ứng dụng: ghi nốt phần còn lại
+ */
+@Slf4j
+@Component
+public class LogEntryAppender {
+
+    private static final String INSERT_SQL = """
+        INSERT INTO log_entries
+            (entity, entity_id, timestamp, content, action_type, related_entity_id, related_entity, user_id)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BlockingQueue<LogEntry> queue;
+    private final int batchSize;
+    private final AtomicLong dropped = new AtomicLong();
+
+    public LogEntryAppender(JdbcTemplate jdbcTemplate,
+                            @Value("${audit-log.buffer-capacity:10000}") int capacity,
+                            @Value("${audit-log.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Đưa log vào hàng đợi, không chặn; false nếu hàng đợi đầy và log bị bỏ
+     */
+    public boolean append(LogEntry entry) {
+        if (queue.offer(entry)) return true;
+        long total = dropped.incrementAndGet();
+        log.warn("Audit log buffer full, dropped entry {} #{} (total dropped: {})",
+                entry.getEntity(), entry.getEntityId(), total);
+        return false;
+    }
+
+    @Scheduled(fixedDelayString = "${audit-log.flush-interval-ms:1000}")
+    public void flush() {
+        List<LogEntry> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    public int pending() {
+        return queue.size();
+    }
+
+    public long droppedCount() {
+        return dropped.get();
+    }
+
+    private void write(List<LogEntry> batch) {
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch.stream().map(LogEntryAppender::toRow).toList());
+        } catch (RuntimeException e) {
+            log.warn("Audit log batch of {} failed, retrying row by row: {}", batch.size(), e.getMessage());
+            for (LogEntry entry : batch) {
+                try {
+                    jdbcTemplate.update(INSERT_SQL, toRow(entry));
+                } catch (RuntimeException rowError) {
+                    dropped.incrementAndGet();
+                    log.error("Dropping audit log {} #{}: {}", entry.getEntity(), entry.getEntityId(), rowError.getMessage());
+                }
+            }
+        }
+    }
+
+    private static Object[] toRow(LogEntry e) {
+        return new Object[]{
+                e.getEntity(),
+                e.getEntityId(),
+                e.getTimestamp() != null ? Timestamp.valueOf(e.getTimestamp()) : null,
+                e.getContent(),
+                e.getActionType() != null ? e.getActionType().name() : null,
+                e.getRelatedEntityId(),
+                e.getRelatedEntity(),
+                e.getUser() != null ? e.getUser().getUserId() : null
+        };
+    }
+}
@@ -1,5 +1,7 @@
 package org.example.estudebackendspring.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.estudebackendspring.dto.CursorPageResponse;
 import org.example.estudebackendspring.dto.LogEntryDTO;
 import org.example.estudebackendspring.dto.UserDTO;
 import org.example.estudebackendspring.entity.LogEntry;
@@ -8,22 +10,35 @@ import org.example.estudebackendspring.enums.ActionType;
 import org.example.estudebackendspring.mapper.UserMapper;
 import org.example.estudebackendspring.repository.LogEntryRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Service
 public class LogEntryService {
+    public static final int MAX_PAGE_SIZE = 200;
+    private static final int EXPORT_PAGE_SIZE = 1000;
+    private static final byte[] NEWLINE = {'\n'};
+
     private final LogEntryRepository logEntryRepository;
     private final UserMapper userMapper;
+    private final LogEntryAppender logEntryAppender;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public LogEntryService(LogEntryRepository logEntryRepository, UserMapper userMapper) {
+    public LogEntryService(LogEntryRepository logEntryRepository, UserMapper userMapper,
+                           LogEntryAppender logEntryAppender, ObjectMapper objectMapper) {
         this.logEntryRepository = logEntryRepository;
         this.userMapper = userMapper;
+        this.logEntryAppender = logEntryAppender;
+        this.objectMapper = objectMapper;
     }
 
+    // Ghi qua LogEntryAppender (không chặn request): log được lưu ở lần flush kế tiếp nên logId còn null
     public LogEntry createLog(String entity, Long entityId, String content, ActionType actionType, Long relatedEntityId,String relatedEntity, User user) {
         LogEntry log = new LogEntry();
         log.setEntity(entity);
@@ -35,30 +50,75 @@ public class LogEntryService {
         log.setTimestamp(LocalDateTime.now());
         log.setUser(user);
 
-        return logEntryRepository.save(log);
+        logEntryAppender.append(log);
+        return log;
+    }
+
+    /**
+     * 1 trang log, mới nhất trước (keyset theo logId). Mọi bộ lọc đều tuỳ chọn.
+     *
+     * @param cursor nextCursor của trang trước, null = trang đầu
+     * @param from   thời điểm bắt đầu (bao gồm)
+     * @param to     thời điểm kết thúc (không bao gồm)
+     */
+    public CursorPageResponse<LogEntryDTO> getLogs(String entity, Long userId, LocalDateTime from, LocalDateTime to,
+                                                   Long cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        // Lấy dư 1 dòng để biết còn trang sau hay không
+        List<LogEntry> rows = logEntryRepository.findPage(cursor, entity, userId, from, to, PageRequest.of(0, pageSize + 1));
+        boolean last = rows.size() <= pageSize;
+        List<LogEntry> page = last ? rows : rows.subList(0, pageSize);
+
+        return CursorPageResponse.<LogEntryDTO>builder()
+                .content(page.stream().map(this::toDTO).toList())
+                .pageSize(pageSize)
+                .nextCursor(last || page.isEmpty() ? null : String.valueOf(page.get(page.size() - 1).getLogId()))
+                .last(last)
+                .build();
     }
-    public List<LogEntryDTO> getAllLogs() {
-        List<LogEntry> logs = logEntryRepository.findAllWithUser();
 
-        return logs.stream().map(log -> {
-            User user = log.getUser();
-            UserDTO userDTO = null;
-            if (user != null) {
-                userDTO = userMapper.toDTO(user);
+    /**
+     * Xuất log theo bộ lọc dạng NDJSON (1 JSON / dòng), mới nhất trước.
+     * Đọc từng trang keyset và ghi ra ngay: bộ nhớ chỉ giữ 1 trang, không giữ transaction dài.
+     *
+     * @return số log đã xuất
+     */
+    public long exportLogs(String entity, Long userId, LocalDateTime from, LocalDateTime to,
+                           OutputStream out) throws IOException {
+        long exported = 0;
+        Long cursor = null;
+        while (true) {
+            List<LogEntry> rows = logEntryRepository.findPage(cursor, entity, userId, from, to,
+                    PageRequest.of(0, EXPORT_PAGE_SIZE));
+            for (LogEntry log : rows) {
+                out.write(objectMapper.writeValueAsBytes(toDTO(log)));
+                out.write(NEWLINE);
             }
+            out.flush();
+            exported += rows.size();
+            if (rows.size() < EXPORT_PAGE_SIZE) return exported;
+            cursor = rows.get(rows.size() - 1).getLogId();
+        }
+    }
+
+    private LogEntryDTO toDTO(LogEntry log) {
+        User user = log.getUser();
+        UserDTO userDTO = null;
+        if (user != null) {
+            userDTO = userMapper.toDTO(user);
+        }
 
-            return new LogEntryDTO(
-                    log.getLogId(),
-                    log.getEntity(),
-                    log.getEntityId(),
-                    log.getTimestamp(),
-                    log.getContent(),
-                    log.getActionType() != null ? log.getActionType().name() : null,
-                    log.getRelatedEntityId(),
-                    log.getRelatedEntity(),
-                    userDTO
-            );
-        }).toList();
+        return new LogEntryDTO(
+                log.getLogId(),
+                log.getEntity(),
+                log.getEntityId(),
+                log.getTimestamp(),
+                log.getContent(),
+                log.getActionType() != null ? log.getActionType().name() : null,
+                log.getRelatedEntityId(),
+                log.getRelatedEntity(),
+                userDTO
+        );
     }
 
 
@@ -0,0 +1,171 @@
+package org.example.estudebackendspring.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.estudebackendspring.dto.NotificationPushMessage;
+import org.example.estudebackendspring.dto.NotificationRecipientDto;
+import org.example.estudebackendspring.entity.UserNotificationCounter;
+import org.example.estudebackendspring.repository.UserNotificationCounterRepository;
+import org.example.estudebackendspring.until.TransactionUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Đẩy thông báo tới client qua STOMP (/topic/user/{userId}/notifications) sau khi transaction commit.
+ * Chỉ chính user đó subscribe được (client gửi JWT trong frame CONNECT, xem StompAuthChannelInterceptor).
+ * - Gộp theo user: mọi thông báo mới của 1 user giữa 2 lần gửi đi chung 1 frame, kèm số chưa đọc
+ *   đọc từ user_notification_counters lúc gửi (1 query / lô)
+ *   (tối đa notification-push.max-items-per-user thông báo, còn lại đánh dấu truncated)
+ * - Gửi theo lô mỗi notification-push.flush-interval-ms, tối đa notification-push.batch-size user / lần;
+ *   hàng đợi gửi xuống client (stompOutboundExecutor) vượt notification-push.max-outbound-queue thì dừng,
+ *   phần còn lại tiếp tục gộp và gửi ở lần sau (thông báo toàn trường không làm nghẽn broker)
+ * Push chỉ là tín hiệu: nguồn dữ liệu vẫn là inbox (NotificationService), client tải lại khi cần.
+ */
+@Slf4j
+@Service
+public class NotificationPushService {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final UserNotificationCounterRepository counterRepository;
+    private final ThreadPoolTaskExecutor outboundExecutor;
+    private final int batchSize;
+    private final int maxItemsPerUser;
+    private final int maxOutboundQueue;
+
+    // userId -> frame đang chờ gửi; chỉ sửa bên trong compute() nên an toàn giữa các thread
+    private final ConcurrentHashMap<Long, Pending> pending = new ConcurrentHashMap<>();
+
+    public NotificationPushService(SimpMessagingTemplate messagingTemplate,
+                                   UserNotificationCounterRepository counterRepository,
+                                   @Qualifier("stompOutboundExecutor") ThreadPoolTaskExecutor outboundExecutor,
+                                   @Value("${notification-push.batch-size:1000}") int batchSize,
+                                   @Value("${notification-push.max-items-per-user:20}") int maxItemsPerUser,
+                                   @Value("${notification-push.max-outbound-queue:2000}") int maxOutboundQueue) {
+        this.messagingTemplate = messagingTemplate;
+        this.counterRepository = counterRepository;
+        this.outboundExecutor = outboundExecutor;
+        this.batchSize = batchSize;
+        this.maxItemsPerUser = maxItemsPerUser;
+        this.maxOutboundQueue = maxOutboundQueue;
+    }
+
+    /**
+     * 1 người nhận của thông báo vừa fan-out
+     */
+    public record Recipient(Long userId, Long notificationRecipientId) {
+    }
+
+    /**
+     * Xếp hàng push cho các người nhận sau khi transaction commit
+     *
+     * @param notification nội dung chung của thông báo (notificationRecipientId được điền theo từng người nhận)
+     */
+    public void publish(NotificationRecipientDto notification, List<Recipient> recipients) {
+        if (recipients.isEmpty()) return;
+        TransactionUtils.afterCommit(() -> {
+            for (Recipient r : recipients) {
+                NotificationRecipientDto item = copyFor(notification, r.notificationRecipientId());
+                pending.compute(r.userId(), (k, p) -> {
+                    if (p == null) p = new Pending();
+                    p.add(item, maxItemsPerUser);
+                    return p;
+                });
+            }
+        });
+    }
+
+    /**
+     * Số chưa đọc của user thay đổi (đánh dấu đã đọc / chưa đọc): đồng bộ biểu tượng chuông trên các thiết bị khác
+     */
+    public void publishUnreadCount(Long userId) {
+        TransactionUtils.afterCommit(() -> pending.computeIfAbsent(userId, k -> new Pending()));
+    }
+
+    @Scheduled(fixedDelayString = "${notification-push.flush-interval-ms:500}")
+    public void flush() {
+        if (pending.isEmpty() || outboundBacklog() > maxOutboundQueue) return;
+
+        // Lấy 1 lô user ra khỏi hàng chờ
+        Map<Long, Pending> batch = new LinkedHashMap<>();
+        Iterator<Long> userIds = pending.keySet().iterator();
+        while (userIds.hasNext() && batch.size() < batchSize) {
+            Long userId = userIds.next();
+            Pending p = pending.remove(userId);
+            if (p != null) batch.put(userId, p);
+        }
+        if (batch.isEmpty()) return;
+
+        Map<Long, Long> unreadCounts = new HashMap<>(batch.size() * 2);
+        for (UserNotificationCounter c : counterRepository.findAllById(batch.keySet())) {
+            unreadCounts.put(c.getUserId(), c.getUnreadCount());
+        }
+
+        int sent = 0;
+        for (Iterator<Map.Entry<Long, Pending>> it = batch.entrySet().iterator(); it.hasNext(); ) {
+            if (sent > 0 && sent % 100 == 0 && outboundBacklog() > maxOutboundQueue) {
+                break;
+            }
+            Map.Entry<Long, Pending> e = it.next();
+            it.remove();
+            try {
+                messagingTemplate.convertAndSend("/topic/user/" + e.getKey() + "/notifications",
+                        e.getValue().toMessage(unreadCounts.getOrDefault(e.getKey(), 0L)));
+                sent++;
+            } catch (Exception ex) {
+                log.warn("Failed to push notifications to user {}: {}", e.getKey(), ex.getMessage());
+            }
+        }
+
+        // Broker đang nghẽn: trả phần chưa gửi về hàng chờ, gộp với thông báo mới đến trong lúc gửi
+        batch.forEach((userId, p) -> pending.merge(userId, p, (newer, older) -> older.merge(newer, maxItemsPerUser)));
+        log.debug("Pushed notification frames to {} users, {} deferred, {} pending",
+                sent, batch.size(), pending.size());
+    }
+
+    private int outboundBacklog() {
+        return outboundExecutor.getThreadPoolExecutor().getQueue().size();
+    }
+
+    private static NotificationRecipientDto copyFor(NotificationRecipientDto n, Long notificationRecipientId) {
+        return new NotificationRecipientDto(notificationRecipientId, n.getNotificationId(), n.getMessage(),
+                n.getSentAt(), false, n.getSender(), n.getType(), n.getPriority(), n.getTargetType(), n.getTargetId());
+    }
+
+    private static final class Pending {
+        // Mới nhất ở đầu
+        final Deque<NotificationRecipientDto> items = new ArrayDeque<>();
+        boolean truncated;
+
+        void add(NotificationRecipientDto item, int maxItems) {
+            items.addFirst(item);
+            if (items.size() > maxItems) {
+                items.removeLast();
+                truncated = true;
+            }
+        }
+
+        // this cũ hơn newer: giữ thứ tự mới nhất trước
+        Pending merge(Pending newer, int maxItems) {
+            Iterator<NotificationRecipientDto> oldestFirst = newer.items.descendingIterator();
+            while (oldestFirst.hasNext()) {
+                add(oldestFirst.next(), maxItems);
+            }
+            truncated |= newer.truncated;
+            return this;
+        }
+
+        NotificationPushMessage toMessage(long unreadCount) {
+            return NotificationPushMessage.builder()
+                    .unreadCount(unreadCount)
+                    .notifications(new ArrayList<>(items))
+                    .truncated(truncated)
+                    .build();
+        }
+    }
+}
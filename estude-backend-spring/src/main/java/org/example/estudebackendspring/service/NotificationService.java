@@ -1,57 +1,88 @@
 package org.example.estudebackendspring.service;
 
 import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
 import org.example.estudebackendspring.dto.*;
 import org.example.estudebackendspring.entity.Notification;
 import org.example.estudebackendspring.entity.NotificationRecipient;
 import org.example.estudebackendspring.entity.Teacher;
 import org.example.estudebackendspring.entity.User;
+import org.example.estudebackendspring.entity.UserNotificationCounter;
 import org.example.estudebackendspring.enums.NotificationTargetType;
 import org.example.estudebackendspring.enums.UserRole;
 import org.example.estudebackendspring.mapper.UserMapper;
 import org.example.estudebackendspring.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 public class NotificationService {
 
     private final NotificationRepository notificationRepository;
     private final NotificationRecipientRepository recipientRepository;
-    private final UserRepository userRepository;
-    private final ClazzRepository classRepository;
-    private final ClassSubjectRepository classSubjectRepository;
+    private final UserNotificationCounterRepository counterRepository;
+    private final NotificationPushService notificationPushService;
     private final PlatformTransactionManager txManager;
+    private final JdbcTemplate jdbcTemplate;
     private final UserMapper userMapper;
 
+    public static final int MAX_PAGE_SIZE = 100;
+
     @Autowired
     public NotificationService(
             NotificationRepository notificationRepository,
             NotificationRecipientRepository recipientRepository,
-            UserRepository userRepository,
-            ClazzRepository classRepository,
-            ClassSubjectRepository classSubjectRepository,
+            UserNotificationCounterRepository counterRepository,
+            NotificationPushService notificationPushService,
             PlatformTransactionManager txManager,
+            JdbcTemplate jdbcTemplate,
             UserMapper userMapper
     ) {
         this.notificationRepository = notificationRepository;
         this.recipientRepository = recipientRepository;
-        this.userRepository = userRepository;
-        this.classRepository = classRepository;
-        this.classSubjectRepository = classSubjectRepository;
+        this.counterRepository = counterRepository;
+        this.notificationPushService = notificationPushService;
         this.txManager = txManager;
+        this.jdbcTemplate = jdbcTemplate;
         this.userMapper = userMapper;
     }
 
+    /**
+     * Backfill cho dữ liệu trước khi có sent_at trên recipient, recipient_count và bộ đếm chưa đọc.
+     * Chạy 1 lần: bảng bộ đếm có dữ liệu nghĩa là đã backfill (mọi người nhận đều có dòng bộ đếm).
+     * Khoá bảng bộ đếm trong lúc kiểm tra / backfill: nhiều instance khởi động cùng lúc chạy lần lượt,
+     * thông báo mới tạo trong lúc đó chờ rồi cộng vào bộ đếm đã dựng.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillInboxData() {
+        new TransactionTemplate(txManager).executeWithoutResult(status -> {
+            jdbcTemplate.execute("LOCK TABLE user_notification_counters IN EXCLUSIVE MODE");
+            if (counterRepository.existsAny()) return;
+            int sentAt = recipientRepository.backfillSentAt();
+            int counts = notificationRepository.backfillRecipientCounts();
+            int counters = counterRepository.rebuildFromRecipients();
+            if (sentAt + counts + counters > 0) {
+                log.info("Notification inbox backfill: {} recipient sent_at, {} recipient counts, {} unread counters",
+                        sentAt, counts, counters);
+            }
+        });
+    }
+
     @Transactional
     public NotificationResponse createNotification(CreateNotificationRequest req, User sender) {
         if (req.getTargetType() == NotificationTargetType.SYSTEM) {
@@ -93,30 +124,12 @@ public class NotificationService {
 
         notificationRepository.save(n);
 
-        // Resolve recipients
-        List<Long> userIds = resolveRecipientUserIds(n);
-
-        // Deduplicate
-        Set<Long> unique = new LinkedHashSet<>(userIds);
-        List<NotificationRecipient> recipients = new ArrayList<>(unique.size());
-        for (Long uid : unique) {
-            // skip if sender equals recipient (optional)
-            if (Objects.equals(uid, sender.getUserId())) continue;
-            NotificationRecipient nr = new NotificationRecipient();
-            nr.setNotification(n);
-            User u = new User(uid) { }; // placeholder - do not persist; we'll set reference via getOne later OR fetch user
-            // Better: fetch user entity (preferred)
-            User userEntity = userRepository.findById(uid).orElse(null);
-            if (userEntity == null) continue;
-            nr.setUser(userEntity);
-            nr.setRead(false);
-            recipients.add(nr);
-        }
-
-        // Batch save recipients
-        if (!recipients.isEmpty()) {
-            // If list large, consider chunking
-            recipientRepository.saveAll(recipients);
+        // Fan-out recipients: INSERT ... SELECT theo target (không load từng User)
+        int recipientCount = fanOutRecipients(n, sender.getUserId());
+        n.setRecipientCount((long) recipientCount);
+        if (recipientCount > 0) {
+            counterRepository.incrementForNotification(n.getNotificationId());
+            pushToRecipients(n, sender);
         }
 
         // Build response
@@ -130,23 +143,50 @@ public class NotificationService {
         resp.setTargetId(n.getTargetId());
         resp.setSchoolId(n.getSchoolId());
         resp.setSender(userMapper.toDTO(sender));
-        resp.setRecipientCount((long) recipients.size());
+        resp.setRecipientCount((long) recipientCount);
         return resp;
     }
 
-    private List<Long> resolveRecipientUserIds(Notification n) {
-        switch (n.getTargetType()) {
-            case SYSTEM:
-                return userRepository.findAllUserIds();
-            case SCHOOL:
-                return userRepository.findUserIdsBySchoolId(n.getTargetId());
-            case CLASS:
-                return classRepository.findStudentUserIdsByClassId(n.getTargetId());
-            case CLASS_SUBJECT:
-                return classSubjectRepository.findStudentUserIdsByClassSubjectId(n.getTargetId());
-            default:
-                return Collections.emptyList();
-        }
+    /**
+     * Push STOMP tới từng người nhận sau khi commit (NotificationPushService gộp và gửi theo lô)
+     */
+    private void pushToRecipients(Notification n, User sender) {
+        NotificationRecipientDto payload = new NotificationRecipientDto();
+        payload.setNotificationId(n.getNotificationId());
+        payload.setMessage(n.getMessage());
+        payload.setSentAt(n.getSentAt());
+        payload.setRead(false);
+        payload.setSender(userMapper.toDTO(sender));
+        payload.setType(n.getType());
+        payload.setPriority(n.getPriority());
+        payload.setTargetType(n.getTargetType());
+        payload.setTargetId(n.getTargetId());
+
+        List<NotificationPushService.Recipient> recipients = recipientRepository.findPushTargets(n.getNotificationId())
+                .stream()
+                .map(row -> new NotificationPushService.Recipient(((Number) row[0]).longValue(), ((Number) row[1]).longValue()))
+                .toList();
+        notificationPushService.publish(payload, recipients);
+    }
+
+    /**
+     * Ghi notification_recipients cho notification vừa tạo bằng 1 câu INSERT ... SELECT
+     * (SYSTEM/SCHOOL có thể lên tới hàng nghìn user). Trả về số dòng đã ghi.
+     */
+    private int fanOutRecipients(Notification n, Long senderId) {
+        long start = System.nanoTime();
+        Long notificationId = n.getNotificationId();
+        int written = switch (n.getTargetType()) {
+            case SYSTEM -> recipientRepository.insertRecipientsForAllUsers(notificationId, n.getSentAt(), senderId);
+            case SCHOOL -> recipientRepository.insertRecipientsForSchool(notificationId, n.getSentAt(), n.getTargetId(), senderId);
+            case CLASS -> recipientRepository.insertRecipientsForClass(notificationId, n.getSentAt(), n.getTargetId(), senderId);
+            case CLASS_SUBJECT -> recipientRepository.insertRecipientsForClassSubject(notificationId, n.getSentAt(), n.getTargetId(), senderId);
+            default -> 0;
+        };
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        log.info("Notification {} fan-out ({} #{}): {} recipient(s) written in {} ms",
+                notificationId, n.getTargetType(), n.getTargetId(), written, elapsedMs);
+        return written;
     }
 
 //    // Get notifications for current user (paged)
@@ -187,10 +227,23 @@ public class NotificationService {
 //            return resp;
 //        });
 //    }
-// Get notifications for current user - return List
-    public List<NotificationRecipientDto> getNotificationsForUser(Long userId) {
-        List<NotificationRecipient> list = recipientRepository.findByUserIdWithNotification(userId);
-        return list.stream().map(nr -> {
+// Inbox của user: keyset theo (sentAt, notificationRecipientId) giảm dần
+    @Transactional(readOnly = true)
+    public CursorPageResponse<NotificationRecipientDto> getNotificationsForUser(Long userId, String cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        // Lấy dư 1 dòng để biết còn trang sau hay không
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        List<NotificationRecipient> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = recipientRepository.findInboxFirstPage(userId, limit);
+        } else {
+            InboxCursor c = InboxCursor.parse(cursor);
+            rows = recipientRepository.findInboxAfter(userId, c.sentAt(), c.recipientId(), limit);
+        }
+        boolean last = rows.size() <= pageSize;
+        List<NotificationRecipient> page = last ? rows : rows.subList(0, pageSize);
+
+        List<NotificationRecipientDto> content = page.stream().map(nr -> {
             Notification notif = nr.getNotification();
             UserDTO s = userMapper.toDTO(notif.getSender());
             NotificationRecipientDto dto = new NotificationRecipientDto();
@@ -206,6 +259,48 @@ public class NotificationService {
             dto.setTargetId(notif.getTargetId());
             return dto;
         }).collect(Collectors.toList());
+
+        NotificationRecipient tail = page.isEmpty() ? null : page.get(page.size() - 1);
+        return CursorPageResponse.<NotificationRecipientDto>builder()
+                .content(content)
+                .pageSize(pageSize)
+                .nextCursor(last || tail == null ? null : new InboxCursor(tail.getSentAt(), tail.getNotificationRecipientId()).encode())
+                .last(last)
+                .build();
+    }
+
+    // Số thông báo chưa đọc (biểu tượng chuông): 1 lần đọc theo khoá chính
+    @Transactional(readOnly = true)
+    public long getUnreadCount(Long userId) {
+        return counterRepository.findById(userId)
+                .map(UserNotificationCounter::getUnreadCount)
+                .orElse(0L);
+    }
+
+    @Transactional
+    public void markAsRead(Long recipientId, Long userId) {
+        if (recipientRepository.markRead(recipientId, userId) > 0) {
+            counterRepository.adjust(userId, -1);
+            notificationPushService.publishUnreadCount(userId);
+        }
+    }
+
+    @Transactional
+    public void markAsUnread(Long recipientId, Long userId) {
+        if (recipientRepository.markUnread(recipientId, userId) > 0) {
+            counterRepository.adjust(userId, 1);
+            notificationPushService.publishUnreadCount(userId);
+        }
+    }
+
+    @Transactional
+    public int markAllAsRead(Long userId) {
+        int changed = recipientRepository.markAllRead(userId);
+        if (changed > 0) {
+            counterRepository.adjust(userId, -changed);
+            notificationPushService.publishUnreadCount(userId);
+        }
+        return changed;
     }
 
     // Get sent notifications for a sender - return List
@@ -221,9 +316,7 @@ public class NotificationService {
             resp.setTargetType(n.getTargetType());
             resp.setTargetId(n.getTargetId());
             resp.setSender(userMapper.toDTO(n.getSender()));
-            resp.setRecipientCount(
-                    (long) recipientRepository.findByNotification_NotificationId(n.getNotificationId()).size()
-            );
+            resp.setRecipientCount(recipientCount(n));
             return resp;
         }).collect(Collectors.toList());
     }
@@ -256,14 +349,14 @@ public class NotificationService {
             throw new AccessDeniedException("Bạn không có quyền xóa thông báo này");
         }
 
-        // Xóa recipient trước để tránh constraint violation
+        // Trừ bộ đếm chưa đọc, rồi xóa recipient trước để tránh constraint violation
+        counterRepository.decrementForNotification(notificationId);
         recipientRepository.deleteByNotification_NotificationId(notificationId);
 
         notificationRepository.delete(notif);
     }
     private NotificationResponse mapToResponse(Notification notif, User sender) {
-        long recipientCount = recipientRepository
-                .countByNotification_NotificationId(notif.getNotificationId());
+        long recipientCount = recipientCount(notif);
 
         return new NotificationResponse(
                 notif.getNotificationId(),
@@ -279,5 +372,29 @@ public class NotificationService {
         );
     }
 
+    // recipientCount lưu lúc fan-out; bản ghi cũ chưa backfill thì đếm
+    private long recipientCount(Notification n) {
+        return n.getRecipientCount() != null
+                ? n.getRecipientCount()
+                : recipientRepository.countByNotification_NotificationId(n.getNotificationId());
+    }
+
+    /**
+     * Cursor của inbox: "sentAt_notificationRecipientId" của dòng cuối trang trước
+     */
+    private record InboxCursor(LocalDateTime sentAt, Long recipientId) {
+        String encode() {
+            return sentAt + "_" + recipientId;
+        }
 
+        static InboxCursor parse(String cursor) {
+            int sep = cursor.lastIndexOf('_');
+            try {
+                return new InboxCursor(LocalDateTime.parse(cursor.substring(0, sep)),
+                        Long.parseLong(cursor.substring(sep + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+        }
+    }
 }
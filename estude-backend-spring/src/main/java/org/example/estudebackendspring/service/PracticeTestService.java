@@ -25,9 +25,11 @@ public class PracticeTestService {
     private final StudentRepository studentRepository;
     private final SubjectRepository subjectRepository;
     private final SubmissionRepository submissionRepository;
-    private final AnswerRepository answerRepository;
     private final TopicProgressRepository topicProgressRepository;
-    private final QuestionOptionRepository questionOptionRepository;
+    private final GradingEngine gradingEngine;
+    private final QuestionBankIndex questionBankIndex;
+    private final QuestionUsageService questionUsageService;
+    private final TopicMasteryService topicMasteryService;
     
     public PracticeTestService(PracticeTestRepository practiceTestRepository,
                               TopicRepository topicRepository,
@@ -35,18 +37,22 @@ public class PracticeTestService {
                               StudentRepository studentRepository,
                               SubjectRepository subjectRepository,
                               SubmissionRepository submissionRepository,
-                              AnswerRepository answerRepository,
                               TopicProgressRepository topicProgressRepository,
-                              QuestionOptionRepository questionOptionRepository) {
+                              GradingEngine gradingEngine,
+                              QuestionBankIndex questionBankIndex,
+                              QuestionUsageService questionUsageService,
+                              TopicMasteryService topicMasteryService) {
         this.practiceTestRepository = practiceTestRepository;
         this.topicRepository = topicRepository;
         this.questionRepository = questionRepository;
         this.studentRepository = studentRepository;
         this.subjectRepository = subjectRepository;
         this.submissionRepository = submissionRepository;
-        this.answerRepository = answerRepository;
         this.topicProgressRepository = topicProgressRepository;
-        this.questionOptionRepository = questionOptionRepository;
+        this.gradingEngine = gradingEngine;
+        this.questionBankIndex = questionBankIndex;
+        this.questionUsageService = questionUsageService;
+        this.topicMasteryService = topicMasteryService;
     }
     
     /**
@@ -108,36 +114,28 @@ public class PracticeTestService {
     
     /**
      * Random câu hỏi từ question bank theo topics và difficulty
+     * Chọn id trong bộ nhớ (QuestionBankIndex), chỉ query các câu đã chọn (kèm options)
      */
     private List<Question> selectRandomQuestions(List<Topic> topics, int numQuestions, String difficultyLevel) {
-        List<Question> allQuestions = new ArrayList<>();
-        
-        // Lấy câu hỏi từ mỗi topic
-        for (Topic topic : topics) {
-            List<Question> topicQuestions = topic.getQuestions().stream()
-                .filter(q -> q.getIsQuestionBank() != null && q.getIsQuestionBank())
-                .collect(Collectors.toList());
-            
-            // Filter by difficulty nếu cần
-            if (difficultyLevel != null && !difficultyLevel.equalsIgnoreCase("MIXED")) {
-                try {
-                    DifficultyLevel level = DifficultyLevel.valueOf(difficultyLevel.toUpperCase());
-                    topicQuestions = topicQuestions.stream()
-                        .filter(q -> q.getDifficultyLevel() == level)
-                        .collect(Collectors.toList());
-                } catch (IllegalArgumentException e) {
-                    log.warn("Invalid difficulty level: {}", difficultyLevel);
-                }
+        // Filter by difficulty nếu cần (null = mọi độ khó)
+        DifficultyLevel level = null;
+        if (difficultyLevel != null && !difficultyLevel.equalsIgnoreCase("MIXED")) {
+            try {
+                level = DifficultyLevel.valueOf(difficultyLevel.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                log.warn("Invalid difficulty level: {}", difficultyLevel);
             }
-            
-            allQuestions.addAll(topicQuestions);
         }
         
-        // Shuffle và chọn số lượng cần thiết
-        Collections.shuffle(allQuestions);
+        List<Long> topicIds = topics.stream().map(Topic::getTopicId).collect(Collectors.toList());
+        List<Long> selectedIds = questionBankIndex.sample(topicIds, level, numQuestions);
+        if (selectedIds.isEmpty()) {
+            return new ArrayList<>();
+        }
         
-        int actualNum = Math.min(numQuestions, allQuestions.size());
-        return allQuestions.subList(0, actualNum);
+        List<Question> selected = new ArrayList<>(questionRepository.findAllWithOptionsByIdIn(selectedIds));
+        Collections.shuffle(selected);
+        return selected;
     }
     
     /**
@@ -206,64 +204,87 @@ public class PracticeTestService {
         
         submission = submissionRepository.save(submission);
         
+        // Answer key từ AnswerKeyCache (miss được nạp set-based cho cả bài nộp)
+        GradingEngine.AnswerKey answerKey = gradingEngine.loadAnswerKey(
+            request.getAnswers().stream().map(AnswerRequest::getQuestionId).toList(),
+            request.getAnswers().stream().map(AnswerRequest::getChosenOptionId).toList());
+        
         // Process answers
         Map<Long, TopicStats> topicStatsMap = new HashMap<>();
+        List<Answer> answers = new ArrayList<>();
         float totalScore = 0f;
         int totalCorrect = 0;
         
         for (AnswerRequest ar : request.getAnswers()) {
-            Question question = questionRepository.findById(ar.getQuestionId())
-                .orElseThrow(() -> new ResourceNotFoundException("Question not found: " + ar.getQuestionId()));
+            Long questionId = ar.getQuestionId();
+            if (!answerKey.hasQuestion(questionId)) {
+                throw new ResourceNotFoundException("Question not found: " + questionId);
+            }
             
             Answer answer = new Answer();
             answer.setSubmission(submission);
-            answer.setQuestion(question);
+            answer.setQuestion(answerKey.question(questionId));
             answer.setStudentAnswerText(ar.getTextAnswer());
             
             // Auto-grade cho multiple choice
             boolean isCorrect = false;
-            if (ar.getChosenOptionId() != null) {
-                QuestionOption chosen = questionOptionRepository.findById(ar.getChosenOptionId()).orElse(null);
-                if (chosen != null) {
-                    answer.setChosenOption(chosen);
-                    isCorrect = chosen.getIsCorrect();
-                }
+            if (answerKey.hasOption(ar.getChosenOptionId())) {
+                answer.setChosenOption(answerKey.option(ar.getChosenOptionId()));
+                isCorrect = answerKey.isCorrect(questionId, ar.getChosenOptionId());
             }
             
+            float points = answerKey.points(questionId);
             answer.setIsCorrect(isCorrect);
-            answer.setScore(isCorrect ? question.getPoints() : 0f);
-            answerRepository.save(answer);
+            answer.setScore(isCorrect ? points : 0f);
+            answers.add(answer);
             
             if (isCorrect) {
-                totalScore += question.getPoints();
+                totalScore += points;
                 totalCorrect++;
             }
             
             // Track by topic
-            if (question.getTopic() != null) {
-                Long topicId = question.getTopic().getTopicId();
-                TopicStats stats = topicStatsMap.computeIfAbsent(topicId, 
-                    k -> new TopicStats(question.getTopic()));
+            Long topicId = answerKey.topicId(questionId);
+            if (topicId != null) {
+                TopicStats stats = topicStatsMap.computeIfAbsent(topicId, TopicStats::new);
                 stats.totalQuestions++;
                 if (isCorrect) stats.correctAnswers++;
             }
         }
-        
-        // Save topic progress
+        gradingEngine.insertAnswers(submission.getSubmissionId(), answers);
+        questionUsageService.record(QuestionUsageService.toUsageEvents(answers));
+        
+        // Topic entity (tên topic cho kết quả) - 1 query trên bảng topics
+        Map<Long, Topic> topics = topicRepository.findAllById(topicStatsMap.keySet()).stream()
+            .collect(Collectors.toMap(Topic::getTopicId, t -> t));
+        topicStatsMap.values().removeIf(stats -> {
+            stats.topic = topics.get(stats.topicId);
+            return stats.topic == null;
+        });
+        
+        // Save topic progress (lịch sử) + cập nhật mức độ nắm vững của từng topic
+        LocalDateTime recordedAt = LocalDateTime.now();
+        List<TopicProgress> progressRows = new ArrayList<>(topicStatsMap.size());
+        List<TopicMasteryService.Attempt> attempts = new ArrayList<>(topicStatsMap.size());
         for (TopicStats stats : topicStatsMap.values()) {
+            float accuracy = (float) stats.correctAnswers / stats.totalQuestions;
             TopicProgress progress = new TopicProgress();
             progress.setStudent(student);
             progress.setTopic(stats.topic);
             progress.setSubmission(submission);
             progress.setTotalQuestions(stats.totalQuestions);
             progress.setCorrectAnswers(stats.correctAnswers);
-            progress.setAccuracyRate((float) stats.correctAnswers / stats.totalQuestions);
-            progress.setRecordedAt(LocalDateTime.now());
-            topicProgressRepository.save(progress);
+            progress.setAccuracyRate(accuracy);
+            progress.setRecordedAt(recordedAt);
+            progressRows.add(progress);
+            attempts.add(new TopicMasteryService.Attempt(stats.topicId,
+                stats.topic.getSubject() != null ? stats.topic.getSubject().getSubjectId() : null, accuracy));
         }
+        topicProgressRepository.saveAll(progressRows);
+        topicMasteryService.record(student.getUserId(), attempts, recordedAt);
         
         // Return result
-        return buildSubmissionWithTopics(submission, topicStatsMap, totalScore, totalCorrect);
+        return buildSubmissionWithTopics(submission, answers.size(), topicStatsMap, totalScore, totalCorrect);
     }
     
     /**
@@ -344,16 +365,16 @@ public class PracticeTestService {
     }
     
     private SubmissionWithTopicsDTO buildSubmissionWithTopics(
-            Submission submission, Map<Long, TopicStats> topicStatsMap, 
+            Submission submission, int totalQuestions, Map<Long, TopicStats> topicStatsMap, 
             float totalScore, int totalCorrect) {
         
         SubmissionWithTopicsDTO dto = new SubmissionWithTopicsDTO();
         dto.setSubmissionId(submission.getSubmissionId());
         dto.setSubmittedAt(submission.getSubmittedAt());
         dto.setTotalScore(totalScore);
-        dto.setTotalQuestions(submission.getAnswers().size());
+        dto.setTotalQuestions(totalQuestions);
         dto.setCorrectAnswers(totalCorrect);
-        dto.setOverallAccuracy((float) totalCorrect / submission.getAnswers().size());
+        dto.setOverallAccuracy(totalQuestions > 0 ? (float) totalCorrect / totalQuestions : 0f);
         
         List<SubmissionWithTopicsDTO.TopicResultDTO> topicResults = topicStatsMap.values().stream()
             .map(stats -> {
@@ -385,12 +406,13 @@ public class PracticeTestService {
     
     // Helper class
     private static class TopicStats {
+        Long topicId;
         Topic topic;
         int totalQuestions = 0;
         int correctAnswers = 0;
         
-        TopicStats(Topic topic) {
-            this.topic = topic;
+        TopicStats(Long topicId) {
+            this.topicId = topicId;
         }
     }
     
@@ -5,8 +5,12 @@ import lombok.extern.slf4j.Slf4j;
 import org.example.estudebackendspring.dto.analytics.QuestionBankStatisticsDTO;
 import org.example.estudebackendspring.dto.analytics.QuestionUsageStatsDTO;
 import org.example.estudebackendspring.entity.Question;
+import org.example.estudebackendspring.entity.QuestionUsageStat;
 import org.example.estudebackendspring.enums.DifficultyLevel;
+import org.example.estudebackendspring.repository.QuestionOptionPickRepository;
 import org.example.estudebackendspring.repository.QuestionRepository;
+import org.example.estudebackendspring.repository.QuestionUsageStatRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
@@ -22,7 +26,20 @@ import java.util.stream.Collectors;
 @Slf4j
 public class QuestionAnalyticsService {
     
+    private static final int COMMON_MISTAKES_LIMIT = 5;
+    
     private final QuestionRepository questionRepository;
+    private final QuestionUsageStatRepository questionUsageStatRepository;
+    private final QuestionOptionPickRepository questionOptionPickRepository;
+    
+    @Value("${question-usage.improvement.max-accuracy:0.4}")
+    private double improvementMaxAccuracy;
+    
+    @Value("${question-usage.improvement.min-attempts:10}")
+    private long improvementMinAttempts;
+    
+    @Value("${question-usage.improvement.limit:100}")
+    private int improvementLimit;
     
     /**
      * Get overview statistics of entire question bank
@@ -80,35 +97,33 @@ public class QuestionAnalyticsService {
     
     /**
      * Get detailed usage statistics for a specific question
+     * Read from the per-question counters maintained by QuestionUsageService
      * @param questionId ID of the question
      * @return Usage statistics including accuracy, common mistakes
      */
     public QuestionUsageStatsDTO getQuestionUsageStats(Long questionId) {
         log.info("Fetching usage statistics for question ID: {}", questionId);
         
-        Question question = questionRepository.findById(questionId)
+        Question question = questionRepository.findByIdWithDetails(questionId)
                 .orElseThrow(() -> new RuntimeException("Question not found with ID: " + questionId));
         
-        // TODO: Implement actual calculation from submission_answers table
-        // For now, return mock data structure
+        QuestionUsageStat stat = questionUsageStatRepository.findById(questionId).orElse(null);
+        long incorrect = stat != null ? stat.getAttempts() - stat.getCorrectCount() : 0;
         
-        QuestionUsageStatsDTO.UsageStats usageStats = QuestionUsageStatsDTO.UsageStats.builder()
-                .timesUsed(0)
-                .totalAttempts(0)
-                .correctAttempts(0)
-                .incorrectAttempts(0)
-                .averageAccuracy(0.0)
-                .averageTimeSeconds((double) 0)
-                .build();
+        // Các option sai được chọn nhiều nhất, % trên tổng số lần trả lời sai
+        List<QuestionUsageStatsDTO.CommonMistakeDTO> commonMistakes = new ArrayList<>();
+        if (incorrect > 0) {
+            for (Object[] row : questionOptionPickRepository.findTopIncorrectPicks(questionId, COMMON_MISTAKES_LIMIT)) {
+                long count = ((Number) row[1]).longValue();
+                commonMistakes.add(QuestionUsageStatsDTO.CommonMistakeDTO.builder()
+                        .incorrectAnswer(row[0] != null ? row[0].toString() : "")
+                        .count((int) count)
+                        .percentage(round2((double) count / incorrect * 100.0))
+                        .build());
+            }
+        }
         
-        return QuestionUsageStatsDTO.builder()
-                .questionId(question.getQuestionId())
-                .questionText(question.getQuestionText())
-                .topic(question.getTopic() != null ? question.getTopic().getName() : "N/A")
-                .difficulty(question.getDifficultyLevel() != null ? question.getDifficultyLevel().name() : "UNKNOWN")
-                .usageStats(usageStats)
-                .commonMistakes(new ArrayList<>())
-                .build();
+        return toDto(question, stat, commonMistakes);
     }
     
     /**
@@ -120,33 +135,66 @@ public class QuestionAnalyticsService {
     public List<QuestionUsageStatsDTO> getQuestionUsageRanking(int limit) {
         log.info("Fetching top {} questions by usage frequency", limit);
         
-        // TODO: Implement actual ranking query from submission_answers
-        // SELECT question_id, COUNT(*) as usage_count 
-        // FROM submission_answers 
-        // GROUP BY question_id 
-        // ORDER BY usage_count DESC 
-        // LIMIT :limit
-        
-        return new ArrayList<>();
+        return toDtos(questionUsageStatRepository.findTopByAttempts(limit));
     }
     
     /**
      * Identify questions that need improvement
-     * Criteria: Low accuracy rate, high incorrect answer rate
+     * Criteria: accuracy below question-usage.improvement.max-accuracy over at least
+     * question-usage.improvement.min-attempts answers, lowest accuracy first
      * @return List of questions that should be reviewed
      */
+    @Cacheable(value = "questionsNeedingImprovement", unless = "#result == null || #result.isEmpty()")
     public List<QuestionUsageStatsDTO> getQuestionsNeedingImprovement() {
         log.info("Identifying questions that need improvement");
         
-        // TODO: Implement query to find questions with accuracy < 40%
-        // SELECT q.question_id, 
-        //        COUNT(CASE WHEN sa.is_correct = true THEN 1 END) * 1.0 / COUNT(*) as accuracy
-        // FROM questions q
-        // JOIN submission_answers sa ON q.question_id = sa.question_id
-        // GROUP BY q.question_id
-        // HAVING accuracy < 0.4
-        // ORDER BY accuracy ASC
+        return toDtos(questionUsageStatRepository.findBelowAccuracy(
+                improvementMaxAccuracy, improvementMinAttempts, improvementLimit));
+    }
+    
+    // Giữ thứ tự của danh sách bộ đếm, câu hỏi nạp trong 1 query
+    private List<QuestionUsageStatsDTO> toDtos(List<QuestionUsageStat> stats) {
+        if (stats.isEmpty()) return new ArrayList<>();
+        Map<Long, Question> questions = questionRepository.findAllWithOptionsByIdIn(
+                        stats.stream().map(QuestionUsageStat::getQuestionId).toList()).stream()
+                .collect(Collectors.toMap(Question::getQuestionId, q -> q));
         
-        return new ArrayList<>();
+        List<QuestionUsageStatsDTO> result = new ArrayList<>(stats.size());
+        for (QuestionUsageStat stat : stats) {
+            Question question = questions.get(stat.getQuestionId());
+            if (question != null) {
+                result.add(toDto(question, stat, new ArrayList<>()));
+            }
+        }
+        return result;
+    }
+    
+    private QuestionUsageStatsDTO toDto(Question question, QuestionUsageStat stat,
+                                        List<QuestionUsageStatsDTO.CommonMistakeDTO> commonMistakes) {
+        long attempts = stat != null ? stat.getAttempts() : 0;
+        long correct = stat != null ? stat.getCorrectCount() : 0;
+        long timed = stat != null ? stat.getTimedAttempts() : 0;
+        
+        QuestionUsageStatsDTO.UsageStats usageStats = QuestionUsageStatsDTO.UsageStats.builder()
+                .timesUsed((int) attempts)
+                .totalAttempts((int) attempts)
+                .correctAttempts((int) correct)
+                .incorrectAttempts((int) (attempts - correct))
+                .averageAccuracy(attempts > 0 ? round2((double) correct / attempts * 100.0) : 0.0)
+                .averageTimeSeconds(timed > 0 ? round2(stat.getTotalTimeSeconds() / timed) : 0.0)
+                .build();
+        
+        return QuestionUsageStatsDTO.builder()
+                .questionId(question.getQuestionId())
+                .questionText(question.getQuestionText())
+                .topic(question.getTopic() != null ? question.getTopic().getName() : "N/A")
+                .difficulty(question.getDifficultyLevel() != null ? question.getDifficultyLevel().name() : "UNKNOWN")
+                .usageStats(usageStats)
+                .commonMistakes(commonMistakes)
+                .build();
+    }
+    
+    private static double round2(double value) {
+        return Math.round(value * 100.0) / 100.0;
     }
 }
@@ -0,0 +1,209 @@
+package org.example.estudebackendspring.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.estudebackendspring.enums.DifficultyLevel;
+import org.example.estudebackendspring.repository.QuestionRepository;
+import org.example.estudebackendspring.until.TransactionUtils;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Index trong bộ nhớ: (topicId, DifficultyLevel) -> long[] id câu hỏi question bank.
+ * - Nạp lúc khởi động (1 query chỉ lấy id/topic/difficulty), refresh định kỳ để đồng bộ giữa các instance
+ * - QuestionService cập nhật tăng dần khi create/update/delete question bank (sau commit)
+ * - Rút ngẫu nhiên không hoàn lại O(count) (Fisher-Yates thưa), không copy mảng
+ *
+ * AssessmentService/PracticeTestService chọn id hoàn toàn trong bộ nhớ, chỉ query DB cho
+ * các câu hỏi đã được chọn.
+ */
+@Slf4j
+@Component
+public class QuestionBankIndex {
+
+    private static final long[] EMPTY = new long[0];
+    private static final int LEVELS = DifficultyLevel.values().length;
+
+    private final QuestionRepository questionRepository;
+
+    // topicId -> mảng id theo ordinal của DifficultyLevel; mảng không bao giờ bị sửa tại chỗ (copy-on-write)
+    private volatile ConcurrentHashMap<Long, long[][]> index;
+
+    public QuestionBankIndex(QuestionRepository questionRepository) {
+        this.questionRepository = questionRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        reload();
+    }
+
+    /**
+     * Nạp lại toàn bộ index (bắt kịp thay đổi từ instance khác)
+     */
+    @Scheduled(fixedDelayString = "${question-bank.index.refresh-interval-ms:300000}",
+            initialDelayString = "${question-bank.index.refresh-interval-ms:300000}")
+    public void reload() {
+        long start = System.currentTimeMillis();
+        Map<Long, List<Long>[]> buckets = new HashMap<>();
+        int total = 0;
+        for (Object[] row : questionRepository.findQuestionBankIndexRows()) {
+            Long questionId = ((Number) row[0]).longValue();
+            Long topicId = ((Number) row[1]).longValue();
+            int level = DifficultyLevel.valueOf((String) row[2]).ordinal();
+            @SuppressWarnings("unchecked")
+            List<Long>[] lists = buckets.computeIfAbsent(topicId, k -> new List[LEVELS]);
+            if (lists[level] == null) lists[level] = new ArrayList<>();
+            lists[level].add(questionId);
+            total++;
+        }
+
+        ConcurrentHashMap<Long, long[][]> fresh = new ConcurrentHashMap<>(Math.max(16, buckets.size() * 2));
+        buckets.forEach((topicId, lists) -> {
+            long[][] arrays = new long[LEVELS][];
+            for (int i = 0; i < LEVELS; i++) {
+                arrays[i] = lists[i] == null ? EMPTY : lists[i].stream().mapToLong(Long::longValue).toArray();
+            }
+            fresh.put(topicId, arrays);
+        });
+        index = fresh;
+        log.info("Question bank index loaded: {} questions in {} topics ({} ms)",
+                total, fresh.size(), System.currentTimeMillis() - start);
+    }
+
+    public int count(Long topicId, DifficultyLevel difficulty) {
+        return bucket(topicId, difficulty).length;
+    }
+
+    /**
+     * Rút ngẫu nhiên tối đa count id từ 1 (topic, difficulty), bỏ qua id trong exclude.
+     */
+    public List<Long> sample(Long topicId, DifficultyLevel difficulty, int count, Set<Long> exclude) {
+        return sample(List.of(bucket(topicId, difficulty)), count, exclude);
+    }
+
+    /**
+     * Rút ngẫu nhiên tối đa count id từ nhiều topic; difficulty null = mọi độ khó.
+     */
+    public List<Long> sample(Collection<Long> topicIds, DifficultyLevel difficulty, int count) {
+        List<long[]> arrays = new ArrayList<>();
+        for (Long topicId : topicIds) {
+            if (difficulty != null) {
+                arrays.add(bucket(topicId, difficulty));
+            } else {
+                for (DifficultyLevel level : DifficultyLevel.values()) arrays.add(bucket(topicId, level));
+            }
+        }
+        return sample(arrays, count, Collections.emptySet());
+    }
+
+    /**
+     * Thêm câu hỏi vào index sau khi transaction commit
+     */
+    public void onCreated(Long questionId, Long topicId, DifficultyLevel difficulty) {
+        TransactionUtils.afterCommit(() -> add(questionId, topicId, difficulty));
+    }
+
+    /**
+     * Câu hỏi đổi topic/độ khó: chuyển bucket sau khi transaction commit
+     */
+    public void onUpdated(Long questionId, Long oldTopicId, DifficultyLevel oldDifficulty,
+                          Long newTopicId, DifficultyLevel newDifficulty) {
+        if (Objects.equals(oldTopicId, newTopicId) && oldDifficulty == newDifficulty) return;
+        TransactionUtils.afterCommit(() -> {
+            remove(questionId, oldTopicId, oldDifficulty);
+            add(questionId, newTopicId, newDifficulty);
+        });
+    }
+
+    public void onDeleted(Long questionId, Long topicId, DifficultyLevel difficulty) {
+        TransactionUtils.afterCommit(() -> remove(questionId, topicId, difficulty));
+    }
+
+    private long[] bucket(Long topicId, DifficultyLevel difficulty) {
+        if (topicId == null || difficulty == null) return EMPTY;
+        long[][] arrays = index().get(topicId);
+        return arrays == null ? EMPTY : arrays[difficulty.ordinal()];
+    }
+
+    private ConcurrentHashMap<Long, long[][]> index() {
+        ConcurrentHashMap<Long, long[][]> current = index;
+        if (current == null) {
+            synchronized (this) {
+                if (index == null) reload(); // gọi trước ApplicationReadyEvent
+                current = index;
+            }
+        }
+        return current;
+    }
+
+    private void add(Long questionId, Long topicId, DifficultyLevel difficulty) {
+        if (questionId == null || topicId == null || difficulty == null) return;
+        index().compute(topicId, (k, arrays) -> {
+            long[][] copy = arrays == null ? emptyLevels() : arrays.clone();
+            long[] ids = copy[difficulty.ordinal()];
+            for (long id : ids) if (id == questionId) return copy;
+            long[] grown = Arrays.copyOf(ids, ids.length + 1);
+            grown[ids.length] = questionId;
+            copy[difficulty.ordinal()] = grown;
+            return copy;
+        });
+    }
+
+    private void remove(Long questionId, Long topicId, DifficultyLevel difficulty) {
+        if (questionId == null || topicId == null || difficulty == null) return;
+        index().computeIfPresent(topicId, (k, arrays) -> {
+            long[] ids = arrays[difficulty.ordinal()];
+            int pos = -1;
+            for (int i = 0; i < ids.length; i++) if (ids[i] == questionId) { pos = i; break; }
+            if (pos < 0) return arrays;
+            long[] shrunk = new long[ids.length - 1];
+            System.arraycopy(ids, 0, shrunk, 0, pos);
+            System.arraycopy(ids, pos + 1, shrunk, pos, ids.length - pos - 1);
+            long[][] copy = arrays.clone();
+            copy[difficulty.ordinal()] = shrunk;
+            return copy;
+        });
+    }
+
+    /**
+     * Fisher-Yates thưa trên dãy ghép ảo của các mảng: chỉ các vị trí đã bị hoán đổi được lưu
+     * trong map, nên chi phí O(số lần rút) thay vì O(tổng số id).
+     */
+    private static List<Long> sample(List<long[]> arrays, int count, Set<Long> exclude) {
+        int total = 0;
+        for (long[] a : arrays) total += a.length;
+        List<Long> result = new ArrayList<>(Math.min(count, total));
+        if (count <= 0 || total == 0) return result;
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Map<Integer, Integer> swapped = new HashMap<>();
+        for (int i = 0; i < total && result.size() < count; i++) {
+            int j = i + random.nextInt(total - i);
+            int picked = swapped.getOrDefault(j, j);
+            swapped.put(j, swapped.getOrDefault(i, i));
+            long id = at(arrays, picked);
+            if (!exclude.contains(id)) result.add(id);
+        }
+        return result;
+    }
+
+    private static long at(List<long[]> arrays, int position) {
+        for (long[] a : arrays) {
+            if (position < a.length) return a[position];
+            position -= a.length;
+        }
+        throw new IndexOutOfBoundsException();
+    }
+
+    private static long[][] emptyLevels() {
+        long[][] arrays = new long[LEVELS][];
+        Arrays.fill(arrays, EMPTY);
+        return arrays;
+    }
+}
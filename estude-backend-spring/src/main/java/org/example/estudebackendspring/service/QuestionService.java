@@ -34,17 +34,23 @@ public class QuestionService {
     private final TopicRepository topicRepository;
     private final QuestionBankMapper questionBankMapper;
     private final QuestionOptionRepository questionOptionRepository;
+    private final AnswerKeyCache answerKeyCache;
+    private final QuestionBankIndex questionBankIndex;
 
     public QuestionService(QuestionRepository questionRepository, 
                           AssignmentRepository assignmentRepository,
                           TopicRepository topicRepository,
                           QuestionBankMapper questionBankMapper,
-                          QuestionOptionRepository questionOptionRepository) {
+                          QuestionOptionRepository questionOptionRepository,
+                          AnswerKeyCache answerKeyCache,
+                          QuestionBankIndex questionBankIndex) {
         this.questionRepository = questionRepository;
         this.assignmentRepository = assignmentRepository;
         this.topicRepository = topicRepository;
         this.questionBankMapper = questionBankMapper;
         this.questionOptionRepository = questionOptionRepository;
+        this.answerKeyCache = answerKeyCache;
+        this.questionBankIndex = questionBankIndex;
     }
 
     @Transactional
@@ -100,7 +106,9 @@ public class QuestionService {
             question.setOptions(options);
         }
         
-        return questionRepository.save(question);
+        Question saved = questionRepository.save(question);
+        questionBankIndex.onCreated(saved.getQuestionId(), topic.getTopicId(), saved.getDifficultyLevel());
+        return saved;
     }
 
 
@@ -126,6 +134,7 @@ public class QuestionService {
             }
         }
 
+        answerKeyCache.evict(questionId);
         return questionRepository.save(existing);
     }
 
@@ -137,6 +146,7 @@ public class QuestionService {
             throw new RuntimeException("Question not found");
         }
         questionRepository.deleteById(questionId);
+        answerKeyCache.evict(questionId);
     }
 
     public Question getQuestion(Long questionId) {
@@ -278,6 +288,8 @@ public class QuestionService {
         if (existing.getIsQuestionBank() == null || !existing.getIsQuestionBank()) {
             throw new RuntimeException("This question is not a question bank question");
         }
+        Long oldTopicId = existing.getTopic() != null ? existing.getTopic().getTopicId() : null;
+        DifficultyLevel oldDifficulty = existing.getDifficultyLevel();
         
         // Validate topic exists if changed
         if (request.getTopicId() != null) {
@@ -319,6 +331,11 @@ public class QuestionService {
             existing.setOptions(newOptions);
         }
         
+        // Đáp án/độ khó/topic có thể đã đổi -> bỏ answer key cũ, chuyển bucket trong index
+        answerKeyCache.evict(questionId);
+        questionBankIndex.onUpdated(questionId, oldTopicId, oldDifficulty,
+                existing.getTopic() != null ? existing.getTopic().getTopicId() : null,
+                existing.getDifficultyLevel());
         return questionRepository.save(existing);
     }
     /**
@@ -338,6 +355,10 @@ public class QuestionService {
         }
         
         questionRepository.deleteById(questionId);
+        answerKeyCache.evict(questionId);
+        questionBankIndex.onDeleted(questionId,
+                question.getTopic() != null ? question.getTopic().getTopicId() : null,
+                question.getDifficultyLevel());
     }
     
     /**
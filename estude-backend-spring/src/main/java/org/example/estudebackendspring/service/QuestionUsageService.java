@@ -0,0 +1,224 @@
+package org.example.estudebackendspring.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.estudebackendspring.entity.Answer;
+import org.example.estudebackendspring.repository.QuestionUsageStatRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bộ đếm sử dụng câu hỏi (question_usage_stats, question_option_picks), cộng dồn từ các lần chấm bài
+ * của AssessmentSubmissionService, PracticeTestService và AssignmentSubmissionService.
+ * - {@link #record} chỉ INSERT các câu trả lời vào question_usage_deltas trong transaction chấm bài
+ *   (không khoá dòng thống kê của câu hỏi "nóng" trong lúc nộp bài)
+ * - Định kỳ {@link #flush()} lấy 1 lô delta (SKIP LOCKED, nhiều instance không lấy trùng), cộng vào bộ đếm
+ *   bằng UPSERT và xoá delta trong cùng 1 câu lệnh
+ * - {@link #rebuildAll()} dựng lại từ assessment_answers + answers (backfill)
+ *
+ * Delta nằm trong DB nên rebuild đếm mỗi câu trả lời đúng 1 lần: rebuild khoá question_usage_deltas,
+ * chờ mọi transaction đã ghi delta kết thúc, xoá delta và dựng lại; bài nộp chưa commit thì chờ tới khi
+ * rebuild xong mới ghi được delta (câu trả lời của nó không nằm trong dữ liệu dựng lại).
+ */
+@Slf4j
+@Service
+public class QuestionUsageService {
+
+    private static final String INSERT_DELTA = """
+        INSERT INTO question_usage_deltas (question_id, option_id, correct, seconds) VALUES (?, ?, ?, ?)
+        """;
+
+    // Lấy + xoá 1 lô delta, cộng vào 2 bảng bộ đếm; trả về số delta đã lấy
+    private static final String FLUSH_BATCH = """
+        WITH claimed AS (
+            DELETE FROM question_usage_deltas
+            WHERE delta_id IN (
+                SELECT delta_id FROM question_usage_deltas
+                ORDER BY delta_id
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+            )
+            RETURNING question_id, option_id, correct, seconds
+        ),
+        stats AS (
+            INSERT INTO question_usage_stats
+                (question_id, attempts, correct_count, timed_attempts, total_time_seconds, updated_at)
+            SELECT question_id,
+                   COUNT(*),
+                   SUM(CASE WHEN correct THEN 1 ELSE 0 END),
+                   SUM(CASE WHEN seconds IS NOT NULL THEN 1 ELSE 0 END),
+                   COALESCE(SUM(seconds), 0),
+                   now()
+            FROM claimed
+            GROUP BY question_id
+            ORDER BY question_id
+            ON CONFLICT (question_id) DO UPDATE SET
+                attempts = question_usage_stats.attempts + EXCLUDED.attempts,
+                correct_count = question_usage_stats.correct_count + EXCLUDED.correct_count,
+                timed_attempts = question_usage_stats.timed_attempts + EXCLUDED.timed_attempts,
+                total_time_seconds = question_usage_stats.total_time_seconds + EXCLUDED.total_time_seconds,
+                updated_at = EXCLUDED.updated_at
+        ),
+        picks AS (
+            INSERT INTO question_option_picks (question_id, option_id, pick_count)
+            SELECT question_id, option_id, COUNT(*)
+            FROM claimed
+            WHERE option_id IS NOT NULL
+            GROUP BY question_id, option_id
+            ORDER BY question_id, option_id
+            ON CONFLICT (question_id, option_id) DO UPDATE SET
+                pick_count = question_option_picks.pick_count + EXCLUDED.pick_count
+        )
+        SELECT COUNT(*) FROM claimed
+        """;
+
+    private static final String REBUILD_STATS = """
+        INSERT INTO question_usage_stats
+            (question_id, attempts, correct_count, timed_attempts, total_time_seconds, updated_at)
+        SELECT a.question_id,
+               COUNT(*),
+               SUM(CASE WHEN a.is_correct = true THEN 1 ELSE 0 END),
+               SUM(CASE WHEN a.seconds IS NOT NULL THEN 1 ELSE 0 END),
+               COALESCE(SUM(a.seconds), 0),
+               now()
+        FROM (
+            SELECT aa.question_id, aa.is_correct,
+                   CASE WHEN s.time_taken IS NOT NULL AND s.total_questions > 0
+                        THEN CAST(s.time_taken AS double precision) / s.total_questions END AS seconds
+            FROM assessment_answers aa
+            JOIN assessment_submissions s ON s.submission_id = aa.submission_id
+            UNION ALL
+            SELECT an.question_id, an.is_correct, NULL
+            FROM answers an
+            WHERE an.question_id IS NOT NULL
+        ) a
+        GROUP BY a.question_id
+        """;
+
+    private static final String REBUILD_PICKS = """
+        INSERT INTO question_option_picks (question_id, option_id, pick_count)
+        SELECT p.question_id, p.option_id, COUNT(*)
+        FROM (
+            SELECT aa.question_id, aa.chosen_option_id AS option_id
+            FROM assessment_answers aa
+            WHERE aa.chosen_option_id IS NOT NULL
+            UNION ALL
+            SELECT an.question_id, an.option_id
+            FROM answers an
+            WHERE an.question_id IS NOT NULL AND an.option_id IS NOT NULL
+        ) p
+        GROUP BY p.question_id, p.option_id
+        """;
+
+    private final QuestionUsageStatRepository questionUsageStatRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int flushBatchSize;
+
+    public QuestionUsageService(QuestionUsageStatRepository questionUsageStatRepository,
+                                JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${question-usage.flush-batch-size:5000}") int flushBatchSize) {
+        this.questionUsageStatRepository = questionUsageStatRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.flushBatchSize = flushBatchSize;
+    }
+
+    /**
+     * 1 câu trả lời đã chấm
+     *
+     * @param optionId option đã chọn (null nếu tự luận / không chọn)
+     * @param seconds  thời gian ước lượng cho câu hỏi, null nếu không biết
+     */
+    public record UsageEvent(Long questionId, Long optionId, boolean correct, Double seconds) {
+    }
+
+    /**
+     * Ghi nhận các câu trả lời của 1 bài nộp; phải gọi trong transaction chấm bài
+     * để delta commit / rollback cùng câu trả lời
+     */
+    public void record(List<UsageEvent> events) {
+        if (events == null || events.isEmpty()) return;
+        List<Object[]> rows = new ArrayList<>(events.size());
+        for (UsageEvent e : events) {
+            if (e.questionId() == null) continue;
+            rows.add(new Object[]{e.questionId(), e.optionId(), e.correct(), e.seconds()});
+        }
+        if (!rows.isEmpty()) jdbcTemplate.batchUpdate(INSERT_DELTA, rows);
+    }
+
+    /**
+     * Sự kiện từ các câu trả lời của bài nộp assignment / practice test (không có thời gian theo câu)
+     */
+    public static List<UsageEvent> toUsageEvents(List<Answer> answers) {
+        List<UsageEvent> events = new ArrayList<>(answers.size());
+        for (Answer a : answers) {
+            if (a.getQuestion() == null) continue;
+            events.add(new UsageEvent(
+                    a.getQuestion().getQuestionId(),
+                    a.getChosenOption() != null ? a.getChosenOption().getOptionId() : null,
+                    Boolean.TRUE.equals(a.getIsCorrect()),
+                    null));
+        }
+        return events;
+    }
+
+    /**
+     * Cộng các delta đang chờ vào bộ đếm, mỗi lô 1 câu lệnh (1 transaction); lỗi thì delta còn nguyên cho lần sau
+     */
+    @Scheduled(fixedDelayString = "${question-usage.flush-interval-ms:10000}")
+    public void flush() {
+        long total = 0;
+        try {
+            Integer claimed;
+            do {
+                claimed = jdbcTemplate.queryForObject(FLUSH_BATCH, Integer.class, flushBatchSize);
+                total += claimed != null ? claimed : 0;
+            } while (claimed != null && claimed >= flushBatchSize);
+        } catch (RuntimeException e) {
+            log.warn("Flushing question usage counters failed, will retry: {}", e.getMessage());
+        }
+        if (total > 0) log.debug("Flushed {} question usage deltas", total);
+    }
+
+    /**
+     * Bảng rỗng (lần đầu triển khai) -> backfill từ các câu trả lời đã lưu
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (questionUsageStatRepository.count() == 0) {
+            rebuildAll();
+        }
+    }
+
+    /**
+     * Dựng lại toàn bộ bộ đếm từ assessment_answers + answers (1 transaction).
+     * Delta đang chờ bị xoá vì các câu trả lời đó đã nằm trong dữ liệu dựng lại.
+     *
+     * @return số câu hỏi có bộ đếm
+     */
+    public long rebuildAll() {
+        long start = System.currentTimeMillis();
+        Integer rows = transactionTemplate.execute(status -> {
+            // Khoá delta trước: chờ mọi transaction đã ghi delta commit, chặn delta mới tới khi dựng xong
+            jdbcTemplate.execute("LOCK TABLE question_usage_deltas, question_usage_stats, question_option_picks IN EXCLUSIVE MODE");
+            jdbcTemplate.update("DELETE FROM question_usage_deltas");
+            jdbcTemplate.update("DELETE FROM question_option_picks");
+            jdbcTemplate.update("DELETE FROM question_usage_stats");
+            int stats = jdbcTemplate.update(REBUILD_STATS);
+            jdbcTemplate.update(REBUILD_PICKS);
+            return stats;
+        });
+        log.info("Question usage counters rebuilt: {} questions ({} ms)", rows, System.currentTimeMillis() - start);
+        return rows != null ? rows : 0L;
+    }
+}
@@ -0,0 +1,99 @@
+package org.example.estudebackendspring.service;
+
+import org.example.estudebackendspring.dto.ScheduleConflictDTO;
+import org.example.estudebackendspring.repository.ScheduleRepository;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * Kiểm tra trùng tiết của 1 lớp cho cả 1 thời khoá biểu đề xuất trong 1 lượt:
+ * nạp các tiết đã xếp của lớp trong khoảng ngày đề xuất bằng 1 query, dựng chỉ mục (ngày -> các khoảng tiết)
+ * trong bộ nhớ rồi đối chiếu lần lượt từng lịch đề xuất với lịch đã lưu và với các lịch đề xuất trước nó.
+ * Mỗi ngày của 1 lớp chỉ có vài khoảng tiết nên tra 1 lịch là O(số tiết trong ngày).
+ *
+ * Hai khoảng [start, end] (tính cả 2 đầu) trùng khi start1 <= end2 và start2 <= end1,
+ * giống điều kiện BETWEEN của ScheduleRepository.findConflictingSchedulesForClass.
+ */
+@Component
+public class ScheduleConflictDetector {
+
+    private final ScheduleRepository scheduleRepository;
+
+    public ScheduleConflictDetector(ScheduleRepository scheduleRepository) {
+        this.scheduleRepository = scheduleRepository;
+    }
+
+    /**
+     * 1 lịch đề xuất; lịch thiếu ngày hoặc tiết không được kiểm tra
+     *
+     * @param index vị trí trong request (để báo lỗi)
+     */
+    public record Proposal(int index, Date date, Integer startPeriod, Integer endPeriod) {
+    }
+
+    /**
+     * Mọi cặp trùng tiết của các lịch đề xuất (với lịch đã lưu của lớp và giữa chúng với nhau)
+     *
+     * @param ignoreScheduleId lịch đã lưu bỏ qua khi đối chiếu (lịch đang được sửa), có thể null
+     */
+    public List<ScheduleConflictDTO> findConflicts(Long classId, List<Proposal> proposals, Long ignoreScheduleId) {
+        List<Interval> proposed = new ArrayList<>(proposals.size());
+        for (Proposal p : proposals) {
+            if (p.date() == null || p.startPeriod() == null || p.endPeriod() == null) continue;
+            proposed.add(new Interval(null, p.index(), toLocalDate(p.date()), p.startPeriod(), p.endPeriod()));
+        }
+        if (proposed.isEmpty()) return List.of();
+
+        LocalDate from = proposed.stream().map(Interval::date).min(Comparator.naturalOrder()).get();
+        LocalDate to = proposed.stream().map(Interval::date).max(Comparator.naturalOrder()).get();
+
+        // Chỉ mục ngày -> các khoảng tiết đã xếp
+        Map<LocalDate, List<Interval>> byDate = new HashMap<>();
+        for (Object[] row : scheduleRepository.findClassPeriods(classId, from, to)) {
+            Long scheduleId = ((Number) row[0]).longValue();
+            if (scheduleId.equals(ignoreScheduleId)) continue;
+            Interval existing = new Interval(scheduleId, null, toLocalDate(row[1]),
+                    ((Number) row[2]).intValue(), ((Number) row[3]).intValue());
+            byDate.computeIfAbsent(existing.date(), d -> new ArrayList<>()).add(existing);
+        }
+
+        List<ScheduleConflictDTO> conflicts = new ArrayList<>();
+        for (Interval candidate : proposed) {
+            List<Interval> day = byDate.computeIfAbsent(candidate.date(), d -> new ArrayList<>());
+            for (Interval other : day) {
+                if (candidate.overlaps(other)) {
+                    conflicts.add(ScheduleConflictDTO.builder()
+                            .index(candidate.index())
+                            .scheduleId(other.scheduleId())
+                            .conflictingIndex(other.index())
+                            .classId(classId)
+                            .date(candidate.date())
+                            .startPeriod(candidate.start())
+                            .endPeriod(candidate.end())
+                            .conflictingStartPeriod(other.start())
+                            .conflictingEndPeriod(other.end())
+                            .build());
+                }
+            }
+            day.add(candidate);
+        }
+        return conflicts;
+    }
+
+    // Cột DATE được Hibernate ghi theo múi giờ JVM, quy đổi cùng múi giờ để so khớp ngày
+    private static LocalDate toLocalDate(Object value) {
+        if (value instanceof java.sql.Date sqlDate) return sqlDate.toLocalDate();
+        if (value instanceof LocalDate localDate) return localDate;
+        return ((Date) value).toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    // scheduleId != null: lịch đã lưu; index != null: lịch đề xuất
+    private record Interval(Long scheduleId, Integer index, LocalDate date, int start, int end) {
+        boolean overlaps(Interval other) {
+            return start <= other.end && other.start <= end;
+        }
+    }
+}
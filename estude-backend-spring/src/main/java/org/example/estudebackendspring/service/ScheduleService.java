@@ -1,16 +1,24 @@
 package org.example.estudebackendspring.service;
 
+import org.example.estudebackendspring.dto.ScheduleBatchResultDTO;
+import org.example.estudebackendspring.dto.ScheduleConflictDTO;
 import org.example.estudebackendspring.dto.ScheduleDTO;
 import org.example.estudebackendspring.entity.Schedule;
+import org.example.estudebackendspring.exception.ScheduleConflictException;
+import org.example.estudebackendspring.repository.ClazzRepository;
 import org.example.estudebackendspring.repository.ScheduleRepository;
 import org.example.estudebackendspring.repository.TermRepository;
 import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
-import java.util.NoSuchElementException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
@@ -20,21 +28,35 @@ public class ScheduleService {
     private ScheduleRepository scheduleRepository;
     @Autowired
     private TermRepository termRepository;
+    @Autowired
+    private ClazzRepository clazzRepository;
+    @Autowired
+    private ScheduleConflictDetector scheduleConflictDetector;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:20}")
+    private int batchSize;
+
+    // Số lịch tối đa trong 1 request /api/schedules/batch
+    public static final int MAX_BATCH_SIZE = 5000;
 
+    private static final String INSERT_SCHEDULE = """
+        INSERT INTO schedules
+            (week, details, date, start_period, end_period, room, status, type, term_id, class_subject_id)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+        """;
+
+    @Transactional
     public ScheduleDTO createSchedule(Schedule schedule) {
 //        Ràng buộc lịch bị trùng ngày và tiết dạy
         // Lấy classId từ termId
         Long termId = schedule.getTerm().getTermId();
         Long classId = termRepository.findClassIdByTermId(termId)
                 .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy lớp cho termId = " + termId));
-        System.out.println("ClassId :"+classId);
         // Kiểm tra trùng lịch
-        List<Schedule> conflicts = scheduleRepository.findConflictingSchedulesForClass(
-                classId,
-                schedule.getDate(),
-                schedule.getStartPeriod(),
-                schedule.getEndPeriod()
-        );
+        lockClass(classId);
+        List<ScheduleConflictDTO> conflicts = scheduleConflictDetector.findConflicts(classId,
+                List.of(toProposal(0, schedule)), null);
         if (!conflicts.isEmpty()) {
             throw new IllegalArgumentException("Lịch học của lớp bị trùng tiết trong ngày này!");
         }
@@ -42,6 +64,7 @@ public class ScheduleService {
         return mapToDTO(savedSchedule);
     }
 
+    @Transactional
     public ScheduleDTO updateSchedule(Long id, Schedule scheduleDetails) {
         Schedule schedule = scheduleRepository.findById(id)
                 .orElseThrow(() -> new NoSuchElementException("Không tìm thấy lịch học với id này: " + id));
@@ -82,14 +105,9 @@ public class ScheduleService {
         Long classId = termRepository.findClassIdByTermId(termId)
                 .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy lớp cho termId = " + termId));
         // Kiểm tra trùng lịch (trừ chính nó ra)
-        List<Schedule> conflicts = scheduleRepository.findConflictingSchedulesForClass(
-                        classId,
-                        schedule.getDate(),
-                        schedule.getStartPeriod(),
-                        schedule.getEndPeriod()
-                ).stream()
-                .filter(s -> !s.getScheduleId().equals(schedule.getScheduleId())) // bỏ chính nó
-                .toList();
+        lockClass(classId);
+        List<ScheduleConflictDTO> conflicts = scheduleConflictDetector.findConflicts(classId,
+                List.of(toProposal(0, schedule)), schedule.getScheduleId());
 
         if (!conflicts.isEmpty()) {
             throw new IllegalArgumentException("Lịch học của lớp bị trùng tiết trong ngày này!");
@@ -98,6 +116,93 @@ public class ScheduleService {
         return mapToDTO(updatedSchedule);
     }
 
+    /**
+     * Tạo cả thời khoá biểu (vd. 1 kỳ) trong 1 transaction.
+     * Kiểm tra trùng tiết cho toàn bộ lịch (với lịch đã lưu và giữa các lịch trong request) trước khi ghi;
+     * có xung đột thì không ghi gì và báo tất cả xung đột (ScheduleConflictException).
+     */
+    @Transactional
+    public ScheduleBatchResultDTO createSchedules(List<Schedule> schedules) {
+        if (schedules == null || schedules.isEmpty()) {
+            throw new IllegalArgumentException("Danh sách lịch học trống");
+        }
+        if (schedules.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Tối đa " + MAX_BATCH_SIZE + " lịch học trong 1 lần tạo");
+        }
+
+        // Gom lịch theo lớp (lớp lấy từ term), giữ vị trí trong request
+        Map<Long, Long> classIdByTerm = new HashMap<>();
+        Map<Long, List<ScheduleConflictDetector.Proposal>> proposalsByClass = new TreeMap<>();
+        for (int i = 0; i < schedules.size(); i++) {
+            Schedule schedule = schedules.get(i);
+            validateForBatch(i, schedule);
+            Long termId = schedule.getTerm().getTermId();
+            Long classId = classIdByTerm.computeIfAbsent(termId, id -> termRepository.findClassIdByTermId(id)
+                    .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy lớp cho termId = " + id)));
+            proposalsByClass.computeIfAbsent(classId, c -> new ArrayList<>()).add(toProposal(i, schedule));
+        }
+
+        // Khoá các lớp theo thứ tự classId rồi kiểm tra trùng cho từng lớp trong 1 lượt
+        List<ScheduleConflictDTO> conflicts = new ArrayList<>();
+        proposalsByClass.forEach((classId, proposals) -> {
+            lockClass(classId);
+            conflicts.addAll(scheduleConflictDetector.findConflicts(classId, proposals, null));
+        });
+        if (!conflicts.isEmpty()) {
+            throw new ScheduleConflictException(conflicts);
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_SCHEDULE, schedules, batchSize, (ps, s) -> {
+            if (s.getWeek() != null) ps.setInt(1, s.getWeek()); else ps.setNull(1, Types.INTEGER);
+            ps.setString(2, s.getDetails());
+            ps.setDate(3, java.sql.Date.valueOf(toLocalDate(s.getDate())));
+            ps.setInt(4, s.getStartPeriod());
+            ps.setInt(5, s.getEndPeriod());
+            ps.setString(6, s.getRoom());
+            ps.setString(7, s.getStatus() != null ? s.getStatus().name() : null);
+            ps.setString(8, s.getType() != null ? s.getType().name() : null);
+            ps.setLong(9, s.getTerm().getTermId());
+            ps.setLong(10, s.getClassSubject().getClassSubjectId());
+        });
+
+        return ScheduleBatchResultDTO.builder()
+                .inserted(schedules.size())
+                .classIds(new ArrayList<>(proposalsByClass.keySet()))
+                .classSubjectIds(schedules.stream().map(s -> s.getClassSubject().getClassSubjectId()).distinct().toList())
+                .build();
+    }
+
+    private void validateForBatch(int index, Schedule schedule) {
+        String prefix = "Lịch học #" + index + ": ";
+        if (schedule.getTerm() == null || schedule.getTerm().getTermId() == null) {
+            throw new IllegalArgumentException(prefix + "thiếu term");
+        }
+        if (schedule.getClassSubject() == null || schedule.getClassSubject().getClassSubjectId() == null) {
+            throw new IllegalArgumentException(prefix + "thiếu classSubject");
+        }
+        if (schedule.getDate() == null || schedule.getStartPeriod() == null || schedule.getEndPeriod() == null) {
+            throw new IllegalArgumentException(prefix + "thiếu ngày hoặc tiết học");
+        }
+        if (schedule.getStartPeriod() > schedule.getEndPeriod()) {
+            throw new IllegalArgumentException(prefix + "tiết bắt đầu lớn hơn tiết kết thúc");
+        }
+    }
+
+    // Khoá dòng lớp tới hết transaction: 2 lần xếp lịch song song cho cùng lớp không cùng lọt qua kiểm tra trùng
+    private void lockClass(Long classId) {
+        clazzRepository.findByIdForUpdate(classId);
+    }
+
+    private static ScheduleConflictDetector.Proposal toProposal(int index, Schedule schedule) {
+        return new ScheduleConflictDetector.Proposal(index, schedule.getDate(),
+                schedule.getStartPeriod(), schedule.getEndPeriod());
+    }
+
+    private static LocalDate toLocalDate(Date date) {
+        if (date instanceof java.sql.Date sqlDate) return sqlDate.toLocalDate();
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
     public void deleteSchedule(Long id) {
         if (!scheduleRepository.existsById(id)) {
             throw new NoSuchElementException("Schedule not found with id: " + id);
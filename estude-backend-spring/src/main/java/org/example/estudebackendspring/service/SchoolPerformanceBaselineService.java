@@ -0,0 +1,45 @@
+package org.example.estudebackendspring.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.estudebackendspring.dto.analytics.OverallPerformanceDTO;
+import org.example.estudebackendspring.entity.GradeRollup;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+
+/**
+ * School-wide performance baseline used for "comparison to school" in analytics.
+ * Read from the SCHOOL grade rollup and cached (schoolPerformanceBaseline).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SchoolPerformanceBaselineService {
+
+    private final GradeRollupService gradeRollupService;
+
+    /**
+     * Average score, pass rate (>= 5.0) and excellent rate (>= 9.0) over all graded subjects of the school.
+     * comparisonToSchool is left null; the returned object is shared through the cache and must not be modified.
+     *
+     * @param schoolId ID of the school
+     * @return baseline, or null if the school has no grades yet
+     */
+    @Cacheable(value = "schoolPerformanceBaseline", key = "#schoolId", unless = "#result == null")
+    public OverallPerformanceDTO getBaseline(Long schoolId) {
+        GradeRollup rollup = gradeRollupService.findSchoolRollup(schoolId);
+        if (rollup == null || rollup.getGradedCount() <= 0) {
+            return null;
+        }
+        long gradedCount = rollup.getGradedCount();
+        double avgScore = rollup.getScoreSum() / gradedCount;
+
+        log.info("Loaded school baseline for school ID {}: {} grades, avgScore={}", schoolId, gradedCount, avgScore);
+
+        return OverallPerformanceDTO.builder()
+                .avgScore(Math.round(avgScore * 100.0) / 100.0)
+                .passRate(Math.round((double) rollup.getPassCount() / gradedCount * 10000.0) / 100.0)
+                .excellentRate(Math.round((double) rollup.getExcellentCount() / gradedCount * 10000.0) / 100.0)
+                .build();
+    }
+}
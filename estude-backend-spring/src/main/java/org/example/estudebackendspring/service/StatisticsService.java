@@ -26,6 +26,7 @@ public class StatisticsService {
     private final SubjectGradeRepository subjectGradeRepository;
     private final EnrollmentRepository enrollmentRepository;
     private final ClazzRepository classRepository;
+    private final ClassRankingIndex classRankingIndex;
 
     // Thống kê cho 1 học sinh
     @Transactional
@@ -98,36 +99,9 @@ public class StatisticsService {
 
 
 
-        // 6. Xếp hạng học sinh trong lớp theo điểm trung bình
-        List<Student> allStudents = enrollmentRepository.findByClazz(clazz).stream()
-                .map(Enrollment::getStudent)
-                .toList();
-
-        // Tính điểm trung bình cho từng học sinh
-        Map<Long, Double> studentAvgMap = new HashMap<>();
-        for (Student s : allStudents) {
-            List<SubjectGrade> sGrades = subjectGradeRepository.findByStudent(s).stream()
-                    .filter(g -> currentSubjects.contains(g.getClassSubject()))
-                    .filter(g -> g.getActualAverage() != null)
-                    .toList();
-            if (sGrades.size() == currentSubjects.size()) {
-                double sAvg = sGrades.stream().mapToDouble(SubjectGrade::getActualAverage).average().orElse(0.0);
-                studentAvgMap.put(s.getUserId(), sAvg);
-            } else {
-                studentAvgMap.put(s.getUserId(), null);
-            }
-        }
-
-        // Sắp xếp để tính thứ hạng
-        List<Double> sortedAvgs = studentAvgMap.values().stream()
-                .filter(Objects::nonNull)
-                .sorted(Comparator.reverseOrder())
-                .toList();
-
-        Integer rank = null;
-        if (avg != null) {
-            rank = sortedAvgs.indexOf(avg) + 1;
-        }
+        // 6. Xếp hạng học sinh trong lớp: tra bảng xếp hạng (lớp, kỳ) dựng sẵn, cập nhật khi sửa điểm
+        ClassRankingIndex.Board ranking = classRankingIndex.termBoard(clazz.getClassId(), currentTerm.getTermId());
+        Integer rank = avg != null ? ranking.rank(studentId) : null;
 
         // 7. Số môn học hiện tại và số môn đã hoàn thành (actualAverage >= 5)
         int totalSubjects = currentSubjects.size();
@@ -154,7 +128,7 @@ public class StatisticsService {
                 student.getFullName(),
                 avg,
                 rank,
-                allStudents.size(),
+                ranking.memberCount(),
                 totalSubjects,
                 (int) completedSubjects,
                 submissionRate,
@@ -166,17 +140,75 @@ public class StatisticsService {
     }
 
     // Thống kê cho cả lớp (Teacher dùng)
+    // Set-based: vài query GROUP BY theo kỳ hiện tại của lớp thay vì gọi getStudentStatistics cho từng học sinh
+    @Transactional
     public ClassStatisticsDTO getClassStatistics(Long teacherId, Long classId) {
         Teacher teacher = teacherRepository.findById(teacherId)
                 .orElseThrow(() -> new ResourceNotFoundException("Teacher not found"));
         Clazz clazz = classRepository.findById(classId).orElseThrow(() -> new ResourceNotFoundException("Clazz not found"));
 
-        // Giả sử Clazz có danh sách enrollments → students
         List<Student> students = studentRepository.findStudentsByClassId(classId);
 
-        List<StudentStatisticsDTO> studentStats = students.stream()
-                .map(s -> getStudentStatistics(s.getUserId()))
+        // Kỳ hiện tại của lớp (cùng quy tắc với getStudentStatistics)
+        Date today = new Date();
+        Term currentTerm = clazz.getTerms().stream()
+                .filter(term -> !term.getBeginDate().after(today) && !term.getEndDate().before(today))
+                .findFirst()
+                .orElseThrow(() -> new ResourceNotFoundException("No current term found for class"));
+        Long termId = currentTerm.getTermId();
+        int totalSubjects = currentTerm.getClassSubjects().size();
+
+        // 1 dòng / học sinh cho mỗi loại số liệu
+        Map<Long, Object[]> gradeRows = byStudentId(subjectGradeRepository.summarizeByTermGroupByStudent(termId));
+        Map<Long, Object[]> submissionRows = byStudentId(submissionRepository.countSubmissionsByTermGroupByStudent(termId));
+        Map<Long, Object[]> attendanceRows = byStudentId(attendanceRecordRepository.countByTermGroupByStudent(termId));
+        long totalAssignments = assignmentRepository.countPublishedByTerm(termId);
+
+        // Xếp hạng: chỉ học sinh đã có điểm đủ tất cả các môn, điểm bằng nhau cùng hạng
+        List<Double> sortedAvgs = students.stream()
+                .map(s -> gradeRows.get(s.getUserId()))
+                .filter(r -> r != null && toLong(r[1]) == totalSubjects && r[2] != null)
+                .map(r -> ((Number) r[2]).doubleValue())
+                .sorted(Comparator.reverseOrder())
                 .toList();
+        Map<Double, Integer> rankByAvg = new HashMap<>();
+        for (int i = 0; i < sortedAvgs.size(); i++) {
+            rankByAvg.putIfAbsent(sortedAvgs.get(i), i + 1);
+        }
+
+        List<StudentStatisticsDTO> studentStats = new ArrayList<>(students.size());
+        for (Student s : students) {
+            Object[] grade = gradeRows.get(s.getUserId());
+            Double avg = grade != null && grade[2] != null ? ((Number) grade[2]).doubleValue() : null;
+            Integer rank = avg != null ? rankByAvg.getOrDefault(avg, 0) : null;
+            int completedSubjects = grade != null ? (int) toLong(grade[3]) : 0;
+
+            Object[] submission = submissionRows.get(s.getUserId());
+            long submitted = submission != null ? toLong(submission[1]) : 0;
+            long late = submission != null ? toLong(submission[2]) : 0;
+            double submissionRate = totalAssignments == 0 ? 0 : (double) submitted / totalAssignments * 100;
+            double lateRate = totalAssignments == 0 ? 0 : (double) late / totalAssignments * 100;
+
+            Object[] attendance = attendanceRows.get(s.getUserId());
+            long totalSessions = attendance != null ? toLong(attendance[1]) : 0;
+            long absentSessions = attendance != null ? toLong(attendance[2]) : 0;
+            double attendanceRate = totalSessions == 0 ? 0 : ((double) (totalSessions - absentSessions) / totalSessions) * 100;
+
+            studentStats.add(new StudentStatisticsDTO(
+                    s.getUserId(),
+                    s.getFullName(),
+                    avg,
+                    rank,
+                    students.size(),
+                    totalSubjects,
+                    completedSubjects,
+                    submissionRate,
+                    lateRate,
+                    attendanceRate,
+                    totalSessions,
+                    absentSessions
+            ));
+        }
 
         Double classAvg = studentStats.stream()
                 .map(StudentStatisticsDTO::getAverageScore)
@@ -202,5 +234,16 @@ public class StatisticsService {
                 studentStats
         );
     }
-}
 
+    private static Map<Long, Object[]> byStudentId(List<Object[]> rows) {
+        Map<Long, Object[]> result = new HashMap<>(rows.size() * 2);
+        for (Object[] row : rows) {
+            result.put(((Number) row[0]).longValue(), row);
+        }
+        return result;
+    }
+
+    private static long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+}
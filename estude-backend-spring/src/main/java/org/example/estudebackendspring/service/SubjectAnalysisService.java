@@ -3,21 +3,19 @@ package org.example.estudebackendspring.service;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import jakarta.annotation.PostConstruct;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.example.estudebackendspring.entity.*;
 import org.example.estudebackendspring.enums.AnalysisType;
+import org.example.estudebackendspring.exception.AIServiceUnavailableException;
 import org.example.estudebackendspring.repository.AIAnalysisRequestRepository;
 import org.example.estudebackendspring.repository.AIAnalysisResultRepository;
 import org.example.estudebackendspring.repository.StudentRepository;
 import org.example.estudebackendspring.repository.SubjectGradeRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -32,15 +30,9 @@ public class SubjectAnalysisService {
     private final AIAnalysisRequestRepository requestRepository;
     private final AIAnalysisResultRepository resultRepository;
     private final ObjectMapper objectMapper = new ObjectMapper();
-    private final RestTemplate restTemplate = new RestTemplate();
-
-    @Value("${ai.service.url}")
-    private String aiServiceUrl;
-    private String AI_URL ;
-    @PostConstruct
-    public void init() {
-        AI_URL = aiServiceUrl+ "/predict/subjects";
-    }
+    private final AIServiceClient aiServiceClient;
+
+    private static final String AI_PATH = "/predict/subjects";
 
     @Transactional
     public JsonNode analyzeSubjectsAndSave(Long studentId) {
@@ -93,9 +85,9 @@ public class SubjectAnalysisService {
         // Gọi AI
         JsonNode aiResponse;
         try {
-            aiResponse = restTemplate.postForObject(AI_URL, payload, JsonNode.class);
+            aiResponse = aiServiceClient.postForObject(AI_PATH, payload, JsonNode.class);
             log.info("AI response: {}", aiResponse);
-        } catch (RestClientException ex) {
+        } catch (RestClientException | AIServiceUnavailableException ex) {
             req.setDataPayload(payload);
             requestRepository.save(req);
             throw new RuntimeException("Call to AI service failed: " + ex.getMessage(), ex);
@@ -26,6 +26,8 @@ public class SubjectGradeService {
     private final SubjectGradeRepository subjectGradeRepository;
     private final StudentRepository studentRepository;
     private final ClassSubjectRepository classSubjectRepository;
+    private final ClassRankingIndex classRankingIndex;
+    private final GradeRollupService gradeRollupService;
     private static final double REGULAR_WEIGHT = 0.10;
     private static final double MIDTERM_WEIGHT = 0.20;
     private static final double FINAL_WEIGHT = 0.30;
@@ -43,6 +45,8 @@ public class SubjectGradeService {
                                            String comment) {
         SubjectGrade subjectGrade = subjectGradeRepository.findById(subjectGradeId)
                 .orElseThrow(() -> new RuntimeException("SubjectGrade not found"));
+        // Điểm cũ đã commit (khoá dòng) để tính delta cho rollup
+        Float previousAverage = gradeRollupService.lockCurrentAverage(subjectGradeId);
 
         subjectGrade.setRegularScores(regularScores);
         subjectGrade.setMidtermScore(midtermScore);
@@ -56,7 +60,9 @@ public class SubjectGradeService {
             subjectGrade.setActualAverage((sum / regularScores.size() + midtermScore + finalScore) / 3);
         }
 
-        return subjectGradeRepository.save(subjectGrade);
+        SubjectGrade saved = subjectGradeRepository.save(subjectGrade);
+        publishGradeChange(saved, previousAverage);
+        return saved;
     }
     @Transactional
     public SubjectGradeDTO upsertSubjectGrade(SubjectGradeRequest req) {
@@ -72,6 +78,10 @@ public class SubjectGradeService {
                 .findByStudent_UserIdAndClassSubject_ClassSubjectId(req.getStudentId(), req.getClassSubjectId());
 
         SubjectGrade grade = existingOpt.orElseGet(SubjectGrade::new);
+        // Điểm cũ đã commit (khoá dòng) để tính delta cho rollup
+        Float previousAverage = grade.getSubjectGradeId() != null
+                ? gradeRollupService.lockCurrentAverage(grade.getSubjectGradeId())
+                : null;
 
         // Set relations if created
         grade.setStudent(student);
@@ -114,12 +124,24 @@ public class SubjectGradeService {
         // keep predicted fields unchanged
 
         SubjectGrade saved = subjectGradeRepository.save(grade);
+        publishGradeChange(saved, previousAverage);
 
         return toDto(saved);
     }
 
 
 
+    // actualAverage đổi -> cộng delta vào grade rollup (cùng transaction),
+    // cập nhật bảng xếp hạng lớp (sau commit)
+    private void publishGradeChange(SubjectGrade grade, Float previousAverage) {
+        if (Objects.equals(previousAverage, grade.getActualAverage())) return;
+        ClassSubject cs = grade.getClassSubject();
+        gradeRollupService.onGradeChanged(cs, previousAverage, grade.getActualAverage());
+        if (cs == null || cs.getTerm() == null || cs.getTerm().getClazz() == null || grade.getStudent() == null) return;
+        classRankingIndex.onGradeChanged(cs.getTerm().getClazz().getClassId(), cs.getTerm().getTermId(),
+                grade.getStudent().getUserId(), cs.getClassSubjectId(), grade.getActualAverage());
+    }
+
     @Transactional
     public SubjectGradeDTO getSubjectGrade(Long gradeId) {
         SubjectGrade g = subjectGradeRepository.findById(gradeId)
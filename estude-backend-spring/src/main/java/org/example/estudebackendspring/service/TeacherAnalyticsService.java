@@ -22,8 +22,9 @@ public class TeacherAnalyticsService {
     
     private final TeacherRepository teacherRepository;
     private final ClassSubjectRepository classSubjectRepository;
-    private final SubjectGradeRepository subjectGradeRepository;
     private final EnrollmentRepository enrollmentRepository;
+    private final GradeRollupService gradeRollupService;
+    private final SchoolPerformanceBaselineService schoolBaselineService;
     
     /**
      * Get overview of all classes taught by a teacher
@@ -90,95 +91,54 @@ public class TeacherAnalyticsService {
         
         log.info("Main subject for teacher: {}", mainSubject);
         
-        // 3. Calculate total unique students across all classes (from Enrollments, not grades)
-        Set<Long> uniqueStudentIds = new HashSet<>();
+        // Group ClassSubjects by Class to avoid duplicates (keeps class info, no extra queries)
+        Map<Long, Clazz> classesById = new LinkedHashMap<>();
         for (ClassSubject cs : classSubjects) {
             if (cs.getTerm() != null && cs.getTerm().getClazz() != null) {
-                Long classId = cs.getTerm().getClazz().getClassId();
-                List<Enrollment> enrollments = enrollmentRepository.findByClazzClassId(classId);
-                for (Enrollment enrollment : enrollments) {
-                    if (enrollment.getStudent() != null) {
-                        uniqueStudentIds.add(enrollment.getStudent().getUserId());
-                    }
-                }
-                log.debug("Class ID {} has {} enrollments", classId, enrollments.size());
+                Clazz clazz = cs.getTerm().getClazz();
+                classesById.putIfAbsent(clazz.getClassId(), clazz);
             }
         }
         
-        int totalStudents = uniqueStudentIds.size();
+        log.info("Found {} unique classes", classesById.size());
+        
+        // 3. Enrollment counts per class and total unique students (from Enrollments, not grades)
+        Map<Long, Long> enrolledByClass = new HashMap<>();
+        int totalStudents = 0;
+        if (!classesById.isEmpty()) {
+            for (Object[] row : enrollmentRepository.countByClassIds(classesById.keySet())) {
+                enrolledByClass.put(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+            }
+            totalStudents = (int) enrollmentRepository.countDistinctStudentsByClassIds(classesById.keySet());
+        }
         log.info("Total unique students (from enrollments): {}", totalStudents);
         
-        // 4. Calculate class summaries and overall performance
+        // 4. Per-class grade aggregates from the grade rollups (count, sum, pass, excellent)
+        Map<Long, Object[]> gradesByClass = new HashMap<>();
+        for (Object[] row : gradeRollupService.sumByClassForTeacher(teacherId)) {
+            gradesByClass.put(((Number) row[0]).longValue(), row);
+        }
+        
         List<ClassSummaryDTO> classSummaries = new ArrayList<>();
         double totalAvgScore = 0.0;
-        int totalPassCount = 0;
-        int totalExcellentCount = 0;
-        int totalGradedStudents = 0;
+        long totalPassCount = 0;
+        long totalExcellentCount = 0;
+        long totalGradedStudents = 0;
         
-        // Group ClassSubjects by Class to avoid duplicates
-        Map<Long, List<ClassSubject>> classSubjectsByClass = classSubjects.stream()
-                .filter(cs -> cs.getTerm() != null && cs.getTerm().getClazz() != null)
-                .collect(Collectors.groupingBy(cs -> cs.getTerm().getClazz().getClassId()));
-        
-        log.info("Found {} unique classes", classSubjectsByClass.size());
-        
-        for (Map.Entry<Long, List<ClassSubject>> entry : classSubjectsByClass.entrySet()) {
-            Long classId = entry.getKey();
-            List<ClassSubject> classSubjectsForClass = entry.getValue();
-            
-            // Get the first ClassSubject to access Class info
-            ClassSubject firstCs = classSubjectsForClass.get(0);
-            Clazz clazz = firstCs.getTerm().getClazz();
-            
-            log.info("Processing class: {} (ID: {})", clazz.getName(), clazz.getClassId());
+        for (Clazz clazz : classesById.values()) {
+            int enrolledStudentCount = enrolledByClass.getOrDefault(clazz.getClassId(), 0L).intValue();
             
-            // Get enrolled students count for this class
-            List<Enrollment> classEnrollments = enrollmentRepository.findByClazzClassId(classId);
-            int enrolledStudentCount = classEnrollments.size();
-            log.info("Class {} has {} enrolled students", clazz.getName(), enrolledStudentCount);
+            Object[] grades = gradesByClass.get(clazz.getClassId());
+            long validGradeCount = grades != null ? ((Number) grades[1]).longValue() : 0L;
+            double classAvgScore = validGradeCount > 0 ? ((Number) grades[2]).doubleValue() / validGradeCount : 0.0;
+            long passCount = validGradeCount > 0 ? ((Number) grades[3]).longValue() : 0L;
+            long excellentCount = validGradeCount > 0 ? ((Number) grades[4]).longValue() : 0L;
             
-            // Collect all grades from all ClassSubjects for this class
-            List<SubjectGrade> allGradesForClass = new ArrayList<>();
-            for (ClassSubject cs : classSubjectsForClass) {
-                List<SubjectGrade> grades = subjectGradeRepository.findByClassSubject_ClassSubjectId(cs.getClassSubjectId());
-                allGradesForClass.addAll(grades);
-                log.debug("ClassSubject ID {}: found {} grades", cs.getClassSubjectId(), grades.size());
-            }
-            
-            log.info("Class {} total grades: {}", clazz.getName(), allGradesForClass.size());
-            
-            // Calculate class metrics (even if no grades, still create class entry)
-            double classAvgScore = 0.0;
-            int passCount = 0;
-            int excellentCount = 0;
-            int validGradeCount = 0;
-            
-            // Only calculate if there are grades
-            if (!allGradesForClass.isEmpty()) {
-                for (SubjectGrade grade : allGradesForClass) {
-                    Float avgScore = grade.getActualAverage();
-                    if (avgScore != null && avgScore > 0) {
-                        classAvgScore += avgScore;
-                        validGradeCount++;
-                        
-                        if (avgScore >= 5.0) {
-                            passCount++;
-                        }
-                        if (avgScore >= 9.0) {
-                            excellentCount++;
-                        }
-                    }
-                }
-                
-                if (validGradeCount > 0) {
-                    classAvgScore /= validGradeCount;
-                    
-                    // Add to overall totals
-                    totalAvgScore += classAvgScore * validGradeCount;
-                    totalPassCount += passCount;
-                    totalExcellentCount += excellentCount;
-                    totalGradedStudents += validGradeCount;
-                }
+            if (validGradeCount > 0) {
+                totalAvgScore += classAvgScore * validGradeCount;
+                totalPassCount += passCount;
+                totalExcellentCount += excellentCount;
+                totalGradedStudents += validGradeCount;
             }
             
             // Create class summary REGARDLESS of whether grades exist
@@ -196,7 +156,7 @@ public class TeacherAnalyticsService {
             
             classSummaries.add(classSummary);
             
-            log.info("Added class {}: enrolledStudents={}, gradedStudents={}, avgScore={}, passRate={}, excellentRate={}", 
+            log.debug("Added class {}: enrolledStudents={}, gradedStudents={}, avgScore={}, passRate={}, excellentRate={}", 
                     clazz.getName(), 
                     enrolledStudentCount,
                     validGradeCount,
@@ -216,10 +176,12 @@ public class TeacherAnalyticsService {
         log.info("Overall metrics - avgScore: {}, passRate: {}%, excellentRate: {}%", 
                 overallAvgScore, overallPassRate, overallExcellentRate);
         
-        // 6. Compare to school-wide averages (placeholder - implement later)
-        double schoolAvgScore = overallAvgScore; // TODO: Calculate real school average
-        double schoolPassRate = overallPassRate;
-        double schoolExcellentRate = overallExcellentRate;
+        // 6. Compare to school-wide averages (cached per school)
+        Long schoolId = resolveSchoolId(teacher, classesById.values());
+        OverallPerformanceDTO schoolBaseline = schoolId != null ? schoolBaselineService.getBaseline(schoolId) : null;
+        double schoolAvgScore = schoolBaseline != null ? schoolBaseline.getAvgScore() : overallAvgScore;
+        double schoolPassRate = schoolBaseline != null ? schoolBaseline.getPassRate() : overallPassRate;
+        double schoolExcellentRate = schoolBaseline != null ? schoolBaseline.getExcellentRate() : overallExcellentRate;
         
         TeacherClassOverviewDTO.TeacherInfo teacherInfo = TeacherClassOverviewDTO.TeacherInfo.builder()
                 .teacherId(teacher.getUserId())
@@ -246,6 +208,20 @@ public class TeacherAnalyticsService {
                 .build();
     }
     
+    /**
+     * School of the teacher, falling back to the school of the first class taught
+     */
+    private Long resolveSchoolId(Teacher teacher, Collection<Clazz> classes) {
+        if (teacher.getSchool() != null) {
+            return teacher.getSchool().getSchoolId();
+        }
+        return classes.stream()
+                .filter(c -> c.getSchool() != null)
+                .map(c -> c.getSchool().getSchoolId())
+                .findFirst()
+                .orElse(null);
+    }
+    
     /**
      * Get detailed analytics for a specific class
      * @param classId ID of the class
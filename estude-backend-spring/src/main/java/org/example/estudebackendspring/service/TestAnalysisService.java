@@ -3,7 +3,6 @@ package org.example.estudebackendspring.service;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import jakarta.annotation.PostConstruct;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.example.estudebackendspring.entity.AIAnalysisRequest;
@@ -16,14 +15,12 @@ import org.example.estudebackendspring.repository.StudentRepository;
 import org.example.estudebackendspring.repository.SubmissionReportRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
 
 import java.time.LocalDateTime;
 import java.util.Optional;
@@ -39,16 +36,10 @@ public class TestAnalysisService {
     private final AIAnalysisResultRepository resultRepository;
 
     private final ObjectMapper objectMapper = new ObjectMapper();
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final AIServiceClient aiServiceClient;
 
     // AI endpoint
-    @Value("${ai.service.url}")
-    private String aiServiceUrl;
-    private String AI_URL;
-    @PostConstruct
-    public void init() {
-        AI_URL = aiServiceUrl + "/test/analyze";
-    }
+    private static final String AI_PATH = "/test/analyze";
 
     /**
      * Lấy bài làm (JSON) -> gửi AI -> lưu request & result -> trả về JsonNode response.
@@ -101,8 +92,7 @@ public class TestAnalysisService {
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_JSON);
             HttpEntity<JsonNode> entity = new HttpEntity<>(payloadNode, headers);
-//            AI_URL =aiServiceUrl+ "/test/analyze";
-            ResponseEntity<JsonNode> resp = restTemplate.postForEntity(AI_URL, entity, JsonNode.class);
+            ResponseEntity<JsonNode> resp = aiServiceClient.postForEntity(AI_PATH, entity, JsonNode.class);
             if (resp.getStatusCode().is2xxSuccessful() && resp.getBody() != null) {
                 aiResponse = resp.getBody();
             } else {
@@ -0,0 +1,178 @@
+package org.example.estudebackendspring.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.estudebackendspring.entity.TopicMastery;
+import org.example.estudebackendspring.repository.TopicMasteryRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Mức độ nắm vững chủ đề của học sinh (topic_mastery): 1 dòng / (học sinh, chủ đề) gồm số lần làm,
+ * tổng % đúng, % đúng lần gần nhất và lần trước, trạng thái.
+ * - {@link #record} cập nhật O(1) mỗi chủ đề khi nộp practice test, cùng transaction với topic_progress
+ * - {@link #rebuildAll()} dựng lại từ lịch sử topic_progress (backfill lần đầu triển khai)
+ */
+@Slf4j
+@Service
+public class TopicMasteryService {
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private static final String REBUILD_SELECT = """
+        SELECT x.student_id, x.topic_id, x.subject_id,
+               COUNT(*),
+               SUM(x.accuracy_rate),
+               MAX(CASE WHEN x.rn = 1 THEN x.accuracy_rate END),
+               MAX(CASE WHEN x.rn = 2 THEN x.accuracy_rate END),
+               MAX(x.recorded_at)
+        FROM (
+            SELECT tp.student_id, tp.topic_id, t.subject_id, tp.accuracy_rate, tp.recorded_at,
+                   ROW_NUMBER() OVER (PARTITION BY tp.student_id, tp.topic_id
+                                      ORDER BY tp.recorded_at DESC, tp.progress_id DESC) AS rn
+            FROM topic_progress tp
+            JOIN topics t ON t.topic_id = tp.topic_id
+        ) x
+        GROUP BY x.student_id, x.topic_id, x.subject_id
+        """;
+
+    private static final String INSERT_MASTERY = """
+        INSERT INTO topic_mastery
+            (student_id, topic_id, subject_id, attempt_count, accuracy_sum,
+             latest_accuracy, previous_accuracy, status, last_attempt_at)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+        """;
+
+    private final TopicMasteryRepository topicMasteryRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public TopicMasteryService(TopicMasteryRepository topicMasteryRepository,
+                               JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager) {
+        this.topicMasteryRepository = topicMasteryRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Kết quả 1 chủ đề trong 1 bài nộp
+     *
+     * @param accuracy tỷ lệ đúng (0.0 -> 1.0), giống TopicProgress.accuracyRate
+     */
+    public record Attempt(Long topicId, Long subjectId, float accuracy) {
+    }
+
+    /**
+     * Cộng 1 lần làm bài vào mức độ nắm vững của từng chủ đề
+     */
+    @Transactional
+    public void record(Long studentId, List<Attempt> attempts, LocalDateTime recordedAt) {
+        if (studentId == null || attempts == null || attempts.isEmpty()) return;
+
+        // Thứ tự topicId cố định: 2 bài nộp song song khoá các dòng theo cùng thứ tự, không deadlock
+        Map<Long, Attempt> byTopic = new TreeMap<>();
+        for (Attempt a : attempts) {
+            if (a.topicId() != null) byTopic.put(a.topicId(), a);
+        }
+        if (byTopic.isEmpty()) return;
+        byTopic.values().forEach(a -> topicMasteryRepository.insertIfAbsent(studentId, a.topicId(), a.subjectId()));
+
+        for (TopicMastery m : topicMasteryRepository.findForUpdate(studentId, byTopic.keySet())) {
+            Attempt a = byTopic.get(m.getTopic().getTopicId());
+            m.setAttemptCount(m.getAttemptCount() + 1);
+            m.setAccuracySum(m.getAccuracySum() + a.accuracy());
+            m.setPreviousAccuracy(m.getLatestAccuracy());
+            m.setLatestAccuracy(a.accuracy());
+            m.setStatus(determineStatus(m.getLatestAccuracy(), trend(m)));
+            m.setLastAttemptAt(recordedAt);
+        }
+    }
+
+    /**
+     * Chênh lệch % đúng lần gần nhất so với lần trước, 0 nếu mới làm 1 lần
+     */
+    public static float trend(TopicMastery m) {
+        if (m.getLatestAccuracy() == null || m.getPreviousAccuracy() == null) return 0f;
+        return m.getLatestAccuracy() - m.getPreviousAccuracy();
+    }
+
+    /**
+     * % đúng trung bình qua mọi lần làm
+     */
+    public static float averageAccuracy(TopicMastery m) {
+        return m.getAttemptCount() > 0 ? (float) (m.getAccuracySum() / m.getAttemptCount()) : 0f;
+    }
+
+    public static String determineStatus(Float latestAccuracy, Float trend) {
+        if (latestAccuracy == null) return "UNKNOWN";
+
+        if (latestAccuracy >= 0.9f) {
+            return "EXCELLENT";
+        } else if (latestAccuracy >= 0.7f) {
+            return "GOOD";
+        } else if (latestAccuracy >= 0.5f) {
+            if (trend != null && trend > 0.1f) {
+                return "IMPROVING";
+            }
+            return "NEED_IMPROVEMENT";
+        } else {
+            return "WEAK";
+        }
+    }
+
+    /**
+     * Bảng rỗng (lần đầu triển khai) -> dựng từ lịch sử topic_progress
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (topicMasteryRepository.count() == 0) {
+            rebuildAll();
+        }
+    }
+
+    /**
+     * Dựng lại toàn bộ topic_mastery từ topic_progress (1 transaction)
+     *
+     * @return số dòng (học sinh, chủ đề)
+     */
+    public long rebuildAll() {
+        long start = System.currentTimeMillis();
+        Long rows = transactionTemplate.execute(status -> {
+            jdbcTemplate.execute("LOCK TABLE topic_mastery IN EXCLUSIVE MODE");
+            jdbcTemplate.update("DELETE FROM topic_mastery");
+
+            List<Object[]> batch = new ArrayList<>(REBUILD_BATCH_SIZE);
+            long[] total = {0};
+            jdbcTemplate.query(REBUILD_SELECT, rs -> {
+                Float latest = rs.getObject(6) != null ? rs.getFloat(6) : null;
+                Float previous = rs.getObject(7) != null ? rs.getFloat(7) : null;
+                float trend = latest != null && previous != null ? latest - previous : 0f;
+                batch.add(new Object[]{
+                        rs.getLong(1), rs.getLong(2), rs.getObject(3),
+                        rs.getInt(4), rs.getDouble(5),
+                        latest, previous, determineStatus(latest, trend),
+                        rs.getTimestamp(8)});
+                if (batch.size() >= REBUILD_BATCH_SIZE) {
+                    total[0] += batch.size();
+                    jdbcTemplate.batchUpdate(INSERT_MASTERY, batch);
+                    batch.clear();
+                }
+            });
+            if (!batch.isEmpty()) {
+                total[0] += batch.size();
+                jdbcTemplate.batchUpdate(INSERT_MASTERY, batch);
+            }
+            return total[0];
+        });
+        log.info("Topic mastery rebuilt: {} rows ({} ms)", rows, System.currentTimeMillis() - start);
+        return rows != null ? rows : 0L;
+    }
+}
@@ -22,17 +22,20 @@ public class TopicProgressService {
     private final SubjectRepository subjectRepository;
     private final TopicRepository topicRepository;
     private final SubmissionRepository submissionRepository;
+    private final TopicMasteryRepository topicMasteryRepository;
     
     public TopicProgressService(TopicProgressRepository topicProgressRepository,
                                StudentRepository studentRepository,
                                SubjectRepository subjectRepository,
                                TopicRepository topicRepository,
-                               SubmissionRepository submissionRepository) {
+                               SubmissionRepository submissionRepository,
+                               TopicMasteryRepository topicMasteryRepository) {
         this.topicProgressRepository = topicProgressRepository;
         this.studentRepository = studentRepository;
         this.subjectRepository = subjectRepository;
         this.topicRepository = topicRepository;
         this.submissionRepository = submissionRepository;
+        this.topicMasteryRepository = topicMasteryRepository;
     }
     
     /**
@@ -47,59 +50,18 @@ public class TopicProgressService {
         Subject subject = subjectRepository.findById(subjectId)
             .orElseThrow(() -> new ResourceNotFoundException("Subject not found: " + subjectId));
         
-        // Lấy tất cả progress records
-        List<TopicProgress> allProgress = topicProgressRepository.findByStudentAndSubject(studentId, subjectId);
-        
-        // Group by topic
-        Map<Long, List<TopicProgress>> progressByTopic = allProgress.stream()
-            .collect(Collectors.groupingBy(tp -> tp.getTopic().getTopicId()));
-        
-        // Calculate stats for each topic
+        // 1 dòng topic_mastery / topic đã làm (không quét lịch sử topic_progress)
         List<TopicProgressSummaryDTO.TopicStatDTO> topicStats = new ArrayList<>();
-        
-        for (Map.Entry<Long, List<TopicProgress>> entry : progressByTopic.entrySet()) {
-            Long topicId = entry.getKey();
-            List<TopicProgress> progressList = entry.getValue();
-            
-            Topic topic = progressList.get(0).getTopic();
-            
+        for (TopicMastery mastery : topicMasteryRepository.findByStudentAndSubject(studentId, subjectId)) {
             TopicProgressSummaryDTO.TopicStatDTO stat = new TopicProgressSummaryDTO.TopicStatDTO();
-            stat.setTopicId(topicId);
-            stat.setTopicName(topic.getName());
-            stat.setAttemptCount(progressList.size());
-            
-            // Calculate average accuracy
-            float avgAccuracy = (float) progressList.stream()
-                .mapToDouble(TopicProgress::getAccuracyRate)
-                .average()
-                .orElse(0.0);
-            stat.setAverageAccuracy(avgAccuracy);
-            
-            // Latest accuracy
-            TopicProgress latest = progressList.stream()
-                .max(Comparator.comparing(TopicProgress::getRecordedAt))
-                .orElse(null);
-            
-            if (latest != null) {
-                stat.setLatestAccuracy(latest.getAccuracyRate());
-                
-                // Calculate trend (compare with previous)
-                if (progressList.size() > 1) {
-                    List<TopicProgress> sorted = progressList.stream()
-                        .sorted(Comparator.comparing(TopicProgress::getRecordedAt).reversed())
-                        .collect(Collectors.toList());
-                    
-                    float currentAcc = sorted.get(0).getAccuracyRate();
-                    float previousAcc = sorted.get(1).getAccuracyRate();
-                    stat.setTrend(currentAcc - previousAcc);
-                } else {
-                    stat.setTrend(0f);
-                }
-            }
-            
-            // Determine status
-            stat.setStatus(determineStatus(stat.getLatestAccuracy(), stat.getTrend()));
-            
+            stat.setTopicId(mastery.getTopic().getTopicId());
+            stat.setTopicName(mastery.getTopic().getName());
+            stat.setAttemptCount(mastery.getAttemptCount());
+            stat.setAverageAccuracy(TopicMasteryService.averageAccuracy(mastery));
+            stat.setLatestAccuracy(mastery.getLatestAccuracy());
+            stat.setTrend(TopicMasteryService.trend(mastery));
+            stat.setStatus(mastery.getStatus() != null ? mastery.getStatus()
+                : TopicMasteryService.determineStatus(stat.getLatestAccuracy(), stat.getTrend()));
             topicStats.add(stat);
         }
         
@@ -120,23 +82,6 @@ public class TopicProgressService {
         return summary;
     }
     
-    private String determineStatus(Float latestAccuracy, Float trend) {
-        if (latestAccuracy == null) return "UNKNOWN";
-        
-        if (latestAccuracy >= 0.9f) {
-            return "EXCELLENT";
-        } else if (latestAccuracy >= 0.7f) {
-            return "GOOD";
-        } else if (latestAccuracy >= 0.5f) {
-            if (trend != null && trend > 0.1f) {
-                return "IMPROVING";
-            }
-            return "NEED_IMPROVEMENT";
-        } else {
-            return "WEAK";
-        }
-    }
-    
     private int getStatusPriority(String status) {
         switch (status) {
             case "WEAK": return 1;
@@ -218,17 +163,10 @@ public class TopicProgressService {
         log.info("Getting weak topics for student: {}, subject: {}, threshold: {}", 
             studentId, subjectId, threshold);
         
-        // Get latest progress for each topic
-        List<TopicProgress> latestProgress = topicProgressRepository
-            .findLatestProgressByTopic(studentId, subjectId);
-        
-        // Filter weak topics
-        List<Topic> weakTopics = latestProgress.stream()
-            .filter(tp -> tp.getAccuracyRate() < threshold)
-            .map(TopicProgress::getTopic)
+        // % đúng lần gần nhất của từng topic lấy từ topic_mastery
+        return topicMasteryRepository.findWeak(studentId, subjectId, threshold).stream()
+            .map(mastery -> convertTopicToDTO(mastery.getTopic()))
             .collect(Collectors.toList());
-        
-        return weakTopics.stream().map(this::convertTopicToDTO).collect(Collectors.toList());
     }
     
     private TopicProgressDTO convertToDTO(TopicProgress progress) {
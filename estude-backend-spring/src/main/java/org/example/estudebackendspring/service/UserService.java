@@ -2,6 +2,7 @@ package org.example.estudebackendspring.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.estudebackendspring.config.UserPrincipalCache;
 import org.example.estudebackendspring.entity.User;
 import org.example.estudebackendspring.repository.UserRepository;
 import org.springframework.stereotype.Service;
@@ -18,6 +19,7 @@ public class UserService {
     
     private final UserRepository userRepository;
     private final S3Service s3Service;
+    private final UserPrincipalCache userPrincipalCache;
     
     /**
      * Update user avatar
@@ -65,6 +67,7 @@ public class UserService {
         // 5. Update user in database
         user.setAvatarPath(newAvatarUrl);
         User savedUser = userRepository.save(user);
+        userPrincipalCache.evict(userId);
         
         log.info("Avatar updated successfully for user ID: {}", userId);
         
@@ -92,6 +95,7 @@ public class UserService {
             
             user.setAvatarPath(null);
             userRepository.save(user);
+            userPrincipalCache.evict(userId);
             
             log.info("Avatar removed successfully for user ID: {}", userId);
         } else {
@@ -27,20 +27,15 @@ public class EmailUtil {
     @Value("${app.otp.expire-minutes:15}")
     private long otpExpireMinutes;
 
+    public static final String OTP_SUBJECT = "Mã OTP xác thực tài khoản";
+
     /**
-     * Gửi OTP 6 chữ số trong body (KHÔNG đặt trực tiếp token trong query string).
-     * Frontend/UX: user sẽ nhận mã và dán vào form "Enter OTP".
+     * Nội dung HTML của email OTP (dùng khi đưa email vào outbox).
+     * OTP 6 chữ số nằm trong body (KHÔNG đặt trực tiếp token trong query string);
+     * user nhận mã và dán vào form "Enter OTP".
      */
-    public void sendOtpEmail(String email, String otp) throws MessagingException {
-        MimeMessage mimeMessage = javaMailSender.createMimeMessage();
-        // set multipart = false, nhưng dùng helper với UTF-8
-        MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, false, "UTF-8");
-
-        helper.setTo(email);
-        helper.setFrom(mailFrom);
-        helper.setReplyTo(mailFrom);
-        helper.setSubject("Mã OTP xác thực tài khoản");
-        String html = """
+    public String otpEmailHtml(String otp) {
+        return """
             <div style="font-family: Arial, sans-serif; line-height:1.4;">
               <p>Xin chào,</p>
               <p>Bạn đã yêu cầu đặt lại mật khẩu / xác thực tài khoản.</p>
@@ -49,12 +44,22 @@ public class EmailUtil {
               <p>Trân trọng,<br/>Đội ngũ hỗ trợ</p>
             </div>
             """.formatted(otp, otpExpireMinutes);
+    }
 
+    /**
+     * Gửi 1 email HTML qua SMTP (chặn tới khi server nhận thư)
+     */
+    public void send(String to, String subject, String html) throws MessagingException {
+        MimeMessage mimeMessage = javaMailSender.createMimeMessage();
+        // set multipart = false, nhưng dùng helper với UTF-8
+        MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, false, "UTF-8");
+
+        helper.setTo(to);
+        helper.setFrom(mailFrom);
+        helper.setReplyTo(mailFrom);
+        helper.setSubject(subject);
         helper.setText(html, true);
         javaMailSender.send(mimeMessage);
-
-        // KHÔNG log OTP ở môi trường production; log chỉ thông tin non-sensitive nếu cần
-        log.info("Sent OTP email to {}", email);
     }
 
     /**
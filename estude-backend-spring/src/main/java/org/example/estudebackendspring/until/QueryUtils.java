@@ -0,0 +1,26 @@
+package org.example.estudebackendspring.until;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public final class QueryUtils {
+
+    // Số giá trị tối đa trong 1 mệnh đề IN
+    public static final int IN_CHUNK_SIZE = 1000;
+
+    private QueryUtils() {
+    }
+
+    /**
+     * Chia values (giữ thứ tự) thành các khối tối đa IN_CHUNK_SIZE phần tử, mỗi khối cho 1 query IN (...)
+     */
+    public static <T> List<List<T>> inChunks(Collection<T> values) {
+        List<T> list = values instanceof List<T> l ? l : new ArrayList<>(values);
+        List<List<T>> chunks = new ArrayList<>((list.size() + IN_CHUNK_SIZE - 1) / IN_CHUNK_SIZE);
+        for (int from = 0; from < list.size(); from += IN_CHUNK_SIZE) {
+            chunks.add(list.subList(from, Math.min(from + IN_CHUNK_SIZE, list.size())));
+        }
+        return chunks;
+    }
+}
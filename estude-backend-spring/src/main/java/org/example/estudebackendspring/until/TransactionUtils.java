@@ -0,0 +1,27 @@
+package org.example.estudebackendspring.until;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public final class TransactionUtils {
+
+    private TransactionUtils() {
+    }
+
+    /**
+     * Chạy action sau khi transaction hiện tại commit (rollback thì bỏ); không có transaction thì chạy ngay.
+     * Lúc afterCommit connection cũ vẫn gắn với thread: action cần ghi DB phải tự mở transaction REQUIRES_NEW.
+     */
+    public static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package org.example.estudebackendspring.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.estudebackendspring.dto.ProvisionAccountRow;
+import org.example.estudebackendspring.repository.SchoolRepository;
+import org.example.estudebackendspring.repository.StudentRepository;
+import org.example.estudebackendspring.repository.TeacherRepository;
+import org.example.estudebackendspring.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@DisplayName("AccountProvisioningService")
+class AccountProvisioningServiceTest {
+
+    private StudentRepository studentRepository;
+    private TeacherRepository teacherRepository;
+    private UserRepository userRepository;
+    private AccountProvisioningService service;
+
+    @BeforeEach
+    void setUp() {
+        studentRepository = mock(StudentRepository.class);
+        teacherRepository = mock(TeacherRepository.class);
+        userRepository = mock(UserRepository.class);
+        service = new AccountProvisioningService(mock(SchoolRepository.class), studentRepository, teacherRepository,
+                userRepository, mock(PasswordEncoder.class), mock(ThreadPoolTaskExecutor.class),
+                mock(JdbcTemplate.class), mock(PlatformTransactionManager.class), new ObjectMapper(), 100, 10);
+    }
+
+    private static List<List<String>> csv(String text) throws IOException {
+        return AccountProvisioningService.readCsvRecords(new StringReader(text));
+    }
+
+    private static ProvisionAccountRow row(String code, String email, String phone, String password, String dob) {
+        return new ProvisionAccountRow(code, "Nguyễn Văn A", email, phone, password, dob, null, null);
+    }
+
+    @Test
+    void readsPlainRecordsWithEitherLineEnding() throws IOException {
+        assertEquals(List.of(List.of("code", "email"), List.of("S1", "a@x.vn"), List.of("S2", "")),
+                csv("code,email\r\nS1,a@x.vn\nS2,"));
+        assertEquals(List.of(), csv(""));
+    }
+
+    @Test
+    void readsQuotedFields() throws IOException {
+        assertEquals(List.of(List.of("Trần, Thị B", "nói \"chào\"", "dòng 1\ndòng 2"), List.of("x")),
+                csv("\"Trần, Thị B\",\"nói \"\"chào\"\"\",\"dòng 1\ndòng 2\"\nx\n"));
+        // Dấu nháy đóng ở cuối file
+        assertEquals(List.of(List.of("a", "b")), csv("a,\"b\""));
+    }
+
+    @Test
+    void blankLineIsASingleEmptyField() throws IOException {
+        assertEquals(List.of(List.of("a"), List.of(""), List.of("b")), csv("a\n\nb\n"));
+    }
+
+    @Test
+    void validateRejectsIncompleteAndDuplicateRows() {
+        List<ProvisionAccountRow> rows = List.of(
+                row(" S1 ", "a@x.vn", "0901", "pw", "2008-05-01"),
+                row("S2", null, null, " ", null),
+                row("S3", null, null, "pw", "01/05/2008"),
+                row("S1", null, null, "pw", null),
+                row("S4", " a@x.vn ", null, "pw", null),
+                row("S5", "", "0901", "pw", ""),
+                row("S6", null, null, "pw", null));
+
+        String[] rejections = service.validate(AccountProvisioningService.AccountType.STUDENT, rows);
+
+        assertNull(rejections[0]);
+        assertEquals("S1", rows.get(0).getCode());
+        assertEquals("Thiếu mã, họ tên hoặc mật khẩu", rejections[1]);
+        assertEquals("Ngày sinh không hợp lệ (yyyy-MM-dd): 01/05/2008", rejections[2]);
+        assertEquals("Mã bị lặp trong file: S1", rejections[3]);
+        assertEquals("Email bị lặp trong file: a@x.vn", rejections[4]);
+        assertEquals("Số điện thoại bị lặp trong file: 0901", rejections[5]);
+        assertNull(rejections[6]);
+    }
+
+    @Test
+    void validateRejectsValuesAlreadyInTheDatabase() {
+        when(studentRepository.findExistingStudentCodes(anyCollection())).thenReturn(List.of("S1"));
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(List.of("b@x.vn"));
+        when(userRepository.findExistingPhones(anyCollection())).thenReturn(List.of("0903"));
+        List<ProvisionAccountRow> rows = List.of(
+                row("S1", null, null, "pw", null),
+                row("S2", "b@x.vn", null, "pw", null),
+                row("S3", null, "0903", "pw", null),
+                row("S4", "c@x.vn", "0904", "pw", null));
+
+        String[] rejections = service.validate(AccountProvisioningService.AccountType.STUDENT, rows);
+
+        assertEquals("Mã sinh viên đã tồn tại: S1", rejections[0]);
+        assertEquals("Email đã tồn tại: b@x.vn", rejections[1]);
+        assertEquals("Số điện thoại đã tồn tại: 0903", rejections[2]);
+        assertNull(rejections[3]);
+        verifyNoInteractions(teacherRepository);
+    }
+
+    @Test
+    void validateChecksTeacherCodesForTeachers() {
+        when(teacherRepository.findExistingTeacherCodes(anyCollection())).thenReturn(List.of("GV1"));
+
+        String[] rejections = service.validate(AccountProvisioningService.AccountType.TEACHER,
+                List.of(row("GV1", null, null, "pw", null)));
+
+        assertEquals("Mã giáo viên đã tồn tại: GV1", rejections[0]);
+        verify(studentRepository, never()).findExistingStudentCodes(anyCollection());
+    }
+}
@@ -0,0 +1,124 @@
+package org.example.estudebackendspring.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.estudebackendspring.enums.DifficultyLevel;
+import org.example.estudebackendspring.enums.QuestionType;
+import org.example.estudebackendspring.repository.QuestionOptionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.example.estudebackendspring.util.TestUtilHelper.rows;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@DisplayName("AnswerKeyCache")
+class AnswerKeyCacheTest {
+
+    private QuestionOptionRepository repository;
+    private AnswerKeyCache cache;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(QuestionOptionRepository.class);
+        cache = new AnswerKeyCache(repository, new SimpleMeterRegistry(), 1000);
+    }
+
+    // [question_id, topic_id, difficulty_level, question_type, points, option_id, is_correct]
+    private static Object[] row(long questionId, long optionId, boolean correct) {
+        return new Object[]{questionId, 5L, "MEDIUM", "MULTIPLE_CHOICE", 2.5, optionId, correct};
+    }
+
+    @Test
+    void lookupDecodesLoadedRows() {
+        when(repository.findAnswerKeyRowsByQuestionIds(anyCollection()))
+                .thenReturn(rows(row(1, 11, true), row(1, 12, false)));
+
+        AnswerKeyCache.Lookup lookup = cache.lookup(List.of(1L), List.of(11L, 12L));
+
+        assertTrue(lookup.hasQuestion(1L));
+        assertEquals(5L, lookup.topicId(1L));
+        assertEquals(DifficultyLevel.MEDIUM, lookup.difficulty(1L));
+        assertEquals(QuestionType.MULTIPLE_CHOICE, lookup.questionType(1L));
+        assertEquals(2.5f, lookup.points(1L), 0.0001f);
+        assertTrue(lookup.isCorrect(1L, 11L));
+        assertFalse(lookup.isCorrect(1L, 12L));
+        assertTrue(lookup.belongsTo(12L, 1L));
+        verify(repository, never()).findAnswerKeyRowsByOptionIds(anyCollection());
+    }
+
+    @Test
+    void secondLookupIsServedFromCache() {
+        when(repository.findAnswerKeyRowsByQuestionIds(anyCollection()))
+                .thenReturn(rows(row(1, 11, true), row(1, 12, false)));
+
+        cache.lookup(List.of(1L), List.of(11L));
+        AnswerKeyCache.Lookup lookup = cache.lookup(List.of(1L), List.of(11L));
+
+        assertTrue(lookup.isCorrect(1L, 11L));
+        assertEquals(1, cache.size());
+        verify(repository, times(1)).findAnswerKeyRowsByQuestionIds(anyCollection());
+    }
+
+    @Test
+    void evictReloadsChangedAnswerKey() {
+        when(repository.findAnswerKeyRowsByQuestionIds(anyCollection()))
+                .thenReturn(rows(row(1, 11, true), row(1, 12, false)))
+                .thenReturn(rows(row(1, 11, false), row(1, 12, true)));
+
+        assertTrue(cache.lookup(List.of(1L), List.of(11L)).isCorrect(1L, 11L));
+        cache.evict(1L);
+        AnswerKeyCache.Lookup lookup = cache.lookup(List.of(1L), List.of(11L, 12L));
+
+        assertFalse(lookup.isCorrect(1L, 11L));
+        assertTrue(lookup.isCorrect(1L, 12L));
+        verify(repository, times(2)).findAnswerKeyRowsByQuestionIds(anyCollection());
+    }
+
+    @Test
+    void evictRemovesOnlyThatQuestion() {
+        when(repository.findAnswerKeyRowsByQuestionIds(anyCollection()))
+                .thenReturn(rows(row(1, 11, true), row(2, 21, true)));
+
+        cache.lookup(List.of(1L, 2L), List.of(11L, 21L));
+        cache.evict(1L);
+
+        assertEquals(1, cache.size());
+        cache.evictAll();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void rowsLoadedWhileEvictedAreUsedButNotCached() {
+        when(repository.findAnswerKeyRowsByQuestionIds(anyCollection())).thenAnswer(invocation -> {
+            // Câu hỏi bị sửa trong lúc đang nạp
+            cache.evict(1L);
+            return rows(row(1, 11, true));
+        });
+
+        AnswerKeyCache.Lookup lookup = cache.lookup(List.of(1L), List.of(11L));
+
+        assertTrue(lookup.isCorrect(1L, 11L));
+        assertEquals(0, cache.size());
+        cache.lookup(List.of(1L), List.of(11L));
+        verify(repository, times(2)).findAnswerKeyRowsByQuestionIds(anyCollection());
+    }
+
+    @Test
+    void optionOfAnotherQuestionIsNeverCorrect() {
+        when(repository.findAnswerKeyRowsByQuestionIds(anyCollection()))
+                .thenReturn(rows(row(1, 11, false)));
+        when(repository.findAnswerKeyRowsByOptionIds(anyCollection()))
+                .thenReturn(rows(row(2, 21, true)));
+
+        AnswerKeyCache.Lookup lookup = cache.lookup(List.of(1L), List.of(21L));
+
+        assertTrue(lookup.hasOption(21L));
+        assertFalse(lookup.belongsTo(21L, 1L));
+        assertFalse(lookup.isCorrect(1L, 21L));
+        assertFalse(lookup.hasQuestion(2L));
+    }
+}
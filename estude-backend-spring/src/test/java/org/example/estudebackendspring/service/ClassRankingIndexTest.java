@@ -0,0 +1,116 @@
+package org.example.estudebackendspring.service;
+
+import org.example.estudebackendspring.repository.ClassSubjectRepository;
+import org.example.estudebackendspring.repository.EnrollmentRepository;
+import org.example.estudebackendspring.repository.SubjectGradeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.example.estudebackendspring.util.TestUtilHelper.rows;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("ClassRankingIndex")
+class ClassRankingIndexTest {
+
+    private static final long CLASS_ID = 1L;
+    private static final long TERM_ID = 5L;
+
+    private SubjectGradeRepository subjectGradeRepository;
+    private ClassRankingIndex index;
+
+    @BeforeEach
+    void setUp() {
+        subjectGradeRepository = mock(SubjectGradeRepository.class);
+        ClassSubjectRepository classSubjectRepository = mock(ClassSubjectRepository.class);
+        EnrollmentRepository enrollmentRepository = mock(EnrollmentRepository.class);
+        when(classSubjectRepository.countByTerm_TermId(TERM_ID)).thenReturn(2L);
+        when(enrollmentRepository.findStudentIdsByClassId(CLASS_ID)).thenReturn(List.of(1L, 2L, 3L, 4L, 5L));
+        // [student_id, class_subject_id, actual_average]; học sinh 6 không còn trong lớp
+        when(subjectGradeRepository.findRankingRowsByClassAndTerm(CLASS_ID, TERM_ID)).thenReturn(rows(
+                new Object[]{1L, 11L, 8.0f}, new Object[]{1L, 12L, 9.0f},
+                new Object[]{2L, 11L, 9.0f}, new Object[]{2L, 12L, 8.0f},
+                new Object[]{3L, 11L, 6.0f}, new Object[]{3L, 12L, 7.0f},
+                new Object[]{4L, 11L, 7.0f},
+                new Object[]{6L, 11L, 10.0f}, new Object[]{6L, 12L, 10.0f}));
+        index = new ClassRankingIndex(subjectGradeRepository, classSubjectRepository, enrollmentRepository, 600_000);
+    }
+
+    @Test
+    void termBoardRanksOnlyStudentsGradedInEverySubject() {
+        ClassRankingIndex.Board board = index.termBoard(CLASS_ID, TERM_ID);
+
+        assertEquals(5, board.memberCount());
+        assertEquals(3, board.rankedCount());
+        assertEquals(1, board.rank(1L));
+        assertEquals(1, board.rank(2L));
+        assertEquals(3, board.rank(3L));
+        // Có điểm nhưng thiếu môn: không có học sinh được xếp hạng cùng điểm -> 0
+        assertEquals(0, board.rank(4L));
+        assertEquals(7.0, board.average(4L), 1e-9);
+        assertNull(board.rank(5L));
+        assertNull(board.rank(6L));
+    }
+
+    @Test
+    void topAndBelowReadSlicesInScoreOrder() {
+        ClassRankingIndex.Board board = index.termBoard(CLASS_ID, TERM_ID);
+
+        assertEquals(List.of(new ClassRankingIndex.Entry(1L, 8.5, 1), new ClassRankingIndex.Entry(2L, 8.5, 2)),
+                board.top(2));
+        assertEquals(3, board.top(10).size());
+        assertEquals(List.of(new ClassRankingIndex.Entry(3L, 6.5, 3)), board.below(8.5));
+        assertEquals(3, board.below(9.0).size());
+        assertTrue(board.below(6.5).isEmpty());
+    }
+
+    @Test
+    void gradeChangesReorderTheBoardInPlace() {
+        ClassRankingIndex.Board board = index.termBoard(CLASS_ID, TERM_ID);
+
+        // Không có transaction: áp dụng ngay
+        index.onGradeChanged(CLASS_ID, TERM_ID, 4L, 12L, 9.5f);
+        assertEquals(4, board.rankedCount());
+        assertEquals(3, board.rank(4L));
+        assertEquals(4, board.rank(3L));
+
+        index.onGradeChanged(CLASS_ID, TERM_ID, 1L, 11L, null);
+        assertEquals(3, board.rankedCount());
+        assertEquals(0, board.rank(1L));
+        assertEquals(1, board.rank(2L));
+        assertEquals(List.of(2L, 4L, 3L), board.top(3).stream().map(ClassRankingIndex.Entry::studentId).toList());
+
+        // Học sinh không thuộc lớp bị bỏ qua
+        index.onGradeChanged(CLASS_ID, TERM_ID, 6L, 11L, 10.0f);
+        assertEquals(3, board.rankedCount());
+    }
+
+    @Test
+    void boardIsCachedUntilTheClassIsEvicted() {
+        index.termBoard(CLASS_ID, TERM_ID);
+        index.termBoard(CLASS_ID, TERM_ID);
+        verify(subjectGradeRepository, times(1)).findRankingRowsByClassAndTerm(CLASS_ID, TERM_ID);
+
+        index.evictClass(CLASS_ID);
+        index.termBoard(CLASS_ID, TERM_ID);
+        verify(subjectGradeRepository, times(2)).findRankingRowsByClassAndTerm(CLASS_ID, TERM_ID);
+    }
+
+    @Test
+    void classBoardIgnoresZeroScoresAndSubjectCount() {
+        when(subjectGradeRepository.findRankingRowsByClass(CLASS_ID)).thenReturn(rows(
+                new Object[]{1L, 11L, 0.0f}, new Object[]{1L, 21L, 6.0f},
+                new Object[]{2L, 11L, 0.0f},
+                new Object[]{3L, 21L, 7.0f}));
+
+        ClassRankingIndex.Board board = index.classBoard(CLASS_ID);
+
+        assertEquals(2, board.rankedCount());
+        assertEquals(1, board.rank(3L));
+        assertEquals(2, board.rank(1L));
+        assertNull(board.rank(2L));
+    }
+}
@@ -0,0 +1,159 @@
+package org.example.estudebackendspring.service;
+
+import jakarta.mail.MessagingException;
+import org.example.estudebackendspring.entity.OutboundEmail;
+import org.example.estudebackendspring.enums.OutboundEmailStatus;
+import org.example.estudebackendspring.repository.OutboundEmailRepository;
+import org.example.estudebackendspring.until.EmailUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("EmailOutboxService")
+class EmailOutboxServiceTest {
+
+    private OutboundEmailRepository outboundEmailRepository;
+    private EmailUtil emailUtil;
+    private ThreadPoolTaskExecutor mailSenderExecutor;
+    private JdbcTemplate jdbcTemplate;
+    private EmailOutboxService service;
+
+    @BeforeEach
+    void setUp() {
+        outboundEmailRepository = mock(OutboundEmailRepository.class);
+        emailUtil = mock(EmailUtil.class);
+        mailSenderExecutor = mock(ThreadPoolTaskExecutor.class, RETURNS_DEEP_STUBS);
+        jdbcTemplate = mock(JdbcTemplate.class);
+        when(mailSenderExecutor.getThreadPoolExecutor().getQueue().remainingCapacity()).thenReturn(100);
+        // initial-backoff 30s, max-backoff 30 phút, tối đa 6 lần thử
+        service = new EmailOutboxService(outboundEmailRepository, emailUtil, mailSenderExecutor, jdbcTemplate,
+                mock(PlatformTransactionManager.class), 20, Duration.ofMinutes(2), 6,
+                Duration.ofSeconds(30), Duration.ofMinutes(30), 5, Duration.ofMinutes(10), Duration.ofDays(7));
+    }
+
+    private void claim(Long... ids) {
+        when(jdbcTemplate.queryForList(contains("FOR UPDATE SKIP LOCKED"), eq(Long.class), any(Object[].class)))
+                .thenReturn(List.of(ids));
+    }
+
+    @Test
+    void backoffDoublesFromTheInitialDelay() {
+        assertEquals(Duration.ofSeconds(30), service.backoff(1));
+        assertEquals(Duration.ofSeconds(60), service.backoff(2));
+        assertEquals(Duration.ofSeconds(120), service.backoff(3));
+        assertEquals(Duration.ofSeconds(480), service.backoff(5));
+    }
+
+    @Test
+    void backoffIsCappedWithoutOverflow() {
+        assertEquals(Duration.ofMinutes(16), service.backoff(6));
+        assertEquals(Duration.ofMinutes(30), service.backoff(7));
+        assertEquals(Duration.ofMinutes(30), service.backoff(64));
+        assertEquals(Duration.ofMinutes(30), service.backoff(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void failedSendIsRescheduledWithBackoff() throws MessagingException {
+        claim(1L);
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        }).when(mailSenderExecutor).execute(any(Runnable.class));
+        when(outboundEmailRepository.findById(1L)).thenReturn(Optional.of(OutboundEmail.builder()
+                .emailId(1L).recipient("a@x.vn").subject("s").body("b")
+                .status(OutboundEmailStatus.SENDING).attempts(1).build()));
+        doThrow(new MessagingException("smtp down")).when(emailUtil).send(anyString(), anyString(), anyString());
+
+        LocalDateTime before = LocalDateTime.now();
+        service.dispatchDue();
+
+        // Lần thử thứ 2 lỗi -> chờ 60s
+        ArgumentCaptor<LocalDateTime> next = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(outboundEmailRepository).reschedule(eq(1L), next.capture(), eq(true), eq("smtp down"));
+        assertFalse(next.getValue().isBefore(before.plusSeconds(60)));
+        assertTrue(next.getValue().isBefore(LocalDateTime.now().plusSeconds(61)));
+        verify(outboundEmailRepository, never()).markSent(any(), any());
+    }
+
+    @Test
+    void lastAttemptMarksFailed() throws MessagingException {
+        claim(1L);
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        }).when(mailSenderExecutor).execute(any(Runnable.class));
+        when(outboundEmailRepository.findById(1L)).thenReturn(Optional.of(OutboundEmail.builder()
+                .emailId(1L).recipient("a@x.vn").subject("s").body("b")
+                .status(OutboundEmailStatus.SENDING).attempts(5).build()));
+        doThrow(new MessagingException("smtp down")).when(emailUtil).send(anyString(), anyString(), anyString());
+
+        service.dispatchDue();
+
+        verify(outboundEmailRepository).markFailed(1L, "smtp down");
+        verify(outboundEmailRepository, never()).reschedule(any(), any(), anyBoolean(), any());
+    }
+
+    @Test
+    void unexpectedSendErrorIsRescheduledToo() throws MessagingException {
+        claim(1L);
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        }).when(mailSenderExecutor).execute(any(Runnable.class));
+        when(outboundEmailRepository.findById(1L)).thenReturn(Optional.of(OutboundEmail.builder()
+                .emailId(1L).recipient("a@x.vn").subject("s").body("b")
+                .status(OutboundEmailStatus.SENDING).attempts(0).build()));
+        doThrow(new IllegalStateException()).when(emailUtil).send(anyString(), anyString(), anyString());
+
+        service.dispatchDue();
+
+        verify(outboundEmailRepository).reschedule(eq(1L), any(LocalDateTime.class), eq(true),
+                eq(IllegalStateException.class.getName()));
+        verify(outboundEmailRepository, never()).markSent(any(), any());
+    }
+
+    @Test
+    void claimsUnderTheAdvisoryLock() {
+        claim();
+
+        service.dispatchDue();
+
+        InOrder inOrder = inOrder(jdbcTemplate);
+        inOrder.verify(jdbcTemplate).execute(contains("pg_advisory_xact_lock"));
+        inOrder.verify(jdbcTemplate).queryForList(contains("DISTINCT ON (recipient)"), eq(Long.class), any(Object[].class));
+    }
+
+    @Test
+    void rejectedTaskIsReturnedWithoutCountingAnAttempt() {
+        claim(1L);
+        doThrow(new TaskRejectedException("queue full")).when(mailSenderExecutor).execute(any(Runnable.class));
+
+        service.dispatchDue();
+
+        verify(outboundEmailRepository).reschedule(eq(1L), any(LocalDateTime.class), eq(false), isNull());
+    }
+
+    @Test
+    void fullSenderQueueClaimsNothing() {
+        when(mailSenderExecutor.getThreadPoolExecutor().getQueue().remainingCapacity()).thenReturn(0);
+
+        service.dispatchDue();
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+}
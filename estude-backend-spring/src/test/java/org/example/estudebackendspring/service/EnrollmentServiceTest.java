@@ -0,0 +1,135 @@
+package org.example.estudebackendspring.service;
+
+import org.example.estudebackendspring.dto.BulkEnrollmentReportDTO;
+import org.example.estudebackendspring.entity.Clazz;
+import org.example.estudebackendspring.entity.Enrollment;
+import org.example.estudebackendspring.entity.Student;
+import org.example.estudebackendspring.entity.Term;
+import org.example.estudebackendspring.exception.ResourceNotFoundException;
+import org.example.estudebackendspring.repository.ClazzRepository;
+import org.example.estudebackendspring.repository.EnrollmentRepository;
+import org.example.estudebackendspring.repository.StudentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.example.estudebackendspring.util.TestUtilHelper.rows;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("EnrollmentService")
+class EnrollmentServiceTest {
+
+    private static final Long CLASS_ID = 10L;
+
+    private EnrollmentRepository enrollmentRepository;
+    private StudentRepository studentRepository;
+    private ClassRankingIndex classRankingIndex;
+    private LiveAttendanceRoster liveAttendanceRoster;
+    private JdbcTemplate jdbcTemplate;
+    private Clazz clazz;
+    private EnrollmentService service;
+
+    @BeforeEach
+    void setUp() {
+        enrollmentRepository = mock(EnrollmentRepository.class);
+        studentRepository = mock(StudentRepository.class);
+        classRankingIndex = mock(ClassRankingIndex.class);
+        liveAttendanceRoster = mock(LiveAttendanceRoster.class);
+        jdbcTemplate = mock(JdbcTemplate.class);
+        ClazzRepository clazzRepository = mock(ClazzRepository.class);
+
+        clazz = new Clazz();
+        clazz.setClassId(CLASS_ID);
+        clazz.setTerms(List.of(new Term()));
+        when(clazzRepository.findByIdForUpdate(CLASS_ID)).thenReturn(Optional.of(clazz));
+
+        // Học sinh 1..4 tồn tại, 2 đã ở trong lớp, 3 đang học lớp khác trùng kỳ, 5 không tồn tại
+        when(studentRepository.findExistingIds(anyCollection())).thenReturn(List.of(1L, 2L, 3L, 4L));
+        when(enrollmentRepository.findEnrolledStudentIds(eq(CLASS_ID), anyCollection())).thenReturn(List.of(2L));
+        when(enrollmentRepository.findTermConflicts(eq(CLASS_ID), anyCollection()))
+                .thenReturn(rows(new Object[]{3L, "HK1 2025"}));
+        when(enrollmentRepository.countByClazz(clazz)).thenReturn(30);
+
+        service = new EnrollmentService(enrollmentRepository, clazzRepository, studentRepository,
+                classRankingIndex, liveAttendanceRoster, jdbcTemplate, 20);
+    }
+
+    private static Student student(Long id, String name) {
+        Student s = new Student();
+        s.setUserId(id);
+        s.setFullName(name);
+        return s;
+    }
+
+    @Test
+    void bulkInsertsValidStudentsAndReportsTheRest() {
+        BulkEnrollmentReportDTO report = service.enrollStudentsBulk(CLASS_ID, Arrays.asList(1L, 2L, 2L, null, 3L, 4L, 5L));
+
+        verify(jdbcTemplate).batchUpdate(contains("INSERT INTO enrollments"), eq(List.of(1L, 4L)), eq(20), any());
+        assertEquals(2, report.getAccepted());
+        assertEquals(1, report.getAlreadyEnrolled());
+        assertEquals(2, report.getRejected());
+        assertEquals(30, report.getClassSize());
+        assertEquals(30, clazz.getClassSize());
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L),
+                report.getResults().stream().map(BulkEnrollmentReportDTO.StudentResult::getStudentId).toList());
+        assertEquals(List.of(BulkEnrollmentReportDTO.Status.ACCEPTED, BulkEnrollmentReportDTO.Status.ALREADY_ENROLLED,
+                        BulkEnrollmentReportDTO.Status.REJECTED, BulkEnrollmentReportDTO.Status.ACCEPTED,
+                        BulkEnrollmentReportDTO.Status.REJECTED),
+                report.getResults().stream().map(BulkEnrollmentReportDTO.StudentResult::getStatus).toList());
+        assertTrue(report.getResults().get(2).getReason().endsWith("HK1 2025"));
+        verify(classRankingIndex).evictClass(CLASS_ID);
+        verify(liveAttendanceRoster).evictClass(CLASS_ID);
+    }
+
+    @Test
+    void bulkChecksWholeListWithOneQueryPerKind() {
+        service.enrollStudentsBulk(CLASS_ID, List.of(1L, 2L, 3L, 4L, 5L));
+
+        verify(studentRepository, times(1)).findExistingIds(anyCollection());
+        verify(enrollmentRepository, times(1)).findEnrolledStudentIds(eq(CLASS_ID), anyCollection());
+        verify(enrollmentRepository, times(1)).findTermConflicts(eq(CLASS_ID), anyCollection());
+        verify(studentRepository, never()).findById(any());
+    }
+
+    @Test
+    void bulkRejectsEmptyListAndClassWithoutTerms() {
+        assertThrows(IllegalArgumentException.class, () -> service.enrollStudentsBulk(CLASS_ID, List.of()));
+
+        clazz.setTerms(List.of());
+        assertThrows(IllegalArgumentException.class, () -> service.enrollStudentsBulk(CLASS_ID, List.of(1L)));
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void enrollStudentsSavesNewStudentsAndSkipsEnrolledOnes() {
+        List<Student> students = List.of(student(1L, "Nguyễn A"), student(4L, "Lê D"));
+        when(studentRepository.findAllById(List.of(1L, 4L))).thenReturn(students);
+        when(enrollmentRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<Enrollment> saved = service.enrollStudents(CLASS_ID, List.of(1L, 2L, 4L));
+
+        assertEquals(2, saved.size());
+        assertSame(students.get(0), saved.get(0).getStudent());
+        assertSame(clazz, saved.get(1).getClazz());
+        assertEquals(30, clazz.getClassSize());
+    }
+
+    @Test
+    void enrollStudentsIsAllOrNothing() {
+        when(studentRepository.findById(3L)).thenReturn(Optional.of(student(3L, "Trần C")));
+
+        IllegalArgumentException conflict = assertThrows(IllegalArgumentException.class,
+                () -> service.enrollStudents(CLASS_ID, List.of(1L, 3L)));
+        assertTrue(conflict.getMessage().startsWith("Học sinh Trần C "));
+        assertThrows(ResourceNotFoundException.class, () -> service.enrollStudents(CLASS_ID, List.of(1L, 5L)));
+        verify(enrollmentRepository, never()).saveAll(anyList());
+    }
+}
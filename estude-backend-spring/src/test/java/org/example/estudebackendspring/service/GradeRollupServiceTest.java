@@ -0,0 +1,143 @@
+package org.example.estudebackendspring.service;
+
+import org.example.estudebackendspring.entity.ClassSubject;
+import org.example.estudebackendspring.entity.Clazz;
+import org.example.estudebackendspring.entity.School;
+import org.example.estudebackendspring.entity.Term;
+import org.example.estudebackendspring.repository.GradeRollupRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.example.estudebackendspring.util.TestUtilHelper.rows;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("GradeRollupService")
+class GradeRollupServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private GradeRollupService service;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        service = new GradeRollupService(mock(GradeRollupRepository.class), jdbcTemplate,
+                mock(PlatformTransactionManager.class));
+    }
+
+    // Class-subject 7 thuộc kỳ 3 của lớp 10, trường 1 (null = lớp không có trường)
+    private static ClassSubject classSubject(Long schoolId) {
+        Clazz clazz = new Clazz();
+        clazz.setClassId(10L);
+        if (schoolId != null) {
+            School school = new School();
+            school.setSchoolId(schoolId);
+            clazz.setSchool(school);
+        }
+        Term term = new Term();
+        term.setTermId(3L);
+        term.setClazz(clazz);
+        ClassSubject cs = new ClassSubject();
+        cs.setClassSubjectId(7L);
+        cs.setTerm(term);
+        return cs;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> upsertedRows() {
+        ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(contains("ON CONFLICT"), captor.capture());
+        return captor.getValue();
+    }
+
+    private static void assertRow(Object[] expected, Object[] actual) {
+        assertEquals(Arrays.asList(expected), Arrays.asList(actual));
+    }
+
+    @Test
+    void firstGradeAddsOneToEveryScope() {
+        service.onGradeChanged(classSubject(1L), null, 7.5f);
+
+        List<Object[]> rows = upsertedRows();
+        assertEquals(3, rows.size());
+        // [scope, scope_id, term_id, graded_count, score_sum, pass_count, excellent_count]
+        assertRow(new Object[]{"CLASS_SUBJECT", 7L, 3L, 1L, 7.5, 1L, 0L}, rows.get(0));
+        assertRow(new Object[]{"CLASS", 10L, 3L, 1L, 7.5, 1L, 0L}, rows.get(1));
+        assertRow(new Object[]{"SCHOOL", 1L, 0L, 1L, 7.5, 1L, 0L}, rows.get(2));
+    }
+
+    @Test
+    void changedGradeAddsTheDifferenceAcrossThresholds() {
+        service.onGradeChanged(classSubject(1L), 9.5f, 4.0f);
+
+        assertRow(new Object[]{"CLASS_SUBJECT", 7L, 3L, 0L, -5.5, -1L, -1L}, upsertedRows().get(0));
+    }
+
+    @Test
+    void clearedOrZeroGradeStopsCounting() {
+        service.onGradeChanged(classSubject(1L), 6.0f, null);
+        assertRow(new Object[]{"CLASS_SUBJECT", 7L, 3L, -1L, -6.0, -1L, 0L}, upsertedRows().get(0));
+
+        // 0 coi như chưa có điểm
+        clearInvocations(jdbcTemplate);
+        service.onGradeChanged(classSubject(1L), 0.0f, 5.0f);
+        assertRow(new Object[]{"CLASS_SUBJECT", 7L, 3L, 1L, 5.0, 1L, 0L}, upsertedRows().get(0));
+    }
+
+    @Test
+    void noDeltaWritesNothing() {
+        service.onGradeChanged(classSubject(1L), 8.0f, 8.0f);
+        service.onGradeChanged(classSubject(1L), null, 0.0f);
+        service.onGradeChanged(new ClassSubject(), null, 8.0f);
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void classWithoutSchoolSkipsSchoolRollup() {
+        service.onGradeChanged(classSubject(null), null, 9.0f);
+
+        List<Object[]> rows = upsertedRows();
+        assertEquals(2, rows.size());
+        assertRow(new Object[]{"CLASS", 10L, 3L, 1L, 9.0, 1L, 1L}, rows.get(1));
+    }
+
+    @Test
+    void removedClassSubjectsAreSubtractedFromClassAndSchool() {
+        // [class_id, school_id, term_id, graded_count, score_sum, pass_count, excellent_count]
+        when(jdbcTemplate.query(contains("DELETE FROM grade_rollups"), any(RowMapper.class), any(Object[].class)))
+                .thenReturn(rows(
+                        new Object[]{10L, 1L, 2L, 3L, 21.0, 2L, 1L},
+                        new Object[]{10L, 1L, 3L, 1L, 5.0, 1L, 0L},
+                        new Object[]{20L, null, 2L, 2L, 12.0, 2L, 0L}));
+
+        service.onClassSubjectsRemoved(List.of(7L, 8L, 9L));
+
+        List<Object[]> rows = upsertedRows();
+        assertEquals(4, rows.size());
+        assertRow(new Object[]{"CLASS", 10L, 2L, -3L, -21.0, -2L, -1L}, rows.get(0));
+        assertRow(new Object[]{"CLASS", 10L, 3L, -1L, -5.0, -1L, -0L}, rows.get(1));
+        assertRow(new Object[]{"CLASS", 20L, 2L, -2L, -12.0, -2L, -0L}, rows.get(2));
+        // Cộng dồn mọi lớp / kỳ của trường thành 1 dòng
+        assertRow(new Object[]{"SCHOOL", 1L, 0L, -4L, -26.0, -3L, -1L}, rows.get(3));
+    }
+
+    @Test
+    void removingNothingWritesNothing() {
+        service.onClassSubjectsRemoved(List.of());
+        verifyNoInteractions(jdbcTemplate);
+
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(Object[].class))).thenReturn(List.of());
+        service.onClassSubjectsRemoved(List.of(7L));
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+}
@@ -0,0 +1,114 @@
+package org.example.estudebackendspring.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.estudebackendspring.entity.Answer;
+import org.example.estudebackendspring.entity.Question;
+import org.example.estudebackendspring.entity.QuestionOption;
+import org.example.estudebackendspring.repository.QuestionOptionRepository;
+import org.example.estudebackendspring.repository.QuestionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.example.estudebackendspring.util.TestUtilHelper.rows;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("GradingEngine")
+class GradingEngineTest {
+
+    private QuestionRepository questionRepository;
+    private QuestionOptionRepository questionOptionRepository;
+    private JdbcTemplate jdbcTemplate;
+    private GradingEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        questionRepository = mock(QuestionRepository.class);
+        questionOptionRepository = mock(QuestionOptionRepository.class);
+        jdbcTemplate = mock(JdbcTemplate.class);
+        AnswerKeyCache cache = new AnswerKeyCache(questionOptionRepository, new SimpleMeterRegistry(), 1000);
+        engine = new GradingEngine(questionRepository, questionOptionRepository, cache, jdbcTemplate, 20);
+
+        // Câu 1: 2 điểm, đáp án đúng là option 11; câu 2: chưa đặt điểm, đáp án đúng là option 21
+        when(questionOptionRepository.findAnswerKeyRowsByQuestionIds(anyCollection())).thenReturn(rows(
+                new Object[]{1L, 5L, "EASY", "MULTIPLE_CHOICE", 2.0, 11L, true},
+                new Object[]{1L, 5L, "EASY", "MULTIPLE_CHOICE", 2.0, 12L, false},
+                new Object[]{2L, null, null, "MULTIPLE_CHOICE", null, 21L, true}));
+    }
+
+    @Test
+    void gradesAgainstTheAnswerKey() {
+        GradingEngine.AnswerKey key = engine.loadAnswerKey(List.of(1L, 2L), List.of(11L, 12L, 21L));
+
+        assertTrue(key.isCorrect(1L, 11L));
+        assertFalse(key.isCorrect(1L, 12L));
+        // Đáp án đúng của câu khác không được tính
+        assertFalse(key.isCorrect(1L, 21L));
+        assertFalse(key.belongsTo(21L, 1L));
+        assertTrue(key.isCorrect(2L, 21L));
+        assertEquals(2.0f, key.points(1L), 0.0001f);
+        assertEquals(0f, key.points(2L), 0.0001f);
+        assertEquals(5L, key.topicId(1L));
+        assertNull(key.topicId(2L));
+        assertNull(key.difficulty(2L));
+    }
+
+    @Test
+    void unknownQuestionsAndOptionsResolveToNull() {
+        GradingEngine.AnswerKey key = engine.loadAnswerKey(List.of(1L), List.of(11L));
+
+        assertFalse(key.hasQuestion(99L));
+        assertNull(key.question(99L));
+        assertNull(key.option(99L));
+        verify(questionRepository, never()).getReferenceById(any());
+        verify(questionOptionRepository, never()).getReferenceById(any());
+    }
+
+    @Test
+    void loadAnswerKeyUsesReferencesWithoutLoadingEntities() {
+        Question reference = new Question();
+        when(questionRepository.getReferenceById(1L)).thenReturn(reference);
+
+        GradingEngine.AnswerKey key = engine.loadAnswerKey(List.of(1L), List.of(11L));
+
+        assertSame(reference, key.question(1L));
+        verify(questionRepository, never()).findAllWithOptionsByIdIn(anyCollection());
+    }
+
+    @Test
+    void loadAnswerKeyWithEntitiesFetchesOptionsOfOtherQuestionsSeparately() {
+        Question question = new Question();
+        question.setQuestionId(1L);
+        QuestionOption correct = new QuestionOption();
+        correct.setOptionId(11L);
+        question.setOptions(List.of(correct));
+        QuestionOption foreign = new QuestionOption();
+        foreign.setOptionId(21L);
+        when(questionRepository.findAllWithOptionsByIdIn(anyCollection())).thenReturn(List.of(question));
+        when(questionOptionRepository.findAllById(anyCollection())).thenReturn(List.of(foreign));
+
+        GradingEngine.AnswerKey key = engine.loadAnswerKeyWithEntities(List.of(1L), List.of(11L, 21L));
+
+        assertSame(question, key.question(1L));
+        assertSame(correct, key.option(11L));
+        assertSame(foreign, key.option(21L));
+        verify(questionOptionRepository).findAllById(eq(Set.of(21L)));
+    }
+
+    @Test
+    void insertsAnswersInOneBatchCall() {
+        List<Answer> answers = List.of(new Answer(), new Answer());
+
+        engine.insertAnswers(7L, answers);
+        engine.insertAnswers(8L, List.of());
+
+        verify(jdbcTemplate, times(1)).batchUpdate(contains("INSERT INTO answers"), eq(answers), eq(20), any());
+        verifyNoMoreInteractions(jdbcTemplate);
+    }
+}
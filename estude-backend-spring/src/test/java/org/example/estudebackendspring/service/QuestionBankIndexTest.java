@@ -0,0 +1,90 @@
+package org.example.estudebackendspring.service;
+
+import org.example.estudebackendspring.enums.DifficultyLevel;
+import org.example.estudebackendspring.repository.QuestionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("QuestionBankIndex")
+class QuestionBankIndexTest {
+
+    private QuestionBankIndex index;
+
+    @BeforeEach
+    void setUp() {
+        // Topic 1: câu 1..10 EASY, 11..15 HARD; topic 2: câu 21..23 MEDIUM
+        List<Object[]> rows = new ArrayList<>();
+        for (long id = 1; id <= 10; id++) rows.add(new Object[]{id, 1L, "EASY"});
+        for (long id = 11; id <= 15; id++) rows.add(new Object[]{id, 1L, "HARD"});
+        for (long id = 21; id <= 23; id++) rows.add(new Object[]{id, 2L, "MEDIUM"});
+        QuestionRepository repository = mock(QuestionRepository.class);
+        when(repository.findQuestionBankIndexRows()).thenReturn(rows);
+        index = new QuestionBankIndex(repository);
+        index.reload();
+    }
+
+    @Test
+    void sampleReturnsDistinctIdsFromTheBucket() {
+        List<Long> sample = index.sample(1L, DifficultyLevel.EASY, 4, Set.of());
+
+        assertEquals(4, sample.size());
+        assertEquals(4, new HashSet<>(sample).size());
+        sample.forEach(id -> assertTrue(id >= 1 && id <= 10, "id " + id));
+    }
+
+    @Test
+    void sampleSkipsExcludedIds() {
+        List<Long> sample = index.sample(1L, DifficultyLevel.EASY, 10, Set.of(2L, 4L, 6L));
+
+        assertEquals(Set.of(1L, 3L, 5L, 7L, 8L, 9L, 10L), new HashSet<>(sample));
+        assertEquals(7, sample.size());
+    }
+
+    @Test
+    void sampleAcrossTopicsAndLevels() {
+        List<Long> all = index.sample(List.of(1L, 2L), null, 100);
+        List<Long> medium = index.sample(List.of(1L, 2L), DifficultyLevel.MEDIUM, 100);
+
+        assertEquals(18, all.size());
+        assertEquals(18, new HashSet<>(all).size());
+        assertEquals(Set.of(21L, 22L, 23L), new HashSet<>(medium));
+    }
+
+    @Test
+    void sampleOfEmptyOrUnknownBucketIsEmpty() {
+        assertTrue(index.sample(1L, DifficultyLevel.MEDIUM, 5, Set.of()).isEmpty());
+        assertTrue(index.sample(99L, DifficultyLevel.EASY, 5, Set.of()).isEmpty());
+        assertTrue(index.sample(1L, DifficultyLevel.EASY, 0, Set.of()).isEmpty());
+    }
+
+    @Test
+    void sampleReachesEveryId() {
+        Set<Long> seen = new HashSet<>();
+        for (int i = 0; i < 2_000; i++) {
+            seen.addAll(index.sample(1L, DifficultyLevel.HARD, 1, Set.of()));
+        }
+        assertEquals(Set.of(11L, 12L, 13L, 14L, 15L), seen);
+    }
+
+    @Test
+    void incrementalUpdatesMoveQuestionsBetweenBuckets() {
+        // Không có transaction: áp dụng ngay
+        index.onCreated(30L, 2L, DifficultyLevel.MEDIUM);
+        index.onCreated(30L, 2L, DifficultyLevel.MEDIUM);
+        assertEquals(4, index.count(2L, DifficultyLevel.MEDIUM));
+
+        index.onUpdated(30L, 2L, DifficultyLevel.MEDIUM, 1L, DifficultyLevel.HARD);
+        assertEquals(3, index.count(2L, DifficultyLevel.MEDIUM));
+        assertEquals(6, index.count(1L, DifficultyLevel.HARD));
+
+        index.onDeleted(30L, 1L, DifficultyLevel.HARD);
+        assertEquals(5, index.count(1L, DifficultyLevel.HARD));
+        assertFalse(index.sample(1L, DifficultyLevel.HARD, 10, Set.of()).contains(30L));
+    }
+}
@@ -0,0 +1,107 @@
+package org.example.estudebackendspring.service;
+
+import org.example.estudebackendspring.entity.Answer;
+import org.example.estudebackendspring.entity.Question;
+import org.example.estudebackendspring.entity.QuestionOption;
+import org.example.estudebackendspring.repository.QuestionUsageStatRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("QuestionUsageService")
+class QuestionUsageServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private QuestionUsageService service;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        service = new QuestionUsageService(mock(QuestionUsageStatRepository.class), jdbcTemplate,
+                mock(PlatformTransactionManager.class), 5);
+    }
+
+    private static Answer answer(Long questionId, Long optionId, Boolean correct) {
+        Answer answer = new Answer();
+        if (questionId != null) {
+            Question question = new Question();
+            question.setQuestionId(questionId);
+            answer.setQuestion(question);
+        }
+        if (optionId != null) {
+            QuestionOption option = new QuestionOption();
+            option.setOptionId(optionId);
+            answer.setChosenOption(option);
+        }
+        answer.setIsCorrect(correct);
+        return answer;
+    }
+
+    @Test
+    void toUsageEventsSkipsAnswersWithoutQuestion() {
+        List<QuestionUsageService.UsageEvent> events = QuestionUsageService.toUsageEvents(List.of(
+                answer(1L, 11L, true),
+                answer(2L, null, null),
+                answer(null, 31L, true)));
+
+        assertEquals(List.of(
+                new QuestionUsageService.UsageEvent(1L, 11L, true, null),
+                new QuestionUsageService.UsageEvent(2L, null, false, null)), events);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void recordInsertsOneDeltaPerAnswerInOneBatch() {
+        service.record(List.of(
+                new QuestionUsageService.UsageEvent(1L, 11L, true, 12.5),
+                new QuestionUsageService.UsageEvent(null, 21L, false, null),
+                new QuestionUsageService.UsageEvent(2L, null, false, null)));
+
+        ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(contains("question_usage_deltas"), captor.capture());
+        List<Object[]> rows = captor.getValue();
+        assertEquals(2, rows.size());
+        assertEquals(Arrays.asList(1L, 11L, true, 12.5), Arrays.asList(rows.get(0)));
+        assertEquals(Arrays.asList(2L, null, false, null), Arrays.asList(rows.get(1)));
+    }
+
+    @Test
+    void recordWithoutQuestionsWritesNothing() {
+        service.record(List.of());
+        service.record(null);
+        service.record(List.of(new QuestionUsageService.UsageEvent(null, 1L, true, null)));
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void flushDrainsFullBatchesUntilAShortOne() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class), any(Object[].class)))
+                .thenReturn(5, 5, 2);
+
+        service.flush();
+
+        verify(jdbcTemplate, times(3)).queryForObject(contains("question_usage_deltas"), eq(Integer.class), eq(5));
+    }
+
+    @Test
+    void flushFailureLeavesDeltasForTheNextRun() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class), any(Object[].class)))
+                .thenReturn(5)
+                .thenThrow(new QueryTimeoutException("timeout"));
+
+        assertDoesNotThrow(service::flush);
+        verify(jdbcTemplate, times(2)).queryForObject(anyString(), eq(Integer.class), any(Object[].class));
+    }
+}
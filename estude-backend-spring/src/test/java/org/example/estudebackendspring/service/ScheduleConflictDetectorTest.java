@@ -0,0 +1,109 @@
+package org.example.estudebackendspring.service;
+
+import org.example.estudebackendspring.dto.ScheduleConflictDTO;
+import org.example.estudebackendspring.repository.ScheduleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.example.estudebackendspring.util.TestUtilHelper.rows;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("ScheduleConflictDetector.findConflicts")
+class ScheduleConflictDetectorTest {
+
+    private static final Long CLASS_ID = 10L;
+    private static final LocalDate MONDAY = LocalDate.of(2025, 9, 8);
+    private static final LocalDate TUESDAY = MONDAY.plusDays(1);
+
+    private ScheduleRepository scheduleRepository;
+    private ScheduleConflictDetector detector;
+
+    @BeforeEach
+    void setUp() {
+        scheduleRepository = mock(ScheduleRepository.class);
+        // [schedule_id, date, start_period, end_period]: thứ 2 tiết 1-2 và 5, thứ 3 tiết 3-4
+        when(scheduleRepository.findClassPeriods(eq(CLASS_ID), any(), any())).thenReturn(rows(
+                new Object[]{100L, Date.valueOf(MONDAY), 1, 2},
+                new Object[]{101L, Date.valueOf(MONDAY), 5, 5},
+                new Object[]{102L, Date.valueOf(TUESDAY), 3, 4}));
+        detector = new ScheduleConflictDetector(scheduleRepository);
+    }
+
+    private static ScheduleConflictDetector.Proposal proposal(int index, LocalDate date, Integer start, Integer end) {
+        return new ScheduleConflictDetector.Proposal(index, date != null ? Date.valueOf(date) : null, start, end);
+    }
+
+    @Test
+    void reportsOverlapWithSavedSchedules() {
+        List<ScheduleConflictDTO> conflicts = detector.findConflicts(CLASS_ID, List.of(
+                proposal(0, MONDAY, 2, 3),
+                proposal(1, MONDAY, 4, 4),
+                proposal(2, TUESDAY, 1, 2)), null);
+
+        assertEquals(1, conflicts.size());
+        assertEquals(ScheduleConflictDTO.builder()
+                .index(0).scheduleId(100L).classId(CLASS_ID).date(MONDAY)
+                .startPeriod(2).endPeriod(3).conflictingStartPeriod(1).conflictingEndPeriod(2)
+                .build(), conflicts.get(0));
+    }
+
+    @Test
+    void boundariesAreInclusive() {
+        List<ScheduleConflictDTO> conflicts = detector.findConflicts(CLASS_ID, List.of(
+                proposal(0, MONDAY, 5, 6),
+                proposal(1, TUESDAY, 4, 4)), null);
+
+        assertEquals(List.of(101L, 102L), conflicts.stream().map(ScheduleConflictDTO::getScheduleId).toList());
+    }
+
+    @Test
+    void reportsOverlapBetweenProposalsAgainstEarlierOnes() {
+        List<ScheduleConflictDTO> conflicts = detector.findConflicts(CLASS_ID, List.of(
+                proposal(0, TUESDAY, 1, 2),
+                proposal(1, TUESDAY, 2, 2),
+                proposal(2, TUESDAY, 5, 6)), null);
+
+        assertEquals(1, conflicts.size());
+        ScheduleConflictDTO conflict = conflicts.get(0);
+        assertEquals(1, conflict.getIndex());
+        assertEquals(0, conflict.getConflictingIndex());
+        assertNull(conflict.getScheduleId());
+        assertEquals(1, conflict.getConflictingStartPeriod());
+    }
+
+    @Test
+    void ignoredScheduleIsNotReported() {
+        List<ScheduleConflictDTO> conflicts = detector.findConflicts(CLASS_ID,
+                List.of(proposal(0, MONDAY, 1, 1)), 100L);
+
+        assertTrue(conflicts.isEmpty());
+    }
+
+    @Test
+    void queriesOnlyTheProposedDateRange() {
+        detector.findConflicts(CLASS_ID, List.of(
+                proposal(0, TUESDAY, 1, 1),
+                proposal(1, MONDAY, 7, 8),
+                proposal(2, MONDAY.plusDays(4), 1, 1)), null);
+
+        verify(scheduleRepository).findClassPeriods(CLASS_ID, MONDAY, MONDAY.plusDays(4));
+    }
+
+    @Test
+    void incompleteProposalsAreSkippedWithoutQuerying() {
+        List<ScheduleConflictDTO> conflicts = detector.findConflicts(CLASS_ID, List.of(
+                proposal(0, null, 1, 2),
+                proposal(1, MONDAY, null, 2),
+                proposal(2, MONDAY, 1, null)), null);
+
+        assertTrue(conflicts.isEmpty());
+        verifyNoInteractions(scheduleRepository);
+    }
+}
@@ -0,0 +1,169 @@
+package org.example.estudebackendspring.service;
+
+import org.example.estudebackendspring.dto.ClassStatisticsDTO;
+import org.example.estudebackendspring.dto.StudentStatisticsDTO;
+import org.example.estudebackendspring.entity.*;
+import org.example.estudebackendspring.repository.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * getClassStatistics (vài query GROUP BY theo kỳ) phải cho cùng kết quả với cách tính cũ:
+ * gọi getStudentStatistics cho từng học sinh, mỗi lần xếp hạng lại cả lớp.
+ */
+@DisplayName("StatisticsService.getClassStatistics")
+class StatisticsServiceTest {
+
+    private static final long TEACHER_ID = 100L;
+    private static final long CLASS_ID = 10L;
+    private static final long TERM_ID = 2L;
+    private static final int SUBJECTS = 3;
+    private static final long ASSIGNMENTS = 4;
+
+    // studentId -> actualAverage theo từng môn của kỳ hiện tại (null = chưa có điểm)
+    private final Map<Long, Float[]> grades = new LinkedHashMap<>();
+    // studentId -> [đã nộp, nộp trễ]
+    private final Map<Long, long[]> submissions = new HashMap<>();
+    // studentId -> [tổng số buổi, số buổi vắng]
+    private final Map<Long, long[]> attendance = new HashMap<>();
+
+    private final List<Student> students = new ArrayList<>();
+    private StatisticsService service;
+
+    @BeforeEach
+    void setUp() {
+        grades.put(1L, new Float[]{8.0f, 7.0f, 9.0f});
+        grades.put(2L, new Float[]{9.0f, 7.0f, 8.0f});      // bằng điểm học sinh 1 -> cùng hạng
+        grades.put(3L, new Float[]{6.5f, 3.0f, 7.25f});
+        grades.put(4L, new Float[]{9.5f, null, null});      // thiếu điểm -> không được xếp hạng
+        grades.put(5L, new Float[]{null, null, null});      // chưa có điểm
+        submissions.put(1L, new long[]{4, 0});
+        submissions.put(2L, new long[]{3, 1});
+        submissions.put(3L, new long[]{2, 2});
+        submissions.put(4L, new long[]{1, 0});
+        attendance.put(1L, new long[]{10, 0});
+        attendance.put(2L, new long[]{10, 3});
+        attendance.put(4L, new long[]{8, 8});
+        attendance.put(5L, new long[]{2, 1});
+        for (Long id : grades.keySet()) {
+            Student s = new Student();
+            s.setUserId(id);
+            s.setFullName("Student " + id);
+            students.add(s);
+        }
+
+        Clazz clazz = new Clazz();
+        clazz.setClassId(CLASS_ID);
+        clazz.setName("10A1");
+        clazz.setTerms(List.of(term(1L, -120, -60, 5), term(TERM_ID, -30, 30, SUBJECTS)));
+
+        StudentRepository studentRepository = mock(StudentRepository.class);
+        TeacherRepository teacherRepository = mock(TeacherRepository.class);
+        SubmissionRepository submissionRepository = mock(SubmissionRepository.class);
+        AssignmentRepository assignmentRepository = mock(AssignmentRepository.class);
+        AttendanceRecordRepository attendanceRecordRepository = mock(AttendanceRecordRepository.class);
+        SubjectGradeRepository subjectGradeRepository = mock(SubjectGradeRepository.class);
+        ClazzRepository clazzRepository = mock(ClazzRepository.class);
+        when(teacherRepository.findById(TEACHER_ID)).thenReturn(Optional.of(new Teacher()));
+        when(clazzRepository.findById(CLASS_ID)).thenReturn(Optional.of(clazz));
+        when(studentRepository.findStudentsByClassId(CLASS_ID)).thenReturn(students);
+        when(subjectGradeRepository.summarizeByTermGroupByStudent(TERM_ID)).thenReturn(gradeRows());
+        when(submissionRepository.countSubmissionsByTermGroupByStudent(TERM_ID)).thenReturn(rowsOf(submissions));
+        when(attendanceRecordRepository.countByTermGroupByStudent(TERM_ID)).thenReturn(rowsOf(attendance));
+        when(assignmentRepository.countPublishedByTerm(TERM_ID)).thenReturn(ASSIGNMENTS);
+
+        service = new StatisticsService(studentRepository, teacherRepository, submissionRepository,
+                assignmentRepository, attendanceRecordRepository, subjectGradeRepository,
+                mock(EnrollmentRepository.class), clazzRepository, mock(ClassRankingIndex.class));
+    }
+
+    @Test
+    void matchesPerStudentComputation() {
+        ClassStatisticsDTO result = service.getClassStatistics(TEACHER_ID, CLASS_ID);
+
+        List<StudentStatisticsDTO> expected = students.stream().map(this::legacyStudentStatistics).toList();
+        assertEquals(expected, result.getStudents());
+        assertEquals(CLASS_ID, result.getClassId());
+        assertEquals(expected.stream().map(StudentStatisticsDTO::getAverageScore).filter(Objects::nonNull)
+                .mapToDouble(Double::doubleValue).average().orElse(0.0), result.getClassAverageScore(), 1e-9);
+        assertEquals(expected.stream().mapToDouble(StudentStatisticsDTO::getSubmissionRate).average().orElse(0.0),
+                result.getSubmissionRate(), 1e-9);
+        assertEquals(expected.stream().mapToDouble(StudentStatisticsDTO::getAttendanceRate).average().orElse(0.0),
+                result.getAttendanceRate(), 1e-9);
+    }
+
+    @Test
+    void ranksTiesTogetherAndSkipsIncompleteStudents() {
+        Map<Long, Integer> ranks = new HashMap<>();
+        for (StudentStatisticsDTO s : service.getClassStatistics(TEACHER_ID, CLASS_ID).getStudents()) {
+            ranks.put(s.getStudentId(), s.getRank());
+        }
+
+        assertEquals(1, ranks.get(1L));
+        assertEquals(1, ranks.get(2L));
+        assertEquals(3, ranks.get(3L));
+        assertEquals(0, ranks.get(4L));
+        assertNull(ranks.get(5L));
+    }
+
+    // Cách tính cũ của getStudentStatistics cho 1 học sinh, trên cùng dữ liệu
+    private StudentStatisticsDTO legacyStudentStatistics(Student student) {
+        List<Double> sortedAvgs = new ArrayList<>();
+        for (Float[] g : grades.values()) {
+            List<Float> present = Arrays.stream(g).filter(Objects::nonNull).toList();
+            if (present.size() == SUBJECTS) {
+                sortedAvgs.add(present.stream().mapToDouble(Float::doubleValue).average().orElse(0.0));
+            }
+        }
+        sortedAvgs.sort(Comparator.reverseOrder());
+
+        List<Float> available = Arrays.stream(grades.get(student.getUserId())).filter(Objects::nonNull).toList();
+        Double avg = available.isEmpty() ? null : available.stream().mapToDouble(Float::doubleValue).average().orElse(0.0);
+        Integer rank = avg != null ? sortedAvgs.indexOf(avg) + 1 : null;
+        long completed = available.stream().filter(v -> v >= 3.5).count();
+
+        long[] sub = submissions.getOrDefault(student.getUserId(), new long[]{0, 0});
+        long[] att = attendance.getOrDefault(student.getUserId(), new long[]{0, 0});
+        double attendanceRate = att[0] == 0 ? 0 : ((double) (att[0] - att[1]) / att[0]) * 100;
+        return new StudentStatisticsDTO(student.getUserId(), student.getFullName(), avg, rank, students.size(),
+                SUBJECTS, (int) completed, (double) sub[0] / ASSIGNMENTS * 100, (double) sub[1] / ASSIGNMENTS * 100,
+                attendanceRate, att[0], att[1]);
+    }
+
+    // Như subjectGradeRepository.summarizeByTermGroupByStudent: [student_id, COUNT, AVG, số môn >= 3.5]
+    private List<Object[]> gradeRows() {
+        List<Object[]> rows = new ArrayList<>();
+        grades.forEach((studentId, g) -> {
+            List<Float> present = Arrays.stream(g).filter(Objects::nonNull).toList();
+            Double avg = present.isEmpty() ? null : present.stream().mapToDouble(Float::doubleValue).average().orElse(0.0);
+            rows.add(new Object[]{studentId, (long) present.size(), avg, present.stream().filter(v -> v >= 3.5).count()});
+        });
+        return rows;
+    }
+
+    private static List<Object[]> rowsOf(Map<Long, long[]> counts) {
+        List<Object[]> rows = new ArrayList<>();
+        counts.forEach((studentId, c) -> rows.add(new Object[]{studentId, c[0], c[1]}));
+        return rows;
+    }
+
+    private static Term term(long termId, int beginDays, int endDays, int subjects) {
+        Term term = new Term();
+        term.setTermId(termId);
+        Instant now = Instant.now();
+        term.setBeginDate(Date.from(now.plus(Duration.ofDays(beginDays))));
+        term.setEndDate(Date.from(now.plus(Duration.ofDays(endDays))));
+        List<ClassSubject> classSubjects = new ArrayList<>();
+        for (int i = 0; i < subjects; i++) classSubjects.add(new ClassSubject());
+        term.setClassSubjects(classSubjects);
+        return term;
+    }
+}
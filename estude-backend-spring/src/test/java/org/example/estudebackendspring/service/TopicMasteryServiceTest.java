@@ -0,0 +1,107 @@
+package org.example.estudebackendspring.service;
+
+import org.example.estudebackendspring.entity.Topic;
+import org.example.estudebackendspring.entity.TopicMastery;
+import org.example.estudebackendspring.repository.TopicMasteryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("TopicMasteryService")
+class TopicMasteryServiceTest {
+
+    private static final Long STUDENT_ID = 7L;
+
+    private TopicMasteryRepository repository;
+    private TopicMasteryService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(TopicMasteryRepository.class);
+        service = new TopicMasteryService(repository, mock(JdbcTemplate.class), mock(PlatformTransactionManager.class));
+    }
+
+    private static TopicMastery mastery(long topicId, int attempts, double sum, Float latest) {
+        Topic topic = new Topic();
+        topic.setTopicId(topicId);
+        TopicMastery m = new TopicMastery();
+        m.setStudentId(STUDENT_ID);
+        m.setTopic(topic);
+        m.setAttemptCount(attempts);
+        m.setAccuracySum(sum);
+        m.setLatestAccuracy(latest);
+        return m;
+    }
+
+    @Test
+    void recordRollsLatestIntoPreviousAndUpdatesStatus() {
+        TopicMastery fresh = mastery(1L, 0, 0.0, null);
+        TopicMastery seen = mastery(2L, 2, 0.8, 0.4f);
+        when(repository.findForUpdate(eq(STUDENT_ID), anyCollection())).thenReturn(List.of(fresh, seen));
+        LocalDateTime at = LocalDateTime.of(2025, 9, 8, 10, 0);
+
+        service.record(STUDENT_ID, List.of(
+                new TopicMasteryService.Attempt(2L, 3L, 0.6f),
+                new TopicMasteryService.Attempt(1L, 3L, 0.95f)), at);
+
+        assertEquals(1, fresh.getAttemptCount());
+        assertEquals(0.95f, fresh.getLatestAccuracy());
+        assertNull(fresh.getPreviousAccuracy());
+        assertEquals("EXCELLENT", fresh.getStatus());
+        assertEquals(at, fresh.getLastAttemptAt());
+
+        assertEquals(3, seen.getAttemptCount());
+        assertEquals(1.4, seen.getAccuracySum(), 1e-6);
+        assertEquals(0.4f, seen.getPreviousAccuracy());
+        assertEquals(0.6f, seen.getLatestAccuracy());
+        // 0.6 nhưng tăng 0.2 so với lần trước
+        assertEquals("IMPROVING", seen.getStatus());
+        assertEquals(0.2f, TopicMasteryService.trend(seen), 1e-6f);
+        assertEquals(1.4f / 3, TopicMasteryService.averageAccuracy(seen), 1e-6f);
+    }
+
+    @Test
+    void recordCreatesRowsInTopicOrder() {
+        service.record(STUDENT_ID, List.of(
+                new TopicMasteryService.Attempt(9L, 3L, 0.5f),
+                new TopicMasteryService.Attempt(null, 3L, 0.5f),
+                new TopicMasteryService.Attempt(4L, 3L, 0.5f)), LocalDateTime.now());
+
+        InOrder inOrder = inOrder(repository);
+        inOrder.verify(repository).insertIfAbsent(STUDENT_ID, 4L, 3L);
+        inOrder.verify(repository).insertIfAbsent(STUDENT_ID, 9L, 3L);
+        inOrder.verify(repository).findForUpdate(eq(STUDENT_ID), argThat(ids -> Set.copyOf(ids).equals(Set.of(4L, 9L))));
+    }
+
+    @Test
+    void recordWithoutTopicsDoesNothing() {
+        service.record(STUDENT_ID, List.of(), LocalDateTime.now());
+        service.record(STUDENT_ID, Arrays.asList(new TopicMasteryService.Attempt(null, 3L, 1f)), LocalDateTime.now());
+        service.record(null, List.of(new TopicMasteryService.Attempt(1L, 3L, 1f)), LocalDateTime.now());
+
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void statusThresholds() {
+        assertEquals("UNKNOWN", TopicMasteryService.determineStatus(null, 0f));
+        assertEquals("EXCELLENT", TopicMasteryService.determineStatus(0.9f, 0f));
+        assertEquals("GOOD", TopicMasteryService.determineStatus(0.7f, -0.3f));
+        assertEquals("NEED_IMPROVEMENT", TopicMasteryService.determineStatus(0.5f, 0.1f));
+        assertEquals("IMPROVING", TopicMasteryService.determineStatus(0.5f, 0.11f));
+        assertEquals("WEAK", TopicMasteryService.determineStatus(0.49f, 0.4f));
+        assertEquals(0f, TopicMasteryService.averageAccuracy(new TopicMastery()));
+    }
+}
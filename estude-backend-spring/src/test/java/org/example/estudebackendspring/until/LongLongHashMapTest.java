@@ -0,0 +1,106 @@
+package org.example.estudebackendspring.until;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("LongLongHashMap")
+class LongLongHashMapTest {
+
+    @Test
+    void putGetAndOverwrite() {
+        LongLongHashMap map = new LongLongHashMap(4);
+        map.put(7L, 70L);
+        map.put(8L, 80L);
+        map.put(7L, 71L);
+
+        assertEquals(71L, map.get(7L, -1L));
+        assertEquals(80L, map.get(8L, -1L));
+        assertEquals(-1L, map.get(9L, -1L));
+        assertTrue(map.containsKey(8L));
+        assertFalse(map.containsKey(9L));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    void growsPastInitialCapacity() {
+        LongLongHashMap map = new LongLongHashMap(1);
+        for (long k = 1; k <= 10_000; k++) map.put(k, k * 3);
+
+        assertEquals(10_000, map.size());
+        for (long k = 1; k <= 10_000; k++) assertEquals(k * 3, map.get(k, -1L));
+    }
+
+    @Test
+    void removeKeepsCollidingKeysReachable() {
+        LongLongHashMap map = new LongLongHashMap(16);
+        for (long k = 1; k <= 500; k++) map.put(k, k);
+        for (long k = 1; k <= 500; k += 2) assertTrue(map.remove(k));
+
+        assertFalse(map.remove(1L));
+        assertEquals(250, map.size());
+        for (long k = 1; k <= 500; k++) {
+            assertEquals(k % 2 == 0, map.containsKey(k), "key " + k);
+        }
+    }
+
+    @Test
+    void removeIfValueRemovesOnlyMatchingEntries() {
+        LongLongHashMap map = new LongLongHashMap(16);
+        // value = (questionId << 1) | isCorrect, như option key của AnswerKeyCache
+        for (long optionId = 1; optionId <= 1_000; optionId++) {
+            map.put(optionId, ((optionId % 10) << 1) | (optionId & 1));
+        }
+
+        int removed = map.removeIfValue(v -> (v >>> 1) == 3);
+
+        assertEquals(100, removed);
+        assertEquals(900, map.size());
+        for (long optionId = 1; optionId <= 1_000; optionId++) {
+            assertEquals(optionId % 10 != 3, map.containsKey(optionId), "option " + optionId);
+        }
+    }
+
+    @Test
+    void matchesHashMapUnderRandomOperations() {
+        LongLongHashMap map = new LongLongHashMap(8);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 50_000; i++) {
+            long key = 1 + random.nextInt(2_000);
+            switch (random.nextInt(3)) {
+                case 0 -> {
+                    map.put(key, i);
+                    expected.put(key, (long) i);
+                }
+                case 1 -> assertEquals(expected.remove(key) != null, map.remove(key));
+                default -> assertEquals(expected.getOrDefault(key, -1L).longValue(), map.get(key, -1L));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        expected.forEach((k, v) -> assertEquals(v.longValue(), map.get(k, -1L)));
+    }
+
+    @Test
+    void clearEmptiesTheMap() {
+        LongLongHashMap map = new LongLongHashMap(4);
+        map.put(1L, 1L);
+        map.put(2L, 2L);
+        map.clear();
+
+        assertEquals(0, map.size());
+        assertFalse(map.containsKey(1L));
+    }
+
+    @Test
+    void rejectsReservedKey() {
+        LongLongHashMap map = new LongLongHashMap(4);
+        assertThrows(IllegalArgumentException.class, () -> map.put(0L, 1L));
+        assertThrows(IllegalArgumentException.class, () -> map.get(0L, 1L));
+    }
+}
@@ -3,7 +3,10 @@ package org.example.estudebackendspring.util;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -127,4 +130,11 @@ public class TestUtilHelper {
     public String generateUniqueId(String prefix) {
         return prefix + "_" + getCurrentTimestamp();
     }
+    
+    /**
+     * Tạo kết quả native query (List<Object[]>) cho mock repository
+     */
+    public static List<Object[]> rows(Object[]... rows) {
+        return new ArrayList<>(Arrays.asList(rows));
+    }
 }